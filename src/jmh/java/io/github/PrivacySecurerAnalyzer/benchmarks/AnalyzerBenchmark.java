@@ -0,0 +1,114 @@
+package io.github.PrivacySecurerAnalyzer.benchmarks;
+
+import io.github.PrivacySecurerAnalyzer.Config;
+import io.github.PrivacySecurerAnalyzer.core.Graph;
+import io.github.PrivacySecurerAnalyzer.frontends.DERGFrontend;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ApkAnalyzer.build() end to end, including Soot, on the APK given by -p input=... (or -Dbenchmark.input=...).
+ * Extra analyzer arguments, such as "-sdk android.jar", go in -p args=... (or -Dbenchmark.args=...).
+ *
+ * Without an input, the benchmark analyzes the bundled app.jar, which needs no android.jar: stubs of
+ * io.github.privacystreamsevents.core and a com.example.app.MainActivity registering six events
+ * (audio, two geolocation, message, contact and image), built with javac -target 1.7.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class AnalyzerBenchmark {
+    static final String DEFAULT_INPUT = "app.jar";
+
+    @Param({""})
+    public String input;
+
+    @Param({""})
+    public String args;
+
+    private String[] analyzerArgs;
+    private File outputDir;
+    // the bundled input, copied out of the benchmark jar
+    private File defaultInput;
+    private PrintStream stdout;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, ParseException {
+        if (input.isEmpty())
+            input = System.getProperty("benchmark.input", "");
+        if (args.isEmpty())
+            args = System.getProperty("benchmark.args", "");
+        if (input.isEmpty()) {
+            defaultInput = File.createTempFile("derg-benchmark", ".jar");
+            try (InputStream in = AnalyzerBenchmark.class.getResourceAsStream(DEFAULT_INPUT)) {
+                if (in == null)
+                    throw new IllegalStateException("The bundled " + DEFAULT_INPUT + " is missing, build with -P jmh");
+                FileUtils.copyInputStreamToFile(in, defaultInput);
+            }
+            input = defaultInput.getPath();
+        }
+        if (!new File(input).exists())
+            throw new IllegalStateException("The analyzed APK does not exist: " + input);
+
+        outputDir = File.createTempFile("derg-benchmark", "");
+        outputDir.delete();
+        outputDir.mkdirs();
+
+        List<String> argList = new ArrayList<>(Arrays.asList("-i", input, "-o", outputDir.getPath(), "-nocache"));
+        if (!args.trim().isEmpty())
+            argList.addAll(Arrays.asList(args.trim().split("\\s+")));
+        analyzerArgs = argList.toArray(new String[argList.size()]);
+
+        Config.init();
+        if (!Config.parseArgs(analyzerArgs))
+            throw new ParseException("Invalid analyzer arguments: " + argList);
+
+        // the analysis results are printed to the console, keep them out of the benchmark output
+        stdout = System.out;
+        System.setOut(new PrintStream(new NullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(stdout);
+        FileUtils.deleteDirectory(outputDir);
+        if (defaultInput != null)
+            defaultInput.delete();
+    }
+
+    @Benchmark
+    public Graph build() throws ParseException {
+        // a fresh frontend and Soot, like a corpus worker starting the next APK
+        DERGFrontend.registerFrontends();
+        DERGFrontend frontend = DERGFrontend.getBuilder(Config.frontendType);
+        frontend.reset();
+        frontend.parseArgs(analyzerArgs);
+        return frontend.build();
+    }
+}
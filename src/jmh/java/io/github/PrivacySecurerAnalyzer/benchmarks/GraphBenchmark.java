@@ -0,0 +1,112 @@
+package io.github.PrivacySecurerAnalyzer.benchmarks;
+
+import io.github.PrivacySecurerAnalyzer.core.Edge;
+import io.github.PrivacySecurerAnalyzer.core.Graph;
+import io.github.PrivacySecurerAnalyzer.core.Node;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building, sorting and serializing graphs of the size of small and large apps.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class GraphBenchmark {
+    private static final int EDGES_PER_NODE = 4;
+    private static final String[] EDGE_TYPES = {Edge.TYPE_REFER, Edge.TYPE_CONTAINS, Edge.TYPE_DEFINE_USE};
+
+    @Param({"1000", "100000"})
+    public int nodeCount;
+
+    private String[] objects;
+    private Graph sortedGraph;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objects = new String[nodeCount];
+        for (int i = 0; i < nodeCount; i++) {
+            objects[i] = "<com.example.C" + (i % 100) + ": void m" + i + "()>";
+        }
+        sortedGraph = buildGraph(objects);
+        sortedGraph.sortGraph();
+    }
+
+    // nodes with random edges between them, including duplicated edges
+    static Graph buildGraph(String[] objects) {
+        Random random = new Random(42);
+        Graph g = new Graph();
+        Node[] nodes = new Node[objects.length];
+        for (int i = 0; i < objects.length; i++) {
+            nodes[i] = g.getNodeOrCreate(objects[i], objects[i], Node.TYPE_METHOD);
+        }
+        for (int i = 0; i < objects.length * EDGES_PER_NODE; i++) {
+            g.createEdge(nodes[random.nextInt(nodes.length)], nodes[random.nextInt(nodes.length)],
+                    EDGE_TYPES[random.nextInt(EDGE_TYPES.length)]);
+        }
+        return g;
+    }
+
+    // a graph that has not been sorted yet, made again for every invocation
+    @State(Scope.Thread)
+    public static class UnsortedGraph {
+        public Graph graph;
+
+        @Setup(Level.Invocation)
+        public void setUp(GraphBenchmark benchmark) {
+            graph = buildGraph(benchmark.objects);
+        }
+    }
+
+    @Benchmark
+    public Graph getNodeOrCreate() {
+        Graph g = new Graph();
+        for (String object : objects) {
+            g.getNodeOrCreate(object, object, Node.TYPE_METHOD);
+        }
+        // the nodes exist now, look them up again
+        for (String object : objects) {
+            g.getNodeOrCreate(object, object, Node.TYPE_METHOD);
+        }
+        return g;
+    }
+
+    @Benchmark
+    public Graph sortGraph(UnsortedGraph unsorted) {
+        unsorted.graph.sortGraph();
+        return unsorted.graph;
+    }
+
+    // chained filters, copying the graph for every filter
+    @Benchmark
+    public int removeEdgesOfType() {
+        return sortedGraph.removeEdgesOfType(Edge.TYPE_REFER).removeEdgesOfType(Edge.TYPE_CONTAINS).getEdgeCount();
+    }
+
+    // the same filters on a view, without copying
+    @Benchmark
+    public int viewWithoutEdgesOfType() {
+        return sortedGraph.view().withoutEdgesOfType(Edge.TYPE_REFER).withoutEdgesOfType(Edge.TYPE_CONTAINS).getEdgeCount();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return sortedGraph.toJson().toString();
+    }
+}
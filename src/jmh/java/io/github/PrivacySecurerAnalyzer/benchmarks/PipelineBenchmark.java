@@ -0,0 +1,162 @@
+package io.github.PrivacySecurerAnalyzer.benchmarks;
+
+import io.github.PrivacySecurerAnalyzer.core.EventPipeline;
+import io.github.PrivacySecurerAnalyzer.core.PSFunction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import soot.ArrayType;
+import soot.Body;
+import soot.G;
+import soot.Local;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.UnitPatchingChain;
+import soot.Value;
+import soot.VoidType;
+import soot.jimple.AssignStmt;
+import soot.jimple.IntConstant;
+import soot.jimple.InvokeExpr;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.StringConstant;
+import soot.options.Options;
+import soot.toolkits.graph.BriefUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+import soot.toolkits.scalar.LocalDefs;
+import soot.toolkits.scalar.LocalUses;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parameter resolution and pipeline extraction on a Jimple body built in memory:
+ * a UQI.getData(...) call whose function argument is nested functionDepth deep,
+ * followed by a chain of pipelineLength PStream.filter(...) calls.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class PipelineBenchmark {
+    private static final String PACKAGE = "io.github.privacystreams.benchmark.";
+
+    @Param({"2", "16"})
+    public int functionDepth;
+
+    @Param({"4", "64"})
+    public int pipelineLength;
+
+    private SootMethod hostMethod;
+    private Body body;
+    private AssignStmt getDataUnit;
+    private LocalDefs localDefs;
+    private LocalUses localUses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        G.reset();
+        Options.v().set_allow_phantom_refs(true);
+
+        RefType stringType = RefType.v("java.lang.String");
+        RefType functionType = RefType.v(PACKAGE + "Function");
+        RefType uqiType = RefType.v(PACKAGE + "UQI");
+        RefType streamType = RefType.v(PACKAGE + "PStream");
+
+        SootClass functions = makeClass("Functions");
+        SootMethod sum = makeMethod(functions, "sum", Collections.<Type>singletonList(ArrayType.v(stringType, 1)), functionType, true);
+        SootMethod compare = makeMethod(functions, "compare", Arrays.<Type>asList(functionType, stringType), functionType, true);
+        SootClass uqi = makeClass("UQI");
+        SootMethod getUQI = makeMethod(uqi, "get", Collections.<Type>emptyList(), uqiType, true);
+        SootMethod getData = makeMethod(uqi, "getData", Arrays.<Type>asList(functionType, stringType), streamType, false);
+        SootClass stream = makeClass("PStream");
+        SootMethod filter = makeMethod(stream, "filter", Collections.<Type>singletonList(functionType), streamType, false);
+
+        SootClass host = makeClass("MainActivity");
+        hostMethod = makeMethod(host, "onCreate", Collections.<Type>emptyList(), VoidType.v(), true);
+        JimpleBody jimpleBody = Jimple.v().newBody(hostMethod);
+        hostMethod.setActiveBody(jimpleBody);
+        Jimple jimple = Jimple.v();
+        UnitPatchingChain units = jimpleBody.getUnits();
+
+        Local uqiLocal = newLocal(jimpleBody, "uqi", uqiType);
+        units.add(jimple.newAssignStmt(uqiLocal, jimple.newStaticInvokeExpr(getUQI.makeRef())));
+
+        Local fields = newLocal(jimpleBody, "fields", ArrayType.v(stringType, 1));
+        units.add(jimple.newAssignStmt(fields, jimple.newNewArrayExpr(stringType, IntConstant.v(2))));
+        units.add(jimple.newAssignStmt(jimple.newArrayRef(fields, IntConstant.v(0)), StringConstant.v("x")));
+        units.add(jimple.newAssignStmt(jimple.newArrayRef(fields, IntConstant.v(1)), StringConstant.v("y")));
+        Local function = newLocal(jimpleBody, "f0", functionType);
+        units.add(jimple.newAssignStmt(function, jimple.newStaticInvokeExpr(sum.makeRef(), fields)));
+        for (int i = 1; i < functionDepth; i++) {
+            Local outer = newLocal(jimpleBody, "f" + i, functionType);
+            units.add(jimple.newAssignStmt(outer, jimple.newStaticInvokeExpr(compare.makeRef(),
+                    Arrays.<Value>asList(function, StringConstant.v("c" + i)))));
+            function = outer;
+        }
+
+        Local streamLocal = newLocal(jimpleBody, "s0", streamType);
+        getDataUnit = jimple.newAssignStmt(streamLocal, jimple.newVirtualInvokeExpr(uqiLocal, getData.makeRef(),
+                Arrays.<Value>asList(function, StringConstant.v("event"))));
+        units.add(getDataUnit);
+        for (int i = 1; i <= pipelineLength; i++) {
+            Local next = newLocal(jimpleBody, "s" + i, streamType);
+            units.add(jimple.newAssignStmt(next, jimple.newVirtualInvokeExpr(streamLocal, filter.makeRef(), function)));
+            streamLocal = next;
+        }
+        units.add(jimple.newReturnVoidStmt());
+
+        body = jimpleBody;
+        // no exceptional edges, so the JDK classes don't need to be loaded
+        UnitGraph unitGraph = new BriefUnitGraph(body);
+        localDefs = LocalDefs.Factory.newLocalDefs(unitGraph);
+        localUses = LocalUses.Factory.newLocalUses(unitGraph, localDefs);
+    }
+
+    private static SootClass makeClass(String shortName) {
+        SootClass cls = new SootClass(PACKAGE + shortName, Modifier.PUBLIC);
+        Scene.v().addClass(cls);
+        cls.setApplicationClass();
+        return cls;
+    }
+
+    private static SootMethod makeMethod(SootClass cls, String name, List<Type> parameterTypes, Type returnType, boolean isStatic) {
+        SootMethod method = new SootMethod(name, parameterTypes, returnType,
+                isStatic ? Modifier.PUBLIC | Modifier.STATIC : Modifier.PUBLIC);
+        cls.addMethod(method);
+        return method;
+    }
+
+    private static Local newLocal(Body body, String name, Type type) {
+        Local local = Jimple.v().newLocal(name, type);
+        body.getLocals().add(local);
+        return local;
+    }
+
+    @Benchmark
+    public PSFunction resolveParameters() {
+        return new PSFunction((InvokeExpr) getDataUnit.getRightOp(), getDataUnit, hostMethod, body, localDefs, localUses);
+    }
+
+    @Benchmark
+    public EventPipeline buildEventPipeline() {
+        return new EventPipeline((InvokeExpr) getDataUnit.getRightOp(), getDataUnit, hostMethod, body, localDefs, localUses);
+    }
+}
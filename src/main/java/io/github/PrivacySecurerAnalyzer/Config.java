@@ -15,12 +15,15 @@ import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
 
 import io.github.PrivacySecurerAnalyzer.backends.DERGBackend;
+import io.github.PrivacySecurerAnalyzer.corpus.CorpusScheduler;
 import io.github.PrivacySecurerAnalyzer.frontends.DERGFrontend;
+import io.github.PrivacySecurerAnalyzer.index.IndexQuery;
 import io.github.PrivacySecurerAnalyzer.utils.IgnoreUnknownTokenParser;
 import io.github.PrivacySecurerAnalyzer.utils.Util;
 
 public class Config {
 	public static final String PROJECT_NAME = "PrivacySecurerAnalyzer";
+	public static final String VERSION = "0.0.1-SNAPSHOT";
 	
 	// Directory for input
     public static String inputDirOrFile = "";
@@ -31,6 +34,25 @@ public class Config {
     public static String outputDir = "output";
     public static String backendType = "";
     public static DERGBackend dergBackend;
+
+    // Corpus mode: -i is a directory of .apk files analyzed by a pool of worker JVMs
+    public static boolean corpusMode = false;
+    public static boolean workerMode = false;
+    public static int workers = Runtime.getRuntime().availableProcessors();
+    // Seconds a worker may spend on one APK before it is killed
+    public static int jobTimeoutSeconds = 600;
+    public static String[] args = new String[0];
+    // Triage mode only classifies apps by their dex files, without analyzing them
+    public static boolean triageMode = false;
+    // Server mode: analyze the apps submitted over HTTP on this port, 0 if not serving
+    public static int serverPort = 0;
+
+    // Directory of the result cache shared by all runs, null if caching is disabled
+    public static String cacheDir = null;
+    // Directory of the event index shared by all runs, null if events are not indexed
+    public static String indexDir = null;
+    // Query mode: print the indexed events matching this filter instead of analyzing
+    public static String query = null;
 	
 	public static void init() {
 		DERGFrontend.registerFrontends();
@@ -41,7 +63,7 @@ public class Config {
         Options options = new Options();
         Option quiet = new Option("quiet", "be extra quiet");
         Option debug = new Option("debug", "print debug information");
-        Option input = Option.builder("i").argName("directory/file").required()
+        Option input = Option.builder("i").argName("directory/file")
                 .longOpt("input").hasArg().desc("path to target program").build();
         Option output = Option.builder("o").argName("directory").required()
                 .longOpt("output").hasArg().desc("path to output dir").build();
@@ -49,6 +71,21 @@ public class Config {
                 .desc(String.format("DERG frontend: %s", DERGFrontend.getAvailableFrontends())).build();
         Option backend = Option.builder("b").argName("backend").longOpt("backend").hasArg()
                 .desc(String.format("DERG backend: %s", DERGBackend.getAvailableBackends())).build();
+        Option jobs = Option.builder("j").argName("n").longOpt("jobs").hasArg()
+                .desc("number of worker JVMs in corpus mode (default: number of cores)").build();
+        Option jobTimeout = Option.builder("jobtimeout").argName("seconds").hasArg()
+                .desc("time a corpus worker may spend on one APK before it is killed, 0 for no limit (default: 600)").build();
+        Option cache = Option.builder("cache").argName("directory").hasArg()
+                .desc("path to result cache dir (default: <output>/cache)").build();
+        Option noCache = new Option("nocache", "do not read or write the result cache");
+        Option triage = new Option("triage", "only classify the input APKs into PrivacyStreamsEvents apps and others");
+        Option worker = new Option("worker", "run as a corpus worker reading APK paths from stdin");
+        Option server = Option.builder("server").argName("port").hasArg()
+                .desc("stay resident and analyze the apps posted to http://localhost:<port>/analyze, after warming up with -i").build();
+        Option index = Option.builder("index").argName("directory").hasArg()
+                .desc("append the events found to the event index in this dir").build();
+        Option query = Option.builder("query").argName("filter").hasArg()
+                .desc("print the events of the -index dir matching field=value[,field=value...], without analyzing").build();
         Option help_opt = Option.builder("h").desc("print this help message")
                 .longOpt("help").build();
 
@@ -58,22 +95,80 @@ public class Config {
         options.addOption(output);
         options.addOption(frontend);
         options.addOption(backend);
+        options.addOption(jobs);
+        options.addOption(jobTimeout);
+        options.addOption(cache);
+        options.addOption(noCache);
+        options.addOption(triage);
+        options.addOption(worker);
+        options.addOption(server);
+        options.addOption(index);
+        options.addOption(query);
         options.addOption(help_opt);
 
         CommandLineParser parser = new IgnoreUnknownTokenParser();
+        Config.args = args;
 
         try {
             CommandLine cmd = parser.parse(options, args);
             if (cmd.hasOption("debug")) Util.LOGGER.setLevel(Level.ALL);
             if (cmd.hasOption("quiet")) Util.LOGGER.setLevel(Level.WARNING);
 
+            if (cmd.hasOption("query")) {
+                if (!cmd.hasOption("index")) {
+                    throw new ParseException("Query mode needs the -index dir to query.");
+                }
+                Config.query = cmd.getOptionValue("query");
+                IndexQuery.parseTerms(Config.query);
+            } else if (!cmd.hasOption("i")) {
+                throw new ParseException("Missing required option: i");
+            }
+            if (cmd.hasOption("index")) {
+                Config.indexDir = cmd.getOptionValue("index");
+            }
             if (cmd.hasOption("i")) {
                 Config.inputDirOrFile = cmd.getOptionValue("i");
                 File codeDirFile = new File(Config.inputDirOrFile);
                 if (!codeDirFile.exists()) {
                     throw new ParseException("Input dir/file does not exist.");
                 }
+                Config.corpusMode = CorpusScheduler.isCorpus(codeDirFile);
+            }
+            if (cmd.hasOption('j')) {
+                try {
+                    Config.workers = Integer.parseInt(cmd.getOptionValue('j'));
+                } catch (NumberFormatException e) {
+                    throw new ParseException("Number of jobs should be an integer.");
+                }
+                if (Config.workers < 1) {
+                    throw new ParseException("Number of jobs should be at least 1.");
+                }
             }
+            if (cmd.hasOption("jobtimeout")) {
+                try {
+                    Config.jobTimeoutSeconds = Integer.parseInt(cmd.getOptionValue("jobtimeout"));
+                } catch (NumberFormatException e) {
+                    throw new ParseException("Job timeout should be an integer.");
+                }
+                if (Config.jobTimeoutSeconds < 0) {
+                    throw new ParseException("Job timeout should not be negative.");
+                }
+            }
+            if (cmd.hasOption("server")) {
+                try {
+                    Config.serverPort = Integer.parseInt(cmd.getOptionValue("server"));
+                } catch (NumberFormatException e) {
+                    throw new ParseException("Server port should be an integer.");
+                }
+                if (Config.serverPort < 1 || Config.serverPort > 65535) {
+                    throw new ParseException("Server port should be between 1 and 65535.");
+                }
+                if (Config.corpusMode) {
+                    throw new ParseException("Server mode warms up with an app, not a corpus directory.");
+                }
+            }
+            Config.workerMode = cmd.hasOption("worker");
+            Config.triageMode = cmd.hasOption("triage");
             if (cmd.hasOption('o')) {
                 Config.outputDir = cmd.getOptionValue('o');
                 File workingDir = new File(Config.outputDir);
@@ -82,6 +177,10 @@ public class Config {
                     throw new ParseException("Error generating output directory.");
                 }
             }
+            if (!cmd.hasOption("nocache")) {
+                Config.cacheDir = cmd.hasOption("cache") ? cmd.getOptionValue("cache")
+                        : new File(Config.outputDir, "cache").getPath();
+            }
             if (cmd.hasOption('f')) {
                 Config.frontendType = cmd.getOptionValue('f');
             }
@@ -127,8 +226,8 @@ public class Config {
         }
 
         Util.LOGGER.info("finish parsing arguments");
-        Util.LOGGER.info(String.format("[frontend]%s, [input]%s, [output]%s",
-                Config.frontendType, Config.inputDirOrFile, Config.outputDir));
+        Util.LOGGER.info(String.format("[frontend]%s, [input]%s, [output]%s, [corpus]%s",
+                Config.frontendType, Config.inputDirOrFile, Config.outputDir, Config.corpusMode));
         return true;
 	}
 
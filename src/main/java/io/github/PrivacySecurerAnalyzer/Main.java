@@ -1,5 +1,12 @@
 package io.github.PrivacySecurerAnalyzer;
 
+import io.github.PrivacySecurerAnalyzer.core.Graph;
+import io.github.PrivacySecurerAnalyzer.corpus.CorpusScheduler;
+import io.github.PrivacySecurerAnalyzer.corpus.CorpusTriage;
+import io.github.PrivacySecurerAnalyzer.corpus.CorpusWorker;
+import io.github.PrivacySecurerAnalyzer.index.IndexQuery;
+import io.github.PrivacySecurerAnalyzer.server.AnalysisServer;
+
 public class Main {
 	public static void main(String args[]) {
 		Config.init();
@@ -7,7 +14,30 @@ public class Main {
             return;
         } 
 
-        Config.dergFrontend.build();
-        //Config.dergBackend.run(g);
+        if (Config.query != null) {
+            new IndexQuery(Config.indexDir, Config.query).run();
+            return;
+        }
+        if (Config.triageMode) {
+            new CorpusTriage(Config.inputDirOrFile, Config.outputDir, Config.workers).run();
+            return;
+        }
+        if (Config.serverPort > 0) {
+            new AnalysisServer(Config.serverPort, Config.outputDir, Config.args).run();
+            return;
+        }
+        if (Config.workerMode) {
+            new CorpusWorker(Config.args).run();
+            return;
+        }
+        if (Config.corpusMode) {
+            new CorpusScheduler(Config.inputDirOrFile, Config.outputDir, Config.workers,
+                    Config.jobTimeoutSeconds * 1000L, Config.args).run();
+            return;
+        }
+
+        Graph g = Config.dergFrontend.build();
+        if (g != null)
+            Config.dergBackend.run(g);
 	}
 }
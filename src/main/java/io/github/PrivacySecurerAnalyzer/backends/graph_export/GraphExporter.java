@@ -1,14 +1,137 @@
 package io.github.PrivacySecurerAnalyzer.backends.graph_export;
 
+import io.github.PrivacySecurerAnalyzer.Config;
 import io.github.PrivacySecurerAnalyzer.backends.DERGBackend;
+import io.github.PrivacySecurerAnalyzer.core.DERGFileWriter;
+import io.github.PrivacySecurerAnalyzer.core.Edge;
 import io.github.PrivacySecurerAnalyzer.core.Graph;
+import io.github.PrivacySecurerAnalyzer.core.Node;
+import io.github.PrivacySecurerAnalyzer.utils.IgnoreUnknownTokenParser;
+import io.github.PrivacySecurerAnalyzer.utils.Util;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 public class GraphExporter extends DERGBackend {
 	public static final String NAME = "graph_export";
     public static final String DESCRIPTION = "export DERG to file.";
+
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_NDJSON = "ndjson";
+    public static final String FORMAT_BINARY = "bin";
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private String format = FORMAT_JSON;
+
+    @Override
+    public void parseArgs(String[] args) throws ParseException {
+        Options options = new Options();
+        Option formatOpt = Option.builder("format").argName("format").hasArg()
+                .desc(String.format("DERG export format: %s/%s/%s (default: %s)", FORMAT_JSON, FORMAT_NDJSON, FORMAT_BINARY, FORMAT_JSON))
+                .build();
+        options.addOption(formatOpt);
+
+        CommandLineParser parser = new IgnoreUnknownTokenParser();
+        try {
+            CommandLine cmd = parser.parse(options, args);
+            if (cmd.hasOption("format")) {
+                format = cmd.getOptionValue("format");
+                if (!format.equals(FORMAT_JSON) && !format.equals(FORMAT_NDJSON) && !format.equals(FORMAT_BINARY)) {
+                    throw new ParseException("unknown export format: " + format);
+                }
+            }
+        } catch (ParseException e) {
+            System.out.println(e.getMessage());
+            HelpFormatter formatter = new HelpFormatter();
+            formatter.printHelp(GraphExporter.NAME, options, true);
+            throw new ParseException("Parsing arguments failed in " + GraphExporter.NAME);
+        }
+    }
+
 	@Override
 	public void run(Graph g) {
-		// TODO Auto-generated method stub
-		
+        File outputFile = new File(Config.outputDir, "derg." + format);
+        try {
+            this.export(g, outputFile);
+            Util.LOGGER.info(String.format("exported %d nodes and %d edges to %s",
+                    g.nodes.size(), g.getEdgeCount(), outputFile));
+        } catch (IOException e) {
+            Util.logException(e);
+        }
 	}
+
+    // Nodes and edges are written one by one, without building maps or a JSON DOM of the graph
+    public void export(Graph g, File outputFile) throws IOException {
+        if (format.equals(FORMAT_BINARY)) {
+            DERGFileWriter.write(g, outputFile);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(outputFile.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             Writer writer = new BufferedWriter(Channels.newWriter(channel, "UTF-8"), BUFFER_SIZE)) {
+            boolean ndjson = format.equals(FORMAT_NDJSON);
+            String separator = ndjson ? "\n" : ",";
+
+            if (!ndjson) writer.write("{\"nodes\":[");
+            boolean first = true;
+            for (Node node : g.nodes) {
+                if (!first) writer.write(separator);
+                writeNode(writer, node, ndjson);
+                first = false;
+            }
+            if (ndjson && !first) writer.write(separator);
+
+            if (!ndjson) writer.write("],\"edges\":[");
+            first = true;
+            for (Edge edge : g.getEdges()) {
+                if (!first) writer.write(separator);
+                writeEdge(writer, edge, ndjson);
+                first = false;
+            }
+            writer.write(ndjson ? (first ? "" : "\n") : "]}");
+        }
+    }
+
+    // same fields as Node.toMap(), and the kind of object on an NDJSON line
+    private static void writeNode(Writer writer, Node node, boolean ndjson) throws IOException {
+        writer.write(ndjson ? "{\"kind\":\"node\",\"id\":" : "{\"id\":");
+        writer.write(Integer.toString(node.id));
+        writeField(writer, "name", node.name);
+        writeField(writer, "type", node.type);
+        writeField(writer, "sig", node.sig);
+        writer.write('}');
+    }
+
+    // same fields as Edge.toMap(), and the kind of object on an NDJSON line
+    private static void writeEdge(Writer writer, Edge edge, boolean ndjson) throws IOException {
+        writer.write(ndjson ? "{\"kind\":\"edge\",\"source\":" : "{\"source\":");
+        writer.write(Integer.toString(edge.source.id));
+        writer.write(",\"target\":");
+        writer.write(Integer.toString(edge.target.id));
+        writeField(writer, "relation", edge.type);
+        writer.write('}');
+    }
+
+    // null values are left out, like org.json does
+    private static void writeField(Writer writer, String key, String value) throws IOException {
+        if (value == null)
+            return;
+        writer.write(",\"");
+        writer.write(key);
+        writer.write("\":");
+        writer.write(JSONObject.quote(value));
+    }
 }
@@ -0,0 +1,110 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A graph filled from several threads.
+ *
+ * Every task fills its own {@link Part}: nodes are interned across all parts, edges are buffered in the part.
+ * {@link #seal()} merges the parts in the order they were created, so the nodes get the same ids and names
+ * as if the parts were filled one after another into a plain {@link Graph}, and then seals the graph.
+ * All parts share the string table of the graph.
+ */
+public class ConcurrentGraph extends Graph {
+    private ConcurrentHashMap<Object, Node> internedNodes = new ConcurrentHashMap<>();
+    private List<Part> parts = new ArrayList<>();
+
+    /**
+     * Nodes and edges added by one task. A part is only used by one thread at a time.
+     */
+    public class Part extends Graph {
+        // the nodes in the order they were asked for, and the names they were asked for with
+        private List<Node> touchedNodes = new ArrayList<>();
+        private List<String> touchedNames = new ArrayList<>();
+        private List<Edge> bufferedEdges = new ArrayList<>();
+
+        private Part() {
+            this.strings = ConcurrentGraph.this.strings;
+        }
+
+        @Override
+        public Node getNodeOrCreate(Object object, String name, String type) {
+            Node node = internNode(object, name, type);
+            if (node != null) {
+                this.touchedNodes.add(node);
+                this.touchedNames.add(name);
+            }
+            return node;
+        }
+
+        @Override
+        public Edge createEdge(Node source, Node target, String type) {
+            Edge edge = Edge.make(source, target, type);
+            if (edge != null)
+                this.bufferedEdges.add(edge);
+            return edge;
+        }
+    }
+
+    /**
+     * @return a new part, merged after the parts created before it
+     */
+    public synchronized Part newPart() {
+        Part part = new Part();
+        this.parts.add(part);
+        return part;
+    }
+
+    // ids are given when the node is added to this graph
+    private Node internNode(Object object, String name, String type) {
+        if (object == null)
+            return null;
+        Node node = this.internedNodes.get(object);
+        if (node == null) {
+            Node created = Node.make(object, name, type, -1);
+            node = this.internedNodes.putIfAbsent(object, created);
+            if (node == null)
+                node = created;
+        }
+        return node;
+    }
+
+    // Nodes are only added directly while no part is being filled
+    @Override
+    public Node getNodeOrCreate(Object object, String name, String type) {
+        Node node = this.internNode(object, name, type);
+        if (node != null && !this.containsNode(node)) {
+            node.name = name;
+            this.adoptNode(node);
+        }
+        return node;
+    }
+
+    /**
+     * Merge the parts into this graph, once all of them are filled, and seal it.
+     */
+    @Override
+    public synchronized void seal() {
+        for (Part part : this.parts) {
+            for (int i = 0; i < part.touchedNodes.size(); i++) {
+                Node node = part.touchedNodes.get(i);
+                // the first name a node was asked for
+                if (!this.containsNode(node)) {
+                    node.name = part.touchedNames.get(i);
+                    this.adoptNode(node);
+                }
+            }
+            for (Edge edge : part.bufferedEdges) {
+                this.addEdge(edge);
+            }
+        }
+        this.parts.clear();
+        Node root = this.getNodeByObject(rootCode);
+        if (root != null)
+            this.v_root = root;
+        this.internedNodes.clear();
+        super.seal();
+    }
+}
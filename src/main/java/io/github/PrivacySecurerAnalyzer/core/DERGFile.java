@@ -0,0 +1,250 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * A graph in the binary DERG format, memory-mapped and read on demand.
+ *
+ * Layout (big-endian): a 64-byte header, the string data, the string index (offsets of the strings),
+ * fixed-width node records (id, name, type, sig), the edge type table and the edge columns
+ * (source positions, target positions, edge type ids). Edges refer to nodes by their positions.
+ */
+public class DERGFile implements Closeable {
+    static final byte[] MAGIC = {'D', 'E', 'R', 'G'};
+    static final int VERSION = 1;
+    static final int FLAG_EDGES_SORTED = 1;
+    static final int HEADER_SIZE = 64;
+    static final int NODE_RECORD_SIZE = 16;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    // a single buffer can map at most 2GB, larger files are mapped in chunks
+    private static final int CHUNK_BITS = 30;
+
+    private final RandomAccessFile file;
+    private final MappedByteBuffer[] chunks;
+    private final int chunkBits;
+    private final long chunkMask;
+
+    private int version;
+    private int flags;
+    private int stringCount;
+    private int nodeCount;
+    private int edgeCount;
+    private long stringIndexOff;
+    private long nodesOff;
+    private long edgesOff;
+    private String[] edgeTypes;
+
+    public static DERGFile open(File file) throws IOException {
+        return new DERGFile(file, CHUNK_BITS);
+    }
+
+    DERGFile(File path, int chunkBits) throws IOException {
+        this.file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = this.file.getChannel();
+            long size = channel.size();
+            this.chunkBits = chunkBits;
+            this.chunkMask = (1L << chunkBits) - 1;
+            int chunkCount = (int) ((size + this.chunkMask) >>> chunkBits);
+            this.chunks = new MappedByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long start = (long) i << chunkBits;
+                this.chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(1L << chunkBits, size - start));
+            }
+            if (size < HEADER_SIZE)
+                throw new IOException("Not a DERG file: " + path);
+            this.readHeader(path);
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+    }
+
+    private void readHeader(File path) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        this.readBytes(0, magic);
+        if (!Arrays.equals(magic, MAGIC))
+            throw new IOException("Not a DERG file: " + path);
+        this.version = this.getInt(4);
+        if (this.version > VERSION)
+            throw new IOException(String.format("Unsupported DERG file version %d: %s", this.version, path));
+        this.flags = this.getInt(8);
+        this.stringCount = this.getInt(12);
+        this.nodeCount = this.getInt(16);
+        int edgeTypeCount = this.getInt(20);
+        this.edgeCount = this.getInt(24);
+        this.stringIndexOff = this.getLong(32);
+        this.nodesOff = this.getLong(40);
+        long edgeTypesOff = this.getLong(48);
+        this.edgesOff = this.getLong(56);
+
+        this.edgeTypes = new String[edgeTypeCount];
+        for (int type = 0; type < edgeTypeCount; type++) {
+            this.edgeTypes[type] = this.getString(this.getInt(edgeTypesOff + 4L * type));
+        }
+    }
+
+    public int getVersion() {
+        return this.version;
+    }
+
+    // whether the edges are sorted by source, which is needed by getOutEdgeRange
+    public boolean isEdgesSorted() {
+        return (this.flags & FLAG_EDGES_SORTED) != 0;
+    }
+
+    public int getStringCount() {
+        return this.stringCount;
+    }
+
+    public int getNodeCount() {
+        return this.nodeCount;
+    }
+
+    public int getEdgeCount() {
+        return this.edgeCount;
+    }
+
+    public String getString(int index) {
+        if (index < 0)
+            return null;
+        if (index >= this.stringCount)
+            throw new IndexOutOfBoundsException("String index: " + index);
+        long start = this.getLong(this.stringIndexOff + 8L * index);
+        long end = this.getLong(this.stringIndexOff + 8L * (index + 1));
+        byte[] bytes = new byte[(int) (end - start)];
+        this.readBytes(start, bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private long nodeRecord(int node) {
+        if (node < 0 || node >= this.nodeCount)
+            throw new IndexOutOfBoundsException("Node position: " + node);
+        return this.nodesOff + (long) NODE_RECORD_SIZE * node;
+    }
+
+    public int getNodeId(int node) {
+        return this.getInt(this.nodeRecord(node));
+    }
+
+    public String getNodeName(int node) {
+        return this.getString(this.getInt(this.nodeRecord(node) + 4));
+    }
+
+    public String getNodeType(int node) {
+        return this.getString(this.getInt(this.nodeRecord(node) + 8));
+    }
+
+    public String getNodeSig(int node) {
+        return this.getString(this.getInt(this.nodeRecord(node) + 12));
+    }
+
+    private void checkEdge(int edge) {
+        if (edge < 0 || edge >= this.edgeCount)
+            throw new IndexOutOfBoundsException("Edge index: " + edge);
+    }
+
+    // position of the source node of an edge
+    public int getEdgeSource(int edge) {
+        this.checkEdge(edge);
+        return this.getInt(this.edgesOff + 4L * edge);
+    }
+
+    // position of the target node of an edge
+    public int getEdgeTarget(int edge) {
+        this.checkEdge(edge);
+        return this.getInt(this.edgesOff + 4L * this.edgeCount + 4L * edge);
+    }
+
+    public String getEdgeType(int edge) {
+        this.checkEdge(edge);
+        return this.edgeTypes[this.getShort(this.edgesOff + 8L * this.edgeCount + 2L * edge)];
+    }
+
+    /**
+     * Edges from the given source node, found by binary search on the sorted source column.
+     * @return {first edge index, end edge index (exclusive)}
+     */
+    public int[] getOutEdgeRange(int source) {
+        if (!this.isEdgesSorted())
+            throw new IllegalStateException("The edges are not sorted by source.");
+        return new int[]{this.lowerBound(source), this.lowerBound(source + 1)};
+    }
+
+    // index of the first edge whose source is not less than the given node position
+    private int lowerBound(int source) {
+        int low = 0;
+        int high = this.edgeCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.getInt(this.edgesOff + 4L * mid) < source)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    private ByteBuffer chunkOf(long position) {
+        return this.chunks[(int) (position >>> this.chunkBits)];
+    }
+
+    private byte getByte(long position) {
+        return this.chunkOf(position).get((int) (position & this.chunkMask));
+    }
+
+    // values crossing a chunk boundary are read byte by byte
+    private int getInt(long position) {
+        ByteBuffer chunk = this.chunkOf(position);
+        int offset = (int) (position & this.chunkMask);
+        if (offset + 4 <= chunk.limit())
+            return chunk.getInt(offset);
+        int result = 0;
+        for (int i = 0; i < 4; i++) {
+            result = (result << 8) | (this.getByte(position + i) & 0xff);
+        }
+        return result;
+    }
+
+    private short getShort(long position) {
+        ByteBuffer chunk = this.chunkOf(position);
+        int offset = (int) (position & this.chunkMask);
+        if (offset + 2 <= chunk.limit())
+            return chunk.getShort(offset);
+        return (short) (((this.getByte(position) & 0xff) << 8) | (this.getByte(position + 1) & 0xff));
+    }
+
+    private long getLong(long position) {
+        ByteBuffer chunk = this.chunkOf(position);
+        int offset = (int) (position & this.chunkMask);
+        if (offset + 8 <= chunk.limit())
+            return chunk.getLong(offset);
+        return ((long) this.getInt(position) << 32) | (this.getInt(position + 4) & 0xffffffffL);
+    }
+
+    private void readBytes(long position, byte[] dest) {
+        int copied = 0;
+        while (copied < dest.length) {
+            ByteBuffer chunk = this.chunkOf(position + copied).duplicate();
+            int offset = (int) ((position + copied) & this.chunkMask);
+            int length = Math.min(chunk.limit() - offset, dest.length - copied);
+            chunk.position(offset);
+            chunk.get(dest, copied, length);
+            copied += length;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.file.close();
+    }
+}
@@ -0,0 +1,144 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a graph in the binary DERG format read by {@link DERGFile}.
+ */
+public class DERGFileWriter {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private FileChannel channel;
+    private ByteBuffer buffer;
+    // position in the file of the next byte put into the buffer
+    private long position;
+
+    public static void write(Graph g, File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            new DERGFileWriter(channel).writeGraph(g);
+        }
+    }
+
+    private DERGFileWriter(FileChannel channel) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    }
+
+    private void writeGraph(Graph g) throws IOException {
+        EdgeList edgeList = g.getEdgeList();
+        TypeTable edgeTypes = g.getEdgeTypes();
+
+        TypeTable strings = new TypeTable();
+        for (Node node : g.nodes) {
+            strings.intern(node.name);
+            strings.intern(node.type);
+            if (node.sig != null)
+                strings.intern(node.sig);
+        }
+        for (int type = 0; type < edgeTypes.size(); type++) {
+            strings.intern(edgeTypes.get(type));
+        }
+
+        boolean edgesSorted = true;
+        for (int i = 1; i < edgeList.size && edgesSorted; i++) {
+            edgesSorted = edgeList.sources[i - 1] <= edgeList.sources[i];
+        }
+
+        // the header is written last, once the section offsets are known
+        this.position = DERGFile.HEADER_SIZE;
+        this.channel.position(DERGFile.HEADER_SIZE);
+
+        long[] stringOffsets = new long[strings.size() + 1];
+        for (int i = 0; i < strings.size(); i++) {
+            stringOffsets[i] = this.position;
+            this.putBytes(strings.get(i).getBytes(UTF8));
+        }
+        stringOffsets[strings.size()] = this.position;
+
+        long stringIndexOff = this.position;
+        for (long offset : stringOffsets) {
+            this.ensure(8).putLong(offset);
+        }
+
+        long nodesOff = this.position;
+        for (Node node : g.nodes) {
+            ByteBuffer record = this.ensure(DERGFile.NODE_RECORD_SIZE);
+            record.putInt(node.id);
+            record.putInt(strings.find(node.name));
+            record.putInt(strings.find(node.type));
+            record.putInt(node.sig == null ? -1 : strings.find(node.sig));
+        }
+
+        long edgeTypesOff = this.position;
+        for (int type = 0; type < edgeTypes.size(); type++) {
+            this.ensure(4).putInt(strings.find(edgeTypes.get(type)));
+        }
+
+        // edge columns: sources, targets (node positions) and types (edge type ids)
+        long edgesOff = this.position;
+        for (int i = 0; i < edgeList.size; i++) {
+            this.ensure(4).putInt(edgeList.sources[i]);
+        }
+        for (int i = 0; i < edgeList.size; i++) {
+            this.ensure(4).putInt(edgeList.targets[i]);
+        }
+        for (int i = 0; i < edgeList.size; i++) {
+            this.ensure(2).putShort(edgeList.types[i]);
+        }
+        this.flush();
+
+        ByteBuffer header = ByteBuffer.allocate(DERGFile.HEADER_SIZE);
+        header.put(DERGFile.MAGIC);
+        header.putInt(DERGFile.VERSION);
+        header.putInt(edgesSorted ? DERGFile.FLAG_EDGES_SORTED : 0);
+        header.putInt(strings.size());
+        header.putInt(g.nodes.size());
+        header.putInt(edgeTypes.size());
+        header.putInt(edgeList.size);
+        header.putInt(0);
+        header.putLong(stringIndexOff);
+        header.putLong(nodesOff);
+        header.putLong(edgeTypesOff);
+        header.putLong(edgesOff);
+        header.flip();
+        long headerPosition = 0;
+        while (header.hasRemaining()) {
+            headerPosition += this.channel.write(header, headerPosition);
+        }
+    }
+
+    // the buffer, with room for the given number of bytes
+    private ByteBuffer ensure(int bytes) throws IOException {
+        if (this.buffer.remaining() < bytes)
+            this.flush();
+        this.position += bytes;
+        return this.buffer;
+    }
+
+    private void putBytes(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!this.buffer.hasRemaining())
+                this.flush();
+            int length = Math.min(this.buffer.remaining(), bytes.length - offset);
+            this.buffer.put(bytes, offset, length);
+            offset += length;
+        }
+        this.position += bytes.length;
+    }
+
+    private void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+}
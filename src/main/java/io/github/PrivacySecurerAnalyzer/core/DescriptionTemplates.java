@@ -0,0 +1,229 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The privacy description templates of {@link #RESOURCE}, compiled once.
+ *
+ * The templates are grouped by event type and function name when they are loaded, so describing an event
+ * only checks the conditions, such as the comparator, of the few templates which may match it.
+ */
+public class DescriptionTemplates {
+    public static final String RESOURCE = "privacy-descriptions.txt";
+    private static final String ANY = "*";
+    private static final String NO_DESCRIPTION = "-";
+
+    private static class DefaultHolder {
+        static final DescriptionTemplates INSTANCE = loadDefault();
+    }
+
+    // the text of a description is rendered into the buffer of the thread
+    private static final ThreadLocal<StringBuilder> BUFFER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder();
+        }
+    };
+
+    private static class Template {
+        String eventType;
+        String functionName;
+        // the field the condition is on, null if there is no condition
+        Field conditionField;
+        // the value the field should have, null if it should only be set
+        String conditionValue;
+        // the template is literals[0] fields[0] literals[1] ... fields[n-1] literals[n], null if no description
+        String[] literals;
+        Field[] fields;
+
+        boolean matches(EventSpec spec) {
+            if (this.conditionField == null)
+                return true;
+            String value = get(this.conditionField, spec);
+            if (this.conditionValue == null)
+                return value != null;
+            return value != null && this.conditionValue.equals(value.replace("\"", ""));
+        }
+
+        void render(EventSpec spec, StringBuilder out) {
+            if (this.literals == null)
+                return;
+            for (int i = 0; i < this.fields.length; i++) {
+                out.append(this.literals[i]);
+                appendUnquoted(get(this.fields[i], spec), out);
+            }
+            out.append(this.literals[this.fields.length]);
+        }
+    }
+
+    // templates by event type then function name, in file order; the null keys are for the other values
+    private Map<String, Map<String, Template[]>> table = new HashMap<>();
+
+    private DescriptionTemplates(List<Template> templates) {
+        Set<String> eventTypes = new LinkedHashSet<>();
+        for (Template template : templates) {
+            if (!template.eventType.equals(ANY))
+                eventTypes.add(template.eventType);
+        }
+        eventTypes.add(null);
+        for (String eventType : eventTypes) {
+            Set<String> functionNames = new LinkedHashSet<>();
+            for (Template template : templates) {
+                if (matches(template.eventType, eventType) && !template.functionName.equals(ANY))
+                    functionNames.add(template.functionName);
+            }
+            functionNames.add(null);
+            Map<String, Template[]> byFunction = new HashMap<>();
+            for (String functionName : functionNames) {
+                List<Template> candidates = new ArrayList<>();
+                for (Template template : templates) {
+                    if (matches(template.eventType, eventType) && matches(template.functionName, functionName))
+                        candidates.add(template);
+                }
+                byFunction.put(functionName, candidates.toArray(new Template[candidates.size()]));
+            }
+            this.table.put(eventType, byFunction);
+        }
+    }
+
+    // null is a value no pattern names
+    private static boolean matches(String pattern, String value) {
+        return pattern.equals(ANY) || pattern.equals(value);
+    }
+
+    public static DescriptionTemplates getDefault() {
+        return DefaultHolder.INSTANCE;
+    }
+
+    private static DescriptionTemplates loadDefault() {
+        try (InputStream in = DescriptionTemplates.class.getResourceAsStream(RESOURCE)) {
+            if (in == null)
+                throw new IllegalStateException("missing resource " + RESOURCE);
+            return load(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("error reading " + RESOURCE, e);
+        }
+    }
+
+    public static DescriptionTemplates load(InputStream in) throws IOException {
+        List<Template> templates = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : IOUtils.readLines(in, "UTF-8")) {
+            lineNumber++;
+            if (line.trim().isEmpty() || line.startsWith("#"))
+                continue;
+            String[] columns = line.split("\t");
+            if (columns.length != 4)
+                throw new IllegalArgumentException(String.format("line %d of %s: expecting 4 tab-separated columns",
+                        lineNumber, RESOURCE));
+            templates.add(compile(columns, lineNumber));
+        }
+        return new DescriptionTemplates(templates);
+    }
+
+    private static Template compile(String[] columns, int lineNumber) {
+        Template template = new Template();
+        template.eventType = columns[0];
+        template.functionName = columns[1];
+
+        String condition = columns[2];
+        if (!condition.equals(ANY)) {
+            int separator = condition.indexOf('=');
+            String fieldName = separator < 0 ? condition : condition.substring(0, separator);
+            template.conditionField = getField(fieldName, lineNumber);
+            if (separator >= 0)
+                template.conditionValue = condition.substring(separator + 1);
+        }
+
+        String text = columns[3];
+        if (text.equals(NO_DESCRIPTION))
+            return template;
+        List<String> literals = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        int start = 0;
+        int open;
+        while ((open = text.indexOf('{', start)) >= 0) {
+            int close = text.indexOf('}', open);
+            if (close < 0)
+                throw new IllegalArgumentException(String.format("line %d of %s: unclosed {", lineNumber, RESOURCE));
+            literals.add(text.substring(start, open));
+            fields.add(getField(text.substring(open + 1, close), lineNumber));
+            start = close + 1;
+        }
+        literals.add(text.substring(start));
+        template.literals = literals.toArray(new String[literals.size()]);
+        template.fields = fields.toArray(new Field[fields.size()]);
+        return template;
+    }
+
+    private static Field getField(String name, int lineNumber) {
+        try {
+            Field field = EventSpec.class.getField(name);
+            if (field.getType() == String.class)
+                return field;
+        } catch (NoSuchFieldException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException(String.format("line %d of %s: %s is not a text field of an event",
+                lineNumber, RESOURCE, name));
+    }
+
+    private static String get(Field field, EventSpec spec) {
+        try {
+            return (String) field.get(spec);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // string constants keep their quotation marks in Jimple; missing values are printed as null, like %s does
+    private static void appendUnquoted(String value, StringBuilder out) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '"')
+                out.append(c);
+        }
+    }
+
+    /**
+     * Append the privacy description of an event, nothing for functions without a description.
+     */
+    public void render(EventSpec spec, StringBuilder out) {
+        Map<String, Template[]> byFunction = this.table.get(spec.eventType);
+        if (byFunction == null)
+            byFunction = this.table.get(null);
+        Template[] candidates = byFunction.get(spec.functionName);
+        if (candidates == null)
+            candidates = byFunction.get(null);
+        for (Template template : candidates) {
+            if (template.matches(spec)) {
+                template.render(spec, out);
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the privacy description sentence of an event, empty for functions without a description
+     */
+    public String describe(EventSpec spec) {
+        StringBuilder buffer = BUFFER.get();
+        buffer.setLength(0);
+        this.render(spec, buffer);
+        return buffer.toString();
+    }
+}
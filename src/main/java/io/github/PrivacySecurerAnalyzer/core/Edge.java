@@ -44,6 +44,11 @@ public class Edge {
         return new Edge(source, target, type);
     }
 
+    // an edge stored in a graph, which was checked when it was added
+    static Edge of(Node source, Node target, String type) {
+        return new Edge(source, target, type);
+    }
+
     public static Edge make(Graph g, JSONObject json_edge) {
         if (json_edge.has("source") && json_edge.has("target") && json_edge.has("relation")) {
             int sourceId = json_edge.getInt("source");
@@ -0,0 +1,163 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Edges packed into primitive arrays: source and target node positions, and interned edge types.
+ */
+class EdgeList {
+    int size;
+    int[] sources;
+    int[] targets;
+    short[] types;
+
+    // CSR adjacency by source, built on demand and dropped on modification
+    private int[] outOffsets;
+    private int[] outEdges;
+
+    EdgeList() {
+        this(16);
+    }
+
+    EdgeList(int capacity) {
+        this.sources = new int[capacity];
+        this.targets = new int[capacity];
+        this.types = new short[capacity];
+    }
+
+    void add(int source, int target, int type) {
+        if (type > Short.MAX_VALUE)
+            throw new IllegalStateException("Too many edge types.");
+        if (this.size == this.sources.length) {
+            int capacity = this.size + (this.size >> 1) + 1;
+            this.sources = Arrays.copyOf(this.sources, capacity);
+            this.targets = Arrays.copyOf(this.targets, capacity);
+            this.types = Arrays.copyOf(this.types, capacity);
+        }
+        this.sources[this.size] = source;
+        this.targets[this.size] = target;
+        this.types[this.size] = (short) type;
+        this.size++;
+        this.outOffsets = null;
+    }
+
+    private static int bitsFor(int count) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(count - 1, 0)));
+    }
+
+    /**
+     * Sort the edges by (source, target, type rank) and remove the duplicated ones.
+     * The keys are packed into longs, or compared one by one if they don't fit in a long.
+     * @param typeRanks the rank of every type id in the wanted order of types
+     */
+    void sortAndDedupe(int nodeCount, int[] typeRanks) {
+        int nodeBits = bitsFor(nodeCount);
+        int typeBits = bitsFor(typeRanks.length);
+        if (2 * nodeBits + typeBits > 63) {
+            this.sortAndDedupeUnpacked(typeRanks);
+            return;
+        }
+
+        int[] rank2type = new int[typeRanks.length];
+        for (int type = 0; type < typeRanks.length; type++) {
+            rank2type[typeRanks[type]] = type;
+        }
+
+        long[] keys = new long[this.size];
+        for (int i = 0; i < this.size; i++) {
+            keys[i] = (((long) this.sources[i] << nodeBits | this.targets[i]) << typeBits) | typeRanks[this.types[i]];
+        }
+        Arrays.sort(keys);
+
+        long typeMask = (1L << typeBits) - 1;
+        long nodeMask = (1L << nodeBits) - 1;
+        int distinct = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (i > 0 && keys[i] == keys[i - 1])
+                continue;
+            long key = keys[i];
+            this.types[distinct] = (short) rank2type[(int) (key & typeMask)];
+            this.targets[distinct] = (int) ((key >>> typeBits) & nodeMask);
+            this.sources[distinct] = (int) (key >>> (typeBits + nodeBits));
+            distinct++;
+        }
+        this.size = distinct;
+        this.outOffsets = null;
+    }
+
+    // sortAndDedupe() with the same key, for edges whose keys don't fit in a long
+    void sortAndDedupeUnpacked(final int[] typeRanks) {
+        Integer[] order = new Integer[this.size];
+        for (int i = 0; i < this.size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return compareEdges(o1, o2, typeRanks);
+            }
+        });
+
+        int[] sortedSources = new int[this.size];
+        int[] sortedTargets = new int[this.size];
+        short[] sortedTypes = new short[this.size];
+        int distinct = 0;
+        for (int i = 0; i < order.length; i++) {
+            if (i > 0 && this.compareEdges(order[i], order[i - 1], typeRanks) == 0)
+                continue;
+            sortedSources[distinct] = this.sources[order[i]];
+            sortedTargets[distinct] = this.targets[order[i]];
+            sortedTypes[distinct] = this.types[order[i]];
+            distinct++;
+        }
+        this.sources = sortedSources;
+        this.targets = sortedTargets;
+        this.types = sortedTypes;
+        this.size = distinct;
+        this.outOffsets = null;
+    }
+
+    private int compareEdges(int edge1, int edge2, int[] typeRanks) {
+        if (this.sources[edge1] != this.sources[edge2])
+            return Integer.compare(this.sources[edge1], this.sources[edge2]);
+        if (this.targets[edge1] != this.targets[edge2])
+            return Integer.compare(this.targets[edge1], this.targets[edge2]);
+        return Integer.compare(typeRanks[this.types[edge1]], typeRanks[this.types[edge2]]);
+    }
+
+    // Indexes of the edges from the given source are outEdges[outOffsets[source] .. outOffsets[source + 1])
+    private void buildAdjacency(int nodeCount) {
+        int[][] adjacency = buildAdjacency(this.sources, this.size, nodeCount);
+        this.outOffsets = adjacency[0];
+        this.outEdges = adjacency[1];
+    }
+
+    /**
+     * CSR adjacency of the first size edges by the given endpoints (sources or targets).
+     * @return {offsets, edges}, the edges of node n are edges[offsets[n] .. offsets[n + 1]), in ascending order
+     */
+    static int[][] buildAdjacency(int[] endpoints, int size, int nodeCount) {
+        int[] offsets = new int[nodeCount + 1];
+        for (int i = 0; i < size; i++) {
+            offsets[endpoints[i] + 1]++;
+        }
+        for (int node = 0; node < nodeCount; node++) {
+            offsets[node + 1] += offsets[node];
+        }
+        int[] next = Arrays.copyOf(offsets, nodeCount);
+        int[] edges = new int[size];
+        for (int i = 0; i < size; i++) {
+            edges[next[endpoints[i]]++] = i;
+        }
+        return new int[][]{offsets, edges};
+    }
+
+    int[] getOutEdges(int source, int nodeCount) {
+        if (this.outOffsets == null || this.outOffsets.length != nodeCount + 1)
+            this.buildAdjacency(nodeCount);
+        if (source < 0 || source >= nodeCount)
+            return new int[0];
+        return Arrays.copyOfRange(this.outEdges, this.outOffsets[source], this.outOffsets[source + 1]);
+    }
+}
@@ -25,6 +25,16 @@ public class EventPipeline extends PSFunction {
         this.findNextPipelines();
     }
 
+    public EventPipeline(InvokeExpr invokeExpr, Unit hostUnit, SootMethod hostMethod, MethodAnalysisCache analysisCache) {
+        this(invokeExpr, hostUnit, analysisCache.get(hostMethod).getParameterResolver());
+    }
+
+    protected EventPipeline(InvokeExpr invokeExpr, Unit hostUnit, ParameterResolver resolver) {
+        super(invokeExpr, hostUnit, resolver);
+        this.nextPipelines = new ArrayList<>();
+        this.findNextPipelines();
+    }
+
     private void findNextPipelines() {
         List<UnitValueBoxPair> uses = this.localUses.getUsesOf(this.hostUnit);
 
@@ -49,7 +59,7 @@ public class EventPipeline extends PSFunction {
             }
 
             if (invokeExpr != null && invokeExpr.getMethod().getDeclaringClass().getShortName().contains("Stream")) {
-                this.nextPipelines.add(new PSPipeline(invokeExpr, useUnit, hostMethod, hostBody, localDefs, localUses));
+                this.nextPipelines.add(new PSPipeline(invokeExpr, useUnit, resolver));
                 continue;
             }
             this.nextPipelines.add(definedValue);
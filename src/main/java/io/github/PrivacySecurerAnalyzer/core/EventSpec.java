@@ -0,0 +1,169 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The configuration of one PrivacyStreamsEvents event,
+ * reconstructed from a setField(...) ... addEventListener(...) chain.
+ */
+public class EventSpec {
+    // signature of the method in which the event is built
+    public String hostMethod;
+
+    public String eventType;
+    public String functionName;
+    public String fieldName;
+    public String comparator;
+    public String threshold;
+    public String latitude;
+    public String longitude;
+    public String radius;
+    public String placeName;
+    public String lists;
+    public String caller;
+    public String path;
+    public String duration;
+    public String interval;
+    public String locationPrecision;
+    public String recurrence;
+    public List<String> optimizationConstraints = new ArrayList<>();
+
+    public EventSpec(String hostMethod, String eventType, String functionName) {
+        this.hostMethod = hostMethod;
+        this.eventType = eventType;
+        this.functionName = functionName;
+    }
+
+    // Apply an invocation of an event builder method, such as setComparator("gte")
+    public void apply(String builderMethod, List<String> arguments) {
+        if (builderMethod.equals("addOptimizationConstraints")) {
+            this.optimizationConstraints.addAll(arguments);
+            return;
+        }
+        if (arguments.isEmpty())
+            return;
+        String argument = arguments.get(0);
+        switch (builderMethod) {
+            case "setField":
+                this.fieldName = argument;
+                break;
+            case "setComparator":
+                this.comparator = argument;
+                break;
+            case "setFieldConstraints":
+                this.threshold = argument;
+                break;
+            case "setLatitude":
+                this.latitude = argument;
+                break;
+            case "setLongitude":
+                this.longitude = argument;
+                break;
+            case "setRadius":
+                this.radius = argument;
+                break;
+            case "setPlaceName":
+                this.placeName = argument;
+                break;
+            case "setContactList":
+                this.lists = argument;
+                break;
+            case "setPhoneNumber":
+                this.caller = argument;
+                break;
+            case "setPath":
+                this.path = argument;
+                break;
+            case "setSamplingMode":
+                // setSamplingMode(long... intervalOrDuration) means different things for different events
+                if ("AudioEvent".equals(this.eventType)) {
+                    if (arguments.size() == 1)
+                        this.duration = argument;
+                    if (arguments.size() == 2) {
+                        this.interval = argument;
+                        this.duration = arguments.get(1);
+                    }
+                }
+                if ("GeolocationEvent".equals(this.eventType)) {
+                    if (arguments.size() == 1)
+                        this.interval = argument;
+                    if (arguments.size() == 2) {
+                        this.interval = argument;
+                        this.locationPrecision = arguments.get(1);
+                    }
+                }
+                break;
+            case "setLocationPrecision":
+                this.locationPrecision = argument;
+                break;
+            case "setNotificationResponsiveness":
+                this.recurrence = argument;
+                break;
+            default:
+                break;
+        }
+    }
+
+    public JSONObject toJson() {
+        return new JSONObject(this.toMap());
+    }
+
+    public Map<String, Object> toMap() {
+        HashMap<String, Object> eventMap = new HashMap<>();
+        eventMap.put("hostMethod", hostMethod);
+        eventMap.put("eventType", eventType);
+        eventMap.put("functionName", functionName);
+        eventMap.put("fieldName", fieldName);
+        eventMap.put("comparator", comparator);
+        eventMap.put("threshold", threshold);
+        eventMap.put("latitude", latitude);
+        eventMap.put("longitude", longitude);
+        eventMap.put("radius", radius);
+        eventMap.put("placeName", placeName);
+        eventMap.put("lists", lists);
+        eventMap.put("caller", caller);
+        eventMap.put("path", path);
+        eventMap.put("duration", duration);
+        eventMap.put("interval", interval);
+        eventMap.put("locationPrecision", locationPrecision);
+        eventMap.put("recurrence", recurrence);
+        eventMap.put("optimizationConstraints", optimizationConstraints);
+        return eventMap;
+    }
+
+    public static EventSpec fromJson(JSONObject json) {
+        EventSpec spec = new EventSpec(json.optString("hostMethod", null), json.optString("eventType", null),
+                json.optString("functionName", null));
+        spec.fieldName = json.optString("fieldName", null);
+        spec.comparator = json.optString("comparator", null);
+        spec.threshold = json.optString("threshold", null);
+        spec.latitude = json.optString("latitude", null);
+        spec.longitude = json.optString("longitude", null);
+        spec.radius = json.optString("radius", null);
+        spec.placeName = json.optString("placeName", null);
+        spec.lists = json.optString("lists", null);
+        spec.caller = json.optString("caller", null);
+        spec.path = json.optString("path", null);
+        spec.duration = json.optString("duration", null);
+        spec.interval = json.optString("interval", null);
+        spec.locationPrecision = json.optString("locationPrecision", null);
+        spec.recurrence = json.optString("recurrence", null);
+        JSONArray constraints = json.optJSONArray("optimizationConstraints");
+        if (constraints != null) {
+            for (int i = 0; i < constraints.length(); i++) {
+                spec.optimizationConstraints.add(constraints.getString(i));
+            }
+        }
+        return spec;
+    }
+
+    public String toString() {
+        return this.toJson().toString();
+    }
+}
@@ -0,0 +1,8 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+/**
+ * Receives every event as soon as its setField(...) ... addEventListener(...) chain has been analyzed.
+ */
+public interface EventSpecListener {
+    void onEventSpec(EventSpec eventSpec);
+}
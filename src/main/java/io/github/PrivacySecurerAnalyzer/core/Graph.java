@@ -1,5 +1,6 @@
 package io.github.PrivacySecurerAnalyzer.core;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 
 import java.io.PrintStream;
@@ -7,20 +8,35 @@ import java.util.*;
 
 public class Graph {
     public ArrayList<Node> nodes;
-    public ArrayList<Edge> edges;
     public Node v_root;
 
     public List<PSPipeline> pipelines;
     public Map<String, String> psMethod2Sig;
     public Set<String> androidApiUsed;
 
-    private static final String rootCode = "DERG_ROOT";
+    static final String rootCode = "DERG_ROOT";
     private HashMap<Object, Node> obj2nodeMap;
+    // id of the next node created by this graph
+    private int nextNodeId = 0;
+    // names and signatures of the nodes
+    StringTable strings = new StringTable();
+    // objects of the nodes are dropped by seal()
+    private boolean sealed = false;
+    // position of every node in nodes, edges refer to nodes by their positions
+    private IdentityHashMap<Node, Integer> nodeIndex;
+    private TypeTable edgeTypes;
+    private EdgeList edgeList;
+    // indexes for the views of this graph, built on demand and dropped on modification
+    private GraphIndex index;
+    // number of modifications of the nodes and edges, views of an older count are stale
+    private int modCount = 0;
 
     public Graph() {
         obj2nodeMap = new HashMap<>();
         nodes = new ArrayList<>();
-        edges = new ArrayList<>();
+        nodeIndex = new IdentityHashMap<>();
+        edgeTypes = new TypeTable();
+        edgeList = new EdgeList();
         psMethod2Sig = new HashMap<>();
         androidApiUsed = new HashSet<>();
     }
@@ -30,43 +46,104 @@ public class Graph {
         return v_root;
     }
 
-    // sort the edges in DERG, remove the duplicated edges
+    // sort the edges in DERG by the positions of their nodes and their types, remove the duplicated edges
     public void sortGraph() {
-        ArrayList<Edge> dup_edges = new ArrayList<>();
-        dup_edges.addAll(edges);
-        Collections.sort(dup_edges, new Comparator<Edge>() {
+        // rank edge types case-insensitively, ties broken case-sensitively, so that keys sort like the types themselves
+        Integer[] sortedTypes = new Integer[edgeTypes.size()];
+        for (int type = 0; type < sortedTypes.length; type++) {
+            sortedTypes[type] = type;
+        }
+        Arrays.sort(sortedTypes, new Comparator<Integer>() {
             @Override
-            public int compare(Edge o1, Edge o2) {
-                if (o1.source.id == o2.source.id) {
-                    if (o1.target.id == o2.target.id) {
-                        return String.CASE_INSENSITIVE_ORDER.compare(o1.type, o2.type);
-                    }
-                    return o1.target.id - o2.target.id;
-                }
-                return o1.source.id - o2.source.id;
+            public int compare(Integer o1, Integer o2) {
+                int result = String.CASE_INSENSITIVE_ORDER.compare(edgeTypes.get(o1), edgeTypes.get(o2));
+                return result != 0 ? result : edgeTypes.get(o1).compareTo(edgeTypes.get(o2));
             }
         });
-
-        ArrayList<Edge> distinct_edges = new ArrayList<>();
-        Edge prev_edge = null;
-        for (Edge edge : dup_edges) {
-            if (edge.equals(prev_edge)) continue;
-            distinct_edges.add(edge);
-            prev_edge = edge;
+        int[] typeRanks = new int[sortedTypes.length];
+        for (int rank = 0; rank < sortedTypes.length; rank++) {
+            typeRanks[sortedTypes[rank]] = rank;
         }
+        this.modified();
+        edgeList.sortAndDedupe(nodes.size(), typeRanks);
+    }
+
+    // Edge objects are created on access, the graph only keeps the packed edges
+    public List<Edge> getEdges() {
+        return new AbstractList<Edge>() {
+            @Override
+            public Edge get(int index) {
+                return getEdge(index);
+            }
 
-        this.edges = distinct_edges;
+            @Override
+            public int size() {
+                return edgeList.size;
+            }
+        };
+    }
+
+    public int getEdgeCount() {
+        return edgeList.size;
+    }
+
+    EdgeList getEdgeList() {
+        return edgeList;
+    }
+
+    TypeTable getEdgeTypes() {
+        return edgeTypes;
+    }
+
+    Edge getEdge(int index) {
+        if (index < 0 || index >= edgeList.size)
+            throw new IndexOutOfBoundsException("Edge index: " + index);
+        return Edge.of(nodes.get(edgeList.sources[index]), nodes.get(edgeList.targets[index]),
+                edgeTypes.get(edgeList.types[index]));
+    }
+
+    public List<Edge> getOutgoingEdges(Node source) {
+        Integer sourceIndex = nodeIndex.get(source);
+        if (sourceIndex == null)
+            return Collections.emptyList();
+        List<Edge> result = new ArrayList<>();
+        for (int edge : edgeList.getOutEdges(sourceIndex, nodes.size())) {
+            result.add(this.getEdge(edge));
+        }
+        return result;
     }
 
     public JSONObject toJson() {
         return new JSONObject(this.toMap());
     }
 
+    /**
+     * @return the graph of toJson(), with the same node ids and the same order of nodes and edges
+     */
+    public static Graph fromJson(JSONObject json) {
+        Graph g = new Graph();
+        JSONArray nodesJson = json.getJSONArray("nodes");
+        for (int i = 0; i < nodesJson.length(); i++) {
+            JSONObject nodeJson = nodesJson.getJSONObject(i);
+            int id = nodeJson.getInt("id");
+            Node node = Node.make(id, g.strings.intern(nodeJson.getString("name")), nodeJson.getString("type"), id);
+            node.sig = nodeJson.has("sig") ? nodeJson.getString("sig") : null;
+            g.addNode(node);
+            g.obj2nodeMap.put(node.content, node);
+            g.nextNodeId = Math.max(g.nextNodeId, id + 1);
+        }
+        JSONArray edgesJson = json.getJSONArray("edges");
+        for (int i = 0; i < edgesJson.length(); i++) {
+            g.addEdge(Edge.make(g, edgesJson.getJSONObject(i)));
+        }
+        return g;
+    }
+
     public Map<String, Object> toMap() {
         HashMap<String, Object> requestMap = new HashMap<>();
         ArrayList<Map> edges = new ArrayList<>();
         ArrayList<Map> nodes = new ArrayList<>();
-        for (Edge e : this.edges) {
+        for (Edge e : this.getEdges()) {
             edges.add(e.toMap());
         }
         for (Node v : this.nodes) {
@@ -78,62 +155,143 @@ public class Graph {
     }
 
     public Node getNodeOrCreate(Object object, String name, String type) {
+        if (sealed)
+            throw new IllegalStateException("No node can be added to a sealed graph.");
         Node node = this.getNodeByObject(object);
         if (node == null) {
-            node = Node.make(object, name, type);
+            node = Node.make(object, strings.intern(name), type, this.nextNodeId);
             if (node != null) {
-                this.nodes.add(node);
+                this.nextNodeId++;
+                this.addNode(node);
                 this.obj2nodeMap.put(object, node);
             }
         }
         return node;
     }
 
+    // Add a node created outside of this graph under the next id of this graph, see ConcurrentGraph
+    void adoptNode(Node node) {
+        if (sealed)
+            throw new IllegalStateException("No node can be added to a sealed graph.");
+        node.name = strings.intern(node.name);
+        node.id = this.nextNodeId++;
+        this.addNode(node);
+        this.obj2nodeMap.put(node.content, node);
+    }
+
+    boolean containsNode(Node node) {
+        return nodeIndex.containsKey(node);
+    }
+
+    int addNode(Node node) {
+        Integer position = nodeIndex.get(node);
+        if (position == null) {
+            position = nodes.size();
+            nodes.add(node);
+            nodeIndex.put(node, position);
+            this.modified();
+        }
+        return position;
+    }
+
+    // position of a node in nodes, -1 if it is not in this graph
+    int positionOf(Node node) {
+        Integer position = nodeIndex.get(node);
+        return position == null ? -1 : position;
+    }
+
+    // nodes created later get ids after the nodes of the other graph
+    void copyNodeIds(Graph other) {
+        this.nextNodeId = other.nextNodeId;
+    }
+
+    private void modified() {
+        index = null;
+        modCount++;
+    }
+
+    int getModCount() {
+        return modCount;
+    }
+
+    GraphIndex getIndex() {
+        if (index == null)
+            index = new GraphIndex(nodes, edgeList, edgeTypes.size());
+        return index;
+    }
+
+    /**
+     * @return a view of all the nodes and edges of this graph, to be filtered without copying them
+     */
+    public GraphView view() {
+        return new GraphView(this, this.getIndex());
+    }
+
     public Node getNodeByObject(Object object) {
-        if (this.obj2nodeMap.containsKey(object)) {
+        if (this.obj2nodeMap != null && this.obj2nodeMap.containsKey(object)) {
             return this.obj2nodeMap.get(object);
         }
 
         return null;
     }
 
+    // The canonical instance of a name or signature of the nodes of this graph
+    public String intern(String string) {
+        return strings.intern(string);
+    }
+
+    /**
+     * Drop the objects the nodes were made from, such as Soot methods, so that the graph doesn't keep them alive.
+     * The nodes and edges stay readable, but no node can be added or found by its object any more.
+     */
+    public void seal() {
+        for (Node node : nodes) {
+            node.content = null;
+        }
+        obj2nodeMap = null;
+        sealed = true;
+    }
+
+    public boolean isSealed() {
+        return sealed;
+    }
+
     public Node getNodeById(int id) {
-        return nodes.get(id);
+        // nodes created by this graph are at the position of their id, filtered graphs keep the ids of the original
+        if (id >= 0 && id < nodes.size() && nodes.get(id).id == id)
+            return nodes.get(id);
+        for (Node node : nodes) {
+            if (node.id == id)
+                return node;
+        }
+        return null;
     }
 
     public Edge createEdge(Node source, Node target, String type) {
         Edge edge = Edge.make(source, target, type);
         if (edge != null) {
-            this.edges.add(edge);
+            this.addEdge(edge);
         }
         return edge;
     }
 
+    // the nodes of the edge must be in this graph already
+    void addEdge(Edge edge) {
+        Integer source = nodeIndex.get(edge.source);
+        Integer target = nodeIndex.get(edge.target);
+        if (source == null || target == null)
+            throw new IllegalArgumentException("The nodes of the edge are not in the graph: " + edge);
+        edgeList.add(source, target, edgeTypes.intern(edge.type));
+        this.modified();
+    }
+
+    // A copy of this graph without the nodes of a type, see view() to filter without copying
     public Graph removeNodesOfType(String nodeType) {
-        Graph g_new = new Graph();
-        for (Node node : this.nodes) {
-            if (node.type.equals(nodeType))
-                continue;
-            g_new.nodes.add(node);
-        }
-        for (Edge edge : this.edges) {
-            if (edge.source.type.equals(nodeType) || edge.target.type.equals(nodeType))
-                continue;
-            g_new.edges.add(edge);
-        }
-        return g_new;
+        return this.view().withoutNodesOfType(nodeType).toGraph();
     }
 
+    // A copy of this graph without the edges of a type, see view() to filter without copying
     public Graph removeEdgesOfType(String edgeType) {
-        Graph g_new = new Graph();
-        for (Node node : this.nodes) {
-            g_new.nodes.add(node);
-        }
-        for (Edge edge : this.edges) {
-            if (edge.type.equals(edgeType))
-                continue;
-            g_new.edges.add(edge);
-        }
-        return g_new;
+        return this.view().withoutEdgesOfType(edgeType).toGraph();
     }
 }
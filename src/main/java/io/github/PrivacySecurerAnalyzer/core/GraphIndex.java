@@ -0,0 +1,86 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Indexes of a graph, built once for all its views: node positions by node type, edge indexes by edge type
+ * and the types of their nodes, and the edges by source and by target. Dropped by the graph when it is modified.
+ */
+class GraphIndex {
+    final int nodeCount;
+    final int edgeCount;
+    final TypeTable nodeTypes = new TypeTable();
+    // type id of the node at every position
+    final int[] nodeTypeIds;
+    // positions of the nodes of every node type id, ascending
+    final int[][] nodesByType;
+    final int edgeTypeCount;
+    // indexes of the edges of every (edge type id, source node type id, target node type id), ascending;
+    // only the groups with edges are kept
+    final int[][] edgeGroups;
+    // the edge type id, source node type id and target node type id of every group
+    final int[] groupEdgeTypes;
+    final int[] groupSourceTypes;
+    final int[] groupTargetTypes;
+    final int[] outOffsets;
+    final int[] outEdges;
+    final int[] inOffsets;
+    final int[] inEdges;
+
+    GraphIndex(List<Node> nodes, EdgeList edgeList, int edgeTypeCount) {
+        this.nodeCount = nodes.size();
+        this.edgeCount = edgeList.size;
+
+        this.nodeTypeIds = new int[this.nodeCount];
+        for (int i = 0; i < this.nodeCount; i++) {
+            this.nodeTypeIds[i] = this.nodeTypes.intern(nodes.get(i).type);
+        }
+        this.nodesByType = group(this.nodeTypeIds, this.nodeCount, this.nodeTypes.size());
+
+        this.edgeTypeCount = edgeTypeCount;
+        int nodeTypeCount = this.nodeTypes.size();
+        int[] groupKeys = new int[this.edgeCount];
+        for (int i = 0; i < this.edgeCount; i++) {
+            groupKeys[i] = (edgeList.types[i] * nodeTypeCount + this.nodeTypeIds[edgeList.sources[i]]) * nodeTypeCount
+                    + this.nodeTypeIds[edgeList.targets[i]];
+        }
+        int[][] groups = group(groupKeys, this.edgeCount, edgeTypeCount * nodeTypeCount * nodeTypeCount);
+        int groupCount = 0;
+        for (int[] group : groups) {
+            if (group.length > 0)
+                groupCount++;
+        }
+        this.edgeGroups = new int[groupCount][];
+        this.groupEdgeTypes = new int[groupCount];
+        this.groupSourceTypes = new int[groupCount];
+        this.groupTargetTypes = new int[groupCount];
+        groupCount = 0;
+        for (int key = 0; key < groups.length; key++) {
+            if (groups[key].length == 0)
+                continue;
+            this.edgeGroups[groupCount] = groups[key];
+            this.groupEdgeTypes[groupCount] = key / nodeTypeCount / nodeTypeCount;
+            this.groupSourceTypes[groupCount] = key / nodeTypeCount % nodeTypeCount;
+            this.groupTargetTypes[groupCount] = key % nodeTypeCount;
+            groupCount++;
+        }
+
+        int[][] out = EdgeList.buildAdjacency(edgeList.sources, this.edgeCount, this.nodeCount);
+        this.outOffsets = out[0];
+        this.outEdges = out[1];
+        int[][] in = EdgeList.buildAdjacency(edgeList.targets, this.edgeCount, this.nodeCount);
+        this.inOffsets = in[0];
+        this.inEdges = in[1];
+    }
+
+    // the indexes of every key, a counting sort keeping the indexes ascending
+    private static int[][] group(int[] keys, int size, int keyCount) {
+        int[][] adjacency = EdgeList.buildAdjacency(keys, size, keyCount);
+        int[][] groups = new int[keyCount][];
+        for (int key = 0; key < keyCount; key++) {
+            groups[key] = Arrays.copyOfRange(adjacency[1], adjacency[0][key], adjacency[0][key + 1]);
+        }
+        return groups;
+    }
+}
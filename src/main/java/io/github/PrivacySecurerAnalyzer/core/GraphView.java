@@ -0,0 +1,238 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A filtered view of a graph, without copying its nodes or edges.
+ *
+ * Views are made with {@link Graph#view()} and narrowed with {@link #withoutNodesOfType(String)}
+ * and {@link #withoutEdgesOfType(String)}; the edges of a removed node are removed too.
+ * Nodes and edges are looked up in the indexes of the graph, so listing them costs about the size of the result,
+ * merged from the groups of the types kept, and the neighbours of a node cost its degree.
+ * The graph should not be modified while its views are used.
+ */
+public class GraphView {
+    private final Graph graph;
+    private final GraphIndex index;
+    // modification count of the graph when the index was built
+    private final int modCount;
+    // by node type id of the index, and by edge type id of the graph
+    private final boolean[] removedNodeTypes;
+    private final boolean[] removedEdgeTypes;
+
+    // positions of the nodes and indexes of the edges of this view, computed on first use
+    private int[] nodePositions;
+    private int[] edgeIndexes;
+
+    GraphView(Graph graph, GraphIndex index) {
+        this(graph, index, graph.getModCount(), new boolean[index.nodeTypes.size()], new boolean[index.edgeTypeCount]);
+    }
+
+    private GraphView(Graph graph, GraphIndex index, int modCount, boolean[] removedNodeTypes, boolean[] removedEdgeTypes) {
+        this.graph = graph;
+        this.index = index;
+        this.modCount = modCount;
+        this.removedNodeTypes = removedNodeTypes;
+        this.removedEdgeTypes = removedEdgeTypes;
+    }
+
+    public GraphView withoutNodesOfType(String nodeType) {
+        int type = this.index.nodeTypes.find(nodeType);
+        if (type < 0 || this.removedNodeTypes[type])
+            return this;
+        boolean[] removed = this.removedNodeTypes.clone();
+        removed[type] = true;
+        return new GraphView(this.graph, this.index, this.modCount, removed, this.removedEdgeTypes);
+    }
+
+    public GraphView withoutEdgesOfType(String edgeType) {
+        int type = this.graph.getEdgeTypes().find(edgeType);
+        if (type < 0 || type >= this.removedEdgeTypes.length || this.removedEdgeTypes[type])
+            return this;
+        boolean[] removed = this.removedEdgeTypes.clone();
+        removed[type] = true;
+        return new GraphView(this.graph, this.index, this.modCount, this.removedNodeTypes, removed);
+    }
+
+    public List<Node> getNodes() {
+        if (this.nodePositions == null) {
+            this.checkIndex();
+            List<int[]> groups = new ArrayList<>();
+            for (int type = 0; type < this.index.nodesByType.length; type++) {
+                if (!this.removedNodeTypes[type])
+                    groups.add(this.index.nodesByType[type]);
+            }
+            this.nodePositions = merge(groups);
+        }
+        return this.nodeList(this.nodePositions);
+    }
+
+    public List<Edge> getEdges() {
+        if (this.edgeIndexes == null) {
+            this.checkIndex();
+            this.edgeIndexes = this.mergeEdgeGroups(-1);
+        }
+        return this.edgeList(this.edgeIndexes);
+    }
+
+    public int getNodeCount() {
+        return this.getNodes().size();
+    }
+
+    public int getEdgeCount() {
+        return this.getEdges().size();
+    }
+
+    public List<Node> getNodesOfType(String nodeType) {
+        this.checkIndex();
+        int type = this.index.nodeTypes.find(nodeType);
+        if (type < 0 || this.removedNodeTypes[type])
+            return this.nodeList(new int[0]);
+        return this.nodeList(this.index.nodesByType[type]);
+    }
+
+    public List<Edge> getEdgesOfType(String edgeType) {
+        this.checkIndex();
+        int type = this.graph.getEdgeTypes().find(edgeType);
+        if (type < 0 || type >= this.removedEdgeTypes.length || this.removedEdgeTypes[type])
+            return this.edgeList(new int[0]);
+        return this.edgeList(this.mergeEdgeGroups(type));
+    }
+
+    public boolean contains(Node node) {
+        this.checkIndex();
+        int position = this.graph.positionOf(node);
+        return position >= 0 && !this.removedNodeTypes[this.index.nodeTypeIds[position]];
+    }
+
+    public List<Edge> getOutgoingEdges(Node source) {
+        if (!this.contains(source))
+            return this.edgeList(new int[0]);
+        int position = this.graph.positionOf(source);
+        return this.edgeList(this.filterEdges(Arrays.copyOfRange(this.index.outEdges,
+                this.index.outOffsets[position], this.index.outOffsets[position + 1])));
+    }
+
+    public List<Edge> getIncomingEdges(Node target) {
+        if (!this.contains(target))
+            return this.edgeList(new int[0]);
+        int position = this.graph.positionOf(target);
+        return this.edgeList(this.filterEdges(Arrays.copyOfRange(this.index.inEdges,
+                this.index.inOffsets[position], this.index.inOffsets[position + 1])));
+    }
+
+    /**
+     * @return a new graph with the nodes and edges of this view
+     */
+    public Graph toGraph() {
+        Graph g = new Graph();
+        g.copyNodeIds(this.graph);
+        for (Node node : this.getNodes()) {
+            g.addNode(node);
+        }
+        for (Edge edge : this.getEdges()) {
+            g.addEdge(edge);
+        }
+        return g;
+    }
+
+    // the edges of the given indexes which are in this view
+    private int[] filterEdges(int[] edges) {
+        EdgeList edgeList = this.graph.getEdgeList();
+        int[] result = new int[edges.length];
+        int size = 0;
+        for (int edge : edges) {
+            if (this.removedEdgeTypes[edgeList.types[edge]]
+                    || this.removedNodeTypes[this.index.nodeTypeIds[edgeList.sources[edge]]]
+                    || this.removedNodeTypes[this.index.nodeTypeIds[edgeList.targets[edge]]])
+                continue;
+            result[size++] = edge;
+        }
+        return size == result.length ? result : Arrays.copyOf(result, size);
+    }
+
+    // the edges of the groups of an edge type id (of every type if -1) which are in this view
+    private int[] mergeEdgeGroups(int edgeType) {
+        List<int[]> groups = new ArrayList<>();
+        for (int group = 0; group < this.index.edgeGroups.length; group++) {
+            int type = this.index.groupEdgeTypes[group];
+            if ((edgeType < 0 || type == edgeType) && !this.removedEdgeTypes[type]
+                    && !this.removedNodeTypes[this.index.groupSourceTypes[group]]
+                    && !this.removedNodeTypes[this.index.groupTargetTypes[group]])
+                groups.add(this.index.edgeGroups[group]);
+        }
+        return merge(groups);
+    }
+
+    // the ascending union of disjoint groups of ascending values, a k-way merge
+    private static int[] merge(final List<int[]> groups) {
+        if (groups.isEmpty())
+            return new int[0];
+        if (groups.size() == 1)
+            return groups.get(0);
+        int size = 0;
+        for (int[] group : groups) {
+            size += group.length;
+        }
+        // offset of the next value of every group, the queue orders the groups by their next value
+        final int[] offsets = new int[groups.size()];
+        PriorityQueue<Integer> heads = new PriorityQueue<>(groups.size(), new Comparator<Integer>() {
+            @Override
+            public int compare(Integer o1, Integer o2) {
+                return Integer.compare(groups.get(o1)[offsets[o1]], groups.get(o2)[offsets[o2]]);
+            }
+        });
+        for (int group = 0; group < groups.size(); group++) {
+            if (groups.get(group).length > 0)
+                heads.add(group);
+        }
+        int[] result = new int[size];
+        for (int i = 0; i < size; i++) {
+            int group = heads.poll();
+            result[i] = groups.get(group)[offsets[group]++];
+            if (offsets[group] < groups.get(group).length)
+                heads.add(group);
+        }
+        return result;
+    }
+
+    private List<Node> nodeList(final int[] positions) {
+        return new AbstractList<Node>() {
+            @Override
+            public Node get(int i) {
+                return graph.nodes.get(positions[i]);
+            }
+
+            @Override
+            public int size() {
+                return positions.length;
+            }
+        };
+    }
+
+    // Edge objects are created on access, like Graph.getEdges()
+    private List<Edge> edgeList(final int[] edges) {
+        return new AbstractList<Edge>() {
+            @Override
+            public Edge get(int i) {
+                return graph.getEdge(edges[i]);
+            }
+
+            @Override
+            public int size() {
+                return edges.length;
+            }
+        };
+    }
+
+    private void checkIndex() {
+        if (this.graph.getModCount() != this.modCount)
+            throw new ConcurrentModificationException("the graph was modified after the view was made");
+    }
+}
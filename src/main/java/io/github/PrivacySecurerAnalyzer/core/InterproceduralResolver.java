@@ -0,0 +1,414 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import soot.Body;
+import soot.Local;
+import soot.PrimType;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootField;
+import soot.SootMethod;
+import soot.Type;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.AssignStmt;
+import soot.jimple.CastExpr;
+import soot.jimple.Constant;
+import soot.jimple.DoubleConstant;
+import soot.jimple.FloatConstant;
+import soot.jimple.IdentityStmt;
+import soot.jimple.InstanceInvokeExpr;
+import soot.jimple.IntConstant;
+import soot.jimple.InvokeExpr;
+import soot.jimple.LongConstant;
+import soot.jimple.ParameterRef;
+import soot.jimple.ReturnStmt;
+import soot.jimple.StaticFieldRef;
+import soot.jimple.StaticInvokeExpr;
+import soot.jimple.Stmt;
+import soot.jimple.StringConstant;
+import soot.tagkit.DoubleConstantValueTag;
+import soot.tagkit.FloatConstantValueTag;
+import soot.tagkit.IntegerConstantValueTag;
+import soot.tagkit.LongConstantValueTag;
+import soot.tagkit.StringConstantValueTag;
+import soot.tagkit.Tag;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Demand-driven, bounded interprocedural resolution of the constant value of a local,
+ * e.g. setPhoneNumber(Helper.getPhone()) or setThreshold(threshold) where threshold is a parameter.
+ *
+ * Starting from a use of the local, definitions are followed backwards through copies, casts,
+ * boxing/unboxing, the return values of application methods (callee summaries), the call sites of
+ * the method if the local is a parameter, and static final fields (constant tags or the class initializer).
+ * A query stops at maxDepth nested calls or after timeBudgetMillis, the value is unknown (null) then.
+ * The call sites of a method are looked for in the bodies of its possible callers only, which a
+ * {@link CallerFinder} can narrow down, and within the time budget.
+ */
+public class InterproceduralResolver {
+    public static final int DEFAULT_MAX_DEPTH = 3;
+    public static final long DEFAULT_TIME_BUDGET_MILLIS = 200;
+    // call sites followed for a parameter, beyond that the value is considered unknown
+    private static final int MAX_CALL_SITES = 16;
+
+    private static final Set<String> BOXED_TYPES = new HashSet<>(Arrays.asList(
+            "java.lang.String", "java.lang.Integer", "java.lang.Long", "java.lang.Double", "java.lang.Float",
+            "java.lang.Short", "java.lang.Byte", "java.lang.Boolean", "java.lang.Character"));
+
+    // summary of a method: the Constant it always returns, or the index of the parameter it always returns
+    private static final Object UNKNOWN = new Object();
+    private static final Object IN_PROGRESS = new Object();
+
+    /**
+     * Finds the methods which may call a method, before their bodies are looked at.
+     */
+    public interface CallerFinder {
+        // a superset of the callers of the method, null if they are not known
+        Collection<SootMethod> findCallers(SootMethod callee);
+    }
+
+    private final MethodAnalysisCache analysisCache;
+    private final int maxDepth;
+    private final long timeBudgetMillis;
+    // classes the call sites are looked for in, null for all the application classes
+    private final List<SootClass> classes;
+    private final CallerFinder callerFinder;
+
+    private final Map<SootMethod, Object> summaries = new HashMap<>();
+    // classes each summary was computed from
+    private final Map<SootMethod, Set<SootClass>> summaryClasses = new HashMap<>();
+    private final Map<SootMethod, List<Stmt>> callSites = new HashMap<>();
+    private final Map<Stmt, SootMethod> callerOfSite = new HashMap<>();
+    private Set<SootClass> visitedClasses = new HashSet<>();
+    private boolean callSitesUsed = false;
+    private final Set<List<Object>> inProgress = new HashSet<>();
+    private long deadline;
+    // values left UNKNOWN by a cycle or maxDepth so far, they may be known from another call
+    private int cutOffs = 0;
+
+    private long queries = 0;
+    private long resolved = 0;
+    private long budgetExceeded = 0;
+
+    public InterproceduralResolver(MethodAnalysisCache analysisCache) {
+        this(analysisCache, DEFAULT_MAX_DEPTH, DEFAULT_TIME_BUDGET_MILLIS);
+    }
+
+    public InterproceduralResolver(MethodAnalysisCache analysisCache, int maxDepth, long timeBudgetMillis) {
+        this(analysisCache, maxDepth, timeBudgetMillis, null, null);
+    }
+
+    public InterproceduralResolver(MethodAnalysisCache analysisCache, int maxDepth, long timeBudgetMillis,
+                                   List<SootClass> classes, CallerFinder callerFinder) {
+        this.analysisCache = analysisCache;
+        this.maxDepth = maxDepth;
+        this.timeBudgetMillis = timeBudgetMillis;
+        this.classes = classes;
+        this.callerFinder = callerFinder;
+    }
+
+    // only strings, primitives and their boxes can have a constant value
+    public static boolean canResolve(Type type) {
+        return type instanceof PrimType || (type instanceof RefType && BOXED_TYPES.contains(((RefType) type).getClassName()));
+    }
+
+    /**
+     * The constant value of a local used at the given unit of a method, null if it is unknown.
+     */
+    public Constant resolve(Local local, Unit unit, SootMethod method) {
+        if (this.maxDepth <= 0 || !canResolve(local.getType()))
+            return null;
+        this.queries++;
+        this.deadline = System.nanoTime() + this.timeBudgetMillis * 1000000L;
+        Object result = this.resolveValue(local, unit, method, 0);
+        if (result instanceof Integer)
+            result = this.resolveParameter(method, (Integer) result, 0);
+        if (result instanceof Constant) {
+            this.resolved++;
+            return (Constant) result;
+        }
+        return null;
+    }
+
+    private boolean outOfTime() {
+        if (System.nanoTime() < this.deadline)
+            return false;
+        this.budgetExceeded++;
+        // stop the rest of the query right away
+        this.deadline = Long.MIN_VALUE;
+        return true;
+    }
+
+    // a Constant, the index of a parameter of the method (for summaries), or UNKNOWN
+    private Object resolveValue(Value value, Unit unit, SootMethod method, int depth) {
+        if (value instanceof Constant)
+            return value;
+        if (!(value instanceof Local) || this.outOfTime())
+            return UNKNOWN;
+
+        List<Object> key = Arrays.<Object>asList(unit, value);
+        if (!this.inProgress.add(key)) {
+            this.cutOffs++;
+            return UNKNOWN;
+        }
+        try {
+            List<Unit> defs = this.analysisCache.get(method).getLocalDefs().getDefsOfAt((Local) value, unit);
+            if (defs.isEmpty())
+                return UNKNOWN;
+            Object result = null;
+            for (Unit def : defs) {
+                Object defValue = this.resolveDefinition((Stmt) def, method, depth);
+                // all definitions have to agree
+                if (defValue == UNKNOWN || (result != null && !result.equals(defValue)))
+                    return UNKNOWN;
+                result = defValue;
+            }
+            return result;
+        } catch (RuntimeException e) {
+            // e.g. a body that can't be retrieved
+            return UNKNOWN;
+        } finally {
+            this.inProgress.remove(key);
+        }
+    }
+
+    private Object resolveDefinition(Stmt def, SootMethod method, int depth) {
+        if (def instanceof IdentityStmt) {
+            Value rightOp = ((IdentityStmt) def).getRightOp();
+            if (rightOp instanceof ParameterRef)
+                return ((ParameterRef) rightOp).getIndex();
+            return UNKNOWN;
+        }
+        if (!(def instanceof AssignStmt))
+            return UNKNOWN;
+        Value rightOp = ((AssignStmt) def).getRightOp();
+        if (rightOp instanceof Constant || rightOp instanceof Local)
+            return this.resolveValue(rightOp, def, method, depth);
+        if (rightOp instanceof CastExpr)
+            return this.resolveValue(((CastExpr) rightOp).getOp(), def, method, depth);
+        if (rightOp instanceof StaticFieldRef)
+            return this.resolveStaticField(((StaticFieldRef) rightOp).getField(), depth);
+        if (rightOp instanceof InvokeExpr)
+            return this.resolveInvoke((InvokeExpr) rightOp, def, method, depth);
+        return UNKNOWN;
+    }
+
+    private Object resolveInvoke(InvokeExpr invokeExpr, Stmt stmt, SootMethod method, int depth) {
+        SootMethod callee = invokeExpr.getMethod();
+        String className = callee.getDeclaringClass().getName();
+        // boxing and unboxing, such as Double.valueOf(20.0) and d.doubleValue()
+        if (BOXED_TYPES.contains(className)) {
+            if (invokeExpr instanceof StaticInvokeExpr && callee.getName().equals("valueOf") && invokeExpr.getArgCount() == 1)
+                return this.resolveValue(invokeExpr.getArg(0), stmt, method, depth);
+            if (invokeExpr instanceof InstanceInvokeExpr && callee.getName().endsWith("Value") && invokeExpr.getArgCount() == 0)
+                return this.resolveValue(((InstanceInvokeExpr) invokeExpr).getBase(), stmt, method, depth);
+            return UNKNOWN;
+        }
+        if (depth >= this.maxDepth) {
+            this.cutOffs++;
+            return UNKNOWN;
+        }
+        Object summary = this.getSummary(callee, depth + 1);
+        if (summary instanceof Integer) {
+            int index = (Integer) summary;
+            if (index < invokeExpr.getArgCount())
+                return this.resolveValue(invokeExpr.getArg(index), stmt, method, depth);
+            return UNKNOWN;
+        }
+        return summary;
+    }
+
+    // the value returned by every return statement of an application method
+    private Object getSummary(SootMethod callee, int depth) {
+        Object summary = this.summaries.get(callee);
+        if (summary == IN_PROGRESS) {
+            this.cutOffs++;
+            return UNKNOWN;
+        }
+        if (summary != null) {
+            this.visitedClasses.addAll(this.summaryClasses.get(callee));
+            return summary;
+        }
+        if (!callee.isConcrete() || !callee.getDeclaringClass().isApplicationClass())
+            return UNKNOWN;
+
+        this.summaries.put(callee, IN_PROGRESS);
+        summary = UNKNOWN;
+        int cutOffs = this.cutOffs;
+        Set<SootClass> outerClasses = this.visitedClasses;
+        this.visitedClasses = new HashSet<>();
+        try {
+            this.visitedClasses.add(callee.getDeclaringClass());
+            Object returned = null;
+            for (Unit unit : this.analysisCache.get(callee).body.getUnits()) {
+                if (!(unit instanceof ReturnStmt))
+                    continue;
+                Object value = this.resolveValue(((ReturnStmt) unit).getOp(), unit, callee, depth);
+                if (value == UNKNOWN || (returned != null && !returned.equals(value))) {
+                    returned = UNKNOWN;
+                    break;
+                }
+                returned = value;
+            }
+            if (returned != null)
+                summary = returned;
+        } catch (RuntimeException e) {
+            summary = UNKNOWN;
+        }
+        this.summaryClasses.put(callee, this.visitedClasses);
+        outerClasses.addAll(this.visitedClasses);
+        this.visitedClasses = outerClasses;
+        // a summary cut short by the time budget, a recursive call or maxDepth is not kept,
+        // it might be known with more time or from another call
+        if ((this.deadline == Long.MIN_VALUE || this.cutOffs != cutOffs) && summary == UNKNOWN)
+            this.summaries.remove(callee);
+        else
+            this.summaries.put(callee, summary);
+        return summary;
+    }
+
+    /**
+     * The constant passed as the given parameter at every call site of the method.
+     */
+    private Object resolveParameter(SootMethod method, int index, int depth) {
+        if (depth >= this.maxDepth) {
+            this.cutOffs++;
+            return UNKNOWN;
+        }
+        // call sites may be added to any class
+        this.callSitesUsed = true;
+        List<Stmt> sites = this.getCallSites(method);
+        if (sites == null || sites.isEmpty() || sites.size() > MAX_CALL_SITES)
+            return UNKNOWN;
+        Object result = null;
+        for (Stmt site : sites) {
+            SootMethod caller = this.callerOfSite.get(site);
+            this.visitedClasses.add(caller.getDeclaringClass());
+            Object value = this.resolveValue(site.getInvokeExpr().getArg(index), site, caller, depth + 1);
+            if (value instanceof Integer)
+                value = this.resolveParameter(caller, (Integer) value, depth + 1);
+            if (value == UNKNOWN || (result != null && !result.equals(value)))
+                return UNKNOWN;
+            result = value;
+        }
+        return result;
+    }
+
+    // call sites of a method, null if the time budget ran out before all its possible callers were looked at
+    private List<Stmt> getCallSites(SootMethod callee) {
+        List<Stmt> sites = this.callSites.get(callee);
+        if (sites != null)
+            return sites;
+        sites = new ArrayList<>();
+        for (SootMethod caller : this.getPossibleCallers(callee)) {
+            if (this.outOfTime())
+                return null;
+            if (!caller.isConcrete())
+                continue;
+            Body body;
+            try {
+                // bodies are usually retrieved already, unless only some classes were scanned
+                body = caller.retrieveActiveBody();
+            } catch (RuntimeException e) {
+                continue;
+            }
+            for (Unit unit : body.getUnits()) {
+                Stmt stmt = (Stmt) unit;
+                if (!stmt.containsInvokeExpr())
+                    continue;
+                // the name is compared first, so that only the refs which may match are resolved
+                InvokeExpr invokeExpr = stmt.getInvokeExpr();
+                if (!invokeExpr.getMethodRef().name().equals(callee.getName()) || invokeExpr.getMethod() != callee)
+                    continue;
+                sites.add(stmt);
+                this.callerOfSite.put(stmt, caller);
+            }
+            // more call sites than are followed, the value is unknown anyway
+            if (sites.size() > MAX_CALL_SITES)
+                break;
+        }
+        this.callSites.put(callee, sites);
+        return sites;
+    }
+
+    private Collection<SootMethod> getPossibleCallers(SootMethod callee) {
+        Collection<SootMethod> callers = this.callerFinder == null ? null : this.callerFinder.findCallers(callee);
+        if (callers != null)
+            return callers;
+        callers = new ArrayList<>();
+        for (SootClass cls : this.classes == null ? new ArrayList<SootClass>(Scene.v().getApplicationClasses()) : this.classes) {
+            callers.addAll(cls.getMethods());
+        }
+        return callers;
+    }
+
+    private Object resolveStaticField(SootField field, int depth) {
+        for (Tag tag : field.getTags()) {
+            if (tag instanceof StringConstantValueTag)
+                return StringConstant.v(((StringConstantValueTag) tag).getStringValue());
+            if (tag instanceof IntegerConstantValueTag)
+                return IntConstant.v(((IntegerConstantValueTag) tag).getIntValue());
+            if (tag instanceof LongConstantValueTag)
+                return LongConstant.v(((LongConstantValueTag) tag).getLongValue());
+            if (tag instanceof DoubleConstantValueTag)
+                return DoubleConstant.v(((DoubleConstantValueTag) tag).getDoubleValue());
+            if (tag instanceof FloatConstantValueTag)
+                return FloatConstant.v(((FloatConstantValueTag) tag).getFloatValue());
+        }
+        // other fields may be assigned anywhere, only final ones are set once in <clinit>
+        SootClass cls = field.getDeclaringClass();
+        if (!field.isFinal() || !cls.isApplicationClass())
+            return UNKNOWN;
+        if (depth >= this.maxDepth) {
+            this.cutOffs++;
+            return UNKNOWN;
+        }
+        SootMethod clinit = cls.getMethodUnsafe(SootMethod.staticInitializerName);
+        if (clinit == null || !clinit.isConcrete())
+            return UNKNOWN;
+        this.visitedClasses.add(cls);
+        for (Unit unit : this.analysisCache.get(clinit).body.getUnits()) {
+            if (unit instanceof AssignStmt && ((AssignStmt) unit).getLeftOp() instanceof StaticFieldRef
+                    && ((StaticFieldRef) ((AssignStmt) unit).getLeftOp()).getField() == field) {
+                return this.resolveValue(((AssignStmt) unit).getRightOp(), unit, clinit, depth + 1);
+            }
+        }
+        return UNKNOWN;
+    }
+
+    // classes whose code was looked at since the last clearVisitedClasses(), the results depend on them
+    public Set<SootClass> getVisitedClasses() {
+        return this.visitedClasses;
+    }
+
+    // whether the results since the last clearVisitedClasses() depend on all the call sites of a method
+    public boolean isCallSitesUsed() {
+        return this.callSitesUsed;
+    }
+
+    public void clearVisitedClasses() {
+        this.visitedClasses = new HashSet<>();
+        this.callSitesUsed = false;
+    }
+
+    public long getQueries() {
+        return this.queries;
+    }
+
+    public long getResolved() {
+        return this.resolved;
+    }
+
+    public long getBudgetExceeded() {
+        return this.budgetExceeded;
+    }
+}
@@ -0,0 +1,113 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import soot.Body;
+import soot.SootMethod;
+import soot.toolkits.graph.BriefUnitGraph;
+import soot.toolkits.graph.UnitGraph;
+import soot.toolkits.scalar.LocalDefs;
+import soot.toolkits.scalar.LocalUses;
+
+import java.lang.ref.SoftReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-method body analyses (LocalDefs, LocalUses and the memoized parameter definitions), computed once
+ * on demand and shared by all pipeline extraction of the method.
+ * At most maxEntries methods are kept, the least recently used ones are evicted first,
+ * and entries are softly referenced so that the GC can drop them under heap pressure.
+ */
+public class MethodAnalysisCache {
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final int maxEntries;
+    private final LinkedHashMap<SootMethod, SoftReference<MethodAnalysis>> entries;
+    private long hits = 0;
+    private long misses = 0;
+    private long evictions = 0;
+
+    public static class MethodAnalysis {
+        public final SootMethod method;
+        public final Body body;
+        private LocalDefs localDefs;
+        private LocalUses localUses;
+        private ParameterResolver parameterResolver;
+
+        private MethodAnalysis(SootMethod method, Body body) {
+            this.method = method;
+            this.body = body;
+        }
+
+        public synchronized LocalDefs getLocalDefs() {
+            if (this.localDefs == null)
+                this.computeDefsAndUses();
+            return this.localDefs;
+        }
+
+        public synchronized LocalUses getLocalUses() {
+            if (this.localUses == null)
+                this.computeDefsAndUses();
+            return this.localUses;
+        }
+
+        public synchronized ParameterResolver getParameterResolver() {
+            if (this.parameterResolver == null)
+                this.parameterResolver = new ParameterResolver(this.method, this.body, this.getLocalDefs(), this.getLocalUses());
+            return this.parameterResolver;
+        }
+
+        private void computeDefsAndUses() {
+            // defs and uses share the unit graph
+            UnitGraph unitGraph = new BriefUnitGraph(this.body);
+            this.localDefs = LocalDefs.Factory.newLocalDefs(unitGraph);
+            this.localUses = LocalUses.Factory.newLocalUses(unitGraph, this.localDefs);
+        }
+    }
+
+    public MethodAnalysisCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    public MethodAnalysisCache(final int maxEntries) {
+        this.maxEntries = maxEntries;
+        // access order, so the eldest entry is the least recently used one
+        this.entries = new LinkedHashMap<SootMethod, SoftReference<MethodAnalysis>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<SootMethod, SoftReference<MethodAnalysis>> eldest) {
+                if (size() <= MethodAnalysisCache.this.maxEntries)
+                    return false;
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    public synchronized MethodAnalysis get(SootMethod method) {
+        SoftReference<MethodAnalysis> reference = this.entries.get(method);
+        MethodAnalysis entry = reference == null ? null : reference.get();
+        if (entry != null) {
+            this.hits++;
+            return entry;
+        }
+        this.misses++;
+        entry = new MethodAnalysis(method, method.retrieveActiveBody());
+        this.entries.put(method, new SoftReference<>(entry));
+        return entry;
+    }
+
+    public synchronized void clear() {
+        this.entries.clear();
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+}
@@ -39,10 +39,10 @@ public class Node {
         this.id = id;
     }
 
-    private static int count = 0;
-    public static Node make(Object obj, String name, String type) {
+    // ids are given by the graph of the node, see Graph.getNodeOrCreate
+    public static Node make(Object obj, String name, String type, int id) {
         if (obj == null) return null;
-        return new Node(obj, name, type, "", count++);
+        return new Node(obj, name, type, "", id);
     }
 
     public static Node make(JSONObject jsonObject) {
@@ -3,10 +3,8 @@ package io.github.PrivacySecurerAnalyzer.core;
 import org.apache.commons.lang.StringUtils;
 import soot.*;
 import soot.jimple.*;
-import soot.jimple.internal.AbstractDefinitionStmt;
 import soot.toolkits.scalar.LocalDefs;
 import soot.toolkits.scalar.LocalUses;
-import soot.toolkits.scalar.UnitValueBoxPair;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -22,13 +20,26 @@ public class PSFunction {
     protected LocalDefs localDefs;
     protected LocalUses localUses;
 
+    // definitions of parameters, shared by all PSFunctions of the host method
+    protected ParameterResolver resolver;
+
     public PSFunction(InvokeExpr invokeExpr, Unit hostUnit, SootMethod hostMethod, Body hostBody, LocalDefs localDefs, LocalUses localUses) {
+        this(invokeExpr, hostUnit, new ParameterResolver(hostMethod, hostBody, localDefs, localUses));
+    }
+
+    // the body analyses of the host method are taken from (and shared through) the cache
+    public PSFunction(InvokeExpr invokeExpr, Unit hostUnit, SootMethod hostMethod, MethodAnalysisCache analysisCache) {
+        this(invokeExpr, hostUnit, analysisCache.get(hostMethod).getParameterResolver());
+    }
+
+    protected PSFunction(InvokeExpr invokeExpr, Unit hostUnit, ParameterResolver resolver) {
         this.invokeExpr = invokeExpr;
         this.hostUnit = hostUnit;
-        this.hostMethod = hostMethod;
-        this.hostBody = hostBody;
-        this.localDefs = localDefs;
-        this.localUses = localUses;
+        this.hostMethod = resolver.hostMethod;
+        this.hostBody = resolver.hostBody;
+        this.localDefs = resolver.localDefs;
+        this.localUses = resolver.localUses;
+        this.resolver = resolver;
         this.parameters = new ArrayList<>();
         this.findParameters();
     }
@@ -58,39 +69,7 @@ public class PSFunction {
     }
 
     private Object getParameterDef(Value parameter, Unit currentUnit) {
-        if (parameter instanceof Constant) {
-            return parameter;
-        }
-        if (parameter instanceof Local) {
-            List<Unit> paraDefs = this.localDefs.getDefsOfAt((Local) parameter, currentUnit);
-            if (paraDefs.size() == 1 && paraDefs.get(0) instanceof AbstractDefinitionStmt) {
-                AbstractDefinitionStmt stmt = (AbstractDefinitionStmt) paraDefs.get(0);
-                if (stmt.getRightOp() instanceof InvokeExpr) {
-                    return new PSFunction((InvokeExpr) stmt.getRightOp(), stmt, this.hostMethod, this.hostBody, this.localDefs, this.localUses);
-                }
-                if (stmt.getRightOp() instanceof NewArrayExpr) {
-                    List<Object> parameterArray = new ArrayList<>();
-                    List<UnitValueBoxPair> uses = this.localUses.getUsesOf(stmt);
-                    for (UnitValueBoxPair unitValueBoxPair : uses) {
-                        Unit useUnit = unitValueBoxPair.getUnit();
-                        // Find all array elements
-                        if (useUnit instanceof AbstractDefinitionStmt) {
-                            Value leftOp = ((AbstractDefinitionStmt) useUnit).getLeftOp();
-                            if (leftOp instanceof ArrayRef) {
-                                Value rightOp = ((AbstractDefinitionStmt) useUnit).getRightOp();
-                                Object arrayElement = this.getParameterDef(rightOp, useUnit);
-                                parameterArray.add(arrayElement);
-                            }
-                        }
-                    }
-                    return parameterArray;
-                }
-                if (stmt.getRightOp() instanceof Local) {
-                    return this.getParameterDef(stmt.getRightOp(), stmt);
-                }
-            }
-        }
-        return null;
+        return this.resolver.resolve(parameter, currentUnit);
     }
 
     public String toString() {
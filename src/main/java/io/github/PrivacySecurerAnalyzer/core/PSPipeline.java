@@ -23,6 +23,16 @@ public class PSPipeline extends PSFunction {
         this.findNextPipelines();
     }
 
+    public PSPipeline(InvokeExpr invokeExpr, Unit hostUnit, SootMethod hostMethod, MethodAnalysisCache analysisCache) {
+        this(invokeExpr, hostUnit, analysisCache.get(hostMethod).getParameterResolver());
+    }
+
+    protected PSPipeline(InvokeExpr invokeExpr, Unit hostUnit, ParameterResolver resolver) {
+        super(invokeExpr, hostUnit, resolver);
+        this.nextPipelines = new ArrayList<>();
+        this.findNextPipelines();
+    }
+
     private void findNextPipelines() {
         List<UnitValueBoxPair> uses = this.localUses.getUsesOf(this.hostUnit);
 
@@ -47,7 +57,7 @@ public class PSPipeline extends PSFunction {
             }
 
             if (invokeExpr != null && invokeExpr.getMethod().getDeclaringClass().getShortName().contains("Stream")) {
-                this.nextPipelines.add(new PSPipeline(invokeExpr, useUnit, hostMethod, hostBody, localDefs, localUses));
+                this.nextPipelines.add(new PSPipeline(invokeExpr, useUnit, resolver));
                 continue;
             }
             this.nextPipelines.add(definedValue);
@@ -0,0 +1,153 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import soot.Body;
+import soot.Local;
+import soot.SootMethod;
+import soot.Unit;
+import soot.Value;
+import soot.jimple.ArrayRef;
+import soot.jimple.Constant;
+import soot.jimple.InvokeExpr;
+import soot.jimple.NewArrayExpr;
+import soot.jimple.internal.AbstractDefinitionStmt;
+import soot.toolkits.scalar.LocalDefs;
+import soot.toolkits.scalar.LocalUses;
+import soot.toolkits.scalar.UnitValueBoxPair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Resolves the definitions of PSFunction parameters in one method: constants, nested PSFunctions,
+ * array elements and copies between locals.
+ * Results are memoized per (Unit, Value) and per defining statement, so a sub-expression used several
+ * times is resolved once.
+ * Copy cycles and definitions nested deeper than MAX_DEPTH are left unresolved (null), and the results
+ * missing them are not memoized, as they may be complete when resolved from another unit.
+ * Not thread-safe, a resolver is shared by all the PSFunctions of a method.
+ */
+public class ParameterResolver {
+    public static final int MAX_DEPTH = 64;
+
+    final SootMethod hostMethod;
+    final Body hostBody;
+    final LocalDefs localDefs;
+    final LocalUses localUses;
+
+    private final Map<Key, Object> resolved = new HashMap<>();
+    // invocations and arrays by their defining statement, which are the same wherever they are used
+    private final Map<Unit, Object> definitions = new IdentityHashMap<>();
+    private final Set<Key> inProgress = new HashSet<>();
+    private int depth = 0;
+    // resolutions cut short by a copy cycle or MAX_DEPTH so far
+    private int cutOffs = 0;
+
+    // the unit is compared by identity, the value by equals (locals are compared by identity too)
+    private static class Key {
+        final Unit unit;
+        final Value value;
+
+        Key(Unit unit, Value value) {
+            this.unit = unit;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return (o instanceof Key) && this.unit == ((Key) o).unit && this.value.equals(((Key) o).value);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(this.unit) + this.value.hashCode();
+        }
+    }
+
+    public ParameterResolver(SootMethod hostMethod, Body hostBody, LocalDefs localDefs, LocalUses localUses) {
+        this.hostMethod = hostMethod;
+        this.hostBody = hostBody;
+        this.localDefs = localDefs;
+        this.localUses = localUses;
+    }
+
+    /**
+     * The definition of a parameter value used at the given unit:
+     * the Constant itself, a PSFunction, a list of array elements, or null if it is unknown.
+     */
+    public Object resolve(Value parameter, Unit currentUnit) {
+        if (parameter instanceof Constant) {
+            return parameter;
+        }
+        if (!(parameter instanceof Local)) {
+            return null;
+        }
+        Key key = new Key(currentUnit, parameter);
+        if (this.resolved.containsKey(key)) {
+            return this.resolved.get(key);
+        }
+        // a copy cycle, or nested too deep
+        if (this.depth >= MAX_DEPTH || !this.inProgress.add(key)) {
+            this.cutOffs++;
+            return null;
+        }
+        this.depth++;
+        int cutOffs = this.cutOffs;
+        try {
+            Object result = this.resolveLocal((Local) parameter, currentUnit);
+            if (this.cutOffs == cutOffs)
+                this.resolved.put(key, result);
+            return result;
+        } finally {
+            this.depth--;
+            this.inProgress.remove(key);
+        }
+    }
+
+    private Object resolveLocal(Local parameter, Unit currentUnit) {
+        List<Unit> paraDefs = this.localDefs.getDefsOfAt(parameter, currentUnit);
+        if (paraDefs.size() == 1 && paraDefs.get(0) instanceof AbstractDefinitionStmt) {
+            AbstractDefinitionStmt stmt = (AbstractDefinitionStmt) paraDefs.get(0);
+            if (stmt.getRightOp() instanceof Local) {
+                return this.resolve(stmt.getRightOp(), stmt);
+            }
+            if (this.definitions.containsKey(stmt)) {
+                return this.definitions.get(stmt);
+            }
+            int cutOffs = this.cutOffs;
+            Object definition = this.resolveDefinition(stmt);
+            if (this.cutOffs == cutOffs)
+                this.definitions.put(stmt, definition);
+            return definition;
+        }
+        return null;
+    }
+
+    private Object resolveDefinition(AbstractDefinitionStmt stmt) {
+        if (stmt.getRightOp() instanceof InvokeExpr) {
+            return new PSFunction((InvokeExpr) stmt.getRightOp(), stmt, this);
+        }
+        if (stmt.getRightOp() instanceof NewArrayExpr) {
+            List<Object> parameterArray = new ArrayList<>();
+            List<UnitValueBoxPair> uses = this.localUses.getUsesOf(stmt);
+            for (UnitValueBoxPair unitValueBoxPair : uses) {
+                Unit useUnit = unitValueBoxPair.getUnit();
+                // Find all array elements
+                if (useUnit instanceof AbstractDefinitionStmt) {
+                    Value leftOp = ((AbstractDefinitionStmt) useUnit).getLeftOp();
+                    if (leftOp instanceof ArrayRef) {
+                        Value rightOp = ((AbstractDefinitionStmt) useUnit).getRightOp();
+                        Object arrayElement = this.resolve(rightOp, useUnit);
+                        parameterArray.add(arrayElement);
+                    }
+                }
+            }
+            return parameterArray;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,15 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+/**
+ * The privacy description of an event, from the templates of {@link DescriptionTemplates}.
+ * The report prints the descriptions itself, see {@link io.github.PrivacySecurerAnalyzer.report.ReportWriter}.
+ */
+public class PrivacyDescriptionPrinter {
+
+    /**
+     * @return the privacy description sentence of an event, empty for functions without a description
+     */
+    public static String describe(EventSpec spec) {
+        return DescriptionTemplates.getDefault().describe(spec);
+    }
+}
@@ -0,0 +1,22 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonical instances of the strings shared by many nodes, such as API signatures and constant arguments.
+ * Safe to use from several threads.
+ */
+public class StringTable {
+    private ConcurrentHashMap<String, String> strings = new ConcurrentHashMap<>();
+
+    public String intern(String string) {
+        if (string == null)
+            return null;
+        String canonical = this.strings.putIfAbsent(string, string);
+        return canonical == null ? string : canonical;
+    }
+
+    public int size() {
+        return this.strings.size();
+    }
+}
@@ -0,0 +1,36 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Interns type strings (such as edge types) as small ints.
+ */
+public class TypeTable {
+    private ArrayList<String> types = new ArrayList<>();
+    private HashMap<String, Integer> type2id = new HashMap<>();
+
+    public int intern(String type) {
+        Integer id = this.type2id.get(type);
+        if (id == null) {
+            id = this.types.size();
+            this.types.add(type);
+            this.type2id.put(type, id);
+        }
+        return id;
+    }
+
+    // id of an already interned type, -1 if the type is unknown
+    public int find(String type) {
+        Integer id = this.type2id.get(type);
+        return id == null ? -1 : id;
+    }
+
+    public String get(int id) {
+        return this.types.get(id);
+    }
+
+    public int size() {
+        return this.types.size();
+    }
+}
@@ -0,0 +1,259 @@
+package io.github.PrivacySecurerAnalyzer.corpus;
+
+import io.github.PrivacySecurerAnalyzer.Main;
+import io.github.PrivacySecurerAnalyzer.utils.Util;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Pattern;
+
+/**
+ * Corpus mode: spreads a directory of APKs over a pool of isolated worker JVMs.
+ * Each worker is started once and analyzes many APKs, so JVM start-up is paid per worker, not per APK.
+ * A worker which takes longer than the job timeout on an APK is killed, and a new one takes the next APK.
+ */
+public class CorpusScheduler {
+    public static final String SUMMARY_FILE = "corpus-summary.json";
+    public static final String TIMEOUT = "TIMEOUT";
+
+    // -t 4, -t4, --threads 4 and --threads=4 all set the threads of a worker
+    private static final Pattern THREADS_OPTION = Pattern.compile("-t(=?\\d+)?|--threads(=.*)?");
+
+    private File corpusDir;
+    private File outputDir;
+    private int workers;
+    private String[] args;
+    // 0 if the jobs have no time limit
+    private long jobTimeoutMillis;
+
+    private ConcurrentLinkedQueue<File> pendingApks = new ConcurrentLinkedQueue<>();
+    private List<Map<String, Object>> results = Collections.synchronizedList(new ArrayList<Map<String, Object>>());
+    private ScheduledExecutorService watchdog;
+
+    public CorpusScheduler(String corpusDir, String outputDir, int workers, long jobTimeoutMillis, String[] args) {
+        this.corpusDir = new File(corpusDir);
+        this.outputDir = new File(outputDir);
+        this.workers = workers;
+        this.jobTimeoutMillis = jobTimeoutMillis;
+        this.args = args;
+    }
+
+    public static boolean isCorpus(File input) {
+        return input.isDirectory() && !listApks(input).isEmpty();
+    }
+
+    public static List<File> listApks(File dir) {
+        List<File> apks = new ArrayList<>(FileUtils.listFiles(dir, new String[]{"apk"}, true));
+        Collections.sort(apks);
+        return apks;
+    }
+
+    public void run() {
+        List<File> apks = listApks(this.corpusDir);
+        this.pendingApks.addAll(apks);
+        int poolSize = Math.min(this.workers, apks.size());
+        Util.LOGGER.info(String.format("analyzing %d APKs with %d workers", apks.size(), poolSize));
+
+        long startNanos = System.nanoTime();
+        this.watchdog = Executors.newSingleThreadScheduledExecutor();
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        for (int i = 0; i < poolSize; i++) {
+            pool.submit(new WorkerDriver(i));
+        }
+        pool.shutdown();
+        try {
+            pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Util.logException(e);
+        }
+        this.watchdog.shutdownNow();
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        int failed = 0;
+        int timedOut = 0;
+        for (Map<String, Object> result : this.results) {
+            if (!CorpusWorker.OK.equals(result.get("status")))
+                failed++;
+            if (TIMEOUT.equals(result.get("status")))
+                timedOut++;
+        }
+        double apksPerMinute = elapsedMillis == 0 ? 0 : this.results.size() * 60000.0 / elapsedMillis;
+        Util.LOGGER.info(String.format("analyzed %d APKs (%d failed) in %.1fs, %.1f APKs/min",
+                this.results.size(), failed, elapsedMillis / 1000.0, apksPerMinute));
+
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("apks", this.results.size());
+        summary.put("failed", failed);
+        summary.put("timedOut", timedOut);
+        summary.put("workers", poolSize);
+        summary.put("elapsedMillis", elapsedMillis);
+        summary.put("apksPerMinute", apksPerMinute);
+        summary.put("results", this.results);
+        try {
+            FileUtils.writeStringToFile(new File(this.outputDir, SUMMARY_FILE),
+                    new JSONObject(summary).toString(2), "UTF-8");
+        } catch (IOException e) {
+            Util.logException(e);
+        }
+    }
+
+    // Output directory of one APK, named after its path relative to the corpus root,
+    // and the hash of that path, as a/b.apk and a_b.apk would have the same name otherwise
+    File getJobDir(File apk) {
+        String relativePath = this.corpusDir.toURI().relativize(apk.toURI()).getPath();
+        String jobName = relativePath.substring(0, relativePath.length() - ".apk".length()).replace('/', '_');
+        return new File(this.outputDir, jobName + "-" + DigestUtils.sha256Hex(relativePath).substring(0, 8));
+    }
+
+    static boolean hasThreadsOption(List<String> args) {
+        for (String arg : args) {
+            if (THREADS_OPTION.matcher(arg).matches())
+                return true;
+        }
+        return false;
+    }
+
+    private Process startWorker() throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(new File(new File(System.getProperty("java.home"), "bin"), "java").getPath());
+        // Workers get the same JVM options (heap size etc.) as the scheduler
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Main.class.getName());
+        command.add("-worker");
+        command.addAll(Arrays.asList(this.args));
+        // The workers already use all cores, scan each APK single-threaded unless asked otherwise
+        if (!hasThreadsOption(Arrays.asList(this.args))) {
+            command.add("--threads");
+            command.add("1");
+        }
+
+        ProcessBuilder builder = new ProcessBuilder(command);
+        builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+        return builder.start();
+    }
+
+    private void addResult(File apk, String status, long millis) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("apk", apk.getPath());
+        result.put("output", this.getJobDir(apk).getPath());
+        result.put("status", status);
+        result.put("millis", millis);
+        this.results.add(result);
+    }
+
+    private class WorkerDriver implements Runnable {
+        private int index;
+        private Process process;
+        private BufferedWriter jobs;
+        private BufferedReader answers;
+        // set by the watchdog when it kills the worker
+        private final AtomicBoolean timedOut = new AtomicBoolean();
+
+        WorkerDriver(int index) {
+            this.index = index;
+        }
+
+        @Override
+        public void run() {
+            File apk;
+            while ((apk = pendingApks.poll()) != null) {
+                long startMillis = System.currentTimeMillis();
+                ScheduledFuture<?> timeout = null;
+                this.timedOut.set(false);
+                try {
+                    if (this.process == null)
+                        this.start();
+                    timeout = this.watch();
+                    this.jobs.write(apk.getPath() + "\t" + getJobDir(apk).getPath());
+                    this.jobs.newLine();
+                    this.jobs.flush();
+
+                    String answer;
+                    String status = null;
+                    while ((answer = this.answers.readLine()) != null) {
+                        String[] fields = answer.split("\t");
+                        if (fields.length == 4 && CorpusWorker.DONE.equals(fields[0])) {
+                            status = fields[2];
+                            addResult(apk, status, Long.parseLong(fields[3]));
+                            break;
+                        }
+                    }
+                    if (status == null)
+                        throw new IOException("worker exited unexpectedly");
+                } catch (IOException e) {
+                    // The worker crashed (e.g. out of memory) or was killed, a new one is started for the next APK
+                    long millis = System.currentTimeMillis() - startMillis;
+                    if (this.timedOut.get()) {
+                        Util.LOGGER.warning(String.format("worker %d timed out on %s after %d ms", this.index, apk, millis));
+                        addResult(apk, TIMEOUT, millis);
+                    } else {
+                        Util.LOGGER.warning(String.format("worker %d failed on %s: %s", this.index, apk, e.getMessage()));
+                        addResult(apk, CorpusWorker.FAIL, millis);
+                    }
+                    this.stop();
+                } finally {
+                    // the watchdog may have killed the worker just as it answered
+                    if (timeout != null && !timeout.cancel(false))
+                        this.stop();
+                }
+            }
+            this.stop();
+        }
+
+        // Kill the worker once the job takes longer than the job timeout
+        private ScheduledFuture<?> watch() {
+            if (jobTimeoutMillis <= 0)
+                return null;
+            final Process worker = this.process;
+            return watchdog.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    timedOut.set(true);
+                    worker.destroy();
+                }
+            }, jobTimeoutMillis, TimeUnit.MILLISECONDS);
+        }
+
+        private void start() throws IOException {
+            this.process = startWorker();
+            this.jobs = new BufferedWriter(new OutputStreamWriter(this.process.getOutputStream(), "UTF-8"));
+            this.answers = new BufferedReader(new InputStreamReader(this.process.getInputStream(), "UTF-8"));
+        }
+
+        private void stop() {
+            if (this.process == null)
+                return;
+            try {
+                // Closing stdin ends the worker's job loop
+                this.jobs.close();
+                this.process.waitFor();
+            } catch (IOException | InterruptedException e) {
+                this.process.destroy();
+            }
+            this.process = null;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.PrivacySecurerAnalyzer.corpus;
+
+import io.github.PrivacySecurerAnalyzer.frontends.dex.DexTriage;
+import io.github.PrivacySecurerAnalyzer.utils.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Triage mode: only classifies the APKs of a corpus into PrivacyStreamsEvents apps and others,
+ * by looking at the dex id tables. Soot is never started.
+ */
+public class CorpusTriage {
+    public static final String TRIAGE_FILE = "triage.tsv";
+
+    private File input;
+    private File outputDir;
+    private int threads;
+
+    public CorpusTriage(String input, String outputDir, int threads) {
+        this.input = new File(input);
+        this.outputDir = new File(outputDir);
+        this.threads = threads;
+    }
+
+    public void run() {
+        List<File> apks = this.input.isDirectory() ? CorpusScheduler.listApks(this.input)
+                : Collections.singletonList(this.input);
+
+        long startNanos = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(this.threads);
+        List<Future<DexTriage.Verdict>> verdicts = new ArrayList<>();
+        for (final File apk : apks) {
+            verdicts.add(pool.submit(new Callable<DexTriage.Verdict>() {
+                @Override
+                public DexTriage.Verdict call() {
+                    return DexTriage.classify(apk);
+                }
+            }));
+        }
+
+        Map<DexTriage.Verdict, Integer> counts = new EnumMap<>(DexTriage.Verdict.class);
+        for (DexTriage.Verdict verdict : DexTriage.Verdict.values()) {
+            counts.put(verdict, 0);
+        }
+        try (PrintWriter triageFile = new PrintWriter(new File(this.outputDir, TRIAGE_FILE), "UTF-8")) {
+            for (int i = 0; i < apks.size(); i++) {
+                DexTriage.Verdict verdict = verdicts.get(i).get();
+                counts.put(verdict, counts.get(verdict) + 1);
+                String line = String.format("%s\t%s", verdict, apks.get(i).getPath());
+                System.out.println(line);
+                triageFile.println(line);
+            }
+        } catch (IOException | InterruptedException | ExecutionException e) {
+            Util.logException(e);
+        } finally {
+            pool.shutdown();
+        }
+
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        Util.LOGGER.info(String.format("triaged %d APKs in %.1fs: %s", apks.size(), elapsedMillis / 1000.0, counts));
+    }
+}
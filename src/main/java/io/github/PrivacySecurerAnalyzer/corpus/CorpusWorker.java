@@ -0,0 +1,88 @@
+package io.github.PrivacySecurerAnalyzer.corpus;
+
+import io.github.PrivacySecurerAnalyzer.Config;
+import io.github.PrivacySecurerAnalyzer.core.Graph;
+import io.github.PrivacySecurerAnalyzer.frontends.DERGFrontend;
+import io.github.PrivacySecurerAnalyzer.utils.Util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+
+/**
+ * A long-running worker JVM of the corpus mode.
+ * Reads jobs ("apkPath\toutputDir") from stdin, analyzes them one after another in this JVM,
+ * and answers each job with a "DONE\tapkPath\tOK|FAIL\tmillis" line on stdout.
+ */
+public class CorpusWorker {
+    public static final String DONE = "DONE";
+    public static final String OK = "OK";
+    public static final String FAIL = "FAIL";
+
+    private String[] args;
+
+    public CorpusWorker(String[] args) {
+        this.args = args;
+    }
+
+    public void run() {
+        // The analysis prints its results to System.out, keep the original stream for the protocol
+        PrintStream protocol = System.out;
+        try {
+            BufferedReader jobs = new BufferedReader(new InputStreamReader(System.in, "UTF-8"));
+            String job;
+            while ((job = jobs.readLine()) != null) {
+                String[] fields = job.split("\t");
+                if (fields.length != 2)
+                    continue;
+                long startMillis = System.currentTimeMillis();
+                boolean succeeded = this.analyze(fields[0], new File(fields[1]));
+                protocol.printf("%s\t%s\t%s\t%d%n", DONE, fields[0], succeeded ? OK : FAIL,
+                        System.currentTimeMillis() - startMillis);
+                protocol.flush();
+            }
+        } catch (IOException e) {
+            Util.logException(e);
+        } finally {
+            System.setOut(protocol);
+        }
+    }
+
+    private boolean analyze(String apkPath, File jobDir) {
+        PrintStream stdout = System.out;
+        PrintStream console = null;
+        try {
+            if (!jobDir.exists() && !jobDir.mkdirs()) {
+                throw new IOException("Error generating output directory " + jobDir);
+            }
+            console = new PrintStream(new BufferedOutputStream(
+                    new FileOutputStream(new File(jobDir, "console.txt"))), false, "UTF-8");
+            // Redirect before resetting, so that the fresh analysis context picks up the job's console
+            System.setOut(console);
+
+            Config.inputDirOrFile = apkPath;
+            Config.outputDir = jobDir.getPath();
+            // Re-registering gives a frontend without state left over from the previous job
+            DERGFrontend.registerFrontends();
+            DERGFrontend frontend = DERGFrontend.getBuilder(Config.frontendType);
+            frontend.reset();
+            frontend.parseArgs(this.args);
+            Graph g = frontend.build();
+            if (g != null)
+                Config.dergBackend.run(g);
+            return true;
+        } catch (Exception e) {
+            Util.LOGGER.warning("failed analyzing " + apkPath);
+            Util.logException(e);
+            return false;
+        } finally {
+            System.setOut(stdout);
+            if (console != null)
+                console.close();
+        }
+    }
+}
@@ -27,6 +27,9 @@ public abstract class DERGFrontend {
 	 public abstract Graph build();
 	 
 	 public void parseArgs(String[] args) throws ParseException {}
+
+	 // drop analysis state kept in global singletons, so the next build() starts clean
+	 public void reset() {}
 	 
 	 public static DERGFrontend getBuilder(String type) {
 		 if (type == null || type.length() == 0) {
@@ -0,0 +1,222 @@
+package io.github.PrivacySecurerAnalyzer.frontends.dex;
+
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Finds the methods which may invoke a given method (by name) from the raw dex or class file instructions,
+ * before Soot builds any body, so that Jimple bodies are only built for those candidate methods.
+ * Dex methods are matched one by one, by the method ids their instructions invoke.
+ * Class files are matched as a whole by their constant pool: all the methods of a matching class are candidates.
+ * The same scan records the callers of the methods defined in the input, looked up by name and prototype;
+ * the classes of all the dex files of an APK are listed first, so calls across dex files are recorded too.
+ */
+public class BytecodePrefilter {
+    private static final Pattern DEX_ENTRY = Pattern.compile("classes\\d*\\.dex");
+
+    private final String invokedName;
+    // class name + "." + method name + dex prototype, such as com.example.A.onCreate(Landroid/os/Bundle;)V
+    private final Set<String> candidateMethods = new HashSet<>();
+    private final Set<String> candidateClasses = new HashSet<>();
+    // keys of the dex methods which invoke a method id, by name + dex prototype of the method id
+    private final Map<String, Set<String>> callerMethods = new HashMap<>();
+    // class files which refer to a method, by method name
+    private final Map<String, Set<String>> callerClasses = new HashMap<>();
+    // descriptors of the classes defined in the dex files of the input, their callers are recorded
+    private final Set<String> definedClasses = new HashSet<>();
+    private int scannedMethods = 0;
+
+    private BytecodePrefilter(String invokedName) {
+        this.invokedName = invokedName;
+    }
+
+    public static boolean canFilter(File input) {
+        return ClassFingerprints.canFingerprint(input);
+    }
+
+    public static BytecodePrefilter scan(File input, String invokedName) throws IOException {
+        BytecodePrefilter prefilter = new BytecodePrefilter(invokedName);
+        if (input.getName().endsWith(".dex")) {
+            DexFile dex = DexFile.map(input);
+            prefilter.addDefinedClasses(dex);
+            prefilter.addDex(dex);
+            return prefilter;
+        }
+        boolean jar = input.getName().endsWith(".jar");
+        List<DexFile> dexFiles = new ArrayList<>();
+        try (ZipFile zip = new ZipFile(input)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (jar ? !name.endsWith(".class") : !DEX_ENTRY.matcher(name).matches())
+                    continue;
+                byte[] bytes;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    bytes = IOUtils.toByteArray(in);
+                }
+                if (jar) {
+                    prefilter.addClassFile(bytes);
+                } else {
+                    DexFile dex = DexFile.wrap(bytes);
+                    prefilter.addDefinedClasses(dex);
+                    dexFiles.add(dex);
+                }
+            }
+        }
+        for (DexFile dex : dexFiles) {
+            prefilter.addDex(dex);
+        }
+        return prefilter;
+    }
+
+    public boolean isCandidate(String className, String methodName, String returnType, List<String> parameterTypes) {
+        if (this.candidateClasses.contains(className))
+            return true;
+        return this.candidateMethods.contains(className + "." + methodName + getProto(returnType, parameterTypes));
+    }
+
+    // the dex prototype of a method, such as (Landroid/os/Bundle;)V
+    public static String getProto(String returnType, List<String> parameterTypes) {
+        StringBuilder proto = new StringBuilder("(");
+        for (String parameterType : parameterTypes) {
+            proto.append(DexTriage.toDescriptor(parameterType));
+        }
+        return proto.append(')').append(DexTriage.toDescriptor(returnType)).toString();
+    }
+
+    /**
+     * @return the classes which may invoke a method of the input of the given name and dex prototype
+     */
+    public Set<String> getCallerClasses(String calleeName, String calleeProto) {
+        Set<String> classes = new HashSet<>();
+        Set<String> methods = this.callerMethods.get(calleeName + calleeProto);
+        if (methods != null) {
+            for (String method : methods) {
+                classes.add(method.substring(0, method.lastIndexOf('.', method.indexOf('('))));
+            }
+        }
+        if (this.callerClasses.containsKey(calleeName))
+            classes.addAll(this.callerClasses.get(calleeName));
+        return classes;
+    }
+
+    /**
+     * @return whether a method may invoke a method of the input of the given name and dex prototype
+     */
+    public boolean mayCall(String className, String methodName, String returnType, List<String> parameterTypes,
+                           String calleeName, String calleeProto) {
+        Set<String> classes = this.callerClasses.get(calleeName);
+        if (classes != null && classes.contains(className))
+            return true;
+        Set<String> methods = this.callerMethods.get(calleeName + calleeProto);
+        return methods != null && methods.contains(className + "." + methodName + getProto(returnType, parameterTypes));
+    }
+
+    public int getCandidateCount() {
+        return this.candidateMethods.size() + this.candidateClasses.size();
+    }
+
+    // methods with code looked at in dex files
+    public int getScannedMethods() {
+        return this.scannedMethods;
+    }
+
+    private void addDefinedClasses(DexFile dex) {
+        for (int i = 0; i < dex.getClassDefCount(); i++) {
+            this.definedClasses.add(dex.getTypeDescriptor(dex.getClassDefType(i)));
+        }
+    }
+
+    private void addDex(final DexFile dex) {
+        final int nameIdx = dex.findString(this.invokedName);
+        // the methods of these types are defined in the input, possibly in another dex file
+        final boolean[] definedTypes = new boolean[dex.getTypeCount()];
+        for (int i = 0; i < definedTypes.length; i++) {
+            definedTypes[i] = this.definedClasses.contains(dex.getTypeDescriptor(i));
+        }
+        for (int i = 0; i < dex.getClassDefCount(); i++) {
+            int classDataOff = dex.getClassDefDataOff(i);
+            if (classDataOff == 0)
+                continue;
+            String className = ClassFingerprints.toClassName(dex.getTypeDescriptor(dex.getClassDefType(i)));
+            int[] pos = {classDataOff};
+            int staticFields = dex.readUleb128(pos);
+            int instanceFields = dex.readUleb128(pos);
+            int directMethods = dex.readUleb128(pos);
+            int virtualMethods = dex.readUleb128(pos);
+            for (int j = 0; j < 2 * (staticFields + instanceFields); j++) {
+                dex.readUleb128(pos);
+            }
+            int methodIdx = 0;
+            for (int j = 0; j < directMethods + virtualMethods; j++) {
+                // method indexes are differences, starting again from 0 with the virtual methods
+                if (j == directMethods)
+                    methodIdx = 0;
+                methodIdx += dex.readUleb128(pos);
+                dex.readUleb128(pos);
+                int codeOff = dex.readUleb128(pos);
+                if (codeOff == 0)
+                    continue;
+                this.scannedMethods++;
+                final boolean[] invokes = {false};
+                final Set<Integer> callees = new HashSet<>();
+                DexCode.walk(dex, codeOff, new DexCode.InstructionVisitor() {
+                    @Override
+                    public void visitInstruction(int opcode, int offset, int size, int indexKind, int index) {
+                        if (indexKind != DexCode.INDEX_METHOD)
+                            return;
+                        // no method id of that name, no candidate in this dex file
+                        if (nameIdx >= 0 && dex.getMethodName(index) == nameIdx)
+                            invokes[0] = true;
+                        if (definedTypes[dex.getMethodClass(index)])
+                            callees.add(index);
+                    }
+                });
+                if (!invokes[0] && callees.isEmpty())
+                    continue;
+                String methodKey = className + "." + dex.getString(dex.getMethodName(methodIdx))
+                        + dex.getProtoDescriptor(dex.getMethodProto(methodIdx));
+                if (invokes[0])
+                    this.candidateMethods.add(methodKey);
+                for (int callee : callees) {
+                    String calleeKey = dex.getString(dex.getMethodName(callee)) + dex.getProtoDescriptor(dex.getMethodProto(callee));
+                    Set<String> callers = this.callerMethods.get(calleeKey);
+                    if (callers == null) {
+                        callers = new HashSet<>();
+                        this.callerMethods.put(calleeKey, callers);
+                    }
+                    callers.add(methodKey);
+                }
+            }
+        }
+    }
+
+    private void addClassFile(byte[] bytes) throws IOException {
+        ClassFile classFile = ClassFile.parse(bytes);
+        String className = classFile.name.replace('/', '.');
+        if (classFile.hasMethodRef(this.invokedName))
+            this.candidateClasses.add(className);
+        for (String methodName : classFile.getMethodRefNames()) {
+            Set<String> classes = this.callerClasses.get(methodName);
+            if (classes == null) {
+                classes = new HashSet<>();
+                this.callerClasses.put(methodName, classes);
+            }
+            classes.add(className);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package io.github.PrivacySecurerAnalyzer.frontends.dex;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The declarations of a class file: constant pool, class, fields and methods, without code.
+ * Class names are in internal form, such as java/lang/Object.
+ */
+public class ClassFile {
+    // constant pool tags
+    private static final int CONSTANT_UTF8 = 1;
+    private static final int CONSTANT_LONG = 5;
+    private static final int CONSTANT_DOUBLE = 6;
+    private static final int CONSTANT_CLASS = 7;
+    private static final int CONSTANT_METHODREF = 10;
+    private static final int CONSTANT_INTERFACE_METHODREF = 11;
+    private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+    public int accessFlags;
+    public String name;
+    // null for java/lang/Object
+    public String superName;
+    public List<String> interfaces = new ArrayList<>();
+    public List<Member> fields = new ArrayList<>();
+    public List<Member> methods = new ArrayList<>();
+
+    private String[] utf8;
+    private int[] tags;
+    // the name index of a Class, the name_and_type index of a method ref, the name index of a NameAndType
+    private int[] refs;
+
+    /**
+     * A field or a method.
+     */
+    public static class Member {
+        public int accessFlags;
+        public String name;
+        public String descriptor;
+        // thrown exceptions of a method
+        public List<String> exceptions = new ArrayList<>();
+    }
+
+    public static ClassFile parse(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != 0xCAFEBABE)
+            throw new IOException("Not a class file");
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+        ClassFile classFile = new ClassFile();
+        classFile.readConstantPool(in);
+        classFile.accessFlags = in.readUnsignedShort();
+        classFile.name = classFile.getClassName(in.readUnsignedShort());
+        classFile.superName = classFile.getClassName(in.readUnsignedShort());
+        int interfaceCount = in.readUnsignedShort();
+        for (int i = 0; i < interfaceCount; i++) {
+            classFile.interfaces.add(classFile.getClassName(in.readUnsignedShort()));
+        }
+        classFile.readMembers(in, classFile.fields);
+        classFile.readMembers(in, classFile.methods);
+        return classFile;
+    }
+
+    /**
+     * @return whether the constant pool refers to a method of the given name, in any class
+     */
+    public boolean hasMethodRef(String methodName) {
+        for (int i = 1; i < this.tags.length; i++) {
+            if ((this.tags[i] == CONSTANT_METHODREF || this.tags[i] == CONSTANT_INTERFACE_METHODREF)
+                    && methodName.equals(this.utf8[this.refs[this.refs[i]]]))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return the names of the methods the constant pool refers to
+     */
+    public Set<String> getMethodRefNames() {
+        Set<String> names = new HashSet<>();
+        for (int i = 1; i < this.tags.length; i++) {
+            if (this.tags[i] == CONSTANT_METHODREF || this.tags[i] == CONSTANT_INTERFACE_METHODREF)
+                names.add(this.utf8[this.refs[this.refs[i]]]);
+        }
+        return names;
+    }
+
+    private void readConstantPool(DataInputStream in) throws IOException {
+        int count = in.readUnsignedShort();
+        this.utf8 = new String[count];
+        this.tags = new int[count];
+        this.refs = new int[count];
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            this.tags[i] = tag;
+            switch (tag) {
+                case CONSTANT_UTF8:
+                    this.utf8[i] = in.readUTF();
+                    break;
+                case CONSTANT_CLASS:
+                    this.refs[i] = in.readUnsignedShort();
+                    break;
+                case CONSTANT_METHODREF:
+                case CONSTANT_INTERFACE_METHODREF:
+                    in.readUnsignedShort();
+                    this.refs[i] = in.readUnsignedShort();
+                    break;
+                case CONSTANT_NAME_AND_TYPE:
+                    this.refs[i] = in.readUnsignedShort();
+                    in.readUnsignedShort();
+                    break;
+                case CONSTANT_LONG:
+                case CONSTANT_DOUBLE:
+                    in.readLong();
+                    // takes two entries
+                    i++;
+                    break;
+                case 3: case 4: case 9: case 17: case 18:
+                    in.readInt();
+                    break;
+                case 8: case 16: case 19: case 20:
+                    in.readUnsignedShort();
+                    break;
+                case 15:
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag);
+            }
+        }
+    }
+
+    private void readMembers(DataInputStream in, List<Member> members) throws IOException {
+        int count = in.readUnsignedShort();
+        for (int i = 0; i < count; i++) {
+            Member member = new Member();
+            member.accessFlags = in.readUnsignedShort();
+            member.name = this.utf8[in.readUnsignedShort()];
+            member.descriptor = this.utf8[in.readUnsignedShort()];
+            int attributeCount = in.readUnsignedShort();
+            for (int j = 0; j < attributeCount; j++) {
+                String attributeName = this.utf8[in.readUnsignedShort()];
+                int length = in.readInt();
+                if (!"Exceptions".equals(attributeName)) {
+                    in.skipBytes(length);
+                    continue;
+                }
+                int exceptionCount = in.readUnsignedShort();
+                for (int k = 0; k < exceptionCount; k++) {
+                    member.exceptions.add(this.getClassName(in.readUnsignedShort()));
+                }
+            }
+            members.add(member);
+        }
+    }
+
+    private String getClassName(int classIndex) {
+        return classIndex == 0 ? null : this.utf8[this.refs[classIndex]];
+    }
+}
@@ -0,0 +1,312 @@
+package io.github.PrivacySecurerAnalyzer.frontends.dex;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * SHA-256 fingerprints of the classes of an app, computed from its dex or class files before Soot loads anything.
+ * The ids of a dex file are renumbered whenever any class changes, so every id a class refers to is hashed as
+ * the string or descriptor it stands for: the fingerprint of a class changes only if the class itself does.
+ * Annotations and debug info are not part of the fingerprint.
+ */
+public class ClassFingerprints {
+    private static final Pattern DEX_ENTRY = Pattern.compile("classes\\d*\\.dex");
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    public static boolean canFingerprint(File input) {
+        String name = input.getName();
+        return input.isFile() && (name.endsWith(".apk") || name.endsWith(".dex") || name.endsWith(".jar"));
+    }
+
+    /**
+     * @return the fingerprints by class name, such as com.example.MainActivity
+     */
+    public static Map<String, String> compute(File input) throws IOException {
+        Map<String, String> fingerprints = new HashMap<>();
+        if (input.getName().endsWith(".dex")) {
+            addDex(DexFile.map(input), fingerprints);
+            return fingerprints;
+        }
+        boolean jar = input.getName().endsWith(".jar");
+        try (ZipFile zip = new ZipFile(input)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                String name = entry.getName();
+                if (jar ? !name.endsWith(".class") : !DEX_ENTRY.matcher(name).matches())
+                    continue;
+                byte[] bytes;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    bytes = IOUtils.toByteArray(in);
+                }
+                if (jar) {
+                    // the constant pool of a class file belongs to the class, so its bytes are stable
+                    String className = name.substring(0, name.length() - ".class".length()).replace('/', '.');
+                    fingerprints.put(className, Hex.encodeHexString(newDigest().digest(bytes)));
+                } else {
+                    addDex(DexFile.wrap(bytes), fingerprints);
+                }
+            }
+        }
+        return fingerprints;
+    }
+
+    static void addDex(DexFile dex, Map<String, String> fingerprints) {
+        for (int i = 0; i < dex.getClassDefCount(); i++) {
+            String className = toClassName(dex.getTypeDescriptor(dex.getClassDefType(i)));
+            // with multidex, the first definition of a class is the one loaded
+            if (!fingerprints.containsKey(className))
+                fingerprints.put(className, fingerprint(dex, i));
+        }
+    }
+
+    static String toClassName(String descriptor) {
+        return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    static String fingerprint(DexFile dex, int classDefIdx) {
+        Fingerprint fingerprint = new Fingerprint(dex);
+        fingerprint.addString(dex.getTypeDescriptor(dex.getClassDefType(classDefIdx)));
+        fingerprint.addInt(dex.getClassDefAccessFlags(classDefIdx));
+        int superclass = dex.getClassDefSuperclass(classDefIdx);
+        fingerprint.addString(superclass == -1 ? "" : dex.getTypeDescriptor(superclass));
+        for (int type : dex.getClassDefInterfaces(classDefIdx)) {
+            fingerprint.addString(dex.getTypeDescriptor(type));
+        }
+        int staticValuesOff = dex.getClassDefStaticValuesOff(classDefIdx);
+        if (staticValuesOff != 0)
+            fingerprint.addEncodedArray(new int[] {staticValuesOff});
+        int classDataOff = dex.getClassDefDataOff(classDefIdx);
+        if (classDataOff != 0)
+            fingerprint.addClassData(classDataOff);
+        return Hex.encodeHexString(fingerprint.digest.digest());
+    }
+
+    private static class Fingerprint implements DexCode.InstructionVisitor {
+        private final DexFile dex;
+        private final ByteBuffer buffer;
+        private final MessageDigest digest = newDigest();
+
+        Fingerprint(DexFile dex) {
+            this.dex = dex;
+            this.buffer = dex.getBuffer();
+        }
+
+        void addInt(int value) {
+            this.digest.update((byte) (value >>> 24));
+            this.digest.update((byte) (value >>> 16));
+            this.digest.update((byte) (value >>> 8));
+            this.digest.update((byte) value);
+        }
+
+        // length-prefixed, so that consecutive strings can't be confused
+        void addString(String value) {
+            byte[] bytes = value.getBytes(UTF8);
+            this.addInt(bytes.length);
+            this.digest.update(bytes);
+        }
+
+        void addReference(int indexKind, int index) {
+            switch (indexKind) {
+                case DexCode.INDEX_STRING:
+                    this.addString(this.dex.getString(index));
+                    break;
+                case DexCode.INDEX_TYPE:
+                    this.addString(this.dex.getTypeDescriptor(index));
+                    break;
+                case DexCode.INDEX_FIELD:
+                    this.addString(this.dex.getFieldDescriptor(index));
+                    break;
+                case DexCode.INDEX_METHOD:
+                    this.addString(this.dex.getMethodDescriptor(index));
+                    break;
+                case DexCode.INDEX_PROTO:
+                    this.addString(this.dex.getProtoDescriptor(index));
+                    break;
+                default:
+                    // call sites and method handles are rare, their index is hashed as is
+                    this.addInt(index);
+                    break;
+            }
+        }
+
+        void addClassData(int classDataOff) {
+            int[] pos = {classDataOff};
+            int staticFields = this.dex.readUleb128(pos);
+            int instanceFields = this.dex.readUleb128(pos);
+            int directMethods = this.dex.readUleb128(pos);
+            int virtualMethods = this.dex.readUleb128(pos);
+            this.addInt(staticFields);
+            this.addInt(instanceFields);
+            this.addInt(directMethods);
+            this.addInt(virtualMethods);
+            this.addFields(pos, staticFields);
+            this.addFields(pos, instanceFields);
+            this.addMethods(pos, directMethods);
+            this.addMethods(pos, virtualMethods);
+        }
+
+        private void addFields(int[] pos, int count) {
+            int fieldIdx = 0;
+            for (int i = 0; i < count; i++) {
+                fieldIdx += this.dex.readUleb128(pos);
+                this.addString(this.dex.getFieldDescriptor(fieldIdx));
+                this.addInt(this.dex.readUleb128(pos));
+            }
+        }
+
+        private void addMethods(int[] pos, int count) {
+            int methodIdx = 0;
+            for (int i = 0; i < count; i++) {
+                methodIdx += this.dex.readUleb128(pos);
+                this.addString(this.dex.getMethodDescriptor(methodIdx));
+                this.addInt(this.dex.readUleb128(pos));
+                int codeOff = this.dex.readUleb128(pos);
+                if (codeOff != 0)
+                    this.addCode(codeOff);
+            }
+        }
+
+        // code_item: registers, ins, outs, tries, debug info, instructions, then the tries and handlers
+        private void addCode(int codeOff) {
+            this.addInt(this.buffer.getShort(codeOff) & 0xffff);
+            this.addInt(this.buffer.getShort(codeOff + 2) & 0xffff);
+            this.addInt(this.buffer.getShort(codeOff + 4) & 0xffff);
+            int triesSize = this.buffer.getShort(codeOff + 6) & 0xffff;
+            int insnsSize = DexCode.getInsnsSize(this.dex, codeOff);
+            this.addInt(insnsSize);
+            DexCode.walk(this.dex, codeOff, this);
+            if (triesSize == 0)
+                return;
+
+            int triesOff = codeOff + 16 + 2 * insnsSize;
+            // tries are 4-byte aligned
+            if ((insnsSize & 1) != 0)
+                triesOff += 2;
+            for (int i = 0; i < triesSize; i++) {
+                this.addInt(this.buffer.getInt(triesOff + 8 * i));
+                this.addInt(this.buffer.getInt(triesOff + 8 * i + 4));
+            }
+            int[] pos = {triesOff + 8 * triesSize};
+            int handlerLists = this.dex.readUleb128(pos);
+            for (int i = 0; i < handlerLists; i++) {
+                int size = this.dex.readSleb128(pos);
+                this.addInt(size);
+                for (int j = 0; j < Math.abs(size); j++) {
+                    this.addString(this.dex.getTypeDescriptor(this.dex.readUleb128(pos)));
+                    this.addInt(this.dex.readUleb128(pos));
+                }
+                // a catch-all handler
+                if (size <= 0)
+                    this.addInt(this.dex.readUleb128(pos));
+            }
+        }
+
+        @Override
+        public void visitInstruction(int opcode, int offset, int size, int indexKind, int index) {
+            byte[] bytes = new byte[2 * size];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = this.buffer.get(offset + i);
+            }
+            if (indexKind != DexCode.INDEX_NONE) {
+                // the id is hashed as what it refers to instead
+                int indexBytes = opcode == 0x1b ? 4 : 2;
+                for (int i = 2; i < 2 + indexBytes; i++) {
+                    bytes[i] = 0;
+                }
+            }
+            this.digest.update(bytes);
+            if (indexKind != DexCode.INDEX_NONE)
+                this.addReference(indexKind, index);
+            // the proto of invoke-polymorphic
+            if (opcode == 0xfa || opcode == 0xfb) {
+                this.addString(this.dex.getProtoDescriptor(this.buffer.getShort(offset + 6) & 0xffff));
+            }
+        }
+
+        void addEncodedArray(int[] pos) {
+            int size = this.dex.readUleb128(pos);
+            this.addInt(size);
+            for (int i = 0; i < size; i++) {
+                this.addEncodedValue(pos);
+            }
+        }
+
+        private void addEncodedValue(int[] pos) {
+            int header = this.buffer.get(pos[0]++) & 0xff;
+            int valueType = header & 0x1f;
+            int valueArg = header >>> 5;
+            this.addInt(header);
+            switch (valueType) {
+                case 0x1c:
+                    this.addEncodedArray(pos);
+                    return;
+                case 0x1d:
+                    this.addString(this.dex.getTypeDescriptor(this.dex.readUleb128(pos)));
+                    int elements = this.dex.readUleb128(pos);
+                    for (int i = 0; i < elements; i++) {
+                        this.addString(this.dex.getString(this.dex.readUleb128(pos)));
+                        this.addEncodedValue(pos);
+                    }
+                    return;
+                case 0x1e:
+                case 0x1f:
+                    // null and boolean values are all in the header
+                    return;
+                default:
+                    break;
+            }
+            // valueArg + 1 little-endian bytes
+            long value = 0;
+            for (int i = 0; i <= valueArg; i++) {
+                value |= (long) (this.buffer.get(pos[0]++) & 0xff) << (8 * i);
+            }
+            int index = (int) value;
+            switch (valueType) {
+                case 0x15:
+                    this.addReference(DexCode.INDEX_PROTO, index);
+                    break;
+                case 0x17:
+                    this.addReference(DexCode.INDEX_STRING, index);
+                    break;
+                case 0x18:
+                    this.addReference(DexCode.INDEX_TYPE, index);
+                    break;
+                case 0x19:
+                case 0x1b:
+                    this.addReference(DexCode.INDEX_FIELD, index);
+                    break;
+                case 0x1a:
+                    this.addReference(DexCode.INDEX_METHOD, index);
+                    break;
+                default:
+                    // numbers, and method handles
+                    this.addInt((int) (value >>> 32));
+                    this.addInt(index);
+                    break;
+            }
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package io.github.PrivacySecurerAnalyzer.frontends.dex;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Walks the instructions of a dex code_item, with the id each instruction refers to.
+ * Switch and array-data payloads embedded in the instructions are skipped.
+ */
+public class DexCode {
+    public static final int INDEX_NONE = 0;
+    public static final int INDEX_STRING = 1;
+    public static final int INDEX_TYPE = 2;
+    public static final int INDEX_FIELD = 3;
+    public static final int INDEX_METHOD = 4;
+    public static final int INDEX_PROTO = 5;
+    public static final int INDEX_CALL_SITE = 6;
+    public static final int INDEX_METHOD_HANDLE = 7;
+
+    public interface InstructionVisitor {
+        /**
+         * @param offset offset of the instruction in the dex file, in bytes
+         * @param size size of the instruction in 16-bit code units
+         * @param index the id referred to, if indexKind is not INDEX_NONE
+         */
+        void visitInstruction(int opcode, int offset, int size, int indexKind, int index);
+    }
+
+    // size in code units and kind of referenced id of every opcode
+    private static final int[] SIZES = new int[256];
+    private static final int[] INDEX_KINDS = new int[256];
+
+    static {
+        Arrays.fill(SIZES, 1);
+        setSize(2, 0x02, 0x05, 0x08, 0x13, 0x15, 0x16, 0x19, 0x1a, 0x1c, 0x1f, 0x20, 0x22, 0x23, 0x29, 0xfe, 0xff);
+        setSize(3, 0x03, 0x06, 0x09, 0x14, 0x17, 0x1b, 0x24, 0x25, 0x26, 0x2a, 0x2b, 0x2c, 0xfc, 0xfd);
+        setSize(5, 0x18);
+        setSize(4, 0xfa, 0xfb);
+        setRange(SIZES, 0x2d, 0x3d, 2);     // cmp, if-test, if-testz
+        setRange(SIZES, 0x44, 0x6d, 2);     // aget/aput, iget/iput, sget/sput
+        setRange(SIZES, 0x6e, 0x72, 3);     // invoke-kind
+        setRange(SIZES, 0x74, 0x78, 3);     // invoke-kind/range
+        setRange(SIZES, 0x90, 0xaf, 2);     // binop
+        setRange(SIZES, 0xd0, 0xe2, 2);     // binop/lit16, binop/lit8
+
+        INDEX_KINDS[0x1a] = INDEX_STRING;
+        INDEX_KINDS[0x1b] = INDEX_STRING;
+        for (int opcode : new int[] {0x1c, 0x1f, 0x20, 0x22, 0x23, 0x24, 0x25}) {
+            INDEX_KINDS[opcode] = INDEX_TYPE;
+        }
+        setRange(INDEX_KINDS, 0x52, 0x6d, INDEX_FIELD);
+        setRange(INDEX_KINDS, 0x6e, 0x72, INDEX_METHOD);
+        setRange(INDEX_KINDS, 0x74, 0x78, INDEX_METHOD);
+        // invoke-polymorphic also refers to a proto, in its last code unit
+        INDEX_KINDS[0xfa] = INDEX_METHOD;
+        INDEX_KINDS[0xfb] = INDEX_METHOD;
+        INDEX_KINDS[0xfc] = INDEX_CALL_SITE;
+        INDEX_KINDS[0xfd] = INDEX_CALL_SITE;
+        INDEX_KINDS[0xfe] = INDEX_METHOD_HANDLE;
+        INDEX_KINDS[0xff] = INDEX_PROTO;
+    }
+
+    private static void setSize(int size, int... opcodes) {
+        for (int opcode : opcodes) {
+            SIZES[opcode] = size;
+        }
+    }
+
+    private static void setRange(int[] table, int from, int to, int value) {
+        for (int opcode = from; opcode <= to; opcode++) {
+            table[opcode] = value;
+        }
+    }
+
+    public static int getInsnsSize(DexFile dex, int codeOff) {
+        return dex.getBuffer().getInt(codeOff + 12);
+    }
+
+    public static void walk(DexFile dex, int codeOff, InstructionVisitor visitor) {
+        ByteBuffer buffer = dex.getBuffer();
+        int pos = codeOff + 16;
+        int end = pos + 2 * getInsnsSize(dex, codeOff);
+        while (pos < end) {
+            int unit = buffer.getShort(pos) & 0xffff;
+            int opcode = unit & 0xff;
+            int size;
+            int indexKind = INDEX_KINDS[opcode];
+            int index = -1;
+            if (opcode == 0x00 && unit != 0) {
+                size = getPayloadSize(buffer, pos, unit);
+                indexKind = INDEX_NONE;
+            } else {
+                size = SIZES[opcode];
+                if (indexKind != INDEX_NONE) {
+                    index = opcode == 0x1b ? buffer.getInt(pos + 2) : buffer.getShort(pos + 2) & 0xffff;
+                }
+            }
+            visitor.visitInstruction(opcode, pos, size, indexKind, index);
+            pos += 2 * size;
+        }
+    }
+
+    // packed-switch, sparse-switch and fill-array-data payloads start with a nop opcode
+    private static int getPayloadSize(ByteBuffer buffer, int pos, int ident) {
+        switch (ident) {
+            case 0x0100:
+                return 4 + 2 * (buffer.getShort(pos + 2) & 0xffff);
+            case 0x0200:
+                return 2 + 4 * (buffer.getShort(pos + 2) & 0xffff);
+            case 0x0300:
+                int elementWidth = buffer.getShort(pos + 2) & 0xffff;
+                long elementCount = buffer.getInt(pos + 4) & 0xffffffffL;
+                return (int) (4 + (elementCount * elementWidth + 1) / 2);
+            default:
+                return 1;
+        }
+    }
+}
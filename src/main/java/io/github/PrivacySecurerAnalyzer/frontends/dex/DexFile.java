@@ -0,0 +1,306 @@
+package io.github.PrivacySecurerAnalyzer.frontends.dex;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Read-only view of the id tables of a .dex file, without building any class model.
+ * Strings, types and method ids are sorted in a dex file, so lookups are binary searches.
+ */
+public class DexFile {
+    private static final int HEADER_SIZE = 0x70;
+
+    private ByteBuffer buffer;
+
+    private int stringIdsSize;
+    private int stringIdsOff;
+    private int typeIdsSize;
+    private int typeIdsOff;
+    private int protoIdsSize;
+    private int protoIdsOff;
+    private int fieldIdsSize;
+    private int fieldIdsOff;
+    private int methodIdsSize;
+    private int methodIdsOff;
+    private int classDefsSize;
+    private int classDefsOff;
+
+    public DexFile(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        if (this.buffer.capacity() < HEADER_SIZE || this.buffer.get(0) != 'd' || this.buffer.get(1) != 'e'
+                || this.buffer.get(2) != 'x' || this.buffer.get(3) != '\n') {
+            throw new IOException("Not a dex file.");
+        }
+        this.stringIdsSize = this.buffer.getInt(0x38);
+        this.stringIdsOff = this.buffer.getInt(0x3C);
+        this.typeIdsSize = this.buffer.getInt(0x40);
+        this.typeIdsOff = this.buffer.getInt(0x44);
+        this.protoIdsSize = this.buffer.getInt(0x48);
+        this.protoIdsOff = this.buffer.getInt(0x4C);
+        this.fieldIdsSize = this.buffer.getInt(0x50);
+        this.fieldIdsOff = this.buffer.getInt(0x54);
+        this.methodIdsSize = this.buffer.getInt(0x58);
+        this.methodIdsOff = this.buffer.getInt(0x5C);
+        this.classDefsSize = this.buffer.getInt(0x60);
+        this.classDefsOff = this.buffer.getInt(0x64);
+    }
+
+    public static DexFile map(File dexFile) throws IOException {
+        try (RandomAccessFile file = new RandomAccessFile(dexFile, "r")) {
+            FileChannel channel = file.getChannel();
+            return new DexFile(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public static DexFile wrap(byte[] bytes) throws IOException {
+        return new DexFile(ByteBuffer.wrap(bytes));
+    }
+
+    public int getStringCount() { return this.stringIdsSize; }
+    public int getTypeCount() { return this.typeIdsSize; }
+    public int getProtoCount() { return this.protoIdsSize; }
+    public int getFieldCount() { return this.fieldIdsSize; }
+    public int getMethodCount() { return this.methodIdsSize; }
+    public int getClassDefCount() { return this.classDefsSize; }
+
+    ByteBuffer getBuffer() {
+        return this.buffer;
+    }
+
+    int readUleb128(int[] offset) {
+        int result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = this.buffer.get(offset[0]++) & 0xff;
+            result |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        return result;
+    }
+
+    int readSleb128(int[] offset) {
+        int result = 0;
+        int shift = 0;
+        int b;
+        do {
+            b = this.buffer.get(offset[0]++) & 0xff;
+            result |= (b & 0x7f) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+        // sign extend
+        if (shift < 32 && (b & 0x40) != 0)
+            result |= -1 << shift;
+        return result;
+    }
+
+    // Strings are stored in MUTF-8, preceded by their length in UTF-16 code units
+    public String getString(int stringIdx) {
+        int[] offset = {this.buffer.getInt(this.stringIdsOff + 4 * stringIdx)};
+        int length = this.readUleb128(offset);
+        int pos = offset[0];
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            int a = this.buffer.get(pos++) & 0xff;
+            if (a < 0x80) {
+                chars[i] = (char) a;
+            } else if ((a & 0xe0) == 0xc0) {
+                int b = this.buffer.get(pos++) & 0x3f;
+                chars[i] = (char) (((a & 0x1f) << 6) | b);
+            } else {
+                int b = this.buffer.get(pos++) & 0x3f;
+                int c = this.buffer.get(pos++) & 0x3f;
+                chars[i] = (char) (((a & 0x0f) << 12) | (b << 6) | c);
+            }
+        }
+        return new String(chars);
+    }
+
+    // Index of the first string not less than the given one, string ids are sorted by UTF-16 code units
+    private int lowerBoundString(String target) {
+        int low = 0;
+        int high = this.stringIdsSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (this.getString(middle).compareTo(target) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    public int findString(String target) {
+        int index = this.lowerBoundString(target);
+        if (index < this.stringIdsSize && this.getString(index).equals(target))
+            return index;
+        return -1;
+    }
+
+    public boolean hasStringWithPrefix(String prefix) {
+        int index = this.lowerBoundString(prefix);
+        return index < this.stringIdsSize && this.getString(index).startsWith(prefix);
+    }
+
+    public int getTypeStringIdx(int typeIdx) {
+        return this.buffer.getInt(this.typeIdsOff + 4 * typeIdx);
+    }
+
+    public String getTypeDescriptor(int typeIdx) {
+        return this.getString(this.getTypeStringIdx(typeIdx));
+    }
+
+    // Type ids are sorted by the index of their descriptor string
+    public int findType(String descriptor) {
+        int stringIdx = this.findString(descriptor);
+        if (stringIdx < 0)
+            return -1;
+        int low = 0;
+        int high = this.typeIdsSize - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleStringIdx = this.getTypeStringIdx(middle);
+            if (middleStringIdx < stringIdx)
+                low = middle + 1;
+            else if (middleStringIdx > stringIdx)
+                high = middle - 1;
+            else
+                return middle;
+        }
+        return -1;
+    }
+
+    public int getProtoReturnType(int protoIdx) {
+        return this.buffer.getInt(this.protoIdsOff + 12 * protoIdx + 4);
+    }
+
+    public int[] getProtoParameters(int protoIdx) {
+        return this.getTypeList(this.buffer.getInt(this.protoIdsOff + 12 * protoIdx + 8));
+    }
+
+    int[] getTypeList(int offset) {
+        if (offset == 0)
+            return new int[0];
+        int[] types = new int[this.buffer.getInt(offset)];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = this.buffer.getShort(offset + 4 + 2 * i) & 0xffff;
+        }
+        return types;
+    }
+
+    public int getFieldClass(int fieldIdx) {
+        return this.buffer.getShort(this.fieldIdsOff + 8 * fieldIdx) & 0xffff;
+    }
+
+    public int getFieldType(int fieldIdx) {
+        return this.buffer.getShort(this.fieldIdsOff + 8 * fieldIdx + 2) & 0xffff;
+    }
+
+    public int getFieldName(int fieldIdx) {
+        return this.buffer.getInt(this.fieldIdsOff + 8 * fieldIdx + 4);
+    }
+
+    public int getMethodClass(int methodIdx) {
+        return this.buffer.getShort(this.methodIdsOff + 8 * methodIdx) & 0xffff;
+    }
+
+    public int getMethodProto(int methodIdx) {
+        return this.buffer.getShort(this.methodIdsOff + 8 * methodIdx + 2) & 0xffff;
+    }
+
+    public int getMethodName(int methodIdx) {
+        return this.buffer.getInt(this.methodIdsOff + 8 * methodIdx + 4);
+    }
+
+    public String getFieldDescriptor(int fieldIdx) {
+        return this.getTypeDescriptor(this.getFieldClass(fieldIdx)) + "->" + this.getString(this.getFieldName(fieldIdx))
+                + ":" + this.getTypeDescriptor(this.getFieldType(fieldIdx));
+    }
+
+    public String getProtoDescriptor(int protoIdx) {
+        StringBuilder descriptor = new StringBuilder("(");
+        for (int parameter : this.getProtoParameters(protoIdx)) {
+            descriptor.append(this.getTypeDescriptor(parameter));
+        }
+        return descriptor.append(')').append(this.getTypeDescriptor(this.getProtoReturnType(protoIdx))).toString();
+    }
+
+    public String getMethodDescriptor(int methodIdx) {
+        return this.getTypeDescriptor(this.getMethodClass(methodIdx)) + "->" + this.getString(this.getMethodName(methodIdx))
+                + this.getProtoDescriptor(this.getMethodProto(methodIdx));
+    }
+
+    // class_def_item: class, access flags, superclass, interfaces, source file, annotations, class data, static values
+    public int getClassDefType(int classDefIdx) {
+        return this.buffer.getInt(this.classDefsOff + 32 * classDefIdx);
+    }
+
+    public int getClassDefAccessFlags(int classDefIdx) {
+        return this.buffer.getInt(this.classDefsOff + 32 * classDefIdx + 4);
+    }
+
+    // -1 (NO_INDEX) for java.lang.Object
+    public int getClassDefSuperclass(int classDefIdx) {
+        return this.buffer.getInt(this.classDefsOff + 32 * classDefIdx + 8);
+    }
+
+    public int[] getClassDefInterfaces(int classDefIdx) {
+        return this.getTypeList(this.buffer.getInt(this.classDefsOff + 32 * classDefIdx + 12));
+    }
+
+    int getClassDefDataOff(int classDefIdx) {
+        return this.buffer.getInt(this.classDefsOff + 32 * classDefIdx + 24);
+    }
+
+    int getClassDefStaticValuesOff(int classDefIdx) {
+        return this.buffer.getInt(this.classDefsOff + 32 * classDefIdx + 28);
+    }
+
+    /**
+     * Find a method id by its declaring class, name and prototype, given as type descriptors.
+     * @return the method index, or -1 if the method is neither defined nor referenced in this dex file
+     */
+    public int findMethod(String classDescriptor, String name, String returnDescriptor, List<String> parameterDescriptors) {
+        int classIdx = this.findType(classDescriptor);
+        int nameIdx = this.findString(name);
+        if (classIdx < 0 || nameIdx < 0)
+            return -1;
+
+        // Method ids are sorted by class, then name, then prototype
+        int low = 0;
+        int high = this.methodIdsSize;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int classCmp = this.getMethodClass(middle) - classIdx;
+            if (classCmp < 0 || (classCmp == 0 && this.getMethodName(middle) < nameIdx))
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        for (int i = low; i < this.methodIdsSize; i++) {
+            if (this.getMethodClass(i) != classIdx || this.getMethodName(i) != nameIdx)
+                break;
+            if (this.matchProto(this.getMethodProto(i), returnDescriptor, parameterDescriptors))
+                return i;
+        }
+        return -1;
+    }
+
+    private boolean matchProto(int protoIdx, String returnDescriptor, List<String> parameterDescriptors) {
+        if (!this.getTypeDescriptor(this.getProtoReturnType(protoIdx)).equals(returnDescriptor))
+            return false;
+        int[] parameters = this.getProtoParameters(protoIdx);
+        if (parameters.length != parameterDescriptors.size())
+            return false;
+        for (int i = 0; i < parameters.length; i++) {
+            if (!this.getTypeDescriptor(parameters[i]).equals(parameterDescriptors.get(i)))
+                return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.PrivacySecurerAnalyzer.frontends.dex;
+
+import io.github.PrivacySecurerAnalyzer.Const;
+import org.apache.commons.io.IOUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Fast classification of an app by the id tables of its dex files, before Soot loads anything.
+ * An app is a PrivacyStreamsEvents app if one of its dex files defines or references UQI.addEventListener.
+ */
+public class DexTriage {
+    public enum Verdict { PSE, NON_PSE, UNKNOWN }
+
+    private static final Pattern DEX_ENTRY = Pattern.compile("classes\\d*\\.dex");
+
+    public static boolean canClassify(File input) {
+        String name = input.getName();
+        return input.isFile() && (name.endsWith(".apk") || name.endsWith(".dex"));
+    }
+
+    public static Verdict classify(File input) {
+        try {
+            if (input.getName().endsWith(".dex")) {
+                return isPSEDex(DexFile.map(input)) ? Verdict.PSE : Verdict.NON_PSE;
+            }
+            try (ZipFile apk = new ZipFile(input)) {
+                boolean hasDex = false;
+                Enumeration<? extends ZipEntry> entries = apk.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!DEX_ENTRY.matcher(entry.getName()).matches())
+                        continue;
+                    hasDex = true;
+                    // dex entries are compressed inside the apk, so they are inflated instead of mapped
+                    byte[] bytes;
+                    try (InputStream in = apk.getInputStream(entry)) {
+                        bytes = IOUtils.toByteArray(in);
+                    }
+                    if (isPSEDex(DexFile.wrap(bytes)))
+                        return Verdict.PSE;
+                }
+                return hasDex ? Verdict.NON_PSE : Verdict.UNKNOWN;
+            }
+        } catch (IOException | RuntimeException e) {
+            // Malformed input, let the full analysis decide
+            return Verdict.UNKNOWN;
+        }
+    }
+
+    public static boolean isPSEDex(DexFile dex) {
+        if (!dex.hasStringWithPrefix(toDescriptor(Const.psPackage + ".")))
+            return false;
+        // <io.github.privacystreamsevents.core.UQI: void addEventListener(...,...)>
+        String signature = Const.uqiGetStreamAPI;
+        String className = signature.substring(1, signature.indexOf(':'));
+        String[] returnAndName = signature.substring(signature.indexOf(':') + 2, signature.indexOf('(')).split(" ");
+        String parameters = signature.substring(signature.indexOf('(') + 1, signature.lastIndexOf(')'));
+
+        List<String> parameterDescriptors = new ArrayList<>();
+        if (!parameters.isEmpty()) {
+            for (String parameter : parameters.split(",")) {
+                parameterDescriptors.add(toDescriptor(parameter));
+            }
+        }
+        return dex.findMethod(toDescriptor(className), returnAndName[1], toDescriptor(returnAndName[0]),
+                parameterDescriptors) >= 0;
+    }
+
+    // Convert a Java type name (as used in Soot signatures) to a dex type descriptor, or a package to its prefix
+    public static String toDescriptor(String typeName) {
+        if (typeName.endsWith("[]"))
+            return "[" + toDescriptor(typeName.substring(0, typeName.length() - 2));
+        switch (typeName) {
+            case "void": return "V";
+            case "boolean": return "Z";
+            case "byte": return "B";
+            case "short": return "S";
+            case "char": return "C";
+            case "int": return "I";
+            case "long": return "J";
+            case "float": return "F";
+            case "double": return "D";
+            default:
+                if (typeName.endsWith("."))
+                    return "L" + typeName.replace('.', '/');
+                return "L" + typeName.replace('.', '/') + ";";
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import java.util.Arrays;
+
+/**
+ * The key of an API node: the signature of the API and the arguments of a call site,
+ * constants as they are and other arguments by their types.
+ * Strings are expected to be interned in the string table of the graph, the hash is computed once.
+ */
+class APICallKey {
+    // separates the signature and the arguments in the name of an API node
+    static final String SEPARATOR = "-----";
+
+    final String signature;
+    final String[] arguments;
+    private final int hash;
+
+    APICallKey(String signature, String[] arguments) {
+        this.signature = signature;
+        this.arguments = arguments;
+        this.hash = 31 * signature.hashCode() + Arrays.hashCode(arguments);
+    }
+
+    // such as <java.util.List: boolean add(java.lang.Object)>-----"12345"
+    String getName() {
+        if (this.arguments.length == 0)
+            return this.signature;
+        StringBuilder name = new StringBuilder(this.signature);
+        for (String argument : this.arguments) {
+            name.append(SEPARATOR).append(argument);
+        }
+        return name.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof APICallKey))
+            return false;
+        APICallKey other = (APICallKey) o;
+        return this.hash == other.hash && this.signature.equals(other.signature)
+                && Arrays.equals(this.arguments, other.arguments);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.hash;
+    }
+
+    @Override
+    public String toString() {
+        return this.getName();
+    }
+}
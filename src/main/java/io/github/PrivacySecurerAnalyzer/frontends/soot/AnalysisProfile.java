@@ -0,0 +1,54 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import io.github.PrivacySecurerAnalyzer.Config;
+import soot.options.Options;
+
+/**
+ * Soot settings of the analysis, selected with -profile.
+ *
+ * FULL sets Soot up like a regular Soot run: output dir and format, and bodies built with all the jb phases.
+ * FAST skips the work the analyzer never uses: no Soot output, no bodies for the classes Soot excludes
+ * (the JDK and the Android framework, which are only needed at signature level), and no jb phases that only
+ * tidy bodies up (local names, local packing, nops, traps).
+ * VALIDATE analyzes with FAST, then again with FULL, and checks that both find the same events.
+ */
+public enum AnalysisProfile {
+    FAST, FULL, VALIDATE;
+
+    // jb phases which don't change the statements the analyzer reads, dex bodies only honor jb.lns
+    static final String[] TIDY_BODY_PHASES = {"jb.lns", "jb.ulp", "jb.lp", "jb.ne", "jb.tt"};
+
+    /**
+     * @return the profile of the given name (case insensitive), or null if there is none
+     */
+    public static AnalysisProfile fromName(String name) {
+        for (AnalysisProfile profile : values()) {
+            if (profile.name().equalsIgnoreCase(name))
+                return profile;
+        }
+        return null;
+    }
+
+    // the profile the analysis runs with, VALIDATE runs with FAST first
+    public AnalysisProfile getSettings() {
+        return this == VALIDATE ? FAST : this;
+    }
+
+    public void configure(String input) {
+        if (this.getSettings() == FULL) {
+            Options.v().set_output_dir(Config.outputDir);
+            if (input.endsWith(".apk"))
+                Options.v().set_output_format(Options.output_format_dex);
+            else if (input.endsWith(".jar"))
+                Options.v().set_output_jar(true);
+            else
+                Options.v().set_output_format(Options.output_format_jimple);
+            return;
+        }
+        Options.v().set_output_format(Options.output_format_none);
+        Options.v().set_no_bodies_for_excluded(true);
+        for (String phase : TIDY_BODY_PHASES) {
+            Options.v().setPhaseOption(phase, "enabled:false");
+        }
+    }
+}
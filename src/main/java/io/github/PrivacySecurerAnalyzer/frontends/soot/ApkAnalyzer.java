@@ -2,17 +2,33 @@ package io.github.PrivacySecurerAnalyzer.frontends.soot;
 
 import io.github.PrivacySecurerAnalyzer.Config;
 import io.github.PrivacySecurerAnalyzer.Const;
+import io.github.PrivacySecurerAnalyzer.core.ConcurrentGraph;
 import io.github.PrivacySecurerAnalyzer.core.Edge;
+import io.github.PrivacySecurerAnalyzer.core.EventPipeline;
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+import io.github.PrivacySecurerAnalyzer.core.EventSpecListener;
 import io.github.PrivacySecurerAnalyzer.core.Graph;
+import io.github.PrivacySecurerAnalyzer.core.InterproceduralResolver;
+import io.github.PrivacySecurerAnalyzer.core.MethodAnalysisCache;
 import io.github.PrivacySecurerAnalyzer.core.Node;
 import io.github.PrivacySecurerAnalyzer.core.PSPipeline;
 import io.github.PrivacySecurerAnalyzer.frontends.DERGFrontend;
+import io.github.PrivacySecurerAnalyzer.frontends.dex.BytecodePrefilter;
+import io.github.PrivacySecurerAnalyzer.frontends.dex.ClassFingerprints;
+import io.github.PrivacySecurerAnalyzer.frontends.dex.DexTriage;
+import io.github.PrivacySecurerAnalyzer.index.EventIndex;
+import io.github.PrivacySecurerAnalyzer.report.ReportWriter;
 import io.github.PrivacySecurerAnalyzer.utils.IgnoreUnknownTokenParser;
+import io.github.PrivacySecurerAnalyzer.utils.Metrics;
+import io.github.PrivacySecurerAnalyzer.utils.ResultCache;
 import io.github.PrivacySecurerAnalyzer.utils.Util;
 import org.apache.commons.cli.*;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.output.NullOutputStream;
 import org.apache.commons.lang.StringUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
 import org.junit.internal.runners.statements.InvokeMethod;
 
 import soot.*;
@@ -23,6 +39,7 @@ import soot.jimple.internal.JCastExpr;
 import soot.jimple.internal.JInvokeStmt;
 import soot.jimple.internal.JNewArrayExpr;
 import soot.jimple.internal.JimpleLocal;
+import soot.asm.AsmClassProvider;
 import soot.options.Options;
 import soot.toolkits.graph.BriefUnitGraph;
 import soot.toolkits.scalar.*;
@@ -31,7 +48,12 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
 
 public class ApkAnalyzer extends DERGFrontend {
 	public static final String NAME = "apk";
@@ -39,12 +61,56 @@ public class ApkAnalyzer extends DERGFrontend {
 
 	private ArrayList<SootClass> applicationClasses;
 	
-	private ArrayList<ArrayList<String>> argsNameValue = new ArrayList<ArrayList<String>>();
+	// Receive every event as soon as it is reconstructed
+	private List<EventSpecListener> eventSpecListeners = new ArrayList<>();
+	// Text printed while analyzing, and the events written to report.json/report.csv
+	private ReportWriter report = new ReportWriter();
+	private Set<String> reportFormats = new HashSet<>(Arrays.asList(ReportWriter.DEFAULT_FORMATS.split(",")));
+	// timings and counts of this run, written to metrics.json
+	private Metrics metrics = new Metrics();
+	// LocalDefs/LocalUses of the analyzed methods, shared by all pipeline extraction
+	private MethodAnalysisCache analysisCache = new MethodAnalysisCache();
+	// Constant event parameters computed in other methods, e.g. setPhoneNumber(Helper.getPhone())
+	private InterproceduralResolver interproceduralResolver;
+	private Set<SootClass> visitedClasses = new HashSet<>();
+	// Fingerprints of the classes and results of the pending methods, written to class-index.json
+	private ClassIndex classIndex;
+	// Index of the previous version of the app, and the classes changed since then
+	private ClassIndex baseline;
+	private Set<String> changedClasses = new HashSet<>();
+	// Output dir of the previous version of the app
+	private String baselineDir = null;
+	// The analyzed methods, whose API calls are added to the graph once all events are found
+	private List<SootMethod> analyzedMethods = new ArrayList<>();
 
 	// File path of android.jar which is forced to use by soot
 	private String forceAndroidJarPath = "";
 	// Libraries' directory, to be added to soot classpath
 	private String librariesDir = "";
+	// Number of threads scanning method bodies, 1 scans in the calling thread
+	private int threads = Runtime.getRuntime().availableProcessors();
+	// Methods which may call addEventListener(), found in the dex or class files before building any body
+	private BytecodePrefilter prefilter = null;
+	// Whether to collect the Android APIs used in an extra pass
+	private boolean collectApis = false;
+	// The content of apis.json, null until the APIs are collected
+	private JSONObject apis = null;
+	// Build the bodies of all methods when looking for the pending methods
+	private boolean noPrefilter = false;
+	// Packages of the application classes to analyze, bundled libraries are excluded by default
+	private PackageTrie packageRules = new PackageTrie();
+	// Directory of the android.jar snapshots, null to parse android.jar for every app
+	private String snapshotDir = null;
+	private boolean noSnapshot = false;
+	private PlatformSnapshot.Provider platformClasses = null;
+	// Soot settings, see AnalysisProfile
+	private AnalysisProfile profile = AnalysisProfile.FULL;
+	// The reference run of -profile validate only collects events, it doesn't write anything
+	private boolean referenceRun = false;
+	// Nested calls followed to resolve an event parameter, 0 disables the interprocedural resolution
+	private int callDepth = InterproceduralResolver.DEFAULT_MAX_DEPTH;
+	// Time spent resolving one event parameter across methods
+	private long callBudgetMillis = InterproceduralResolver.DEFAULT_TIME_BUDGET_MILLIS;
 
 	public void parseArgs(String[] args) throws ParseException {
 		org.apache.commons.cli.Options options = new org.apache.commons.cli.Options();
@@ -52,10 +118,51 @@ public class ApkAnalyzer extends DERGFrontend {
 				.desc("path to library dir").build();
 		Option sdk = Option.builder("sdk").argName("android.jar").longOpt("android-sdk").hasArg()
 				.desc("path to android.jar").build();
+		Option threadsOpt = Option.builder("t").argName("n").longOpt("threads").hasArg()
+				.desc("number of threads scanning method bodies (default: number of cores)").build();
+		Option callDepthOpt = Option.builder("ipdepth").argName("n").longOpt("call-depth").hasArg()
+				.desc("nested calls followed to resolve an event parameter, 0 disables it (default: "
+						+ InterproceduralResolver.DEFAULT_MAX_DEPTH + ")").build();
+		Option callBudgetOpt = Option.builder("ipbudget").argName("millis").longOpt("call-budget").hasArg()
+				.desc("time spent resolving an event parameter across methods (default: "
+						+ InterproceduralResolver.DEFAULT_TIME_BUDGET_MILLIS + ")").build();
+		Option profileOpt = Option.builder("profile").argName("profile").hasArg()
+				.desc("Soot settings: fast/full/validate (default: full)").build();
+		Option apisOpt = Option.builder("apis")
+				.desc("also collect the Android APIs used by the app into apis.json (builds all method bodies)").build();
+		Option noPrefilterOpt = Option.builder("noprefilter")
+				.desc("build the bodies of all methods instead of only those which may call addEventListener()").build();
+		Option includeOpt = Option.builder("include").argName("packages").hasArg()
+				.desc("comma-separated packages to analyze, classes of other packages are skipped").build();
+		Option excludeOpt = Option.builder("exclude").argName("packages").hasArg()
+				.desc("comma-separated packages to skip, in addition to the bundled libraries").build();
+		Option noDefaultExcludesOpt = Option.builder("nodefaultexcludes")
+				.desc("also analyze the bundled libraries skipped by default (androidx, Play services, Kotlin, ad SDKs...)").build();
+		Option snapshotOpt = Option.builder("snapshot").argName("directory").hasArg()
+				.desc("directory of the android.jar snapshots of -profile fast, created on first use (default: <cache>/platform)").build();
+		Option noSnapshotOpt = Option.builder("nosnapshot")
+				.desc("parse the platform classes from android.jar instead of a snapshot").build();
+		Option reportOpt = Option.builder("report").argName("formats").hasArg()
+				.desc("comma-separated report formats: console/json/csv (default: " + ReportWriter.DEFAULT_FORMATS + ")").build();
+		Option baselineOpt = Option.builder("baseline").argName("directory").hasArg()
+				.desc("output dir of a previous version of the app, only the classes changed since then are analyzed").build();
 		Option help_opt = Option.builder("h").desc("print this help message").longOpt("help").build();
 
 		options.addOption(library);
 		options.addOption(sdk);
+		options.addOption(threadsOpt);
+		options.addOption(callDepthOpt);
+		options.addOption(callBudgetOpt);
+		options.addOption(profileOpt);
+		options.addOption(apisOpt);
+		options.addOption(noPrefilterOpt);
+		options.addOption(includeOpt);
+		options.addOption(excludeOpt);
+		options.addOption(noDefaultExcludesOpt);
+		options.addOption(snapshotOpt);
+		options.addOption(noSnapshotOpt);
+		options.addOption(reportOpt);
+		options.addOption(baselineOpt);
 		options.addOption(help_opt);
 
 		CommandLineParser parser = new IgnoreUnknownTokenParser();
@@ -79,6 +186,84 @@ public class ApkAnalyzer extends DERGFrontend {
 					throw new ParseException("Android jar does not exist.");
 				}
 			}
+			if (cmd.hasOption('t')) {
+				try {
+					threads = Integer.parseInt(cmd.getOptionValue('t'));
+				} catch (NumberFormatException e) {
+					throw new ParseException("Number of threads should be an integer.");
+				}
+				if (threads < 1) {
+					throw new ParseException("Number of threads should be at least 1.");
+				}
+			}
+			if (cmd.hasOption("ipdepth")) {
+				try {
+					callDepth = Integer.parseInt(cmd.getOptionValue("ipdepth"));
+				} catch (NumberFormatException e) {
+					throw new ParseException("Call depth should be an integer.");
+				}
+				if (callDepth < 0) {
+					throw new ParseException("Call depth should not be negative.");
+				}
+			}
+			if (cmd.hasOption("ipbudget")) {
+				try {
+					callBudgetMillis = Long.parseLong(cmd.getOptionValue("ipbudget"));
+				} catch (NumberFormatException e) {
+					throw new ParseException("Call budget should be an integer.");
+				}
+				if (callBudgetMillis < 1) {
+					throw new ParseException("Call budget should be at least 1 millisecond.");
+				}
+			}
+			if (cmd.hasOption("profile")) {
+				profile = AnalysisProfile.fromName(cmd.getOptionValue("profile"));
+				if (profile == null) {
+					throw new ParseException("Profile should be fast, full or validate.");
+				}
+			}
+			if (cmd.hasOption("apis")) {
+				collectApis = true;
+			}
+			if (cmd.hasOption("noprefilter")) {
+				noPrefilter = true;
+			}
+			// the more specific package rule applies, later rules override the rules of the same package
+			if (!cmd.hasOption("nodefaultexcludes")) {
+				packageRules.addDefaultExcludes();
+			}
+			if (cmd.hasOption("exclude")) {
+				for (String packageName : parsePackages(cmd.getOptionValue("exclude"))) {
+					packageRules.exclude(packageName);
+				}
+			}
+			if (cmd.hasOption("include")) {
+				for (String packageName : parsePackages(cmd.getOptionValue("include"))) {
+					packageRules.include(packageName);
+				}
+			}
+			noSnapshot = cmd.hasOption("nosnapshot");
+			if (cmd.hasOption("snapshot")) {
+				snapshotDir = cmd.getOptionValue("snapshot");
+			} else if (Config.cacheDir != null) {
+				snapshotDir = new File(Config.cacheDir, "platform").getPath();
+			}
+			if (cmd.hasOption("report")) {
+				reportFormats = new HashSet<>();
+				for (String format : cmd.getOptionValue("report").split(",")) {
+					format = format.trim().toLowerCase();
+					if (!ReportWriter.FORMATS.contains(format)) {
+						throw new ParseException("Report format should be console, json or csv.");
+					}
+					reportFormats.add(format);
+				}
+			}
+			if (cmd.hasOption("baseline")) {
+				baselineDir = cmd.getOptionValue("baseline");
+				if (!new File(baselineDir).isDirectory()) {
+					throw new ParseException("Baseline directory does not exist.");
+				}
+			}
 			if (cmd.hasOption("h")) {
 				throw new ParseException("print help message.");
 			}
@@ -96,12 +281,17 @@ public class ApkAnalyzer extends DERGFrontend {
 		}
 	}
 
+	@Override
+	public void reset() {
+		G.reset();
+	}
+
 	private boolean init() {
 		Util.LOGGER.info("Start Initializing " + ApkAnalyzer.NAME);
+		Metrics.Timer timer = metrics.start("sootOptions");
 		Options.v().set_debug(false);
 		Options.v().set_prepend_classpath(true);
 		Options.v().set_allow_phantom_refs(true);
-		Options.v().set_output_dir(Config.outputDir);
 
 		List<String> process_dirs = new ArrayList<>();
 		process_dirs.add(Config.inputDirOrFile);
@@ -109,14 +299,12 @@ public class ApkAnalyzer extends DERGFrontend {
 
 		if (Config.inputDirOrFile.endsWith(".apk")) {
 			Options.v().set_src_prec(Options.src_prec_apk);
-			Options.v().set_output_format(Options.output_format_dex);
 		} else if (Config.inputDirOrFile.endsWith(".jar")) {
 			Options.v().set_src_prec(Options.src_prec_class);
-			Options.v().set_output_jar(true);
 		} else {
 			Options.v().set_src_prec(Options.src_prec_java);
-			Options.v().set_output_format(Options.output_format_jimple);
 		}
+		profile.configure(Config.inputDirOrFile);
 
 		String classpath = "";
 		if (this.librariesDir != null && this.librariesDir.length() != 0) {
@@ -124,13 +312,7 @@ public class ApkAnalyzer extends DERGFrontend {
 			if (lib.isFile() && lib.getName().endsWith(".jar"))
 				classpath = lib.getAbsolutePath();
 			else if (lib.isDirectory()) {
-				FileFilter fileFilter = new FileFilter() {
-					@Override
-					public boolean accept(File pathname) {
-						return pathname.getName().endsWith(".jar");
-					}
-				};
-				for (File file : lib.listFiles(fileFilter)) {
+				for (File file : this.getLibraryJars()) {
 					classpath += file.getAbsolutePath() + ";";
 				}
 			}
@@ -138,12 +320,20 @@ public class ApkAnalyzer extends DERGFrontend {
 		}
 
 		Options.v().set_force_android_jar(this.forceAndroidJarPath);
+		timer.stop();
+		this.initPlatformSnapshot();
 
+		timer = metrics.start("loadNecessaryClasses");
 		Scene.v().loadNecessaryClasses();
+		timer.stop();
 
 		applicationClasses = new ArrayList<>();
+		int excludedClasses = 0;
 		for (SootClass cls : Scene.v().getApplicationClasses()) {
-			applicationClasses.add(cls);
+			if (packageRules.isIncluded(cls.getName()))
+				applicationClasses.add(cls);
+			else
+				excludedClasses++;
 		}
 		Collections.sort(applicationClasses, new Comparator<SootClass>() {
 			@Override
@@ -151,13 +341,46 @@ public class ApkAnalyzer extends DERGFrontend {
 				return String.CASE_INSENSITIVE_ORDER.compare(o1.getName(), o2.getName());
 			}
 		});
+		metrics.count("classes", applicationClasses.size());
+		if (platformClasses != null)
+			metrics.count("snapshotClasses", platformClasses.getResolvedClasses());
+		metrics.count("excludedClasses", excludedClasses);
 		Util.LOGGER.info("Finish Initializing " + ApkAnalyzer.NAME);
 		return true;
 	}
 
+	// Resolve the classes of android.jar from its snapshot, the classes of the app are still found first.
+	// Platform methods get no bodies from a snapshot, like the excluded classes of FAST, so FULL parses android.jar.
+	private void initPlatformSnapshot() {
+		platformClasses = null;
+		if (noSnapshot || snapshotDir == null || this.forceAndroidJarPath.isEmpty()
+				|| profile.getSettings() != AnalysisProfile.FAST
+				|| Options.v().src_prec() != Options.src_prec_apk)
+			return;
+		Metrics.Timer timer = metrics.start("platformSnapshot");
+		try {
+			PlatformSnapshot snapshot = PlatformSnapshot.load(new File(snapshotDir), new File(this.forceAndroidJarPath));
+			platformClasses = snapshot.newClassProvider();
+			// the providers of Soot for apk inputs, with the snapshot before the class files
+			List<ClassProvider> providers = new ArrayList<>();
+			providers.add(new DexClassProvider());
+			providers.add(platformClasses);
+			providers.add(new AsmClassProvider());
+			providers.add(new JavaClassProvider());
+			providers.add(new JimpleClassProvider());
+			SourceLocator.v().setClassProviders(providers);
+		} catch (IOException | RuntimeException e) {
+			Util.LOGGER.warning("failed to load the snapshot of " + this.forceAndroidJarPath);
+			Util.logException(e);
+			platformClasses = null;
+		} finally {
+			timer.stop();
+		}
+	}
+
 	public void addAPICallRelations(Graph g, SootMethod method) {
-		// consider the scope inside a method
-		if (method.getSource() == null)
+		// consider the scope inside a method, Soot releases the source once the body is retrieved
+		if (!method.hasActiveBody() && method.getSource() == null)
 			return;
 		Node v_method = getMethodNode(g, method);
 
@@ -171,7 +394,7 @@ public class ApkAnalyzer extends DERGFrontend {
 			for (ValueBox valueBox : body.getUseAndDefBoxes()) {
 				Value value = valueBox.getValue();
 				if (value instanceof InvokeExpr) {
-					SootMethod invokedMethod = ((InvokeExpr) value).getMethod();
+					SootMethod invokedMethod = resolveMethod((InvokeExpr) value);
 					SootClass invokedClass = invokedMethod.getDeclaringClass();
 					if (invokedClass == null || invokedClass.isApplicationClass())
 						continue;
@@ -180,8 +403,6 @@ public class ApkAnalyzer extends DERGFrontend {
 					Node v_api = getAPINode(g, invokedMethod, arguments);
 
 					g.createEdge(v_method, v_api, Edge.TYPE_REFER);
-
-					System.out.println(v_api.name);
 				}
 			}
 		} catch (Exception e) {
@@ -189,14 +410,98 @@ public class ApkAnalyzer extends DERGFrontend {
 		}
 	}
 
+	// SootMethodRef.resolve() and SootFieldRef.resolve() are not synchronized, and may add phantom methods and fields
+	// to their classes, so the threads scanning bodies take turns resolving
+	private static final Object RESOLVE_LOCK = new Object();
+
+	private static SootMethod resolveMethod(InvokeExpr invokeExpr) {
+		synchronized (RESOLVE_LOCK) {
+			return invokeExpr.getMethod();
+		}
+	}
+
+	private static SootField resolveField(FieldRef fieldRef) {
+		synchronized (RESOLVE_LOCK) {
+			return fieldRef.getField();
+		}
+	}
+
+	// The API calls of the methods, added to the graph in parallel and merged in the order of the methods
+	Graph buildGraph(List<SootMethod> methods) {
+		Metrics.Timer timer = metrics.start("addAPICallRelations");
+		ConcurrentGraph g = new ConcurrentGraph();
+		List<Graph> parts = new ArrayList<>();
+		for (int i = 0; i < methods.size(); i++) {
+			parts.add(g.newPart());
+		}
+		APICallRelationsTask task = new APICallRelationsTask(methods, parts, 0, methods.size());
+		if (this.threads > 1) {
+			ForkJoinPool pool = new ForkJoinPool(this.threads);
+			try {
+				pool.invoke(task);
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			task.addRelations();
+		}
+		// the sealed graph keeps no Soot object, it outlives the Scene
+		g.seal();
+		g.sortGraph();
+		timer.stop();
+		metrics.count("graph.nodes", g.nodes.size());
+		metrics.count("graph.edges", g.getEdgeCount());
+		return g;
+	}
+
+	// Adds the API calls of the methods in [from, to) to their parts, large ranges are split and run in parallel
+	private class APICallRelationsTask extends RecursiveAction {
+		private static final int METHODS_PER_TASK = 4;
+
+		private List<SootMethod> methods;
+		private List<Graph> parts;
+		private int from;
+		private int to;
+
+		APICallRelationsTask(List<SootMethod> methods, List<Graph> parts, int from, int to) {
+			this.methods = methods;
+			this.parts = parts;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= METHODS_PER_TASK) {
+				Metrics.Timer timer = metrics.startWorker("addAPICallRelations");
+				this.addRelations();
+				timer.stop();
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			invokeAll(new APICallRelationsTask(this.methods, this.parts, this.from, middle),
+					new APICallRelationsTask(this.methods, this.parts, middle, this.to));
+		}
+
+		void addRelations() {
+			for (int i = this.from; i < this.to; i++) {
+				addAPICallRelations(this.parts.get(i), this.methods.get(i));
+			}
+		}
+	}
+
+	// One node per API and constant arguments, e.g. add("a") and add("b") are different nodes
 	public static Node getAPINode(Graph g, SootMethod apiMethod, List<Value> parameters) {
-		String methodStr = apiMethod.getSignature();
-		for (Value parameter : parameters) {
-			methodStr += "-----" + parameter.toString();
+		String signature = g.intern(apiMethod.getSignature());
+		String[] arguments = new String[parameters.size()];
+		for (int i = 0; i < arguments.length; i++) {
+			Value parameter = parameters.get(i);
+			arguments[i] = g.intern(parameter instanceof Constant ? parameter.toString() : parameter.getType().toString());
 		}
+		APICallKey key = new APICallKey(signature, arguments);
 
-		Node result = g.getNodeOrCreate(apiMethod, methodStr, Node.TYPE_API);
-		result.sig = apiMethod.getSignature();
+		Node result = g.getNodeOrCreate(key, key.getName(), Node.TYPE_API);
+		result.sig = signature;
 		return result;
 	}
 
@@ -239,42 +544,174 @@ public class ApkAnalyzer extends DERGFrontend {
 	private Map<String, String> psMethod2Sig = new HashMap<>();
 	private Set<String> androidApiUsed = new HashSet<>();
 	
-	private String eventType = null;
-	private String fieldName = null;
+	// The built-in function of the event being built, such as calcAvgLoudness
 	private String functionName = null;
-	private String comparator = null;
-	private String threshold = null; 
-	private String latitude = null;
-	private String longitude = null;
-	private String radius = null;
-	private String placeName = null;
-	private String lists = null;
-	private String varargs = null;
+	// The event being built, from its setField(...) until addEventListener(...)
+	private EventSpec currentEvent = null;
 	private String tempLists = "";
-//	private String tempVarargs = "";
 	private ArrayList<String> tempVarargs = new ArrayList<>();
-	private String caller = null;
-	private String path = null;
-	private String duration = null;
-	private String interval = null;
-	private String locationPrecision = null;
-	private String recurrence = null;
-	private ArrayList<String> optimizationConstraints = new ArrayList<>();
-
-	private Set<SootMethod> findPendingMethods() {
-		Set<SootMethod> pendingMethods = new HashSet<>();
-
-		for (SootClass cls : this.applicationClasses) {
+
+	Set<SootMethod> findPendingMethods(List<SootClass> classes) {
+		Metrics.Timer timer = metrics.start("findPendingMethods");
+		PendingMethodsScan scan = new PendingMethodsScan(classes, 0, classes.size(), false);
+		this.runScan(scan);
+		timer.stop();
+		metrics.count("methods", scan.methodCount);
+		metrics.count("units", scan.unitCount);
+		metrics.count("skippedMethods", scan.skippedMethodCount);
+		metrics.count("pendingMethods", scan.pendingMethods.size());
+		return scan.pendingMethods;
+	}
+
+	// The optional pass building the bodies of all methods, to collect the Android APIs used
+	// and the signature mappings of the PrivacyStreams methods, written to apis.json
+	private void collectAPIUsage() {
+		Metrics.Timer timer = metrics.start("collectAPIUsage");
+		PendingMethodsScan scan = new PendingMethodsScan(applicationClasses, 0, applicationClasses.size(), true);
+		this.runScan(scan);
+		psMethod2Sig.putAll(scan.psMethod2Sig);
+		androidApiUsed.addAll(scan.androidApiUsed);
+		timer.stop();
+		metrics.count("androidApis", androidApiUsed.size());
+
+		apis = new JSONObject();
+		List<String> sortedApis = new ArrayList<>(androidApiUsed);
+		Collections.sort(sortedApis);
+		apis.put("androidApis", new JSONArray(sortedApis));
+		apis.put("psMethodSigs", new JSONObject(psMethod2Sig));
+		writeApis(apis);
+	}
+
+	private static void writeApis(JSONObject apis) {
+		try {
+			FileUtils.writeStringToFile(new File(Config.outputDir, "apis.json"), apis.toString(2), "UTF-8");
+		} catch (IOException e) {
+			Util.logException(e);
+		}
+	}
+
+	private void runScan(PendingMethodsScan scan) {
+		if (this.threads > 1) {
+			ForkJoinPool pool = new ForkJoinPool(this.threads);
+			try {
+				pool.invoke(scan);
+			} finally {
+				pool.shutdown();
+			}
+		} else {
+			scan.scanClasses();
+		}
+	}
+
+	// Whether the instructions of a method may call addEventListener(), all methods without a prefilter
+	private boolean isCandidate(SootMethod method) {
+		if (prefilter == null)
+			return true;
+		return prefilter.isCandidate(method.getDeclaringClass().getName(), method.getName(),
+				method.getReturnType().toString(), getParameterTypes(method));
+	}
+
+	// The methods of the input which may call a method, from the method ids their instructions invoke,
+	// including the classes of excluded packages, whose bodies are built when they are looked at;
+	// null if a possible caller is not loaded, so that all the analyzed classes are searched
+	private Collection<SootMethod> findCallers(SootMethod callee) {
+		if (prefilter == null)
+			return null;
+		String calleeProto = BytecodePrefilter.getProto(callee.getReturnType().toString(), getParameterTypes(callee));
+		List<SootMethod> callers = new ArrayList<>();
+		List<String> classNames = new ArrayList<>(prefilter.getCallerClasses(callee.getName(), calleeProto));
+		Collections.sort(classNames);
+		for (String className : classNames) {
+			SootClass cls = Scene.v().getSootClassUnsafe(className);
+			if (cls == null || !cls.isApplicationClass())
+				return null;
+			for (SootMethod method : cls.getMethods()) {
+				if (prefilter.mayCall(className, method.getName(), method.getReturnType().toString(),
+						getParameterTypes(method), callee.getName(), calleeProto))
+					callers.add(method);
+			}
+		}
+		return callers;
+	}
+
+	private static List<String> getParameterTypes(SootMethod method) {
+		List<String> parameterTypes = new ArrayList<>();
+		for (Type type : method.getParameterTypes()) {
+			parameterTypes.add(type.toString());
+		}
+		return parameterTypes;
+	}
+
+	// Scans the classes in [from, to), large ranges are split and scanned in parallel.
+	// Each task fills its own accumulators, which are merged in class order,
+	// so the result is identical to scanning all classes in a single thread.
+	// The pending methods are found in the candidate methods of the prefilter,
+	// the API pass builds all bodies to collect the APIs used instead.
+	private class PendingMethodsScan extends RecursiveAction {
+		private static final int CLASSES_PER_TASK = 8;
+
+		private List<SootClass> classes;
+		private int from;
+		private int to;
+		private boolean apiPass;
+		private Set<SootMethod> pendingMethods = new LinkedHashSet<>();
+		private Map<String, String> psMethod2Sig = new HashMap<>();
+		private Set<String> androidApiUsed = new HashSet<>();
+		private long methodCount = 0;
+		private long unitCount = 0;
+		private long skippedMethodCount = 0;
+
+		PendingMethodsScan(List<SootClass> classes, int from, int to, boolean apiPass) {
+			this.classes = classes;
+			this.from = from;
+			this.to = to;
+			this.apiPass = apiPass;
+		}
+
+		@Override
+		protected void compute() {
+			String phase = this.apiPass ? "collectAPIUsage" : "findPendingMethods";
+			if (this.to - this.from <= CLASSES_PER_TASK) {
+				// the work of pool threads is not seen by the timer of the calling thread
+				Metrics.Timer timer = metrics.startWorker(phase);
+				this.scanClasses();
+				timer.stop();
+				return;
+			}
+			int middle = (this.from + this.to) >>> 1;
+			PendingMethodsScan left = new PendingMethodsScan(this.classes, this.from, middle, this.apiPass);
+			PendingMethodsScan right = new PendingMethodsScan(this.classes, middle, this.to, this.apiPass);
+			invokeAll(left, right);
+			this.merge(left);
+			this.merge(right);
+		}
+
+		private void merge(PendingMethodsScan other) {
+			this.pendingMethods.addAll(other.pendingMethods);
+			this.psMethod2Sig.putAll(other.psMethod2Sig);
+			this.androidApiUsed.addAll(other.androidApiUsed);
+			this.methodCount += other.methodCount;
+			this.unitCount += other.unitCount;
+			this.skippedMethodCount += other.skippedMethodCount;
+		}
+
+		void scanClasses() {
+			for (int i = this.from; i < this.to; i++) {
+				this.scanClass(this.classes.get(i));
+			}
+		}
+
+		private void scanClass(SootClass cls) {
 			// generate signature mappings of all methods in io.github.privacysecurer packages
-			if (cls.getPackageName().startsWith(Const.psPackage)) {
+			if (this.apiPass && cls.getPackageName().startsWith(Const.psPackage)) {
 				List<SootMethod> psMethods = new ArrayList<>();
 				for (SootMethod method : cls.getMethods()) {
 					psMethods.add(method);
 				}
 				for (SootMethod method : psMethods) {
-					if (method.getSource() == null)
+					if (!method.hasActiveBody() && method.getSource() == null)
 						continue;
-					String methodSig = this.getPSMethodSig(method);
+					String methodSig = getPSMethodSig(method);
 					psMethod2Sig.put(method.getSignature(), methodSig);
 				}
 			}
@@ -284,22 +721,36 @@ public class ApkAnalyzer extends DERGFrontend {
 				methods.add(method);
 			}
 			for (SootMethod method : methods) {
-				if (method.getSource() == null)
+				// bodies already built have no source any more
+				if (!method.hasActiveBody() && method.getSource() == null)
 					continue;
+				// Jimple is only built for the methods whose instructions may call addEventListener()
+				if (!this.apiPass && !isCandidate(method)) {
+					skippedMethodCount++;
+					continue;
+				}
 				try {
 					Body body = method.retrieveActiveBody();
+					if (!this.apiPass) {
+						methodCount++;
+						unitCount += body.getUnits().size();
+					}
 					Iterator<Unit> unitsIterator = body.getUnits().snapshotIterator();
 					while (unitsIterator.hasNext()) {
 						Stmt stmt = (Stmt) unitsIterator.next();
 						if (stmt.containsInvokeExpr()) {
-							SootMethod sootMethod = stmt.getInvokeExpr().getMethod();
+							InvokeExpr invokeExpr = stmt.getInvokeExpr();
+							// only calls by the name of addEventListener() are resolved to look for it
+							if (!this.apiPass && !invokeExpr.getMethodRef().name().equals(getStreamAPI.getName()))
+								continue;
+							SootMethod sootMethod = resolveMethod(invokeExpr);
 							// if SootMethod contains addEventListener() method ,find event parameter settings
-							if (sootMethod == getStreamAPI) {
+							if (!this.apiPass && sootMethod == getStreamAPI) {
 								//pendingMethods.add(sootMethod);
 								pendingMethods.add(method);
 							}
 							
-							if (!sootMethod.getDeclaringClass().isApplicationClass()) {
+							if (this.apiPass && !sootMethod.getDeclaringClass().isApplicationClass()) {
 								androidApiUsed.add(sootMethod.getSignature());
 							}
 						}
@@ -309,10 +760,12 @@ public class ApkAnalyzer extends DERGFrontend {
 				}
 			}
 		}
-		return pendingMethods;
 	}
 
 	private String getPSMethodSig(SootMethod method) {
+		// called by the scan, on the threads of its pool when it has one
+		Metrics.Timer timer = Thread.currentThread() instanceof ForkJoinWorkerThread
+				? metrics.startWorker("getPSMethodSig") : metrics.start("getPSMethodSig");
 		try {
 			Body body = method.retrieveActiveBody();
 
@@ -321,13 +774,15 @@ public class ApkAnalyzer extends DERGFrontend {
 			for (ValueBox valueBox : body.getUseAndDefBoxes()) {
 				Value value = valueBox.getValue();
 				if (value instanceof FieldRef) {
-					if (((FieldRef) value).getField().getDeclaringClass().isApplicationClass())
+					SootField field = resolveField((FieldRef) value);
+					if (field.getDeclaringClass().isApplicationClass())
 						continue;
-					methodSigs.add(((FieldRef) value).getField().getSignature());
+					methodSigs.add(field.getSignature());
 				} else if (value instanceof InvokeExpr) {
-					if (((InvokeExpr) value).getMethod().getDeclaringClass().isApplicationClass())
+					SootMethod invokedMethod = resolveMethod((InvokeExpr) value);
+					if (invokedMethod.getDeclaringClass().isApplicationClass())
 						continue;
-					methodSigs.add(((InvokeExpr) value).getMethod().getSignature());
+					methodSigs.add(invokedMethod.getSignature());
 				} else if (value instanceof Constant) {
 					methodSigs.add(value.toString());
 				}
@@ -338,6 +793,8 @@ public class ApkAnalyzer extends DERGFrontend {
 			return DigestUtils.sha256Hex(sortedMethodSigs.toString());
 		} catch (Exception e) {
 			Util.logException(e);
+		} finally {
+			timer.stop();
 		}
 		return "<UNKNOWN>";
 	}
@@ -346,11 +803,11 @@ public class ApkAnalyzer extends DERGFrontend {
 		StaticFieldRef staticFieldRef = null;
 		ValueBox staticValueBox = null;
 		
-		Body body = method.retrieveActiveBody();
+		Body body = analysisCache.get(method).body;
 		Iterator<Unit> unitsIterator = body.getUnits().snapshotIterator();
 		
 		while (unitsIterator.hasNext()) {
-			ArrayList<String> argNameValue = new ArrayList<>();
+			ArrayList<String> argValues = new ArrayList<>();
 			Stmt stmt = (Stmt) unitsIterator.next();
 			
 			// Find out setList(blacklist) parameters assigned at runtime,
@@ -358,6 +815,13 @@ public class ApkAnalyzer extends DERGFrontend {
 			if (stmt instanceof JInvokeStmt) {
 				JInvokeStmt jis = (JInvokeStmt)stmt;
 				InvokeExpr ie = jis.getInvokeExpr();
+				// The event is complete once it is passed to addEventListener()
+				if (ie.getMethod() == getStreamAPI) {
+					this.finishEvent();
+					// the PrivacyStreams DFG starting at the call is only logged, so it is only built at debug level
+					if (Util.LOGGER.isLoggable(Level.FINE))
+						this.extractEventPipeline(ie, stmt, method);
+				}
 				if (ie.getMethod().getName().equals("add")) {
 					for(ValueBox value : ie.getUseBoxes()) {
 						if (value.getValue() instanceof StringConstant) {
@@ -377,59 +841,59 @@ public class ApkAnalyzer extends DERGFrontend {
 					SootMethod builtInFunction = ((StaticInvokeExpr) js_rOp).getMethod();
 					String builtInFunctionName = builtInFunction.getName();
 					functionName = builtInFunctionName;
-					System.out.printf("Built-in function is %s, ", builtInFunctionName);
+					report.printf("Built-in function is %s, ", builtInFunctionName);
 					// Print the input and output of built-in function used in PrivacyStreamsEvents API
 					switch(builtInFunctionName) {
 						case "calcAvgLoudness":
-							System.out.println("with AUDIO_DATA input and avgLoudness output.");
+							report.println("with AUDIO_DATA input and avgLoudness output.");
 							break;
 						case "calcMaxLoudness":
-							System.out.println("with AUDIO_DATA input and maxLoudness output.");
+							report.println("with AUDIO_DATA input and maxLoudness output.");
 							break;
 						case "getLatLon":
-							System.out.println("outputting location.");
+							report.println("outputting location.");
 							break;
 						case "calcSpeed":
-							System.out.println("outputting speed.");
+							report.println("outputting speed.");
 							break;
 						case "distanceTo":
-							System.out.println("with LAN_LON input and distance output.");
+							report.println("with LAN_LON input and distance output.");
 							break;
 						case "getDirection":
-							System.out.println("outputting direction.");
+							report.println("outputting direction.");
 							break;
 						case "getPostcode":
-							System.out.println("with LAN_LON input and postcode output.");
+							report.println("with LAN_LON input and postcode output.");
 							break;
 						case "getCity":
-							System.out.println("with LAN_LON input and city output.");
+							report.println("with LAN_LON input and city output.");
 							break;
 						case "callerIdentification":
-							System.out.println("outputting the phone number of incoming calls.");
+							report.println("outputting the phone number of incoming calls.");
 							break;
 						case "getContactEmails":
-							System.out.println("outputting contact emails.");
+							report.println("outputting contact emails.");
 							break;
 						case "getContactPhones":
-							System.out.println("outputting contact phones.");
+							report.println("outputting contact phones.");
 							break;
 						case "getContactLists":
-							System.out.println("outputting contact lists.");
+							report.println("outputting contact lists.");
 							break;
 						case "getMessagePhones":
-							System.out.println("outputting the message sender of incoming messages.");
+							report.println("outputting the message sender of incoming messages.");
 							break;
 						case "getMessageContent":
-							System.out.println("outputting message lists.");
+							report.println("outputting message lists.");
 							break;
 						case "getImageData":
-							System.out.println("outputting image data.");
+							report.println("outputting image data.");
 							break;
 						default:
-							System.out.println("User defined functions, please analyze it with PrivacyStreams Android Analyzer.");
+							report.println("User defined functions, please analyze it with PrivacyStreams Android Analyzer.");
 							
 					}
-					System.out.println();	
+					report.println();	
 				}
 				
 				// Find out static field reference, such as EventType.AlwaysRepeat, EventType.Off
@@ -471,11 +935,9 @@ public class ApkAnalyzer extends DERGFrontend {
 					
 					// Add event separator, as all events started with "setField" statements
 					if (sm.getName().equals("setField")) {
-						System.out.println("******************");
-						ArrayList<String> beginSeparator = new ArrayList<>();
-						beginSeparator.add("*********");
-						beginSeparator.add("*********");
-						argsNameValue.add(beginSeparator);
+						report.println("******************");
+						this.finishEvent();
+						String eventType = null;
 						
 						// Get event type
 						if (js_rOp.getType().toString().equals(Const.Audio))
@@ -489,23 +951,13 @@ public class ApkAnalyzer extends DERGFrontend {
 						if (js_rOp.getType().toString().equals(Const.Image))
 							eventType = "ImageEvent";
 						
-						System.out.println("EventType: "+eventType);
-						ArrayList<String> event = new ArrayList<>();
-						event.add("EventType");
-						event.add(eventType);
-						argsNameValue.add(event);	
-						
-//						System.out.println("BuiltInFunction: "+functionName);
-						ArrayList<String> function = new ArrayList<>();
-						function.add("BuiltInFunction");
-						function.add(functionName);
-						argsNameValue.add(function);
+						report.println("EventType: "+eventType);
+						currentEvent = new EventSpec(method.getSignature(), eventType, functionName);
 					}
 					
-					argNameValue.add(sm.getName());
 					// The SootMethod name of "build" or "longValue" doesn't meet our filtering conditions
 					if (!sm.getName().equals("build") && !sm.getName().equals("longValue"))
-						System.out.print(sm.getName()+": ");
+						report.print(sm.getName()+": ");
 					
 					// Get variable value
 					for (ValueBox vb : js_rOp.getUseBoxes()) {
@@ -516,281 +968,539 @@ public class ApkAnalyzer extends DERGFrontend {
 							// static field reference (such as setNotificationResponsiveness(Event.ContinuousSampling)) or
 							// local list variable (such as setLists(blacklist))
 							if (vb.getValue() instanceof JimpleLocal) {
+								int knownValues = argValues.size();
 								
 								if (staticValueBox != null) {
-									System.out.print(staticValueBox.getValue()+" ");
-									argNameValue.add(staticValueBox.getValue().toString());
+									report.print(staticValueBox.getValue()+" ");
+									argValues.add(staticValueBox.getValue().toString());
 									staticValueBox = null;
 								}
 								
 								if (staticFieldRef != null) {
-									System.out.print(staticFieldRef.getField()+" ");
-									argNameValue.add(staticFieldRef.getField().toString());
+									report.print(staticFieldRef.getField()+" ");
+									argValues.add(staticFieldRef.getField().toString());
 									staticFieldRef = null;
 								}
 								
 								if (tempLists != null && tempLists.length() != 0) {
-									System.out.print(tempLists);
-									argNameValue.add(tempLists);
+									report.print(tempLists);
+									argValues.add(tempLists);
 									tempLists = "";
 								}
 								
 								if (tempVarargs != null && tempVarargs.size() != 0) {
 									for (String tempVararg: tempVarargs) {
-										System.out.print(tempVararg+" ");
+										report.print(tempVararg+" ");
 									}
-//									argNameValue.add(tempVarargs);
-									argNameValue.addAll(tempVarargs);
+//									argValues.add(tempVarargs);
+									argValues.addAll(tempVarargs);
 									tempVarargs.clear();
 								}
+								
+								// Otherwise the value may be computed in another method, such as setPhoneNumber(Helper.getPhone())
+								if (argValues.size() == knownValues) {
+									Constant value = resolveInterprocedurally((JimpleLocal) vb.getValue(), stmt, method);
+									if (value != null) {
+										report.print(value+" ");
+										argValues.add(value.toString());
+									}
+								}
 							}
 							
 							// If invoked statements are string or numeric constants
 							if ((vb.getValue() instanceof Constant) ){
-								System.out.print(vb.getValue()+" ");
-								argNameValue.add(vb.getValue().toString());
+								report.print(vb.getValue()+" ");
+								argValues.add(vb.getValue().toString());
 							} 
 							
 						}
 					}
 					
 					if (!sm.getName().equals("build") && !sm.getName().equals("longValue"))
-						System.out.println();
-					argsNameValue.add(argNameValue);
+						report.println();
+					if (currentEvent != null)
+						currentEvent.apply(sm.getName(), argValues);
 				}
 			}
 		}
 		
-		ArrayList<String> endSeparator = new ArrayList<>();
-		System.out.println("******************");
-		endSeparator.add("*********");
-		endSeparator.add("*********");
-		argsNameValue.add(endSeparator);
+		report.println("******************");
+		this.finishEvent();
+	}
+
+	private void finishEvent() {
+		if (currentEvent == null)
+			return;
+		if (methodResult != null) {
+			// The report does not record the descriptions, the listeners get the event again when the result is reused
+			this.recordText();
+			methodResult.output.add(currentEvent);
+		}
+		this.publishEvent(currentEvent);
+		currentEvent = null;
+	}
+
+	private void publishEvent(EventSpec event) {
+		Metrics.Timer timer = metrics.start("renderDescriptions");
+		for (EventSpecListener listener : eventSpecListeners) {
+			listener.onEventSpec(event);
+		}
+		timer.stop();
+		metrics.count("events", 1);
+	}
+
+	// Record what is reported while analyzing a pending method, so that the result can be reused by the next version
+	private ClassIndex.MethodResult methodResult = null;
+
+	private void startRecording(ClassIndex.MethodResult result) {
+		methodResult = result;
+		report.startRecording();
+	}
+
+	private void recordText() {
+		String text = report.takeRecordedText();
+		if (!text.isEmpty())
+			methodResult.output.add(text);
+	}
+
+	private void stopRecording() {
+		this.recordText();
+		report.stopRecording();
+		methodResult = null;
+	}
+
+	private void extractEventPipeline(InvokeExpr invokeExpr, Unit unit, SootMethod method) {
+		Metrics.Timer timer = metrics.start("extractEventPipelines");
+		try {
+			Util.LOGGER.fine(new EventPipeline(invokeExpr, unit, method, analysisCache).toString());
+		} catch (Exception e) {
+			Util.logException(e);
+		} finally {
+			timer.stop();
+		}
+	}
+
+	public void addEventSpecListener(EventSpecListener listener) {
+		eventSpecListeners.add(listener);
+	}
+
+	public Metrics getMetrics() {
+		return metrics;
 	}
 
 	public Graph build() {
-		int count = 0;
+		Metrics.resetPeakHeap();
+		metrics.put("input", Config.inputDirOrFile);
+		metrics.put("profile", profile.name().toLowerCase());
+		// the result cache keeps the text and the events, the event index only the events
+		boolean cached = Config.cacheDir != null && new File(Config.inputDirOrFile).isFile();
+		report.keep(cached, cached || Config.indexDir != null);
+		report.open(Config.inputDirOrFile, new File(Config.outputDir), reportFormats);
+		try {
+			Graph g = this.buildWithCache();
+			this.indexEvents();
+			return g;
+		} finally {
+			Metrics.Timer timer = metrics.start("writeReport");
+			report.close();
+			timer.stop();
+			metrics.write(new File(Config.outputDir, "metrics.json"));
+		}
+	}
+
+	// Append the events found, also when replayed from the cache, to the event index shared by the corpus;
+	// an app without events is appended too, in case it had events when it was indexed before
+	private void indexEvents() {
+		if (Config.indexDir == null)
+			return;
+		Metrics.Timer timer = metrics.start("indexEvents");
+		try {
+			new EventIndex(new File(Config.indexDir)).append(Config.inputDirOrFile, report.getEvents());
+		} catch (IOException e) {
+			Util.logException(e);
+		} finally {
+			timer.stop();
+		}
+	}
+
+	private Graph buildWithCache() {
+		File input = new File(Config.inputDirOrFile);
+		// Most apps don't use PrivacyStreamsEvents at all, reject them before loading anything into Soot
+		Metrics.Timer timer = metrics.start("triage");
+		boolean rejected = DexTriage.canClassify(input) && DexTriage.classify(input) == DexTriage.Verdict.NON_PSE;
+		timer.stop();
+		if (rejected) {
+			Util.LOGGER.info("This is not a PrivacyStreamsEvents app.");
+			return null;
+		}
+		if (Config.cacheDir == null || !input.isFile())
+			return this.analyze();
+
+		ResultCache cache = new ResultCache(Config.cacheDir);
+		String cacheKey;
+		try {
+			cacheKey = this.getCacheKey(input);
+		} catch (IOException e) {
+			Util.logException(e);
+			return this.analyze();
+		}
+		JSONObject cachedEntry = this.getCachedEntry(cache.get(cacheKey));
+		if (cachedEntry != null) {
+			Util.LOGGER.info("found cached results of " + Config.inputDirOrFile);
+			metrics.put("cached", true);
+			return this.replayCachedResult(cachedEntry);
+		}
+
+		apis = null;
+		Graph g = this.analyze();
+		JSONArray events = new JSONArray();
+		for (EventSpec event : report.getEvents()) {
+			events.put(event.toJson());
+		}
+		JSONObject entry = new JSONObject();
+		entry.put("console", report.getText());
+		entry.put("events", events);
+		// the outputs which are only written when the app is analyzed, to be written again on a cache hit
+		entry.put("derg", g == null ? JSONObject.NULL : g.toJson());
+		if (g != null && classIndex != null)
+			entry.put("classIndex", classIndex.toJson());
+		if (apis != null)
+			entry.put("apis", apis);
+		cache.put(cacheKey, entry.toString());
+		return g;
+	}
+
+	// The cached entry, null if there is none or if it lacks an output of this run, such as apis.json
+	JSONObject getCachedEntry(String cachedResult) {
+		if (cachedResult == null || !cachedResult.startsWith("{"))
+			return null;
+		JSONObject entry = new JSONObject(cachedResult);
+		if (!entry.has("derg") || (collectApis && !entry.isNull("derg") && !entry.has("apis")))
+			return null;
+		return entry;
+	}
+
+	/**
+	 * @return the key of the results of an input in the result cache, with the options of this analyzer
+	 */
+	public String getCacheKey(File input) throws IOException {
+		return ResultCache.getKey(input, this.getAnalysisOptions());
+	}
+
+	// Entries are {"console": printed text, "events": [...], "derg": graph or null, "classIndex": ..., "apis": ...}
+	private Graph replayCachedResult(JSONObject entry) {
+		List<EventSpec> events = new ArrayList<>();
+		JSONArray eventsJson = entry.getJSONArray("events");
+		for (int i = 0; i < eventsJson.length(); i++) {
+			events.add(EventSpec.fromJson(eventsJson.getJSONObject(i)));
+		}
+		report.replay(entry.getString("console"), events);
+		// the report is only a listener once analyzing, it has the events already; the other listeners get them too
+		for (EventSpec event : events) {
+			this.publishEvent(event);
+		}
+		if (entry.has("classIndex"))
+			ClassIndex.fromJson(entry.getJSONObject("classIndex")).write(new File(Config.outputDir, ClassIndex.FILE_NAME));
+		if (collectApis && entry.has("apis"))
+			writeApis(entry.getJSONObject("apis"));
+		return entry.isNull("derg") ? null : Graph.fromJson(entry.getJSONObject("derg"));
+	}
+
+	private Constant resolveInterprocedurally(JimpleLocal local, Stmt stmt, SootMethod method) {
+		Metrics.Timer timer = metrics.start("interproceduralResolve");
+		try {
+			return interproceduralResolver.resolve(local, stmt, method);
+		} catch (Exception e) {
+			Util.LOGGER.warning("failed to resolve " + local + " in " + method);
+			Util.logException(e);
+			return null;
+		} finally {
+			timer.stop();
+		}
+	}
+
+	// The options which change the results, for the result cache and the class index.
+	// The calls of the app resolve against android.jar and the libraries, so their contents are part of them.
+	private String getAnalysisOptions() throws IOException {
+		String options = "callDepth=" + callDepth + "|packages=" + packageRules;
+		if (!this.forceAndroidJarPath.isEmpty())
+			options += "|sdk=" + PlatformSnapshot.getKey(new File(this.forceAndroidJarPath));
+		List<String> libraries = new ArrayList<>();
+		for (File jar : this.getLibraryJars()) {
+			libraries.add(jar.getName() + "=" + PlatformSnapshot.getKey(jar));
+		}
+		if (!libraries.isEmpty()) {
+			Collections.sort(libraries);
+			options += "|libraries=" + DigestUtils.sha256Hex(libraries.toString());
+		}
+		return options;
+	}
+
+	// The jars of -l: the jar itself, or the jars in the directory
+	private List<File> getLibraryJars() {
+		List<File> jars = new ArrayList<>();
+		if (this.librariesDir == null || this.librariesDir.length() == 0)
+			return jars;
+		File lib = new File(this.librariesDir);
+		if (lib.isFile() && lib.getName().endsWith(".jar")) {
+			jars.add(lib);
+		} else if (lib.isDirectory()) {
+			File[] files = lib.listFiles(new FileFilter() {
+				@Override
+				public boolean accept(File pathname) {
+					return pathname.getName().endsWith(".jar");
+				}
+			});
+			if (files != null)
+				jars.addAll(Arrays.asList(files));
+		}
+		return jars;
+	}
+
+	private static List<String> parsePackages(String value) throws ParseException {
+		List<String> packages = new ArrayList<>();
+		for (String packageName : value.split(",")) {
+			packageName = packageName.trim();
+			if (packageName.isEmpty())
+				continue;
+			if (!packageName.matches("[\\w$]+(\\.[\\w$]+)*"))
+				throw new ParseException("Invalid package name: " + packageName);
+			packages.add(packageName);
+		}
+		return packages;
+	}
+
+	// Fingerprint the classes of the input, and load the index of the baseline if its results can be reused
+	private void initClassIndex() {
+		File input = new File(Config.inputDirOrFile);
+		if (referenceRun || !ClassFingerprints.canFingerprint(input))
+			return;
+		Metrics.Timer timer = metrics.start("fingerprintClasses");
+		try {
+			String analysis = String.format("%s|%s|%s", ResultCache.getAnalyzerVersion(), ResultCache.getSpecHash(),
+					this.getAnalysisOptions());
+			classIndex = new ClassIndex(analysis, ClassFingerprints.compute(input));
+		} catch (IOException | RuntimeException e) {
+			Util.logException(e);
+			return;
+		} finally {
+			timer.stop();
+		}
+		if (baselineDir == null)
+			return;
+		ClassIndex baselineIndex = ClassIndex.read(new File(baselineDir, ClassIndex.FILE_NAME));
+		if (baselineIndex == null || !baselineIndex.analysis.equals(classIndex.analysis)) {
+			Util.LOGGER.info("no reusable class index in " + baselineDir + ", analyzing all classes");
+			return;
+		}
+		baseline = baselineIndex;
+		changedClasses = classIndex.getChangedClasses(baseline);
+		metrics.count("incremental.changedClasses", changedClasses.size());
+		Util.LOGGER.info(changedClasses.size() + " classes changed since " + baselineDir);
+	}
+
+	private void initPrefilter() {
+		File input = new File(Config.inputDirOrFile);
+		if (noPrefilter || !BytecodePrefilter.canFilter(input))
+			return;
+		Metrics.Timer timer = metrics.start("prefilter");
+		try {
+			prefilter = BytecodePrefilter.scan(input, getStreamAPI.getName());
+			metrics.count("candidateMethods", prefilter.getCandidateCount());
+		} catch (IOException | RuntimeException e) {
+			// build all the bodies then
+			Util.logException(e);
+			prefilter = null;
+		} finally {
+			timer.stop();
+		}
+	}
+
+	private void analyzeMethod(SootMethod method) {
+		ClassIndex.MethodResult result = new ClassIndex.MethodResult(method.getSignature());
+		interproceduralResolver.clearVisitedClasses();
+		if (classIndex != null)
+			this.startRecording(result);
+		// Find out event parameter settings,
+		// every event is passed to the listeners as soon as it is complete
+		Metrics.Timer timer = metrics.start("findAPIMethod");
+		try {
+			findAPIMethod(method);
+		} finally {
+			timer.stop();
+			report.flush();
+			if (classIndex != null)
+				this.stopRecording();
+		}
+		for (SootClass cls : interproceduralResolver.getVisitedClasses()) {
+			visitedClasses.add(cls);
+			if (cls != method.getDeclaringClass())
+				result.dependencies.add(cls.getName());
+		}
+		if (interproceduralResolver.isCallSitesUsed())
+			result.dependencies.add(ClassIndex.ANY_CLASS);
+		if (classIndex != null)
+			classIndex.addResult(method.getDeclaringClass().getName(), result);
+		analyzedMethods.add(method);
+	}
+
+	// Print the recorded output and pass the recorded events to the listeners again
+	private void reuseResult(SootMethod method, ClassIndex.MethodResult result) {
+		for (Object item : result.output) {
+			if (item instanceof EventSpec)
+				this.publishEvent((EventSpec) item);
+			else
+				report.print(item);
+		}
+		classIndex.addResult(method.getDeclaringClass().getName(), result);
+		metrics.count("incremental.reusedMethods", 1);
+		analyzedMethods.add(method);
+	}
+
+	// The events found, to check the profile against the full profile
+	private static class EventCollector implements EventSpecListener {
+		private List<String> events = new ArrayList<>();
+
+		@Override
+		public void onEventSpec(EventSpec spec) {
+			events.add(spec.toString());
+		}
+	}
+
+	// Analyze again with the full profile, without reporting anything, and compare the events found
+	private void validateProfile(EventCollector collector) {
+		metrics.put("validation.peakHeapBytes", Metrics.getPeakHeapBytes());
+		Metrics.resetPeakHeap();
+		ApkAnalyzer reference = new ApkAnalyzer();
+		reference.librariesDir = librariesDir;
+		reference.forceAndroidJarPath = forceAndroidJarPath;
+		reference.threads = threads;
+		reference.callDepth = callDepth;
+		reference.callBudgetMillis = callBudgetMillis;
+		reference.noPrefilter = noPrefilter;
+		reference.packageRules = packageRules;
+		reference.snapshotDir = snapshotDir;
+		// the reference parses android.jar, as FULL always does
+		reference.noSnapshot = true;
+		reference.profile = AnalysisProfile.FULL;
+		reference.referenceRun = true;
+		EventCollector referenceCollector = new EventCollector();
+		reference.addEventSpecListener(referenceCollector);
+
+		// The reference report is never opened, so it has no sinks; Soot's own messages are discarded too
+		Metrics.Timer timer = metrics.start("validateProfile");
+		try {
+			G.reset();
+			G.v().out = new PrintStream(new NullOutputStream());
+			reference.analyze();
+		} finally {
+			timer.stop();
+		}
+		metrics.put("validation.referencePeakHeapBytes", Metrics.getPeakHeapBytes());
+		metrics.put("validation.referenceWallMillis", reference.metrics.toMap().get("totalWallMillis"));
+		boolean passed = collector.events.equals(referenceCollector.events);
+		metrics.put("validation.passed", passed);
+		if (passed) {
+			Util.LOGGER.info("profile " + AnalysisProfile.FAST + " finds the same " + collector.events.size() + " events as " + AnalysisProfile.FULL);
+		} else {
+			Util.LOGGER.warning(String.format("profile %s finds %d events, %s finds %d events, they differ:%n%s%n%s",
+					AnalysisProfile.FAST, collector.events.size(), AnalysisProfile.FULL, referenceCollector.events.size(),
+					collector.events, referenceCollector.events));
+		}
+	}
+
+	private Graph analyze() {
+		this.addEventSpecListener(report);
+		EventCollector collector = null;
+		if (profile == AnalysisProfile.VALIDATE) {
+			collector = new EventCollector();
+			this.addEventSpecListener(collector);
+		}
+		this.initClassIndex();
 		this.init();
 		Util.LOGGER.info("generating PrivacyStreamsEvents analysis results");
 
 		SootClass uqiClass = Scene.v().tryLoadClass(Const.uqiClass, SootClass.SIGNATURES);
 		if (uqiClass == null) {
 			Util.LOGGER.info("This is not a PrivacyStreamsEvents app.");
+			return null;
 		}
 		
 		getStreamAPI = Scene.v().getMethod(Const.uqiGetStreamAPI);
 
-		Set<SootMethod> pendingMethods = this.findPendingMethods();
-		
-		for (SootMethod method : pendingMethods) {
-			// Used to find out event parameter settings, 
-			// and store them in a ArrayList<ArrayList<String>> argsNameValue
-			findAPIMethod(method);
+		this.initPrefilter();
+		// With a baseline, only the changed classes are scanned
+		List<SootClass> classesToScan = applicationClasses;
+		if (baseline != null) {
+			classesToScan = new ArrayList<>();
+			for (SootClass cls : applicationClasses) {
+				if (changedClasses.contains(cls.getName()))
+					classesToScan.add(cls);
+			}
 		}
+		Set<SootMethod> pendingMethods = this.findPendingMethods(classesToScan);
 		
-		for (int i=0; i<argsNameValue.size(); i++) {
-			switch (argsNameValue.get(i).get(0)) {
-				case "*********":
-					
-					if (count != 0) {
-						// Template output for privacy descriptions
-						System.out.println();
-						System.out.println("*** The privacy description ***");
-						switch (eventType) {
-							case "AudioEvent":
-								System.out.printf("The app checks %s when it is %s %sdB.", fieldName.replace("\"", ""), comparator.replace("\"", ""), threshold.replace("\"", ""));
-								System.out.println();
-								break;
-								
-							case "GeolocationEvent":
-								// fieldName is a string with quotation mark, should be removed before comparing with a variable latlon
-								//if (fieldName.replace("\"", "").equals("latlon")) {
-								if (functionName.equals("getLatLon")) {
-									if (placeName != null) {
-										System.out.printf("The app checks latlon when the user is %s %s.", comparator.replace("\"", ""), placeName.replace("\"", ""));
-										System.out.println();
-									} else {
-										if (comparator.replace("\"", "").equals("updated")) {
-											System.out.printf("The app checks latlon when it is updated.");
-											System.out.println();
-										} else {
-											System.out.printf("The app checks latlon when the user %s a geofence.", comparator.replace("\"", ""));
-											System.out.println();
-										}
-									}
-								}
-								
-								if (functionName.equals("calcSpeed")) {
-									System.out.printf("The app checks speed when it is %s %sm/s.", comparator.replace("\"", ""), threshold.replace("\"", ""));
-									System.out.println();
-								}
-								
-								if (functionName.equals("getCity")) 
-									System.out.println("The app checks city when it is updated.");
-								
-								
-								if (functionName.equals("getPostcode")) 
-									System.out.println("The app checks post code when it is updated.");
-								
-								if (functionName.equals("getDirection")) 
-									System.out.println("The app checks direction when the user makes a turn.");
-								
-								if (functionName.equals("distanceTo")) {
-									System.out.printf("The app checks distance when it is %s %sm.", comparator.replace("\"", ""), threshold.replace("\"", ""));
-									System.out.println();
-								}
-								break;
-								
-							case "ContactEvent":
-								if (functionName.equals("callerIdentification")) {
-									if (comparator.replace("\"", "").equals("from"))
-										System.out.println("The app checks caller when it is from a certain phone number.");
-									else {
-										if (comparator.replace("\"", "").equals("in")) 
-											System.out.println("The app checks caller when it is in a list.");
-										else 
-											System.out.println("The app checks new calls arriving.");
-									}
-								}	
-								
-								if (functionName.equals("getContactEmails")) 
-									System.out.println("The app checks emails when they are in a list.");
-								
-								if (functionName.equals("getContactLists")) 
-									System.out.println("The app checks contact lists when they are updated.");
-								
-//								if (fieldName.replace("\"", "").equals("logs"))
-//									System.out.println("The app checks when call logs contain a record from a certain phone number.");	
-								break;
-								
-							case "MessageEvent":
-								if (functionName.equals("getMessagePhones")) {
-									if (comparator.replace("\"", "").equals("from")) 
-										System.out.println("The app checks sender when it is from a certain phone number.");
-									else {
-										if (comparator.replace("\"", "").equals("in")) 
-											System.out.println("The app checks sender when it is in a list.");
-										else 
-											System.out.println("The app checks new messages arriving.");
-									}
-								}
-								
-								if (functionName.equals("getMessageContent")) 
-									System.out.println("The app checks message content when they are updated.");
-								
-								break;
-								
-							case "ImageEvent":
-								if (path != null) 
-									System.out.println("The app checks file or folder content when they are updated.");
-								else 
-									System.out.println("The app checks images when they are updated.");
-				
-								break;
-								
-							default:
-								System.out.println("No matchable event type, please check it.");
-						}
-						
-						// After executing the event, clear all variables
-						optimizationConstraints.clear();
-						eventType = null;
-						fieldName = null;
-						functionName = null;
-						comparator = null;
-						threshold = null; 
-						latitude = null;
-						longitude = null;
-						radius = null;
-						placeName = null;
-						lists = null;
-						caller = null;
-						path = null;
-						duration = null;
-						interval = null;
-						locationPrecision = null;
-						recurrence = null;	
-					}
-					count ++;
-					break;
-					
-				case "EventType":
-					eventType = argsNameValue.get(i).get(1);
-					break;
-				case "BuiltInFunction":
-					functionName = argsNameValue.get(i).get(1);
-					break;
-				case "setField":
-					fieldName = argsNameValue.get(i).get(1);
-					break;
-				case "setComparator":
-					comparator = argsNameValue.get(i).get(1);
-					break;
-				case "setFieldConstraints":
-					threshold = argsNameValue.get(i).get(1);
-					break;
-				case "setLatitude":
-					latitude = argsNameValue.get(i).get(1);
-					break;
-				case "setLongitude":
-					longitude = argsNameValue.get(i).get(1);
-					break;
-				case "setRadius":
-					radius = argsNameValue.get(i).get(1);
-					break;
-				case "setPlaceName":
-					placeName = argsNameValue.get(i).get(1);
-					break;
-				case "setContactList":
-					lists = argsNameValue.get(i).get(1);
-					break;
-				case "setPhoneNumber":
-					caller = argsNameValue.get(i).get(1);
-					break;
-				case "setPath":
-					path = argsNameValue.get(i).get(1);
-					break;
-				case "setSamplingMode":
-					if (eventType.equals("AudioEvent")) {
-						if (argsNameValue.get(i).size() == 2)
-							duration = argsNameValue.get(i).get(1);
-						if (argsNameValue.get(i).size() == 3) {
-							interval = argsNameValue.get(i).get(1);
-							duration = argsNameValue.get(i).get(2);
-						}
+		// call sites are only looked for in the analyzed classes, in the methods the prefilter saw calling the method
+		interproceduralResolver = new InterproceduralResolver(analysisCache, callDepth, callBudgetMillis, applicationClasses,
+				new InterproceduralResolver.CallerFinder() {
+					@Override
+					public Collection<SootMethod> findCallers(SootMethod callee) {
+						return ApkAnalyzer.this.findCallers(callee);
 					}
-					if (eventType.equals("GeolocationEvent")) {
-						if (argsNameValue.get(i).size() == 2) 
-							interval = argsNameValue.get(i).get(1);
-						if (argsNameValue.get(i).size() == 3) {
-							interval = argsNameValue.get(i).get(1);
-							locationPrecision = argsNameValue.get(i).get(2);
+				});
+		if (baseline == null) {
+			for (SootMethod method : pendingMethods) {
+				this.analyzeMethod(method);
+			}
+		} else {
+			Map<SootClass, List<SootMethod>> pendingMethodsOfClass = new HashMap<>();
+			for (SootMethod method : pendingMethods) {
+				List<SootMethod> methods = pendingMethodsOfClass.get(method.getDeclaringClass());
+				if (methods == null) {
+					methods = new ArrayList<>();
+					pendingMethodsOfClass.put(method.getDeclaringClass(), methods);
+				}
+				methods.add(method);
+			}
+			// In the same order as a full analysis, results of unchanged classes are reused
+			// unless they were computed from changed classes
+			for (SootClass cls : applicationClasses) {
+				if (changedClasses.contains(cls.getName())) {
+					if (pendingMethodsOfClass.containsKey(cls)) {
+						for (SootMethod method : pendingMethodsOfClass.get(cls)) {
+							this.analyzeMethod(method);
 						}
 					}
-					break;	
-//				case "setDuration":
-//					duration = argsNameValue.get(i).get(1);
-//					break;
-//				case "setInterval":
-//					interval = argsNameValue.get(i).get(1);
-//					break;
-				case "setLocationPrecision":
-					locationPrecision = argsNameValue.get(i).get(1);
-					break;
-				case "setNotificationResponsiveness":
-					recurrence = argsNameValue.get(i).get(1);
-					break;
-				case "addOptimizationConstraints":
-					for (int j=1; j<argsNameValue.get(i).size(); j++)
-						optimizationConstraints.add(argsNameValue.get(i).get(j));
-					break;
-				default:
-					break;
+					continue;
+				}
+				for (ClassIndex.MethodResult result : baseline.getResults(cls.getName())) {
+					SootMethod method = Scene.v().grabMethod(result.method);
+					if (method == null)
+						continue;
+					if (ClassIndex.isAffected(result, changedClasses))
+						this.analyzeMethod(method);
+					else
+						this.reuseResult(method, result);
+				}
 			}
 		}
+		Graph g = this.buildGraph(analyzedMethods);
+		if (collectApis && !referenceRun)
+			this.collectAPIUsage();
+		if (classIndex != null)
+			classIndex.write(new File(Config.outputDir, ClassIndex.FILE_NAME));
+		metrics.count("methodAnalysisCache.hits", analysisCache.getHits());
+		metrics.count("methodAnalysisCache.misses", analysisCache.getMisses());
+		metrics.count("methodAnalysisCache.evictions", analysisCache.getEvictions());
+		metrics.count("interprocedural.queries", interproceduralResolver.getQueries());
+		metrics.count("interprocedural.resolved", interproceduralResolver.getResolved());
+		metrics.count("interprocedural.budgetExceeded", interproceduralResolver.getBudgetExceeded());
+		metrics.count("interprocedural.visitedClasses", visitedClasses.size());
 		
 		Util.LOGGER.info("finished analyzing PrivacySecurer");
-		return null;
+		if (collector != null)
+			this.validateProfile(collector);
+		return g;
 	}
 }
 
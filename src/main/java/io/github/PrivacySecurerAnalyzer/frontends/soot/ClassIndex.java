@@ -0,0 +1,184 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+import io.github.PrivacySecurerAnalyzer.utils.Util;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Fingerprints of the classes of an analyzed app, and the results of its pending methods, in class-index.json.
+ * Given the index of a previous version of the app, only the classes whose fingerprint changed are analyzed again,
+ * the results of the pending methods of the other classes are reused.
+ */
+public class ClassIndex {
+    public static final String FILE_NAME = "class-index.json";
+    // a result depending on the call sites of a method, which may be added to any class
+    public static final String ANY_CLASS = "*";
+
+    // the analyzer version, spec and options, the results of another analysis are not reused
+    public String analysis;
+    public Map<String, String> fingerprints = new HashMap<>();
+    // results of the pending methods by declaring class, each list in analysis order
+    public Map<String, List<MethodResult>> results = new HashMap<>();
+
+    /**
+     * What was printed and which events were found when analyzing one pending method.
+     */
+    public static class MethodResult {
+        public String method;
+        // other classes the results were computed from
+        public Set<String> dependencies = new TreeSet<>();
+        // printed text (String) and events (EventSpec), in order
+        public List<Object> output = new ArrayList<>();
+
+        public MethodResult(String method) {
+            this.method = method;
+        }
+    }
+
+    public ClassIndex(String analysis, Map<String, String> fingerprints) {
+        this.analysis = analysis;
+        this.fingerprints = fingerprints;
+    }
+
+    public void addResult(String className, MethodResult result) {
+        List<MethodResult> classResults = this.results.get(className);
+        if (classResults == null) {
+            classResults = new ArrayList<>();
+            this.results.put(className, classResults);
+        }
+        classResults.add(result);
+    }
+
+    public List<MethodResult> getResults(String className) {
+        List<MethodResult> classResults = this.results.get(className);
+        return classResults == null ? Collections.<MethodResult>emptyList() : classResults;
+    }
+
+    // classes added, removed or changed since the baseline
+    public Set<String> getChangedClasses(ClassIndex baseline) {
+        Set<String> changed = new HashSet<>();
+        for (Map.Entry<String, String> entry : this.fingerprints.entrySet()) {
+            if (!entry.getValue().equals(baseline.fingerprints.get(entry.getKey())))
+                changed.add(entry.getKey());
+        }
+        for (String className : baseline.fingerprints.keySet()) {
+            if (!this.fingerprints.containsKey(className))
+                changed.add(className);
+        }
+        return changed;
+    }
+
+    public static boolean isAffected(MethodResult result, Set<String> changedClasses) {
+        if (changedClasses.isEmpty())
+            return false;
+        if (result.dependencies.contains(ANY_CLASS))
+            return true;
+        for (String dependency : result.dependencies) {
+            if (changedClasses.contains(dependency))
+                return true;
+        }
+        return false;
+    }
+
+    public JSONObject toJson() {
+        JSONObject json = new JSONObject();
+        json.put("analysis", this.analysis);
+        json.put("fingerprints", new JSONObject(this.fingerprints));
+        JSONObject resultsJson = new JSONObject();
+        for (Map.Entry<String, List<MethodResult>> entry : this.results.entrySet()) {
+            JSONArray classResults = new JSONArray();
+            for (MethodResult result : entry.getValue()) {
+                JSONArray output = new JSONArray();
+                for (Object item : result.output) {
+                    JSONObject itemJson = new JSONObject();
+                    if (item instanceof EventSpec)
+                        itemJson.put("event", ((EventSpec) item).toJson());
+                    else
+                        itemJson.put("text", item);
+                    output.put(itemJson);
+                }
+                JSONObject resultJson = new JSONObject();
+                resultJson.put("method", result.method);
+                resultJson.put("dependencies", new JSONArray(result.dependencies));
+                resultJson.put("output", output);
+                classResults.put(resultJson);
+            }
+            resultsJson.put(entry.getKey(), classResults);
+        }
+        json.put("results", resultsJson);
+        return json;
+    }
+
+    public static ClassIndex fromJson(JSONObject json) {
+        Map<String, String> fingerprints = new HashMap<>();
+        JSONObject fingerprintsJson = json.getJSONObject("fingerprints");
+        Iterator<?> classNames = fingerprintsJson.keys();
+        while (classNames.hasNext()) {
+            String className = (String) classNames.next();
+            fingerprints.put(className, fingerprintsJson.getString(className));
+        }
+        ClassIndex index = new ClassIndex(json.getString("analysis"), fingerprints);
+
+        JSONObject resultsJson = json.getJSONObject("results");
+        Iterator<?> resultClasses = resultsJson.keys();
+        while (resultClasses.hasNext()) {
+            String className = (String) resultClasses.next();
+            JSONArray classResults = resultsJson.getJSONArray(className);
+            for (int i = 0; i < classResults.length(); i++) {
+                JSONObject resultJson = classResults.getJSONObject(i);
+                MethodResult result = new MethodResult(resultJson.getString("method"));
+                JSONArray dependencies = resultJson.getJSONArray("dependencies");
+                for (int j = 0; j < dependencies.length(); j++) {
+                    result.dependencies.add(dependencies.getString(j));
+                }
+                JSONArray output = resultJson.getJSONArray("output");
+                for (int j = 0; j < output.length(); j++) {
+                    JSONObject item = output.getJSONObject(j);
+                    if (item.has("event"))
+                        result.output.add(EventSpec.fromJson(item.getJSONObject("event")));
+                    else
+                        result.output.add(item.getString("text"));
+                }
+                index.addResult(className, result);
+            }
+        }
+        return index;
+    }
+
+    public void write(File file) {
+        try {
+            FileUtils.writeStringToFile(file, this.toJson().toString(), "UTF-8");
+        } catch (IOException e) {
+            Util.logException(e);
+        }
+    }
+
+    /**
+     * @return the index in the given file, or null if it is missing or malformed
+     */
+    public static ClassIndex read(File file) {
+        if (!file.isFile())
+            return null;
+        try {
+            return fromJson(new JSONObject(FileUtils.readFileToString(file, "UTF-8")));
+        } catch (IOException | JSONException e) {
+            Util.logException(e);
+            return null;
+        }
+    }
+}
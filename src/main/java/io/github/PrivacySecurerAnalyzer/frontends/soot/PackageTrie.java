@@ -0,0 +1,102 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Include/exclude rules on packages, compiled into a trie of package segments.
+ * The rule of the deepest package containing a class applies, so that a class is checked in O(depth).
+ * Without any matching rule, a class is included unless include rules are given.
+ */
+public class PackageTrie {
+    // libraries bundled as application classes, which never call PrivacyStreams
+    public static final String[] DEFAULT_EXCLUDES = {
+            "android.support", "androidx", "android.arch",
+            "com.google.android.gms", "com.google.firebase", "com.google.android.material",
+            "com.google.common", "com.google.gson", "com.google.protobuf",
+            "kotlin", "kotlinx",
+            "okhttp3", "okio", "retrofit2", "com.squareup",
+            "io.reactivex", "rx", "dagger", "javax.inject",
+            "com.facebook.ads", "com.google.ads", "com.unity3d.ads", "com.applovin", "com.mopub",
+            "com.crashlytics", "io.fabric"
+    };
+
+    private static class TrieNode {
+        private Map<String, TrieNode> children = new HashMap<>();
+        // true to include, false to exclude, null if no rule is given for this package
+        private Boolean included = null;
+    }
+
+    private TrieNode root = new TrieNode();
+    private boolean hasIncludes = false;
+    // the rules as given, "+package" or "-package"
+    private List<String> rules = new ArrayList<>();
+
+    public void include(String packageName) {
+        this.addRule(packageName, true);
+        this.hasIncludes = true;
+    }
+
+    public void exclude(String packageName) {
+        this.addRule(packageName, false);
+    }
+
+    public void addDefaultExcludes() {
+        for (String packageName : DEFAULT_EXCLUDES) {
+            this.exclude(packageName);
+        }
+    }
+
+    private void addRule(String packageName, boolean included) {
+        TrieNode node = this.root;
+        for (PackageNode packageSeg : PackageNode.parsePackageSegs(packageName)) {
+            TrieNode child = node.children.get(packageSeg.getSegName());
+            if (child == null) {
+                child = new TrieNode();
+                node.children.put(packageSeg.getSegName(), child);
+            }
+            node = child;
+        }
+        node.included = included;
+        this.rules.add((included ? "+" : "-") + packageName);
+    }
+
+    /**
+     * @param className a fully qualified class name, such as com.example.app.MainActivity
+     */
+    public boolean isIncluded(String className) {
+        Boolean included = null;
+        TrieNode node = this.root;
+        int start = 0;
+        int end;
+        // walk the package segments, the last segment is the class name
+        while (node != null && (end = className.indexOf('.', start)) >= 0) {
+            node = node.children.get(className.substring(start, end));
+            if (node != null && node.included != null)
+                included = node.included;
+            start = end + 1;
+        }
+        return included == null ? !this.hasIncludes : included;
+    }
+
+    public boolean isEmpty() {
+        return this.rules.isEmpty();
+    }
+
+    // the rules in a stable order, part of the options of an analysis
+    @Override
+    public String toString() {
+        List<String> sortedRules = new ArrayList<>(this.rules);
+        Collections.sort(sortedRules);
+        StringBuilder result = new StringBuilder();
+        for (String rule : sortedRules) {
+            if (result.length() > 0)
+                result.append(',');
+            result.append(rule);
+        }
+        return result.toString();
+    }
+}
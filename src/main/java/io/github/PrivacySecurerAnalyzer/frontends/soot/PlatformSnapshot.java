@@ -0,0 +1,421 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import io.github.PrivacySecurerAnalyzer.frontends.dex.ClassFile;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.IOUtils;
+import soot.ArrayType;
+import soot.BooleanType;
+import soot.ByteType;
+import soot.CharType;
+import soot.ClassProvider;
+import soot.ClassSource;
+import soot.DoubleType;
+import soot.FloatType;
+import soot.IntType;
+import soot.LongType;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.ShortType;
+import soot.SootClass;
+import soot.SootResolver;
+import soot.Type;
+import soot.VoidType;
+import soot.javaToJimple.IInitialResolver.Dependencies;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * The declarations of the classes of an android.jar, saved once into a memory-mapped file, platform-<key>.snap.
+ * Soot then resolves the platform classes from the snapshot instead of parsing them from the jar for every app.
+ * Only the hierarchy and the signatures are kept: the platform methods get no bodies, as with
+ * Options.set_no_bodies_for_excluded(), and the fields get no constant values.
+ *
+ * Layout: magic, version, string count, string offsets, class count, (class name id, record offset) per class
+ * sorted by the UTF-8 bytes of the class names, so that a class is found without decoding the names,
+ * strings (length-prefixed UTF-8), then one record per class: modifiers, superclass id (-1 if none), interface ids,
+ * (modifiers, name id, descriptor id) per field, and (modifiers, name id, descriptor id, exception ids) per method.
+ */
+public class PlatformSnapshot {
+    private static final int MAGIC = 0x50534153;
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    // snapshots opened in this JVM, by file, reused by the jobs of a resident JVM
+    private static final Map<File, PlatformSnapshot> opened = new HashMap<>();
+
+    // orders class names like the class index
+    private static final Comparator<byte[]> BYTES_ORDER = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] o1, byte[] o2) {
+            for (int i = 0; i < o1.length && i < o2.length; i++) {
+                if (o1[i] != o2[i])
+                    return (o1[i] & 0xFF) - (o2[i] & 0xFF);
+            }
+            return o1.length - o2.length;
+        }
+    };
+
+    private ByteBuffer buffer;
+    private String[] strings;
+    private int classIndex;
+    private int classCount;
+
+    private PlatformSnapshot(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IOException("Not a platform snapshot of version " + VERSION);
+        this.strings = new String[buffer.getInt(8)];
+        this.classIndex = 12 + 4 * this.strings.length + 4;
+        this.classCount = buffer.getInt(this.classIndex - 4);
+    }
+
+    /**
+     * @return the key of an android.jar, the hash of its zip central directory,
+     * which lists the names, sizes and CRCs of all its entries
+     */
+    public static String getKey(File androidJar) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(androidJar, "r")) {
+            // the end of central directory record is in the last 22 bytes + 64KB (comment)
+            int tailLength = (int) Math.min(in.length(), 22 + 0xFFFF);
+            byte[] tail = new byte[tailLength];
+            in.seek(in.length() - tailLength);
+            in.readFully(tail);
+            ByteBuffer end = ByteBuffer.wrap(tail).order(ByteOrder.LITTLE_ENDIAN);
+            for (int i = tailLength - 22; i >= 0; i--) {
+                if (end.getInt(i) != 0x06054b50)
+                    continue;
+                long size = end.getInt(i + 12) & 0xFFFFFFFFL;
+                long offset = end.getInt(i + 16) & 0xFFFFFFFFL;
+                if (offset + size > in.length())
+                    break;
+                byte[] centralDirectory = new byte[(int) size];
+                in.seek(offset);
+                in.readFully(centralDirectory);
+                return DigestUtils.sha256Hex(centralDirectory);
+            }
+        }
+        throw new IOException("Not a zip file: " + androidJar);
+    }
+
+    public static File getFile(File dir, String key) {
+        return new File(dir, "platform-" + key + ".snap");
+    }
+
+    /**
+     * @return the snapshot of the given android.jar in the given dir, which is written first if there is none
+     */
+    public static PlatformSnapshot load(File dir, File androidJar) throws IOException {
+        File file = getFile(dir, getKey(androidJar));
+        synchronized (opened) {
+            PlatformSnapshot snapshot = opened.get(file);
+            if (snapshot != null)
+                return snapshot;
+            if (!file.isFile())
+                write(androidJar, file);
+            snapshot = open(file);
+            opened.put(file, snapshot);
+            return snapshot;
+        }
+    }
+
+    public static PlatformSnapshot open(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            // the mapping stays valid once the file is closed
+            MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+            return new PlatformSnapshot(buffer);
+        }
+    }
+
+    public static void write(File androidJar, File file) throws IOException {
+        Map<String, Integer> stringIds = new LinkedHashMap<>();
+        // record offsets by class name
+        Map<byte[], Integer> classes = new TreeMap<>(BYTES_ORDER);
+        ByteArrayOutputStream recordBytes = new ByteArrayOutputStream();
+        DataOutputStream records = new DataOutputStream(recordBytes);
+        try (ZipFile zip = new ZipFile(androidJar)) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                // versioned classes of multi-release jars are not platform classes
+                if (!entry.getName().endsWith(".class") || entry.getName().startsWith("META-INF/"))
+                    continue;
+                ClassFile classFile;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    classFile = ClassFile.parse(IOUtils.toByteArray(in));
+                }
+                String className = toClassName(classFile.name);
+                stringId(stringIds, className);
+                classes.put(className.getBytes(UTF8), records.size());
+                records.writeInt(classFile.accessFlags);
+                records.writeInt(classFile.superName == null ? -1 : stringId(stringIds, toClassName(classFile.superName)));
+                records.writeShort(classFile.interfaces.size());
+                for (String interfaceName : classFile.interfaces) {
+                    records.writeInt(stringId(stringIds, toClassName(interfaceName)));
+                }
+                records.writeShort(classFile.fields.size());
+                for (ClassFile.Member field : classFile.fields) {
+                    writeMember(records, stringIds, field);
+                }
+                records.writeShort(classFile.methods.size());
+                for (ClassFile.Member method : classFile.methods) {
+                    writeMember(records, stringIds, method);
+                    records.writeShort(method.exceptions.size());
+                    for (String exception : method.exceptions) {
+                        records.writeInt(stringId(stringIds, toClassName(exception)));
+                    }
+                }
+            }
+        }
+
+        ByteArrayOutputStream stringBytes = new ByteArrayOutputStream();
+        DataOutputStream strings = new DataOutputStream(stringBytes);
+        List<Integer> stringOffsets = new ArrayList<>();
+        int stringsStart = 12 + 4 * stringIds.size() + 4 + 8 * classes.size();
+        for (String string : stringIds.keySet()) {
+            byte[] bytes = string.getBytes(UTF8);
+            stringOffsets.add(stringsStart + strings.size());
+            strings.writeShort(bytes.length);
+            strings.write(bytes);
+        }
+        int recordsStart = stringsStart + strings.size();
+
+        // written next to the snapshot and renamed, so that a concurrent run never maps a partial file
+        File dir = file.getAbsoluteFile().getParentFile();
+        if (!dir.exists() && !dir.mkdirs())
+            throw new IOException("Error generating snapshot directory " + dir);
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(stringOffsets.size());
+            for (int offset : stringOffsets) {
+                out.writeInt(offset);
+            }
+            out.writeInt(classes.size());
+            for (Map.Entry<byte[], Integer> entry : classes.entrySet()) {
+                out.writeInt(stringIds.get(new String(entry.getKey(), UTF8)));
+                out.writeInt(recordsStart + entry.getValue());
+            }
+            stringBytes.writeTo(out);
+            recordBytes.writeTo(out);
+        }
+        if (!tmp.renameTo(file) && !file.isFile()) {
+            tmp.delete();
+            throw new IOException("Error writing snapshot " + file);
+        }
+        tmp.delete();
+    }
+
+    private static void writeMember(DataOutputStream records, Map<String, Integer> stringIds, ClassFile.Member member)
+            throws IOException {
+        records.writeInt(member.accessFlags);
+        records.writeInt(stringId(stringIds, member.name));
+        records.writeInt(stringId(stringIds, member.descriptor));
+    }
+
+    private static int stringId(Map<String, Integer> stringIds, String string) {
+        Integer id = stringIds.get(string);
+        if (id == null) {
+            id = stringIds.size();
+            stringIds.put(string, id);
+        }
+        return id;
+    }
+
+    private static String toClassName(String internalName) {
+        return internalName.replace('/', '.');
+    }
+
+    public int getClassCount() {
+        return this.classCount;
+    }
+
+    public boolean contains(String className) {
+        return this.findRecord(className) >= 0;
+    }
+
+    // binary search of the class index, -1 if the class is not in the snapshot
+    private int findRecord(String className) {
+        byte[] name = className.getBytes(UTF8);
+        int low = 0;
+        int high = this.classCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int entry = this.classIndex + 8 * middle;
+            int cmp = this.compareString(this.buffer.getInt(entry), name);
+            if (cmp < 0)
+                low = middle + 1;
+            else if (cmp > 0)
+                high = middle - 1;
+            else
+                return this.buffer.getInt(entry + 4);
+        }
+        return -1;
+    }
+
+    // compares the UTF-8 bytes of a string of the snapshot with the given bytes
+    private int compareString(int id, byte[] bytes) {
+        int offset = this.buffer.getInt(12 + 4 * id);
+        int length = this.buffer.getShort(offset) & 0xFFFF;
+        for (int i = 0; i < length && i < bytes.length; i++) {
+            byte b = this.buffer.get(offset + 2 + i);
+            if (b != bytes[i])
+                return (b & 0xFF) - (bytes[i] & 0xFF);
+        }
+        return length - bytes.length;
+    }
+
+    // decoded on first use, racing threads decode the same string
+    private String getString(int id) {
+        String string = this.strings[id];
+        if (string == null) {
+            ByteBuffer in = this.buffer.duplicate();
+            in.position(this.buffer.getInt(12 + 4 * id));
+            byte[] bytes = new byte[in.getShort() & 0xFFFF];
+            in.get(bytes);
+            string = new String(bytes, UTF8);
+            this.strings[id] = string;
+        }
+        return string;
+    }
+
+    /**
+     * @return a Soot class provider of the classes of this snapshot, counting the classes it resolves
+     */
+    public Provider newClassProvider() {
+        return new Provider();
+    }
+
+    public class Provider implements ClassProvider {
+        private int resolvedClasses = 0;
+
+        @Override
+        public ClassSource find(String className) {
+            int record = findRecord(className);
+            return record < 0 ? null : new SnapshotClassSource(className, record);
+        }
+
+        public synchronized int getResolvedClasses() {
+            return this.resolvedClasses;
+        }
+
+        private synchronized void resolved() {
+            this.resolvedClasses++;
+        }
+
+        // Resolves a class like soot.asm.AsmClassSource, all the types it refers to are resolved to signatures
+        private class SnapshotClassSource extends ClassSource {
+            private int record;
+
+            SnapshotClassSource(String className, int record) {
+                super(className);
+                this.record = record;
+            }
+
+            @Override
+            public Dependencies resolve(SootClass sc) {
+                Dependencies dependencies = new Dependencies();
+                ByteBuffer in = buffer.duplicate();
+                in.position(this.record);
+                // ACC_SUPER is the same bit as Modifier.SYNCHRONIZED
+                sc.setModifiers(in.getInt() & ~Modifier.SYNCHRONIZED);
+                int superId = in.getInt();
+                if (superId >= 0) {
+                    String superName = getString(superId);
+                    dependencies.typesToSignature.add(RefType.v(superName));
+                    sc.setSuperclass(SootResolver.v().makeClassRef(superName));
+                }
+                int interfaceCount = in.getShort() & 0xFFFF;
+                for (int i = 0; i < interfaceCount; i++) {
+                    String interfaceName = getString(in.getInt());
+                    dependencies.typesToSignature.add(RefType.v(interfaceName));
+                    sc.addInterface(SootResolver.v().makeClassRef(interfaceName));
+                }
+                int fieldCount = in.getShort() & 0xFFFF;
+                for (int i = 0; i < fieldCount; i++) {
+                    int modifiers = in.getInt();
+                    String name = getString(in.getInt());
+                    Type type = toType(getString(in.getInt()), new int[]{0}, dependencies);
+                    sc.getOrAddField(Scene.v().makeSootField(name, type, modifiers));
+                }
+                int methodCount = in.getShort() & 0xFFFF;
+                for (int i = 0; i < methodCount; i++) {
+                    int modifiers = in.getInt();
+                    String name = getString(in.getInt());
+                    String descriptor = getString(in.getInt());
+                    List<Type> parameterTypes = new ArrayList<>();
+                    int[] pos = {1};
+                    while (descriptor.charAt(pos[0]) != ')') {
+                        parameterTypes.add(toType(descriptor, pos, dependencies));
+                    }
+                    pos[0]++;
+                    Type returnType = toType(descriptor, pos, dependencies);
+                    int exceptionCount = in.getShort() & 0xFFFF;
+                    List<SootClass> exceptions = new ArrayList<>(exceptionCount);
+                    for (int j = 0; j < exceptionCount; j++) {
+                        String exception = getString(in.getInt());
+                        dependencies.typesToSignature.add(RefType.v(exception));
+                        exceptions.add(SootResolver.v().makeClassRef(exception));
+                    }
+                    sc.getOrAddMethod(Scene.v().makeSootMethod(name, parameterTypes, returnType, modifiers, exceptions));
+                }
+                resolved();
+                return dependencies;
+            }
+        }
+    }
+
+    // the type of the descriptor at pos[0], pos[0] is moved past it
+    private static Type toType(String descriptor, int[] pos, Dependencies dependencies) {
+        int dimensions = 0;
+        while (descriptor.charAt(pos[0]) == '[') {
+            dimensions++;
+            pos[0]++;
+        }
+        Type type;
+        char c = descriptor.charAt(pos[0]++);
+        switch (c) {
+            case 'Z': type = BooleanType.v(); break;
+            case 'B': type = ByteType.v(); break;
+            case 'C': type = CharType.v(); break;
+            case 'S': type = ShortType.v(); break;
+            case 'I': type = IntType.v(); break;
+            case 'J': type = LongType.v(); break;
+            case 'F': type = FloatType.v(); break;
+            case 'D': type = DoubleType.v(); break;
+            case 'V': type = VoidType.v(); break;
+            case 'L':
+                int end = descriptor.indexOf(';', pos[0]);
+                RefType refType = RefType.v(toClassName(descriptor.substring(pos[0], end)));
+                dependencies.typesToSignature.add(refType);
+                type = refType;
+                pos[0] = end + 1;
+                break;
+            default:
+                throw new IllegalArgumentException("Invalid descriptor " + descriptor);
+        }
+        return dimensions == 0 ? type : ArrayType.v(type, dimensions);
+    }
+}
@@ -0,0 +1,379 @@
+package io.github.PrivacySecurerAnalyzer.index;
+
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Persistent inverted index of the events found in a corpus, shared by all runs writing to the same directory.
+ *
+ * Every event is appended to {@link #LOG_FILE} as one JSON line, the JSON of the {@link EventSpec}, its "app",
+ * and its "generation", the log offset where the append of the app starts. Only the records of the latest
+ * generation of an app are current, so appending an app again supersedes its earlier events; an app which has
+ * no events anymore gets a "tombstone" record without an event.
+ * Once {@link #SEGMENT_RECORDS} lines are not indexed yet, they are indexed into a new immutable {@link IndexSegment}.
+ * A query intersects the posting lists of its terms in every segment, and scans the few lines after the last one.
+ * Terms are "field=value", without the quotes of string constants; every optimization constraint is its own term.
+ */
+public class EventIndex {
+    public static final String LOG_FILE = "events.log";
+    private static final String LOCK_FILE = "index.lock";
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String GENERATION = "generation";
+    private static final String TOMBSTONE = "tombstone";
+
+    public static final List<String> FIELDS = Collections.unmodifiableList(Arrays.asList(
+            "app", "eventType", "functionName", "fieldName", "comparator", "threshold",
+            "latitude", "longitude", "radius", "placeName", "lists", "caller", "path",
+            "duration", "interval", "locationPrecision", "recurrence", "optimizationConstraints"));
+
+    // records per segment, smaller in tests
+    static int SEGMENT_RECORDS = 4096;
+
+    // file locks are held by the JVM, so the threads of one JVM also need to take turns
+    private static final Object APPEND_LOCK = new Object();
+
+    private File dir;
+
+    // a line of the log, from offset to end (after its newline)
+    private static class LogRecord {
+        final long offset;
+        final long end;
+        final JSONObject record;
+
+        LogRecord(long offset, long end, JSONObject record) {
+            this.offset = offset;
+            this.end = end;
+            this.record = record;
+        }
+    }
+
+    public EventIndex(File dir) {
+        this.dir = dir;
+    }
+
+    public static String term(String field, String value) {
+        return field + "=" + value.replace("\"", "");
+    }
+
+    /**
+     * Append the events found in an app, superseding its earlier events, and index them once there are enough.
+     * Nothing is appended if the current events of the app are exactly these, e.g. when it is analyzed again.
+     */
+    public void append(String app, List<EventSpec> events) throws IOException {
+        FileUtils.forceMkdir(this.dir);
+        synchronized (APPEND_LOCK) {
+            try (RandomAccessFile lockFile = new RandomAccessFile(new File(this.dir, LOCK_FILE), "rw")) {
+                FileLock lock = lockFile.getChannel().lock();
+                try (RandomAccessFile log = new RandomAccessFile(new File(this.dir, LOG_FILE), "rw")) {
+                    this.append(log, app, events);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private void append(RandomAccessFile log, String app, List<EventSpec> events) throws IOException {
+        List<IndexSegment> segments = this.openSegments();
+        // the tail is read once, to find the current events of the app and to index it
+        List<LogRecord> tail = readRecords(log, getTailStart(segments));
+
+        Set<Map<String, String>> currentEvents = new HashSet<>();
+        for (JSONObject record : this.getCurrentRecords(app, segments, log, tail)) {
+            if (!record.optBoolean(TOMBSTONE))
+                currentEvents.add(getContent(record));
+        }
+        List<JSONObject> records = new ArrayList<>();
+        Set<Map<String, String>> newEvents = new HashSet<>();
+        for (EventSpec event : events) {
+            JSONObject record = event.toJson();
+            record.put("app", app);
+            records.add(record);
+            newEvents.add(getContent(record));
+        }
+        if (currentEvents.equals(newEvents))
+            return;
+        if (records.isEmpty()) {
+            JSONObject tombstone = new JSONObject();
+            tombstone.put("app", app);
+            tombstone.put(TOMBSTONE, true);
+            records.add(tombstone);
+        }
+
+        // drop the partial line of a writer which died while appending
+        long end = lastLineEnd(log, log.length());
+        StringBuilder text = new StringBuilder();
+        long offset = end;
+        for (JSONObject record : records) {
+            record.put(GENERATION, end);
+            String line = record.toString();
+            text.append(line).append('\n');
+            long lineEnd = offset + line.getBytes("UTF-8").length + 1;
+            tail.add(new LogRecord(offset, lineEnd, record));
+            offset = lineEnd;
+        }
+        log.setLength(end);
+        log.seek(end);
+        log.write(text.toString().getBytes("UTF-8"));
+        this.compact(segments.size(), tail);
+    }
+
+    // index the lines after the last segment, SEGMENT_RECORDS at a time
+    private void compact(int segmentNumber, List<LogRecord> tail) throws IOException {
+        for (int start = 0; start + SEGMENT_RECORDS <= tail.size(); start += SEGMENT_RECORDS) {
+            List<LogRecord> records = tail.subList(start, start + SEGMENT_RECORDS);
+            List<Long> offsets = new ArrayList<>();
+            Map<String, List<Integer>> postings = new TreeMap<>();
+            for (int i = 0; i < records.size(); i++) {
+                offsets.add(records.get(i).offset);
+                for (String term : getTerms(records.get(i).record)) {
+                    List<Integer> recordsOfTerm = postings.get(term);
+                    if (recordsOfTerm == null) {
+                        recordsOfTerm = new ArrayList<>();
+                        postings.put(term, recordsOfTerm);
+                    }
+                    // a record may have the same term twice, e.g. a repeated optimization constraint
+                    if (recordsOfTerm.isEmpty() || recordsOfTerm.get(recordsOfTerm.size() - 1) != i)
+                        recordsOfTerm.add(i);
+                }
+            }
+            File segment = new File(this.dir, String.format("%s%08d%s", SEGMENT_PREFIX, segmentNumber++, SEGMENT_SUFFIX));
+            IndexSegment.write(segment, records.get(0).offset, records.get(records.size() - 1).end, offsets, postings);
+        }
+    }
+
+    /**
+     * @param terms terms made with {@link #term(String, String)}, all of which a record must have
+     * @return the matching current records, in the order they were appended
+     */
+    public List<JSONObject> query(List<String> terms) throws IOException {
+        List<JSONObject> results = new ArrayList<>();
+        File logFile = new File(this.dir, LOG_FILE);
+        if (!logFile.isFile())
+            return results;
+        // segments are listed before the log is read, so every record is either in a listed segment or after them
+        List<IndexSegment> segments = this.openSegments();
+        try (RandomAccessFile log = new RandomAccessFile(logFile, "r")) {
+            List<LogRecord> tail = readRecords(log, getTailStart(segments));
+            List<JSONObject> matches = new ArrayList<>();
+            for (IndexSegment segment : segments) {
+                for (int record : matchRecords(segment, terms)) {
+                    matches.add(new JSONObject(readLine(log, segment.getOffset(record))));
+                }
+            }
+            for (LogRecord line : tail) {
+                if (getTerms(line.record).containsAll(terms))
+                    matches.add(line.record);
+            }
+            // drop the records superseded by a later append of their app
+            Map<String, Long> generations = new HashMap<>();
+            for (JSONObject record : matches) {
+                String app = record.optString("app");
+                Long generation = generations.get(app);
+                if (generation == null) {
+                    generation = getGeneration(this.getLastRecord(app, segments, log, tail));
+                    generations.put(app, generation);
+                }
+                if (getGeneration(record) == generation && !record.optBoolean(TOMBSTONE)) {
+                    record.remove(GENERATION);
+                    results.add(record);
+                }
+            }
+        }
+        return results;
+    }
+
+    // the records of the latest generation of an app
+    private List<JSONObject> getCurrentRecords(String app, List<IndexSegment> segments, RandomAccessFile log,
+                                               List<LogRecord> tail) throws IOException {
+        List<JSONObject> records = new ArrayList<>();
+        JSONObject last = this.getLastRecord(app, segments, log, tail);
+        if (last == null)
+            return records;
+        long generation = getGeneration(last);
+        String term = term("app", app);
+        for (IndexSegment segment : segments) {
+            for (int i : segment.getPostings(term)) {
+                JSONObject record = new JSONObject(readLine(log, segment.getOffset(i)));
+                if (getGeneration(record) == generation)
+                    records.add(record);
+            }
+        }
+        for (LogRecord line : tail) {
+            if (app.equals(line.record.optString("app")) && getGeneration(line.record) == generation)
+                records.add(line.record);
+        }
+        return records;
+    }
+
+    // the last record of an app, null if it has none
+    private JSONObject getLastRecord(String app, List<IndexSegment> segments, RandomAccessFile log,
+                                     List<LogRecord> tail) throws IOException {
+        for (int i = tail.size() - 1; i >= 0; i--) {
+            if (app.equals(tail.get(i).record.optString("app")))
+                return tail.get(i).record;
+        }
+        String term = term("app", app);
+        for (int i = segments.size() - 1; i >= 0; i--) {
+            int[] postings = segments.get(i).getPostings(term);
+            if (postings.length > 0)
+                return new JSONObject(readLine(log, segments.get(i).getOffset(postings[postings.length - 1])));
+        }
+        return null;
+    }
+
+    // records written before generations were added all have generation 0
+    private static long getGeneration(JSONObject record) {
+        return record == null ? -1 : record.optLong(GENERATION, 0);
+    }
+
+    // the fields of a record but its generation, to compare the events of two appends
+    private static Map<String, String> getContent(JSONObject record) {
+        Map<String, String> content = new TreeMap<>();
+        for (String key : JSONObject.getNames(record)) {
+            if (!key.equals(GENERATION))
+                content.put(key, record.get(key).toString());
+        }
+        return content;
+    }
+
+    // the ascending intersection of the posting lists of the terms
+    private static int[] matchRecords(IndexSegment segment, List<String> terms) {
+        int[] records = null;
+        for (String term : terms) {
+            int[] postings = segment.getPostings(term);
+            if (records == null) {
+                records = postings;
+                continue;
+            }
+            int[] both = new int[Math.min(records.length, postings.length)];
+            int size = 0;
+            for (int i = 0, j = 0; i < records.length && j < postings.length; ) {
+                if (records[i] < postings[j]) {
+                    i++;
+                } else if (records[i] > postings[j]) {
+                    j++;
+                } else {
+                    both[size++] = records[i];
+                    i++;
+                    j++;
+                }
+            }
+            records = Arrays.copyOf(both, size);
+            if (size == 0)
+                break;
+        }
+        if (records == null) {
+            records = new int[segment.getRecordCount()];
+            for (int i = 0; i < records.length; i++) {
+                records[i] = i;
+            }
+        }
+        return records;
+    }
+
+    static List<String> getTerms(JSONObject record) {
+        List<String> terms = new ArrayList<>();
+        for (String field : FIELDS) {
+            Object value = record.opt(field);
+            if (value instanceof JSONArray) {
+                JSONArray values = (JSONArray) value;
+                for (int i = 0; i < values.length(); i++) {
+                    terms.add(term(field, values.get(i).toString()));
+                }
+            } else if (value != null) {
+                terms.add(term(field, value.toString()));
+            }
+        }
+        return terms;
+    }
+
+    private List<IndexSegment> openSegments() throws IOException {
+        File[] files = this.dir.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().startsWith(SEGMENT_PREFIX) && file.getName().endsWith(SEGMENT_SUFFIX);
+            }
+        });
+        List<File> segmentFiles = files == null ? new ArrayList<File>() : new ArrayList<>(Arrays.asList(files));
+        // the numbers are zero-padded, so the names sort in the order the segments were written
+        Collections.sort(segmentFiles);
+        List<IndexSegment> segments = new ArrayList<>();
+        for (File segmentFile : segmentFiles) {
+            segments.add(IndexSegment.open(segmentFile));
+        }
+        return segments;
+    }
+
+    private static long getTailStart(List<IndexSegment> segments) {
+        return segments.isEmpty() ? 0 : segments.get(segments.size() - 1).getLogEnd();
+    }
+
+    // the offset after the last complete line before the given offset
+    private static long lastLineEnd(RandomAccessFile log, long length) throws IOException {
+        long position = length;
+        while (position > 0) {
+            log.seek(position - 1);
+            if (log.read() == '\n')
+                break;
+            position--;
+        }
+        return position;
+    }
+
+    // the complete lines from the given offset to the end of the log
+    private static List<LogRecord> readRecords(RandomAccessFile log, long start) throws IOException {
+        List<LogRecord> records = new ArrayList<>();
+        long end = lastLineEnd(log, log.length());
+        if (end <= start)
+            return records;
+        byte[] bytes = new byte[(int) (end - start)];
+        log.seek(start);
+        log.readFully(bytes);
+        int lineStart = 0;
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] == '\n') {
+                JSONObject record = new JSONObject(new String(bytes, lineStart, i - lineStart, "UTF-8"));
+                records.add(new LogRecord(start + lineStart, start + i + 1, record));
+                lineStart = i + 1;
+            }
+        }
+        return records;
+    }
+
+    private static String readLine(RandomAccessFile log, long offset) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        byte[] buffer = new byte[4096];
+        log.seek(offset);
+        int read;
+        while ((read = log.read(buffer)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (buffer[i] == '\n') {
+                    line.write(buffer, 0, i);
+                    return line.toString("UTF-8");
+                }
+            }
+            line.write(buffer, 0, read);
+        }
+        return line.toString("UTF-8");
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.PrivacySecurerAnalyzer.index;
+
+import io.github.PrivacySecurerAnalyzer.utils.Util;
+import org.apache.commons.cli.ParseException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Query mode: prints the events of the index which match a filter, such as
+ * "eventType=GeolocationEvent,functionName=isAtLocation", one JSON record per line.
+ */
+public class IndexQuery {
+    private File indexDir;
+    private String query;
+
+    public IndexQuery(String indexDir, String query) {
+        this.indexDir = new File(indexDir);
+        this.query = query;
+    }
+
+    /**
+     * @param query comma-separated "field=value" terms, the fields being {@link EventIndex#FIELDS}
+     */
+    public static List<String> parseTerms(String query) throws ParseException {
+        List<String> terms = new ArrayList<>();
+        for (String filter : query.split(",")) {
+            filter = filter.trim();
+            if (filter.isEmpty())
+                continue;
+            int separator = filter.indexOf('=');
+            if (separator < 0)
+                throw new ParseException("Invalid query term, expecting field=value: " + filter);
+            String field = filter.substring(0, separator).trim();
+            if (!EventIndex.FIELDS.contains(field))
+                throw new ParseException("Unknown query field: " + field + ", expecting one of " + EventIndex.FIELDS);
+            terms.add(EventIndex.term(field, filter.substring(separator + 1).trim()));
+        }
+        if (terms.isEmpty())
+            throw new ParseException("Empty query.");
+        return terms;
+    }
+
+    public void run() {
+        long startNanos = System.nanoTime();
+        List<JSONObject> records;
+        try {
+            records = new EventIndex(this.indexDir).query(parseTerms(this.query));
+        } catch (IOException | ParseException e) {
+            Util.logException(e);
+            return;
+        }
+        Set<String> apps = new HashSet<>();
+        for (JSONObject record : records) {
+            apps.add(record.optString("app"));
+            System.out.println(record.toString());
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        Util.LOGGER.info(String.format("%d events in %d apps match %s in %d ms",
+                records.size(), apps.size(), this.query, elapsedMillis));
+    }
+}
@@ -0,0 +1,162 @@
+package io.github.PrivacySecurerAnalyzer.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * An immutable, memory-mapped inverted index of the records in a range of the event log.
+ *
+ * Layout (big-endian): magic, version, the log range [logStart, logEnd), the record count and the log offsets
+ * of the records, the term count and the positions of the terms sorted by their UTF-8 bytes, then for every term
+ * its length, its bytes, its posting count and the ascending numbers of the records which have it.
+ */
+class IndexSegment {
+    private static final int MAGIC = 0x50534549;
+    private static final int VERSION = 1;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final Comparator<byte[]> BYTES_ORDER = new Comparator<byte[]>() {
+        @Override
+        public int compare(byte[] o1, byte[] o2) {
+            for (int i = 0; i < o1.length && i < o2.length; i++) {
+                if (o1[i] != o2[i])
+                    return (o1[i] & 0xFF) - (o2[i] & 0xFF);
+            }
+            return o1.length - o2.length;
+        }
+    };
+
+    private ByteBuffer buffer;
+    private long logStart;
+    private long logEnd;
+    private int recordCount;
+    private int termCount;
+    private int termIndex;
+
+    private IndexSegment(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+            throw new IOException("Not an index segment of version " + VERSION);
+        this.logStart = buffer.getLong(8);
+        this.logEnd = buffer.getLong(16);
+        this.recordCount = buffer.getInt(24);
+        this.termCount = buffer.getInt(28 + 8 * this.recordCount);
+        this.termIndex = 32 + 8 * this.recordCount;
+    }
+
+    static IndexSegment open(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            // the mapping stays valid once the file is closed
+            MappedByteBuffer buffer = in.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, in.length());
+            return new IndexSegment(buffer);
+        }
+    }
+
+    /**
+     * @param offsets the log offsets of the records
+     * @param postings the numbers of the records of every term, ascending
+     */
+    static void write(File file, long logStart, long logEnd, List<Long> offsets, Map<String, List<Integer>> postings)
+            throws IOException {
+        Map<byte[], List<Integer>> terms = new TreeMap<>(BYTES_ORDER);
+        for (Map.Entry<String, List<Integer>> entry : postings.entrySet()) {
+            terms.put(entry.getKey().getBytes(UTF8), entry.getValue());
+        }
+        ByteArrayOutputStream termBytes = new ByteArrayOutputStream();
+        DataOutputStream termData = new DataOutputStream(termBytes);
+        List<Integer> termPositions = new ArrayList<>();
+        int termsStart = 32 + 8 * offsets.size() + 4 * terms.size();
+        for (Map.Entry<byte[], List<Integer>> entry : terms.entrySet()) {
+            termPositions.add(termsStart + termData.size());
+            termData.writeInt(entry.getKey().length);
+            termData.write(entry.getKey());
+            termData.writeInt(entry.getValue().size());
+            for (int record : entry.getValue()) {
+                termData.writeInt(record);
+            }
+        }
+
+        // written next to the segment and renamed, so that queries never map a partial segment
+        File tmp = File.createTempFile(file.getName(), ".tmp", file.getAbsoluteFile().getParentFile());
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(logStart);
+            out.writeLong(logEnd);
+            out.writeInt(offsets.size());
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            out.writeInt(termPositions.size());
+            for (int position : termPositions) {
+                out.writeInt(position);
+            }
+            termBytes.writeTo(out);
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Error writing index segment " + file);
+        }
+    }
+
+    long getLogStart() {
+        return this.logStart;
+    }
+
+    long getLogEnd() {
+        return this.logEnd;
+    }
+
+    int getRecordCount() {
+        return this.recordCount;
+    }
+
+    long getOffset(int record) {
+        return this.buffer.getLong(28 + 8 * record);
+    }
+
+    /**
+     * @return the ascending numbers of the records which have the term, empty if none has it
+     */
+    int[] getPostings(String term) {
+        byte[] key = term.getBytes(UTF8);
+        int low = 0;
+        int high = this.termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int position = this.buffer.getInt(this.termIndex + 4 * middle);
+            int length = this.buffer.getInt(position);
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; i++) {
+                bytes[i] = this.buffer.get(position + 4 + i);
+            }
+            int order = BYTES_ORDER.compare(bytes, key);
+            if (order < 0) {
+                low = middle + 1;
+            } else if (order > 0) {
+                high = middle - 1;
+            } else {
+                int postingsStart = position + 4 + length;
+                int[] records = new int[this.buffer.getInt(postingsStart)];
+                for (int i = 0; i < records.length; i++) {
+                    records[i] = this.buffer.getInt(postingsStart + 4 + 4 * i);
+                }
+                return records;
+            }
+        }
+        return new int[0];
+    }
+}
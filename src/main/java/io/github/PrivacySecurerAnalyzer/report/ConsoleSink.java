@@ -0,0 +1,35 @@
+package io.github.PrivacySecurerAnalyzer.report;
+
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+
+import java.io.PrintStream;
+
+/**
+ * Prints the text of the report to the console as the analysis goes, the descriptions are in the text already.
+ */
+public class ConsoleSink implements ReportSink {
+    private PrintStream out;
+
+    public ConsoleSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void begin(String input) {
+    }
+
+    @Override
+    public void text(String text) {
+        this.out.print(text);
+        this.out.flush();
+    }
+
+    @Override
+    public void event(EventSpec spec, String description) {
+    }
+
+    @Override
+    public void end() {
+        this.out.flush();
+    }
+}
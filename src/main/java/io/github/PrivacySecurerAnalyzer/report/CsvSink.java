@@ -0,0 +1,81 @@
+package io.github.PrivacySecurerAnalyzer.report;
+
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+import org.apache.commons.lang.StringUtils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes report.csv, one row per event with the fields of {@link EventSpec} and the description.
+ * Optimization constraints are joined with spaces.
+ */
+public class CsvSink implements ReportSink {
+    public static final String FILE_NAME = "report.csv";
+    static final List<String> COLUMNS = Arrays.asList("input", "hostMethod", "eventType", "functionName",
+            "fieldName", "comparator", "threshold", "latitude", "longitude", "radius", "placeName", "lists",
+            "caller", "path", "duration", "interval", "locationPrecision", "recurrence",
+            "optimizationConstraints", "description");
+
+    private File file;
+    private String input;
+    private Writer out;
+
+    public CsvSink(File outputDir) {
+        this.file = new File(outputDir, FILE_NAME);
+    }
+
+    @Override
+    public void begin(String input) throws IOException {
+        this.input = input;
+        this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.file), "UTF-8"));
+        this.writeRow(COLUMNS);
+    }
+
+    @Override
+    public void text(String text) {
+        // only the events are written
+    }
+
+    @Override
+    public void event(EventSpec spec, String description) throws IOException {
+        Map<String, Object> fields = spec.toMap();
+        fields.put("input", this.input);
+        fields.put("optimizationConstraints", StringUtils.join(spec.optimizationConstraints, ' '));
+        fields.put("description", description);
+        String[] row = new String[COLUMNS.size()];
+        for (int i = 0; i < row.length; i++) {
+            Object value = fields.get(COLUMNS.get(i));
+            row[i] = value == null ? "" : value.toString();
+        }
+        this.writeRow(Arrays.asList(row));
+    }
+
+    @Override
+    public void end() throws IOException {
+        this.out.close();
+    }
+
+    private void writeRow(List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0)
+                this.out.write(',');
+            this.out.write(quote(values.get(i)));
+        }
+        this.out.write("\r\n");
+    }
+
+    // RFC 4180: fields with separators, quotes or line breaks are quoted, quotes are doubled
+    static String quote(String value) {
+        if (!StringUtils.containsAny(value, ",\"\r\n"))
+            return value;
+        return "\"" + value.replace("\"", "\"\"") + "\"";
+    }
+}
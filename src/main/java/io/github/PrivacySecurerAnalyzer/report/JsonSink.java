@@ -0,0 +1,56 @@
+package io.github.PrivacySecurerAnalyzer.report;
+
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+import org.json.JSONObject;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Writes report.json: {"input": path, "events": [{...event fields, "description": sentence}]}.
+ * Every event is written as it is reported, one per line, so the report is never held in memory.
+ */
+public class JsonSink implements ReportSink {
+    public static final String FILE_NAME = "report.json";
+
+    private File file;
+    private Writer out;
+    private int eventCount;
+
+    public JsonSink(File outputDir) {
+        this.file = new File(outputDir, FILE_NAME);
+    }
+
+    @Override
+    public void begin(String input) throws IOException {
+        this.out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(this.file), "UTF-8"));
+        this.eventCount = 0;
+        this.out.write("{\"input\": " + JSONObject.quote(input) + ", \"events\": [");
+    }
+
+    @Override
+    public void text(String text) {
+        // only the events are written
+    }
+
+    @Override
+    public void event(EventSpec spec, String description) throws IOException {
+        JSONObject event = spec.toJson();
+        event.put("description", description);
+        this.out.write(this.eventCount++ == 0 ? "\n" : ",\n");
+        this.out.write(event.toString());
+    }
+
+    @Override
+    public void end() throws IOException {
+        try {
+            this.out.write(this.eventCount == 0 ? "]}\n" : "\n]}\n");
+        } finally {
+            this.out.close();
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package io.github.PrivacySecurerAnalyzer.report;
+
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+
+import java.io.IOException;
+
+/**
+ * A report of one app: its text, as it is printed, and its events.
+ */
+public interface ReportSink {
+    void begin(String input) throws IOException;
+
+    // text: the human-readable text of the analysis, which also has the privacy descriptions
+    void text(String text) throws IOException;
+
+    // description: the privacy description sentence of the event
+    void event(EventSpec spec, String description) throws IOException;
+
+    void end() throws IOException;
+}
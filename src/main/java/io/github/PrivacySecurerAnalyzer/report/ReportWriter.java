@@ -0,0 +1,208 @@
+package io.github.PrivacySecurerAnalyzer.report;
+
+import io.github.PrivacySecurerAnalyzer.core.DescriptionTemplates;
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+import io.github.PrivacySecurerAnalyzer.core.EventSpecListener;
+import io.github.PrivacySecurerAnalyzer.core.PrivacyDescriptionPrinter;
+import io.github.PrivacySecurerAnalyzer.utils.Util;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * The report of one app: the human-readable text of the analysis, printed to the console,
+ * and the events with their privacy descriptions, written to the structured sinks.
+ *
+ * The text is buffered and passed to the sinks, the console first, at every event and on {@link #flush()}.
+ * The report keeps all of its text and events only when asked to ({@link #keep(boolean, boolean)}),
+ * for the result cache and the event index, and the text of the method being analyzed
+ * for the class index ({@link #startRecording()}).
+ */
+public class ReportWriter implements EventSpecListener {
+    public static final String CONSOLE = "console";
+    public static final String JSON = "json";
+    public static final String CSV = "csv";
+    public static final List<String> FORMATS = Arrays.asList(CONSOLE, JSON, CSV);
+    public static final String DEFAULT_FORMATS = CONSOLE + "," + JSON;
+
+    // the text not passed to the sinks yet
+    private StringBuilder text = new StringBuilder();
+    // all the text passed to the sinks, null if not kept
+    private StringBuilder printed = null;
+    // the text recorded since the last takeRecordedText(), null if not recording
+    private StringBuilder recorded = null;
+    private List<ReportSink> sinks = new ArrayList<>();
+    // the events of this report, in order, null if not kept
+    private List<EventSpec> events = null;
+
+    /**
+     * Keep the text and/or the events of this report, for {@link #getText()} and {@link #getEvents()}.
+     */
+    public void keep(boolean text, boolean events) {
+        this.printed = text ? new StringBuilder() : null;
+        this.events = events ? new ArrayList<EventSpec>() : null;
+    }
+
+    /**
+     * Start the report of an input, with a sink for every format of formats.
+     * The console report is printed to the System.out of this moment.
+     */
+    public void open(String input, File outputDir, Collection<String> formats) {
+        if (!outputDir.exists() && !outputDir.mkdirs())
+            Util.LOGGER.warning("Error generating output directory " + outputDir);
+        if (formats.contains(CONSOLE))
+            this.sinks.add(new ConsoleSink(System.out));
+        if (formats.contains(JSON))
+            this.sinks.add(new JsonSink(outputDir));
+        if (formats.contains(CSV))
+            this.sinks.add(new CsvSink(outputDir));
+        for (ReportSink sink : new ArrayList<>(this.sinks)) {
+            try {
+                sink.begin(input);
+            } catch (IOException e) {
+                Util.logException(e);
+                this.sinks.remove(sink);
+            }
+        }
+    }
+
+    public void print(Object value) {
+        this.text.append(value);
+    }
+
+    public void println(Object value) {
+        this.text.append(value).append(System.lineSeparator());
+    }
+
+    public void println() {
+        this.text.append(System.lineSeparator());
+    }
+
+    public void printf(String format, Object... args) {
+        this.text.append(String.format(format, args));
+    }
+
+    /**
+     * Pass the buffered text to the sinks.
+     */
+    public void flush() {
+        this.flush(true);
+    }
+
+    private void flush(boolean record) {
+        if (this.text.length() == 0)
+            return;
+        String chunk = this.text.toString();
+        this.text.setLength(0);
+        if (this.printed != null)
+            this.printed.append(chunk);
+        if (record && this.recorded != null)
+            this.recorded.append(chunk);
+        for (ReportSink sink : new ArrayList<>(this.sinks)) {
+            try {
+                sink.text(chunk);
+            } catch (IOException e) {
+                Util.logException(e);
+                this.sinks.remove(sink);
+            }
+        }
+    }
+
+    /**
+     * @return all the text of this report so far
+     */
+    public String getText() {
+        if (this.printed == null)
+            throw new IllegalStateException("the text of the report is not kept");
+        this.flush();
+        return this.printed.toString();
+    }
+
+    /**
+     * Record the text printed from now on, but not the privacy descriptions:
+     * the events are reported again when a recorded result is reused.
+     */
+    public void startRecording() {
+        this.flush();
+        this.recorded = new StringBuilder();
+    }
+
+    /**
+     * @return the text recorded since recording started or the last call
+     */
+    public String takeRecordedText() {
+        this.flush();
+        String recordedText = this.recorded.toString();
+        this.recorded.setLength(0);
+        return recordedText;
+    }
+
+    public void stopRecording() {
+        this.flush();
+        this.recorded = null;
+    }
+
+    @Override
+    public void onEventSpec(EventSpec spec) {
+        this.flush();
+        this.println();
+        this.println("*** The privacy description ***");
+        // rendered straight into the buffered text
+        int start = this.text.length();
+        DescriptionTemplates.getDefault().render(spec, this.text);
+        String description = this.text.substring(start);
+        if (!description.isEmpty())
+            this.println();
+        this.flush(false);
+        this.write(spec, description);
+    }
+
+    /**
+     * Report the result of a previous analysis: its printed text, which already has the descriptions, and its events.
+     */
+    public void replay(String printed, List<EventSpec> events) {
+        this.print(printed);
+        this.flush();
+        for (EventSpec spec : events) {
+            this.write(spec, PrivacyDescriptionPrinter.describe(spec));
+        }
+    }
+
+    private void write(EventSpec spec, String description) {
+        if (this.events != null)
+            this.events.add(spec);
+        for (ReportSink sink : new ArrayList<>(this.sinks)) {
+            try {
+                sink.event(spec, description);
+            } catch (IOException e) {
+                Util.logException(e);
+                this.sinks.remove(sink);
+            }
+        }
+    }
+
+    public List<EventSpec> getEvents() {
+        if (this.events == null)
+            throw new IllegalStateException("the events of the report are not kept");
+        return this.events;
+    }
+
+    /**
+     * Pass the remaining text to the sinks and finish the reports.
+     */
+    public void close() {
+        this.flush();
+        for (ReportSink sink : this.sinks) {
+            try {
+                sink.end();
+            } catch (IOException e) {
+                Util.logException(e);
+            }
+        }
+        this.sinks.clear();
+    }
+}
@@ -0,0 +1,302 @@
+package io.github.PrivacySecurerAnalyzer.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.github.PrivacySecurerAnalyzer.Config;
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+import io.github.PrivacySecurerAnalyzer.core.EventSpecListener;
+import io.github.PrivacySecurerAnalyzer.core.Graph;
+import io.github.PrivacySecurerAnalyzer.frontends.DERGFrontend;
+import io.github.PrivacySecurerAnalyzer.frontends.soot.ApkAnalyzer;
+import io.github.PrivacySecurerAnalyzer.utils.Util;
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.TeeOutputStream;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Server mode: a resident JVM analyzing the apps submitted over HTTP on the loopback interface.
+ *
+ * POST /analyze {"apk": path, "output": dir (optional)} analyzes an app and answers with its events and descriptions,
+ * GET /status answers with the queue depth and the latency of the jobs.
+ * Soot keeps its state in global singletons, so jobs run one after another on a single analysis thread,
+ * and each job starts from a reset Soot like a corpus worker does. The app given with -i is analyzed at start-up
+ * to warm the JVM up.
+ */
+public class AnalysisServer {
+    // jobs waiting for the analysis thread, more are rejected
+    public static final int MAX_QUEUED_JOBS = 64;
+    // latencies kept for the percentiles of /status
+    private static final int LATENCY_WINDOW = 1000;
+
+    private int port;
+    private File outputDir;
+    private String[] args;
+
+    private LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<>(MAX_QUEUED_JOBS);
+    private ThreadPoolExecutor analysisThread = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, queue);
+    private AtomicInteger jobIds = new AtomicInteger();
+    private AtomicInteger completedJobs = new AtomicInteger();
+    private AtomicInteger failedJobs = new AtomicInteger();
+    private AtomicInteger rejectedJobs = new AtomicInteger();
+    private volatile boolean running = false;
+    private volatile boolean warmedUp = false;
+    private long startMillis;
+    // latency of the last jobs, from submission to answer
+    private ArrayDeque<Long> latencies = new ArrayDeque<>();
+    private long totalQueueMillis = 0;
+
+    public AnalysisServer(int port, String outputDir, String[] args) {
+        this.port = port;
+        this.outputDir = new File(outputDir);
+        this.args = args;
+    }
+
+    public void run() {
+        this.startMillis = System.currentTimeMillis();
+        HttpServer server;
+        try {
+            // only local clients, jobs read and write any path
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), this.port), 0);
+        } catch (IOException e) {
+            Util.LOGGER.warning("failed to listen on port " + this.port);
+            Util.logException(e);
+            return;
+        }
+        server.createContext("/analyze", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleAnalyze(exchange);
+            }
+        });
+        server.createContext("/status", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                handleStatus(exchange);
+            }
+        });
+        // requests wait for their jobs on their own threads
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        Util.LOGGER.info("analysis server listening on port " + server.getAddress().getPort());
+
+        final String warmUpApk = Config.inputDirOrFile;
+        this.analysisThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                Util.LOGGER.info("warming up with " + warmUpApk);
+                analyze(warmUpApk, new File(outputDir, "warmup"));
+                warmedUp = true;
+            }
+        });
+    }
+
+    private void handleAnalyze(HttpExchange exchange) throws IOException {
+        if (!"POST".equals(exchange.getRequestMethod())) {
+            this.respond(exchange, 405, error("use POST"));
+            return;
+        }
+        final String apkPath;
+        final File jobDir;
+        try {
+            JSONObject request = new JSONObject(IOUtils.toString(exchange.getRequestBody(), "UTF-8"));
+            apkPath = request.getString("apk");
+            int jobId = this.jobIds.incrementAndGet();
+            jobDir = request.has("output") ? new File(request.getString("output"))
+                    : new File(new File(this.outputDir, "jobs"), String.valueOf(jobId));
+        } catch (JSONException e) {
+            this.respond(exchange, 400, error("expected {\"apk\": path}: " + e.getMessage()));
+            return;
+        }
+        if (!new File(apkPath).isFile()) {
+            this.respond(exchange, 400, error("no such file: " + apkPath));
+            return;
+        }
+
+        final long submitMillis = System.currentTimeMillis();
+        Future<JSONObject> job;
+        try {
+            job = this.analysisThread.submit(new Callable<JSONObject>() {
+                @Override
+                public JSONObject call() {
+                    long queueMillis = System.currentTimeMillis() - submitMillis;
+                    JSONObject result = analyze(apkPath, jobDir);
+                    result.put("queueMillis", queueMillis);
+                    synchronized (AnalysisServer.this) {
+                        totalQueueMillis += queueMillis;
+                    }
+                    return result;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            this.rejectedJobs.incrementAndGet();
+            this.respond(exchange, 503, error("too many queued jobs"));
+            return;
+        }
+        JSONObject result;
+        try {
+            result = job.get();
+        } catch (InterruptedException | ExecutionException e) {
+            Util.logException(e);
+            this.respond(exchange, 500, error(String.valueOf(e.getMessage())));
+            return;
+        }
+        this.addLatency(System.currentTimeMillis() - submitMillis);
+        this.respond(exchange, 200, result);
+    }
+
+    private void handleStatus(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            this.respond(exchange, 405, error("use GET"));
+            return;
+        }
+        this.respond(exchange, 200, this.getStatus());
+    }
+
+    public JSONObject getStatus() {
+        JSONObject status = new JSONObject();
+        status.put("uptimeMillis", System.currentTimeMillis() - this.startMillis);
+        status.put("warmedUp", this.warmedUp);
+        status.put("running", this.running);
+        status.put("queueDepth", this.queue.size());
+        status.put("completedJobs", this.completedJobs.get());
+        status.put("failedJobs", this.failedJobs.get());
+        status.put("rejectedJobs", this.rejectedJobs.get());
+
+        List<Long> sorted;
+        long queueMillis;
+        synchronized (this) {
+            sorted = new ArrayList<>(this.latencies);
+            queueMillis = this.totalQueueMillis;
+        }
+        Collections.sort(sorted);
+        JSONObject latency = new JSONObject();
+        if (!sorted.isEmpty()) {
+            long total = 0;
+            for (long millis : sorted) {
+                total += millis;
+            }
+            latency.put("meanMillis", total / sorted.size());
+            latency.put("p50Millis", percentile(sorted, 50));
+            latency.put("p95Millis", percentile(sorted, 95));
+            latency.put("maxMillis", sorted.get(sorted.size() - 1));
+        }
+        int jobs = this.completedJobs.get() + this.failedJobs.get();
+        if (jobs > 0)
+            latency.put("meanQueueMillis", queueMillis / jobs);
+        status.put("latency", latency);
+        return status;
+    }
+
+    static long percentile(List<Long> sorted, int percent) {
+        int index = (int) Math.ceil(percent / 100.0 * sorted.size()) - 1;
+        return sorted.get(Math.max(0, Math.min(index, sorted.size() - 1)));
+    }
+
+    private synchronized void addLatency(long millis) {
+        this.latencies.addLast(millis);
+        if (this.latencies.size() > LATENCY_WINDOW)
+            this.latencies.removeFirst();
+    }
+
+    // Analyze one app on the analysis thread, the printed descriptions are also written to console.txt
+    JSONObject analyze(String apkPath, File jobDir) {
+        this.running = true;
+        long startMillis = System.currentTimeMillis();
+        JSONObject result = new JSONObject();
+        result.put("apk", apkPath);
+        result.put("output", jobDir.getPath());
+        final JSONArray events = new JSONArray();
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        boolean succeeded = false;
+        try (OutputStream console = new FileOutputStream(mkdirs(jobDir, "console.txt"))) {
+            System.setOut(new PrintStream(new TeeOutputStream(console, printed), true, "UTF-8"));
+
+            Config.inputDirOrFile = apkPath;
+            Config.outputDir = jobDir.getPath();
+            // Re-registering gives a frontend without state left over from the previous job
+            DERGFrontend.registerFrontends();
+            DERGFrontend frontend = DERGFrontend.getBuilder(Config.frontendType);
+            frontend.reset();
+            frontend.parseArgs(this.args);
+            if (frontend instanceof ApkAnalyzer) {
+                ((ApkAnalyzer) frontend).addEventSpecListener(new EventSpecListener() {
+                    @Override
+                    public void onEventSpec(EventSpec eventSpec) {
+                        events.put(eventSpec.toJson());
+                    }
+                });
+            }
+            Graph g = frontend.build();
+            if (g != null)
+                Config.dergBackend.run(g);
+            System.out.flush();
+            succeeded = true;
+        } catch (Exception e) {
+            Util.LOGGER.warning("failed analyzing " + apkPath);
+            Util.logException(e);
+            result.put("error", String.valueOf(e.getMessage()));
+        } finally {
+            System.setOut(stdout);
+            this.running = false;
+        }
+        (succeeded ? this.completedJobs : this.failedJobs).incrementAndGet();
+        result.put("status", succeeded ? "OK" : "FAIL");
+        result.put("millis", System.currentTimeMillis() - startMillis);
+        // events replayed from the result cache are passed to the listeners too
+        result.put("events", events);
+        try {
+            result.put("descriptions", printed.toString("UTF-8"));
+        } catch (IOException e) {
+            Util.logException(e);
+        }
+        return result;
+    }
+
+    private static File mkdirs(File dir, String fileName) throws IOException {
+        if (!dir.exists() && !dir.mkdirs()) {
+            throw new IOException("Error generating output directory " + dir);
+        }
+        return new File(dir, fileName);
+    }
+
+    private static JSONObject error(String message) {
+        JSONObject error = new JSONObject();
+        error.put("error", message);
+        return error;
+    }
+
+    private void respond(HttpExchange exchange, int code, JSONObject body) throws IOException {
+        byte[] bytes = body.toString(2).getBytes("UTF-8");
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package io.github.PrivacySecurerAnalyzer.utils;
+
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Wall time, CPU time and allocated bytes of the analysis phases, and counters such as the number of classes.
+ *
+ * A phase is measured with start(phase) ... stop() around it, on the thread running it.
+ * Work done for a phase by other threads (e.g. ForkJoin tasks) is added with startWorker(phase),
+ * which records CPU time and allocations only. A phase started while another one is running on the same thread
+ * is nested in it: its times are subtracted from the enclosing phase, so the times of the phases don't overlap.
+ * The peak heap usage is the sum of the peaks of the heap pools since resetPeakHeap().
+ */
+public class Metrics {
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    private final long startTime = System.nanoTime();
+    private final HashMap<String, Phase> phases = new HashMap<>();
+    private final HashMap<String, Long> counters = new HashMap<>();
+    private final HashMap<String, Object> info = new HashMap<>();
+    // the timers running on every thread, the innermost last
+    private final ThreadLocal<ArrayDeque<Timer>> running = new ThreadLocal<ArrayDeque<Timer>>() {
+        @Override
+        protected ArrayDeque<Timer> initialValue() {
+            return new ArrayDeque<>();
+        }
+    };
+
+    private static class Phase {
+        long calls;
+        long wallNanos;
+        long cpuNanos;
+        long allocatedBytes;
+
+        Map<String, Object> toMap() {
+            HashMap<String, Object> phaseMap = new HashMap<>();
+            phaseMap.put("calls", calls);
+            phaseMap.put("wallMillis", wallNanos / 1e6);
+            phaseMap.put("cpuMillis", cpuNanos / 1e6);
+            phaseMap.put("allocatedBytes", allocatedBytes);
+            return phaseMap;
+        }
+    }
+
+    public class Timer {
+        private final String phase;
+        private final boolean worker;
+        private final long wallStart;
+        private final long cpuStart;
+        private final long allocatedStart;
+        // times of the phases nested in this one
+        private long nestedWall;
+        private long nestedCpu;
+        private long nestedAllocated;
+
+        private Timer(String phase, boolean worker) {
+            this.phase = phase;
+            this.worker = worker;
+            this.wallStart = System.nanoTime();
+            this.cpuStart = getThreadCpuTime();
+            this.allocatedStart = getThreadAllocatedBytes();
+            running.get().addLast(this);
+        }
+
+        public void stop() {
+            long wall = System.nanoTime() - this.wallStart;
+            long cpu = getThreadCpuTime() - this.cpuStart;
+            long allocated = getThreadAllocatedBytes() - this.allocatedStart;
+            ArrayDeque<Timer> timers = running.get();
+            timers.removeLastOccurrence(this);
+            Timer enclosing = timers.peekLast();
+            if (enclosing != null) {
+                // the wall time of a worker is not recorded, it stays in the enclosing phase
+                if (!this.worker)
+                    enclosing.nestedWall += wall;
+                enclosing.nestedCpu += cpu;
+                enclosing.nestedAllocated += allocated;
+            }
+            synchronized (Metrics.this) {
+                Phase p = getPhase(this.phase);
+                if (!this.worker) {
+                    p.calls++;
+                    p.wallNanos += wall - this.nestedWall;
+                }
+                p.cpuNanos += cpu - this.nestedCpu;
+                p.allocatedBytes += allocated - this.nestedAllocated;
+            }
+        }
+    }
+
+    public Timer start(String phase) {
+        return new Timer(phase, false);
+    }
+
+    public Timer startWorker(String phase) {
+        return new Timer(phase, true);
+    }
+
+    public synchronized void count(String counter, long delta) {
+        Long value = this.counters.get(counter);
+        this.counters.put(counter, value == null ? delta : value + delta);
+    }
+
+    // facts about the run, such as the input file
+    public synchronized void put(String key, Object value) {
+        this.info.put(key, value);
+    }
+
+    private Phase getPhase(String phase) {
+        Phase p = this.phases.get(phase);
+        if (p == null) {
+            p = new Phase();
+            this.phases.put(phase, p);
+        }
+        return p;
+    }
+
+    public static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid())
+                pool.resetPeakUsage();
+        }
+    }
+
+    public static long getPeakHeapBytes() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.isValid())
+                peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    private static long getThreadCpuTime() {
+        return THREADS.isCurrentThreadCpuTimeSupported() ? THREADS.getCurrentThreadCpuTime() : 0;
+    }
+
+    // only HotSpot's ThreadMXBean reports allocations
+    private static long getThreadAllocatedBytes() {
+        if (THREADS instanceof com.sun.management.ThreadMXBean) {
+            long allocated = ((com.sun.management.ThreadMXBean) THREADS).getThreadAllocatedBytes(Thread.currentThread().getId());
+            return Math.max(allocated, 0);
+        }
+        return 0;
+    }
+
+    public synchronized Map<String, Object> toMap() {
+        HashMap<String, Object> metricsMap = new HashMap<>(this.info);
+        HashMap<String, Object> phasesMap = new HashMap<>();
+        for (Map.Entry<String, Phase> entry : this.phases.entrySet()) {
+            phasesMap.put(entry.getKey(), entry.getValue().toMap());
+        }
+        metricsMap.put("totalWallMillis", (System.nanoTime() - this.startTime) / 1e6);
+        metricsMap.put("peakHeapBytes", getPeakHeapBytes());
+        metricsMap.put("phases", phasesMap);
+        metricsMap.put("counters", new HashMap<>(this.counters));
+        return metricsMap;
+    }
+
+    public JSONObject toJson() {
+        return new JSONObject(this.toMap());
+    }
+
+    public void write(File file) {
+        try {
+            FileUtils.writeStringToFile(file, this.toJson().toString(2), "UTF-8");
+        } catch (IOException e) {
+            Util.logException(e);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.PrivacySecurerAnalyzer.utils;
+
+import io.github.PrivacySecurerAnalyzer.Config;
+import io.github.PrivacySecurerAnalyzer.Const;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.io.FileUtils;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Persistent on-disk cache of analysis results.
+ * Entries are keyed by the SHA-256 of the input file, the analyzer version, the {@link Const} spec
+ * and the analysis options, so a result is reused only for the very same binary analyzed by the very same analyzer.
+ * The analyzer version includes a hash of the classes and resources of the analyzer, so it changes with every build
+ * of changed code, not only with {@link Config#VERSION}.
+ */
+public class ResultCache {
+    private static String analyzerHash = null;
+
+    private File cacheDir;
+
+    public ResultCache(String cacheDir) {
+        this.cacheDir = new File(cacheDir);
+    }
+
+    public static String getKey(File input) throws IOException {
+        return getKey(input, "");
+    }
+
+    // analysisOptions: the options which change the results, such as the interprocedural call depth
+    public static String getKey(File input, String analysisOptions) throws IOException {
+        String inputHash;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(input))) {
+            inputHash = DigestUtils.sha256Hex(in);
+        }
+        if (analysisOptions.isEmpty())
+            return DigestUtils.sha256Hex(String.format("%s|%s|%s", inputHash, getAnalyzerVersion(), getSpecHash()));
+        return DigestUtils.sha256Hex(String.format("%s|%s|%s|%s", inputHash, getAnalyzerVersion(), getSpecHash(), analysisOptions));
+    }
+
+    // the version of the analyzer and the hash of its build, such as 0.0.1-SNAPSHOT+3f2a...
+    public static synchronized String getAnalyzerVersion() {
+        if (analyzerHash == null) {
+            try {
+                analyzerHash = getAnalyzerHash(new File(Config.class.getProtectionDomain().getCodeSource().getLocation().toURI()));
+            } catch (IOException | URISyntaxException | RuntimeException e) {
+                Util.logException(e);
+                analyzerHash = "unknown";
+            }
+        }
+        return Config.VERSION + "+" + analyzerHash;
+    }
+
+    // hash of the files of the analyzer package in a jar (from the CRCs of its central directory) or a classes dir
+    static String getAnalyzerHash(File location) throws IOException {
+        String packagePath = Config.class.getPackage().getName().replace('.', '/') + "/";
+        List<String> files = new ArrayList<>();
+        if (location.isDirectory()) {
+            File packageDir = new File(location, packagePath);
+            for (File file : FileUtils.listFiles(packageDir, null, true)) {
+                String name = packageDir.toURI().relativize(file.toURI()).getPath();
+                files.add(name + "=" + DigestUtils.sha256Hex(FileUtils.readFileToByteArray(file)));
+            }
+        } else {
+            try (ZipFile jar = new ZipFile(location)) {
+                Enumeration<? extends ZipEntry> entries = jar.entries();
+                while (entries.hasMoreElements()) {
+                    ZipEntry entry = entries.nextElement();
+                    if (!entry.isDirectory() && entry.getName().startsWith(packagePath))
+                        files.add(entry.getName().substring(packagePath.length()) + "=" + entry.getCrc());
+                }
+            }
+        }
+        Collections.sort(files);
+        return DigestUtils.sha256Hex(files.toString());
+    }
+
+    // hash of all the API signatures in Const, which decide what the analysis looks for
+    public static String getSpecHash() {
+        List<String> spec = new ArrayList<>();
+        for (Field field : Const.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) || field.getType() != String.class)
+                continue;
+            try {
+                spec.add(field.getName() + "=" + field.get(null));
+            } catch (IllegalAccessException e) {
+                Util.logException(e);
+            }
+        }
+        Collections.sort(spec);
+        return DigestUtils.sha256Hex(spec.toString());
+    }
+
+    private File getEntryFile(String key) {
+        // two-level layout keeps directories small for large corpora
+        return new File(new File(this.cacheDir, key.substring(0, 2)), key);
+    }
+
+    public String get(String key) {
+        File entry = this.getEntryFile(key);
+        if (!entry.isFile())
+            return null;
+        try {
+            return FileUtils.readFileToString(entry, "UTF-8");
+        } catch (IOException e) {
+            Util.logException(e);
+            return null;
+        }
+    }
+
+    public void put(String key, String result) {
+        File entry = this.getEntryFile(key);
+        File tmp = null;
+        try {
+            FileUtils.forceMkdir(entry.getParentFile());
+            tmp = File.createTempFile(key, ".tmp", entry.getParentFile());
+            FileUtils.writeStringToFile(tmp, result, "UTF-8");
+            // concurrent writers of the same key produce the same content, the last rename wins
+            if (!tmp.renameTo(entry)) {
+                FileUtils.deleteQuietly(entry);
+                if (!tmp.renameTo(entry))
+                    throw new IOException("Error moving cache entry to " + entry);
+            }
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(tmp);
+            Util.logException(e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package io.github.PrivacySecurerAnalyzer.backends.graph_export;
+
+import java.io.File;
+import java.io.IOException;
+
+import io.github.PrivacySecurerAnalyzer.core.Edge;
+import io.github.PrivacySecurerAnalyzer.core.Graph;
+import io.github.PrivacySecurerAnalyzer.core.Node;
+import junit.framework.TestCase;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * The streamed JSON and NDJSON exports should read back as Graph.toJson().
+ */
+public class GraphExporterTest extends TestCase {
+    private File file;
+
+    @Override
+    protected void setUp() throws IOException {
+        file = File.createTempFile("derg", ".json");
+    }
+
+    @Override
+    protected void tearDown() {
+        file.delete();
+    }
+
+    private Graph makeGraph() {
+        Graph g = new Graph();
+        Node a = g.getNodeOrCreate("a", "onCreate", Node.TYPE_METHOD);
+        a.sig = "<com.example.A: void onCreate()>";
+        Node b = g.getNodeOrCreate("b", "<java.util.List: boolean add(java.lang.Object)>-----\"café\"\n", Node.TYPE_API);
+        Node c = g.getNodeOrCreate("c", "c\\d", Node.TYPE_API);
+        c.sig = null;
+        g.createEdge(b, c, Edge.TYPE_REFER);
+        g.createEdge(a, c, Edge.TYPE_REFER);
+        g.createEdge(a, b, Edge.TYPE_CONTAINS);
+        g.sortGraph();
+        return g;
+    }
+
+    private String export(Graph g, String format) throws IOException, ParseException {
+        GraphExporter exporter = new GraphExporter();
+        exporter.parseArgs(new String[]{"-format", format});
+        exporter.export(g, file);
+        return FileUtils.readFileToString(file, "UTF-8");
+    }
+
+    // the nodes and edges of the lines, in the same order, without their kind
+    private static JSONObject readNdjson(String text) {
+        JSONArray nodes = new JSONArray();
+        JSONArray edges = new JSONArray();
+        for (String line : text.split("\n")) {
+            if (line.isEmpty())
+                continue;
+            JSONObject object = new JSONObject(line);
+            String kind = (String) object.remove("kind");
+            if (kind.equals("node")) {
+                assertEquals("nodes come first", 0, edges.length());
+                nodes.put(object);
+            } else {
+                assertEquals("edge", kind);
+                edges.put(object);
+            }
+        }
+        return new JSONObject().put("nodes", nodes).put("edges", edges);
+    }
+
+    // org.json objects have no equals(), and the order of their keys is not kept
+    private static void assertSameJson(Object expected, Object actual) {
+        if (expected instanceof JSONObject) {
+            assertTrue(actual instanceof JSONObject);
+            JSONObject expectedObject = (JSONObject) expected;
+            JSONObject actualObject = (JSONObject) actual;
+            assertEquals(expectedObject.length(), actualObject.length());
+            for (String key : JSONObject.getNames(expectedObject)) {
+                assertTrue(key, actualObject.has(key));
+                assertSameJson(expectedObject.get(key), actualObject.get(key));
+            }
+        } else if (expected instanceof JSONArray) {
+            assertTrue(actual instanceof JSONArray);
+            assertEquals(((JSONArray) expected).length(), ((JSONArray) actual).length());
+            for (int i = 0; i < ((JSONArray) expected).length(); i++) {
+                assertSameJson(((JSONArray) expected).get(i), ((JSONArray) actual).get(i));
+            }
+        } else {
+            assertEquals(expected, actual);
+        }
+    }
+
+    public void testJsonRoundTrip() throws IOException, ParseException {
+        Graph g = makeGraph();
+        assertSameJson(g.toJson(), new JSONObject(export(g, GraphExporter.FORMAT_JSON)));
+        assertSameJson(new Graph().toJson(), new JSONObject(export(new Graph(), GraphExporter.FORMAT_JSON)));
+    }
+
+    public void testNdjsonRoundTrip() throws IOException, ParseException {
+        Graph g = makeGraph();
+        String text = export(g, GraphExporter.FORMAT_NDJSON);
+        assertEquals(g.nodes.size() + g.getEdgeCount(), text.split("\n").length);
+        assertTrue(text.endsWith("}\n"));
+        assertSameJson(g.toJson(), readNdjson(text));
+
+        assertEquals("", export(new Graph(), GraphExporter.FORMAT_NDJSON));
+    }
+}
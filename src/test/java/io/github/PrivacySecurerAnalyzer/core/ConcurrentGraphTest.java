@@ -0,0 +1,69 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the graph filled from several threads.
+ */
+public class ConcurrentGraphTest extends TestCase {
+
+    // what a task adds for a method: the method, the root, and the APIs it calls
+    private static void fill(Graph g, int method) {
+        Node v_method = g.getNodeOrCreate("method" + method, "method" + method, Node.TYPE_METHOD);
+        g.createEdge(g.genDefaultRoot(), v_method, Edge.TYPE_CONTAINS);
+        for (int api = method; api < method + 3; api++) {
+            Node v_api = g.getNodeOrCreate("api" + api, "api" + api + "-called-by-" + method, Node.TYPE_API);
+            g.createEdge(v_method, v_api, Edge.TYPE_REFER);
+        }
+    }
+
+    public void testSealMatchesSequentialBuild() throws InterruptedException {
+        Graph sequential = new Graph();
+        for (int method = 0; method < 8; method++) {
+            fill(sequential, method);
+        }
+        sequential.sortGraph();
+
+        final ConcurrentGraph g = new ConcurrentGraph();
+        final List<Graph> parts = new ArrayList<>();
+        for (int method = 0; method < 8; method++) {
+            parts.add(g.newPart());
+        }
+        // the parts are filled in reverse order, from several threads
+        List<Thread> threads = new ArrayList<>();
+        for (int method = 7; method >= 0; method--) {
+            final int m = method;
+            Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    fill(parts.get(m), m);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        g.seal();
+        g.sortGraph();
+
+        assertEquals(sequential.nodes.size(), g.nodes.size());
+        for (int i = 0; i < g.nodes.size(); i++) {
+            assertEquals(i, g.nodes.get(i).id);
+            assertEquals(sequential.nodes.get(i).name, g.nodes.get(i).name);
+        }
+        assertEquals(sequential.getEdgeCount(), g.getEdgeCount());
+        for (int i = 0; i < g.getEdgeCount(); i++) {
+            assertEquals(sequential.getEdges().get(i).toString(), g.getEdges().get(i).toString());
+        }
+        assertEquals("DERG_ROOT", g.v_root.name);
+        // the objects of the nodes are dropped
+        assertTrue(g.isSealed());
+        assertNull(g.getNodeByObject("method0"));
+        assertNull(g.nodes.get(0).content);
+    }
+}
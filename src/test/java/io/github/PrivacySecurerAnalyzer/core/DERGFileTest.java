@@ -0,0 +1,92 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the binary DERG format.
+ */
+public class DERGFileTest extends TestCase {
+    private File file;
+
+    @Override
+    protected void setUp() throws IOException {
+        file = File.createTempFile("derg", ".bin");
+    }
+
+    @Override
+    protected void tearDown() {
+        file.delete();
+    }
+
+    private Graph makeGraph() {
+        Graph g = new Graph();
+        Node a = g.getNodeOrCreate("a", "onCreate", Node.TYPE_METHOD);
+        a.sig = "<com.example.A: void onCreate()>";
+        Node b = g.getNodeOrCreate("b", "caf\u00e9", Node.TYPE_API);
+        Node c = g.getNodeOrCreate("c", "c", Node.TYPE_API);
+        c.sig = null;
+        g.createEdge(b, c, Edge.TYPE_REFER);
+        g.createEdge(a, c, Edge.TYPE_REFER);
+        g.createEdge(a, b, Edge.TYPE_CONTAINS);
+        g.sortGraph();
+        return g;
+    }
+
+    private void assertSameGraph(Graph g, DERGFile derg) {
+        assertEquals(g.nodes.size(), derg.getNodeCount());
+        for (int i = 0; i < g.nodes.size(); i++) {
+            Node node = g.nodes.get(i);
+            assertEquals(node.id, derg.getNodeId(i));
+            assertEquals(node.name, derg.getNodeName(i));
+            assertEquals(node.type, derg.getNodeType(i));
+            assertEquals(node.sig, derg.getNodeSig(i));
+        }
+        assertEquals(g.getEdgeCount(), derg.getEdgeCount());
+        for (int i = 0; i < g.getEdgeCount(); i++) {
+            Edge edge = g.getEdges().get(i);
+            assertSame(edge.source, g.nodes.get(derg.getEdgeSource(i)));
+            assertSame(edge.target, g.nodes.get(derg.getEdgeTarget(i)));
+            assertEquals(edge.type, derg.getEdgeType(i));
+        }
+    }
+
+    public void testRoundTrip() throws IOException {
+        Graph g = makeGraph();
+        DERGFileWriter.write(g, file);
+        try (DERGFile derg = DERGFile.open(file)) {
+            assertEquals(1, derg.getVersion());
+            assertTrue(derg.isEdgesSorted());
+            assertSameGraph(g, derg);
+
+            int[] range = derg.getOutEdgeRange(0);
+            assertEquals(2, range[1] - range[0]);
+            range = derg.getOutEdgeRange(2);
+            assertEquals(range[0], range[1]);
+        }
+    }
+
+    public void testValuesAcrossChunks() throws IOException {
+        Graph g = makeGraph();
+        DERGFileWriter.write(g, file);
+        // 8-byte chunks, so that strings, ints and longs are split between chunks
+        try (DERGFile derg = new DERGFile(file, 3)) {
+            assertSameGraph(g, derg);
+        }
+    }
+
+    public void testRejectsOtherFiles() throws IOException {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[DERGFile.HEADER_SIZE]);
+        }
+        try {
+            DERGFile.open(file).close();
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("Not a DERG file"));
+        }
+    }
+}
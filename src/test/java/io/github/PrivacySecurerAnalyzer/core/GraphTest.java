@@ -0,0 +1,172 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the packed edge storage of Graph.
+ */
+public class GraphTest extends TestCase {
+
+    public void testGetNodeOrCreateReusesNodes() {
+        Graph g = new Graph();
+        Node a = g.getNodeOrCreate("a", "a", Node.TYPE_METHOD);
+        assertSame(a, g.getNodeOrCreate("a", "other name", Node.TYPE_METHOD));
+        assertEquals(1, g.nodes.size());
+    }
+
+    public void testNodeIdsArePerGraph() {
+        Graph g1 = new Graph();
+        Graph g2 = new Graph();
+        Node a = g1.getNodeOrCreate("a", "a", Node.TYPE_METHOD);
+        Node b = g2.getNodeOrCreate("b", "b", Node.TYPE_METHOD);
+        Node c = g2.getNodeOrCreate("c", "c", Node.TYPE_METHOD);
+        assertEquals(0, a.id);
+        assertEquals(0, b.id);
+        assertEquals(1, c.id);
+        assertSame(c, g2.getNodeById(1));
+
+        // filtered graphs keep the ids
+        g2.createEdge(b, c, Edge.TYPE_REFER);
+        Graph filtered = g2.removeEdgesOfType(Edge.TYPE_REFER).removeNodesOfType("none");
+        assertSame(c, filtered.getNodeById(1));
+        assertEquals(2, filtered.getNodeOrCreate("d", "d", Node.TYPE_METHOD).id);
+    }
+
+    public void testSeal() {
+        Graph g = new Graph();
+        Node a = g.getNodeOrCreate("a", "a", Node.TYPE_METHOD);
+        Node b = g.getNodeOrCreate("b", "b", Node.TYPE_API);
+        g.createEdge(a, b, Edge.TYPE_REFER);
+        g.seal();
+        assertNull(a.content);
+        assertNull(g.getNodeByObject("a"));
+        assertEquals(1, g.getEdgeCount());
+        assertSame(b, g.getEdges().get(0).target);
+        try {
+            g.getNodeOrCreate("c", "c", Node.TYPE_METHOD);
+            fail();
+        } catch (IllegalStateException e) {
+            // sealed
+        }
+    }
+
+    public void testNamesAreInterned() {
+        Graph g = new Graph();
+        Node a = g.getNodeOrCreate("a", new String("name"), Node.TYPE_METHOD);
+        Node b = g.getNodeOrCreate("b", new String("name"), Node.TYPE_METHOD);
+        assertSame(a.name, b.name);
+        assertSame(a.name, g.intern(new String("name")));
+    }
+
+    public void testCreateEdgeRejectsSelfLoops() {
+        Graph g = new Graph();
+        Node a = g.getNodeOrCreate("a", "a", Node.TYPE_METHOD);
+        assertNull(g.createEdge(a, a, Edge.TYPE_REFER));
+        assertEquals(0, g.getEdgeCount());
+    }
+
+    public void testSortGraphSortsAndRemovesDuplicates() {
+        Graph g = new Graph();
+        Node a = g.getNodeOrCreate("a", "a", Node.TYPE_METHOD);
+        Node b = g.getNodeOrCreate("b", "b", Node.TYPE_API);
+        Node c = g.getNodeOrCreate("c", "c", Node.TYPE_API);
+        g.createEdge(b, c, Edge.TYPE_REFER);
+        g.createEdge(a, c, Edge.TYPE_REFER);
+        g.createEdge(a, b, Edge.TYPE_REFER);
+        g.createEdge(a, b, Edge.TYPE_CONTAINS);
+        g.createEdge(a, b, Edge.TYPE_REFER);
+
+        g.sortGraph();
+
+        List<Edge> edges = g.getEdges();
+        assertEquals(4, edges.size());
+        assertEquals(Edge.make(a, b, Edge.TYPE_REFER), edges.get(0));
+        assertEquals(Edge.make(a, b, Edge.TYPE_CONTAINS), edges.get(1));
+        assertEquals(Edge.make(a, c, Edge.TYPE_REFER), edges.get(2));
+        assertEquals(Edge.make(b, c, Edge.TYPE_REFER), edges.get(3));
+    }
+
+    // the edges whose keys don't fit in a long are sorted by the same key
+    public void testUnpackedSortMatchesPackedSort() {
+        Random random = new Random(42);
+        int nodeCount = 50;
+        int[] typeRanks = {2, 0, 3, 1};
+        EdgeList packed = new EdgeList();
+        EdgeList unpacked = new EdgeList();
+        for (int i = 0; i < 500; i++) {
+            int source = random.nextInt(nodeCount);
+            int target = random.nextInt(nodeCount);
+            int type = random.nextInt(typeRanks.length);
+            packed.add(source, target, type);
+            unpacked.add(source, target, type);
+        }
+        packed.sortAndDedupe(nodeCount, typeRanks);
+        unpacked.sortAndDedupeUnpacked(typeRanks);
+        assertEquals(packed.size, unpacked.size);
+        assertTrue(Arrays.equals(Arrays.copyOf(packed.sources, packed.size), Arrays.copyOf(unpacked.sources, unpacked.size)));
+        assertTrue(Arrays.equals(Arrays.copyOf(packed.targets, packed.size), Arrays.copyOf(unpacked.targets, unpacked.size)));
+        assertTrue(Arrays.equals(Arrays.copyOf(packed.types, packed.size), Arrays.copyOf(unpacked.types, unpacked.size)));
+    }
+
+    public void testSortGraphOrdersTypesCaseInsensitively() {
+        Graph g = new Graph();
+        Node a = g.getNodeOrCreate("a", "a", Node.TYPE_METHOD);
+        Node b = g.getNodeOrCreate("b", "b", Node.TYPE_API);
+        g.createEdge(a, b, "refer");
+        g.createEdge(a, b, "Refer");
+        g.createEdge(a, b, "CONTAINS");
+        g.sortGraph();
+        List<Edge> edges = g.getEdges();
+        assertEquals("CONTAINS", edges.get(0).type);
+        assertEquals("Refer", edges.get(1).type);
+        assertEquals("refer", edges.get(2).type);
+    }
+
+    public void testAddEdgeRejectsForeignNodes() {
+        Graph g = new Graph();
+        Node a = g.getNodeOrCreate("a", "a", Node.TYPE_METHOD);
+        Node b = new Graph().getNodeOrCreate("b", "b", Node.TYPE_API);
+        try {
+            g.createEdge(a, b, Edge.TYPE_REFER);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(1, g.nodes.size());
+        assertEquals(0, g.getEdgeCount());
+    }
+
+    public void testOutgoingEdges() {
+        Graph g = new Graph();
+        Node a = g.getNodeOrCreate("a", "a", Node.TYPE_METHOD);
+        Node b = g.getNodeOrCreate("b", "b", Node.TYPE_API);
+        Node c = g.getNodeOrCreate("c", "c", Node.TYPE_API);
+        g.createEdge(a, b, Edge.TYPE_REFER);
+        g.createEdge(b, c, Edge.TYPE_REFER);
+        g.createEdge(a, c, Edge.TYPE_REFER);
+
+        List<Edge> outgoing = g.getOutgoingEdges(a);
+        assertEquals(2, outgoing.size());
+        assertSame(b, outgoing.get(0).target);
+        assertSame(c, outgoing.get(1).target);
+        assertTrue(g.getOutgoingEdges(c).isEmpty());
+    }
+
+    public void testRemoveNodesOfType() {
+        Graph g = new Graph();
+        Node a = g.getNodeOrCreate("a", "a", Node.TYPE_METHOD);
+        Node b = g.getNodeOrCreate("b", "b", Node.TYPE_API);
+        Node c = g.getNodeOrCreate("c", "c", Node.TYPE_METHOD);
+        g.createEdge(a, b, Edge.TYPE_REFER);
+        g.createEdge(a, c, Edge.TYPE_CONTAINS);
+
+        Graph filtered = g.removeNodesOfType(Node.TYPE_API);
+        assertEquals(2, filtered.nodes.size());
+        assertEquals(1, filtered.getEdgeCount());
+        assertEquals(Edge.make(a, c, Edge.TYPE_CONTAINS), filtered.getEdges().get(0));
+    }
+}
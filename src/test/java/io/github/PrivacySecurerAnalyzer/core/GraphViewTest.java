@@ -0,0 +1,136 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.ArrayList;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the filtered views of a graph.
+ */
+public class GraphViewTest extends TestCase {
+    private Graph g;
+    private Node a;
+    private Node b;
+    private Node c;
+    private Node d;
+
+    @Override
+    protected void setUp() {
+        g = new Graph();
+        a = g.getNodeOrCreate("a", "a", Node.TYPE_METHOD);
+        b = g.getNodeOrCreate("b", "b", Node.TYPE_API);
+        c = g.getNodeOrCreate("c", "c", Node.TYPE_METHOD);
+        d = g.getNodeOrCreate("d", "d", Node.TYPE_API);
+        g.createEdge(a, b, Edge.TYPE_REFER);
+        g.createEdge(a, c, Edge.TYPE_CONTAINS);
+        g.createEdge(c, d, Edge.TYPE_REFER);
+        g.createEdge(c, a, Edge.TYPE_REFER);
+        g.sortGraph();
+    }
+
+    public void testUnfilteredView() {
+        GraphView view = g.view();
+        assertEquals(g.nodes, view.getNodes());
+        assertEquals(g.getEdges(), view.getEdges());
+    }
+
+    public void testChainedFilters() {
+        GraphView view = g.view().withoutNodesOfType(Node.TYPE_API).withoutEdgesOfType(Edge.TYPE_CONTAINS);
+        List<Node> nodes = view.getNodes();
+        assertEquals(2, nodes.size());
+        assertSame(a, nodes.get(0));
+        assertSame(c, nodes.get(1));
+        assertEquals(1, view.getEdgeCount());
+        assertEquals(Edge.make(c, a, Edge.TYPE_REFER), view.getEdges().get(0));
+        assertFalse(view.contains(b));
+        // the graph and the other views are not changed
+        assertEquals(4, g.view().getNodeCount());
+        assertEquals(2, g.view().withoutNodesOfType(Node.TYPE_API).getEdgeCount());
+        // unknown types remove nothing
+        assertEquals(4, g.view().withoutNodesOfType("none").withoutEdgesOfType("none").getEdgeCount());
+    }
+
+    public void testTypeQueries() {
+        GraphView view = g.view();
+        assertEquals(2, view.getNodesOfType(Node.TYPE_API).size());
+        assertSame(d, view.getNodesOfType(Node.TYPE_API).get(1));
+        assertEquals(3, view.getEdgesOfType(Edge.TYPE_REFER).size());
+        assertEquals(1, view.withoutNodesOfType(Node.TYPE_API).getEdgesOfType(Edge.TYPE_REFER).size());
+        assertTrue(view.getNodesOfType("none").isEmpty());
+    }
+
+    public void testNeighbours() {
+        GraphView view = g.view().withoutEdgesOfType(Edge.TYPE_CONTAINS);
+        List<Edge> outgoing = view.getOutgoingEdges(c);
+        assertEquals(2, outgoing.size());
+        assertSame(a, outgoing.get(0).target);
+        assertSame(d, outgoing.get(1).target);
+        List<Edge> incoming = view.getIncomingEdges(a);
+        assertEquals(1, incoming.size());
+        assertSame(c, incoming.get(0).source);
+        assertTrue(view.getIncomingEdges(c).isEmpty());
+        assertTrue(view.withoutNodesOfType(Node.TYPE_API).getOutgoingEdges(b).isEmpty());
+    }
+
+    public void testToGraph() {
+        Graph filtered = g.view().withoutNodesOfType(Node.TYPE_METHOD).toGraph();
+        assertEquals(2, filtered.nodes.size());
+        assertEquals(0, filtered.getEdgeCount());
+        assertSame(d, filtered.getNodeById(d.id));
+    }
+
+    // the views merge the groups of the types kept, in the order of the graph
+    public void testViewsOfLargerGraph() {
+        String[] nodeTypes = {Node.TYPE_METHOD, Node.TYPE_API, Node.TYPE_CLASS, Node.TYPE_PACKAGE};
+        String[] edgeTypes = {Edge.TYPE_REFER, Edge.TYPE_CONTAINS, Edge.TYPE_INHERIT};
+        Random random = new Random(42);
+        Graph graph = new Graph();
+        List<Node> nodes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            nodes.add(graph.getNodeOrCreate(i, "n" + i, nodeTypes[random.nextInt(nodeTypes.length)]));
+        }
+        for (int i = 0; i < 1000; i++) {
+            graph.createEdge(nodes.get(random.nextInt(nodes.size())), nodes.get(random.nextInt(nodes.size())),
+                    edgeTypes[random.nextInt(edgeTypes.length)]);
+        }
+        graph.sortGraph();
+
+        for (String nodeType : nodeTypes) {
+            for (String edgeType : edgeTypes) {
+                GraphView view = graph.view().withoutNodesOfType(nodeType).withoutEdgesOfType(edgeType);
+                List<Node> expectedNodes = new ArrayList<>();
+                for (Node node : graph.nodes) {
+                    if (!node.type.equals(nodeType))
+                        expectedNodes.add(node);
+                }
+                List<Edge> expectedEdges = new ArrayList<>();
+                List<Edge> expectedRefers = new ArrayList<>();
+                for (Edge edge : graph.getEdges()) {
+                    if (edge.type.equals(edgeType) || edge.source.type.equals(nodeType) || edge.target.type.equals(nodeType))
+                        continue;
+                    expectedEdges.add(edge);
+                    if (edge.type.equals(Edge.TYPE_REFER))
+                        expectedRefers.add(edge);
+                }
+                assertEquals(expectedNodes, view.getNodes());
+                assertEquals(expectedEdges, view.getEdges());
+                assertEquals(expectedRefers, view.getEdgesOfType(Edge.TYPE_REFER));
+            }
+        }
+    }
+
+    public void testModifiedGraph() {
+        GraphView view = g.view();
+        g.createEdge(b, d, Edge.TYPE_REFER);
+        try {
+            view.getEdges();
+            fail();
+        } catch (ConcurrentModificationException e) {
+            // views are not updated
+        }
+        assertEquals(5, g.view().getEdgeCount());
+    }
+}
@@ -0,0 +1,167 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import soot.G;
+import soot.Local;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.Value;
+import soot.VoidType;
+import soot.jimple.InvokeStmt;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.Stmt;
+import soot.jimple.StringConstant;
+
+/**
+ * Unit tests for the interprocedural resolution of event parameters.
+ */
+public class InterproceduralResolverTest extends TestCase {
+    private SootClass cls;
+    private SootMethod use;
+    private RefType stringType;
+
+    @Override
+    protected void setUp() {
+        G.reset();
+        stringType = RefType.v("java.lang.String");
+        cls = new SootClass("com.example.Test", Modifier.PUBLIC);
+        Scene.v().addClass(cls);
+        cls.setApplicationClass();
+        use = new SootMethod("use", Arrays.<Type>asList(stringType), VoidType.v(), Modifier.PUBLIC | Modifier.STATIC);
+        cls.addMethod(use);
+    }
+
+    @Override
+    protected void tearDown() {
+        G.reset();
+    }
+
+    private JimpleBody newBody(String name, Type... parameterTypes) {
+        SootMethod method = new SootMethod(name, Arrays.asList(parameterTypes),
+                parameterTypes.length == 0 ? stringType : VoidType.v(), Modifier.PUBLIC | Modifier.STATIC);
+        cls.addMethod(method);
+        JimpleBody body = Jimple.v().newBody(method);
+        method.setActiveBody(body);
+        return body;
+    }
+
+    private Local newLocal(JimpleBody body, String name) {
+        Local local = Jimple.v().newLocal(name, stringType);
+        body.getLocals().add(local);
+        return local;
+    }
+
+    // phone() { return "4125551234"; }
+    private SootMethod makePhone() {
+        JimpleBody body = newBody("phone");
+        body.getUnits().add(Jimple.v().newReturnStmt(StringConstant.v("4125551234")));
+        return body.getMethod();
+    }
+
+    public void testReturnValueOfCallee() {
+        SootMethod phone = makePhone();
+        // caller(s) { x = phone(); use(x); }
+        JimpleBody body = newBody("caller", stringType);
+        Local x = newLocal(body, "x");
+        body.getUnits().add(Jimple.v().newAssignStmt(x, Jimple.v().newStaticInvokeExpr(phone.makeRef())));
+        InvokeStmt call = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(use.makeRef(), Arrays.<Value>asList(x)));
+        body.getUnits().add(call);
+        body.getUnits().add(Jimple.v().newReturnVoidStmt());
+
+        InterproceduralResolver resolver = new InterproceduralResolver(new MethodAnalysisCache());
+        assertEquals(StringConstant.v("4125551234"), resolver.resolve(x, call, body.getMethod()));
+        assertEquals(1, resolver.getResolved());
+        assertTrue(resolver.getVisitedClasses().contains(cls));
+
+        InterproceduralResolver disabled = new InterproceduralResolver(new MethodAnalysisCache(), 0, 100);
+        assertNull(disabled.resolve(x, call, body.getMethod()));
+    }
+
+    // name() { x = callee(); return x; }
+    private SootMethod makeReturnOf(String name, SootMethod callee) {
+        JimpleBody body = newBody(name);
+        Local x = newLocal(body, "x");
+        body.getUnits().add(Jimple.v().newAssignStmt(x, Jimple.v().newStaticInvokeExpr(callee.makeRef())));
+        body.getUnits().add(Jimple.v().newReturnStmt(x));
+        return body.getMethod();
+    }
+
+    public void testSummaryCutOffByMaxDepthIsNotKept() {
+        SootMethod mid = makeReturnOf("mid", makePhone());
+        SootMethod outer = makeReturnOf("outer", mid);
+        // caller(s) { x = outer(); use(x); y = mid(); use(y); }
+        JimpleBody body = newBody("caller", stringType);
+        Local x = newLocal(body, "x");
+        Local y = newLocal(body, "y");
+        body.getUnits().add(Jimple.v().newAssignStmt(x, Jimple.v().newStaticInvokeExpr(outer.makeRef())));
+        InvokeStmt useX = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(use.makeRef(), Arrays.<Value>asList(x)));
+        body.getUnits().add(useX);
+        body.getUnits().add(Jimple.v().newAssignStmt(y, Jimple.v().newStaticInvokeExpr(mid.makeRef())));
+        InvokeStmt useY = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(use.makeRef(), Arrays.<Value>asList(y)));
+        body.getUnits().add(useY);
+        body.getUnits().add(Jimple.v().newReturnVoidStmt());
+
+        InterproceduralResolver resolver = new InterproceduralResolver(new MethodAnalysisCache(), 2,
+                InterproceduralResolver.DEFAULT_TIME_BUDGET_MILLIS);
+        // phone() is 3 calls away
+        assertNull(resolver.resolve(x, useX, body.getMethod()));
+        // the summary of mid() was cut short above, but is known 2 calls away
+        assertEquals(StringConstant.v("4125551234"), resolver.resolve(y, useY, body.getMethod()));
+    }
+
+    public void testParameterFromCallSites() {
+        // callee(s) { use(s); }
+        JimpleBody callee = newBody("callee", stringType);
+        Local s = newLocal(callee, "s");
+        callee.getUnits().add(Jimple.v().newIdentityStmt(s, Jimple.v().newParameterRef(stringType, 0)));
+        InvokeStmt call = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(use.makeRef(), Arrays.<Value>asList(s)));
+        callee.getUnits().add(call);
+        callee.getUnits().add(Jimple.v().newReturnVoidStmt());
+
+        // caller0() { callee("a"); }  caller1() { callee("a"); }
+        SootMethod[] callers = new SootMethod[2];
+        String[] arguments = {"a", "a"};
+        for (int i = 0; i < callers.length; i++) {
+            JimpleBody body = newBody("caller" + i, stringType);
+            body.getUnits().add(Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(callee.getMethod().makeRef(),
+                    Collections.<Value>singletonList(StringConstant.v(arguments[i])))));
+            body.getUnits().add(Jimple.v().newReturnVoidStmt());
+            callers[i] = body.getMethod();
+        }
+        InterproceduralResolver resolver = new InterproceduralResolver(new MethodAnalysisCache());
+        assertEquals(StringConstant.v("a"), resolver.resolve(s, call, callee.getMethod()));
+
+        // call sites passing different values
+        ((Stmt) callers[1].getActiveBody().getUnits().getFirst()).getInvokeExpr().setArg(0, StringConstant.v("b"));
+        resolver = new InterproceduralResolver(new MethodAnalysisCache());
+        assertNull(resolver.resolve(s, call, callee.getMethod()));
+        assertEquals(1, resolver.getQueries());
+        assertEquals(0, resolver.getResolved());
+
+        // only the bodies of the possible callers are looked at
+        final SootMethod caller0 = callers[0];
+        resolver = new InterproceduralResolver(new MethodAnalysisCache(), InterproceduralResolver.DEFAULT_MAX_DEPTH,
+                InterproceduralResolver.DEFAULT_TIME_BUDGET_MILLIS, Collections.singletonList(cls),
+                new InterproceduralResolver.CallerFinder() {
+                    @Override
+                    public Collection<SootMethod> findCallers(SootMethod method) {
+                        return Collections.singletonList(caller0);
+                    }
+                });
+        assertEquals(StringConstant.v("a"), resolver.resolve(s, call, callee.getMethod()));
+
+        // no call site in the analyzed classes
+        resolver = new InterproceduralResolver(new MethodAnalysisCache(), InterproceduralResolver.DEFAULT_MAX_DEPTH,
+                InterproceduralResolver.DEFAULT_TIME_BUDGET_MILLIS, Collections.<SootClass>emptyList(), null);
+        assertNull(resolver.resolve(s, call, callee.getMethod()));
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import soot.G;
+import soot.Modifier;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.VoidType;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+
+/**
+ * Unit tests for the per-method analysis cache.
+ */
+public class MethodAnalysisCacheTest extends TestCase {
+    private SootClass cls;
+
+    @Override
+    protected void setUp() {
+        G.reset();
+        cls = new SootClass("com.example.Test", Modifier.PUBLIC);
+        Scene.v().addClass(cls);
+    }
+
+    @Override
+    protected void tearDown() {
+        G.reset();
+    }
+
+    private SootMethod makeMethod(String name) {
+        SootMethod method = new SootMethod(name, Collections.<Type>emptyList(), VoidType.v(), Modifier.PUBLIC | Modifier.STATIC);
+        cls.addMethod(method);
+        JimpleBody body = Jimple.v().newBody(method);
+        body.getUnits().add(Jimple.v().newReturnVoidStmt());
+        method.setActiveBody(body);
+        return method;
+    }
+
+    public void testAnalysesAreShared() {
+        MethodAnalysisCache cache = new MethodAnalysisCache();
+        SootMethod method = makeMethod("a");
+        MethodAnalysisCache.MethodAnalysis first = cache.get(method);
+        MethodAnalysisCache.MethodAnalysis second = cache.get(method);
+        assertSame(first, second);
+        assertSame(first.getLocalDefs(), second.getLocalDefs());
+        assertSame(first.getLocalUses(), second.getLocalUses());
+        assertEquals(1, cache.getMisses());
+        assertEquals(1, cache.getHits());
+    }
+
+    public void testLeastRecentlyUsedIsEvicted() {
+        MethodAnalysisCache cache = new MethodAnalysisCache(2);
+        SootMethod a = makeMethod("a");
+        SootMethod b = makeMethod("b");
+        SootMethod c = makeMethod("c");
+        MethodAnalysisCache.MethodAnalysis analysisA = cache.get(a);
+        cache.get(b);
+        cache.get(a);
+        cache.get(c);
+        assertEquals(1, cache.getEvictions());
+        assertSame(analysisA, cache.get(a));
+        cache.get(b);
+        assertEquals(4, cache.getMisses());
+    }
+}
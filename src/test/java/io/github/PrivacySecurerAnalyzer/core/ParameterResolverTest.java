@@ -0,0 +1,115 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import junit.framework.TestCase;
+import soot.G;
+import soot.Local;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+import soot.Value;
+import soot.VoidType;
+import soot.jimple.InvokeStmt;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.Stmt;
+
+/**
+ * Unit tests for the memoized parameter resolution of PSFunction.
+ */
+public class ParameterResolverTest extends TestCase {
+    private SootClass cls;
+    private SootMethod use;
+    private SootMethod make;
+    private RefType objectType;
+
+    @Override
+    protected void setUp() {
+        G.reset();
+        objectType = RefType.v("java.lang.Object");
+        cls = new SootClass("com.example.Test", Modifier.PUBLIC);
+        Scene.v().addClass(cls);
+        use = new SootMethod("use", Arrays.<Type>asList(objectType, objectType), VoidType.v(), Modifier.PUBLIC | Modifier.STATIC);
+        cls.addMethod(use);
+        make = new SootMethod("make", Collections.<Type>emptyList(), objectType, Modifier.PUBLIC | Modifier.STATIC);
+        cls.addMethod(make);
+    }
+
+    @Override
+    protected void tearDown() {
+        G.reset();
+    }
+
+    private JimpleBody newBody(String name) {
+        SootMethod method = new SootMethod(name, Collections.<Type>emptyList(), VoidType.v(), Modifier.PUBLIC | Modifier.STATIC);
+        cls.addMethod(method);
+        JimpleBody body = Jimple.v().newBody(method);
+        method.setActiveBody(body);
+        return body;
+    }
+
+    private Local newLocal(JimpleBody body, String name) {
+        Local local = Jimple.v().newLocal(name, objectType);
+        body.getLocals().add(local);
+        return local;
+    }
+
+    public void testSharedDefinitionIsResolvedOnce() {
+        JimpleBody body = newBody("shared");
+        Local x = newLocal(body, "x");
+        Local y = newLocal(body, "y");
+        body.getUnits().add(Jimple.v().newAssignStmt(x, Jimple.v().newStaticInvokeExpr(make.makeRef())));
+        body.getUnits().add(Jimple.v().newAssignStmt(y, x));
+        InvokeStmt call = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(use.makeRef(), Arrays.<Value>asList(x, y)));
+        body.getUnits().add(call);
+        body.getUnits().add(Jimple.v().newReturnVoidStmt());
+
+        PSFunction function = new PSFunction(call.getInvokeExpr(), call, body.getMethod(), new MethodAnalysisCache());
+        assertEquals(2, function.parameters.size());
+        assertTrue(function.parameters.get(0) instanceof PSFunction);
+        assertSame(function.parameters.get(0), function.parameters.get(1));
+        assertEquals("Test.use(Test.make(), Test.make())", function.toString());
+    }
+
+    public void testCopyCycleIsUnresolved() {
+        // loop: a = b; b = a; use(a, a); goto loop
+        JimpleBody body = newBody("cycle");
+        Local a = newLocal(body, "a");
+        Local b = newLocal(body, "b");
+        Stmt first = Jimple.v().newAssignStmt(a, b);
+        body.getUnits().add(first);
+        body.getUnits().add(Jimple.v().newAssignStmt(b, a));
+        InvokeStmt call = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(use.makeRef(), Arrays.<Value>asList(a, a)));
+        body.getUnits().add(call);
+        body.getUnits().add(Jimple.v().newGotoStmt(first));
+
+        PSFunction function = new PSFunction(call.getInvokeExpr(), call, body.getMethod(), new MethodAnalysisCache());
+        assertEquals(Arrays.<Object>asList(a, a), function.parameters);
+    }
+
+    public void testCutOffResultIsNotMemoized() {
+        // l0 = make(); l1 = l0; ... use(l69, l35)
+        JimpleBody body = newBody("chain");
+        Local[] locals = new Local[70];
+        for (int i = 0; i < locals.length; i++) {
+            locals[i] = newLocal(body, "l" + i);
+            body.getUnits().add(Jimple.v().newAssignStmt(locals[i],
+                    i == 0 ? Jimple.v().newStaticInvokeExpr(make.makeRef()) : locals[i - 1]));
+        }
+        InvokeStmt call = Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(use.makeRef(),
+                Arrays.<Value>asList(locals[69], locals[35])));
+        body.getUnits().add(call);
+        body.getUnits().add(Jimple.v().newReturnVoidStmt());
+
+        PSFunction function = new PSFunction(call.getInvokeExpr(), call, body.getMethod(), new MethodAnalysisCache());
+        // nested deeper than MAX_DEPTH
+        assertSame(locals[69], function.parameters.get(0));
+        // on the way of the first parameter, but within MAX_DEPTH of the call
+        assertTrue(function.parameters.get(1) instanceof PSFunction);
+    }
+}
@@ -0,0 +1,116 @@
+package io.github.PrivacySecurerAnalyzer.core;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+/**
+ * Golden tests for the privacy description sentences, one per kind of event.
+ */
+public class PrivacyDescriptionPrinterTest extends TestCase {
+
+    private static EventSpec event(String eventType, String functionName, String comparator) {
+        EventSpec spec = new EventSpec("<com.example.app.MainActivity: void onCreate()>", eventType, functionName);
+        spec.comparator = comparator;
+        return spec;
+    }
+
+    public void testAudioEvent() {
+        EventSpec spec = event("AudioEvent", "calcAvgLoudness", "\"gte\"");
+        spec.fieldName = "\"avgLoudness\"";
+        spec.threshold = "20.0";
+        assertEquals("The app checks avgLoudness when it is gte 20.0dB.", PrivacyDescriptionPrinter.describe(spec));
+        // missing values are printed as null
+        assertEquals("The app checks null when it is null nulldB.",
+                PrivacyDescriptionPrinter.describe(event("AudioEvent", null, null)));
+    }
+
+    public void testGeolocationEvent() {
+        EventSpec place = event("GeolocationEvent", "getLatLon", "\"in\"");
+        place.placeName = "\"CMU\"";
+        assertEquals("The app checks latlon when the user is in CMU.", PrivacyDescriptionPrinter.describe(place));
+        assertEquals("The app checks latlon when it is updated.",
+                PrivacyDescriptionPrinter.describe(event("GeolocationEvent", "getLatLon", "\"updated\"")));
+        assertEquals("The app checks latlon when the user enters a geofence.",
+                PrivacyDescriptionPrinter.describe(event("GeolocationEvent", "getLatLon", "\"enters\"")));
+
+        EventSpec speed = event("GeolocationEvent", "calcSpeed", "\"gt\"");
+        speed.threshold = "10.0";
+        assertEquals("The app checks speed when it is gt 10.0m/s.", PrivacyDescriptionPrinter.describe(speed));
+        EventSpec distance = event("GeolocationEvent", "distanceTo", "\"lte\"");
+        distance.threshold = "100.0";
+        assertEquals("The app checks distance when it is lte 100.0m.", PrivacyDescriptionPrinter.describe(distance));
+
+        assertEquals("The app checks city when it is updated.",
+                PrivacyDescriptionPrinter.describe(event("GeolocationEvent", "getCity", null)));
+        assertEquals("The app checks post code when it is updated.",
+                PrivacyDescriptionPrinter.describe(event("GeolocationEvent", "getPostcode", null)));
+        assertEquals("The app checks direction when the user makes a turn.",
+                PrivacyDescriptionPrinter.describe(event("GeolocationEvent", "getDirection", null)));
+        assertEquals("", PrivacyDescriptionPrinter.describe(event("GeolocationEvent", "getAltitude", null)));
+        assertEquals("", PrivacyDescriptionPrinter.describe(event("GeolocationEvent", null, null)));
+    }
+
+    public void testContactEvent() {
+        assertEquals("The app checks caller when it is from a certain phone number.",
+                PrivacyDescriptionPrinter.describe(event("ContactEvent", "callerIdentification", "\"from\"")));
+        assertEquals("The app checks caller when it is in a list.",
+                PrivacyDescriptionPrinter.describe(event("ContactEvent", "callerIdentification", "\"in\"")));
+        assertEquals("The app checks new calls arriving.",
+                PrivacyDescriptionPrinter.describe(event("ContactEvent", "callerIdentification", null)));
+        assertEquals("The app checks emails when they are in a list.",
+                PrivacyDescriptionPrinter.describe(event("ContactEvent", "getContactEmails", "\"in\"")));
+        assertEquals("The app checks contact lists when they are updated.",
+                PrivacyDescriptionPrinter.describe(event("ContactEvent", "getContactLists", null)));
+        assertEquals("", PrivacyDescriptionPrinter.describe(event("ContactEvent", "getCallLogs", null)));
+    }
+
+    public void testMessageEvent() {
+        assertEquals("The app checks sender when it is from a certain phone number.",
+                PrivacyDescriptionPrinter.describe(event("MessageEvent", "getMessagePhones", "\"from\"")));
+        assertEquals("The app checks sender when it is in a list.",
+                PrivacyDescriptionPrinter.describe(event("MessageEvent", "getMessagePhones", "\"in\"")));
+        assertEquals("The app checks new messages arriving.",
+                PrivacyDescriptionPrinter.describe(event("MessageEvent", "getMessagePhones", "\"updated\"")));
+        assertEquals("The app checks message content when they are updated.",
+                PrivacyDescriptionPrinter.describe(event("MessageEvent", "getMessageContent", null)));
+        assertEquals("", PrivacyDescriptionPrinter.describe(event("MessageEvent", "getMessageTime", null)));
+    }
+
+    public void testImageEvent() {
+        EventSpec folder = event("ImageEvent", "getFileUpdates", null);
+        folder.path = "\"/sdcard/DCIM\"";
+        assertEquals("The app checks file or folder content when they are updated.", PrivacyDescriptionPrinter.describe(folder));
+        assertEquals("The app checks images when they are updated.",
+                PrivacyDescriptionPrinter.describe(event("ImageEvent", "getImageUpdates", null)));
+    }
+
+    public void testUnknownEventType() {
+        assertEquals("No matchable event type, please check it.",
+                PrivacyDescriptionPrinter.describe(event("BatteryEvent", "getLatLon", null)));
+        assertEquals("No matchable event type, please check it.",
+                PrivacyDescriptionPrinter.describe(event(null, null, null)));
+    }
+
+    public void testRenderAppends() {
+        StringBuilder buffer = new StringBuilder("> ");
+        DescriptionTemplates.getDefault().render(event("ContactEvent", "getContactLists", null), buffer);
+        assertEquals("> The app checks contact lists when they are updated.", buffer.toString());
+    }
+
+    public void testInvalidTemplates() throws IOException {
+        try {
+            DescriptionTemplates.load(new ByteArrayInputStream("AudioEvent\t*\t*\tThe app checks {volume}.\n".getBytes("UTF-8")));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            DescriptionTemplates.load(new ByteArrayInputStream("AudioEvent *  * The app checks audio.\n".getBytes("UTF-8")));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package io.github.PrivacySecurerAnalyzer.corpus;
+
+import java.io.File;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the job directories and worker arguments of the corpus scheduler.
+ */
+public class CorpusSchedulerTest extends TestCase {
+
+    public void testJobDirsAreUnique() {
+        File corpus = new File("corpus").getAbsoluteFile();
+        CorpusScheduler scheduler = new CorpusScheduler(corpus.getPath(), "out", 1, 0, new String[0]);
+        File nested = scheduler.getJobDir(new File(corpus, "a/b.apk"));
+        File flat = scheduler.getJobDir(new File(corpus, "a_b.apk"));
+        assertEquals(new File("out"), nested.getParentFile());
+        assertTrue(nested.getName().startsWith("a_b-"));
+        assertFalse(nested.equals(flat));
+        assertEquals(nested, scheduler.getJobDir(new File(corpus, "a/b.apk")));
+    }
+
+    public void testThreadsOption() {
+        assertTrue(CorpusScheduler.hasThreadsOption(Arrays.asList("-t", "4")));
+        assertTrue(CorpusScheduler.hasThreadsOption(Arrays.asList("-nocache", "-t4")));
+        assertTrue(CorpusScheduler.hasThreadsOption(Arrays.asList("--threads", "4")));
+        assertTrue(CorpusScheduler.hasThreadsOption(Arrays.asList("--threads=4")));
+        assertFalse(CorpusScheduler.hasThreadsOption(Arrays.asList("-triage", "-nocache")));
+        assertFalse(CorpusScheduler.hasThreadsOption(Arrays.asList("-o", "-t.out")));
+    }
+}
@@ -0,0 +1,80 @@
+package io.github.PrivacySecurerAnalyzer.frontends.dex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Unit tests for the candidate methods and callers found from dex instructions, on the fixtures of {@link DexFixtures}.
+ */
+public class BytecodePrefilterTest extends TestCase {
+    private static final String MAIN = "com.example.Main";
+    private static final List<String> EVENT_TYPE = Collections.singletonList("io.github.privacystreamsevents.core.EventType");
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = File.createTempFile("prefilter", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void testCandidateMethods() throws IOException {
+        BytecodePrefilter prefilter = BytecodePrefilter.scan(DexFixtures.copy(DexFixtures.CLASSES_DEX, dir), "addEventListener");
+        // a direct and a virtual method call addEventListener(); the method indexes restart with the virtual methods
+        assertTrue(prefilter.isCandidate(MAIN, "register", "void", EVENT_TYPE));
+        assertTrue(prefilter.isCandidate(MAIN, "listen", "int", Arrays.asList("io.github.privacystreamsevents.core.EventType", "int")));
+        assertEquals(2, prefilter.getCandidateCount());
+
+        assertFalse(prefilter.isCandidate(MAIN, "<init>", "void", Collections.singletonList("io.github.privacystreamsevents.core.UQI")));
+        assertFalse(prefilter.isCandidate(MAIN, "twice", "int", Collections.singletonList("int")));
+        assertFalse(prefilter.isCandidate(MAIN, "a", "void", Collections.<String>emptyList()));
+        // its array data looks like a call of addEventListener()
+        assertFalse(prefilter.isCandidate(MAIN, "data", "short[]", Collections.<String>emptyList()));
+        // same name, another prototype
+        assertFalse(prefilter.isCandidate(MAIN, "listen", "void", EVENT_TYPE));
+        // all the methods with code: 5 in UQI, EventType and Util, 6 in Main
+        assertEquals(11, prefilter.getScannedMethods());
+    }
+
+    public void testCallers() throws IOException {
+        BytecodePrefilter prefilter = BytecodePrefilter.scan(DexFixtures.apk(DexFixtures.CLASSES_DEX, dir), "addEventListener");
+        String addProto = BytecodePrefilter.getProto("int", Arrays.asList("int", "int"));
+        assertEquals("(II)I", addProto);
+        assertEquals(Collections.singleton(MAIN), prefilter.getCallerClasses("add", addProto));
+        assertTrue(prefilter.mayCall(MAIN, "twice", "int", Collections.singletonList("int"), "add", addProto));
+        assertFalse(prefilter.mayCall(MAIN, "listen", "int", Arrays.asList("io.github.privacystreamsevents.core.EventType", "int"),
+                "add", addProto));
+        assertEquals(Collections.emptySet(), prefilter.getCallerClasses("add", "(J)J"));
+        // addEventListener() is defined in the dex file too
+        String listenerProto = BytecodePrefilter.getProto("void", Arrays.asList("io.github.privacystreamsevents.core.EventType",
+                "io.github.privacystreamsevents.core.EventCallback"));
+        assertEquals(Collections.singleton(MAIN), prefilter.getCallerClasses("addEventListener", listenerProto));
+    }
+
+    public void testCallersInAnotherDexFile() throws IOException {
+        // Main calls Util.add(), which is defined in classes2.dex
+        BytecodePrefilter prefilter = BytecodePrefilter.scan(
+                DexFixtures.apk(DexFixtures.MULTIDEX_MAIN_DEX, dir, DexFixtures.MULTIDEX_UTIL_DEX), "addEventListener");
+        assertEquals(Collections.singleton(MAIN), prefilter.getCallerClasses("add", "(II)I"));
+        assertTrue(prefilter.mayCall(MAIN, "twice", "int", Collections.singletonList("int"), "add", "(II)I"));
+    }
+
+    public void testNoCandidates() throws IOException {
+        BytecodePrefilter prefilter = BytecodePrefilter.scan(DexFixtures.copy(DexFixtures.NON_PSE_DEX, dir), "addEventListener");
+        assertEquals(0, prefilter.getCandidateCount());
+        // the callers are still recorded without the invoked name
+        assertEquals(Collections.singleton(MAIN), prefilter.getCallerClasses("add", "(II)I"));
+    }
+}
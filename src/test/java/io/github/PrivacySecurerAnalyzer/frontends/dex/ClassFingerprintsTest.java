@@ -0,0 +1,43 @@
+package io.github.PrivacySecurerAnalyzer.frontends.dex;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Unit tests for the class fingerprints, on the fixtures of {@link DexFixtures}.
+ */
+public class ClassFingerprintsTest extends TestCase {
+    private File dir;
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = File.createTempFile("fingerprints", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void testUnchangedClassKeepsItsFingerprint() throws IOException {
+        Map<String, String> pse = ClassFingerprints.compute(DexFixtures.copy(DexFixtures.CLASSES_DEX, dir));
+        Map<String, String> nonPse = ClassFingerprints.compute(DexFixtures.copy(DexFixtures.NON_PSE_DEX, dir));
+        assertEquals(5, pse.size());
+        assertEquals(2, nonPse.size());
+        assertTrue(pse.containsKey("io.github.privacystreamsevents.core.UQI"));
+        // the ids of Util are numbered differently in the two dex files, the class is the same
+        assertFalse(DexFixtures.wrap(DexFixtures.CLASSES_DEX).findString("add")
+                == DexFixtures.wrap(DexFixtures.NON_PSE_DEX).findString("add"));
+        assertEquals(pse.get("com.example.Util"), nonPse.get("com.example.Util"));
+        assertFalse(pse.get("com.example.Main").equals(nonPse.get("com.example.Main")));
+
+        // the same from an apk
+        assertEquals(pse, ClassFingerprints.compute(DexFixtures.apk(DexFixtures.CLASSES_DEX, dir)));
+    }
+}
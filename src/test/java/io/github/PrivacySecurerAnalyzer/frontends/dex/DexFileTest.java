@@ -0,0 +1,87 @@
+package io.github.PrivacySecurerAnalyzer.frontends.dex;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the dex file and code_item parsers, on the fixtures of {@link DexFixtures}.
+ */
+public class DexFileTest extends TestCase {
+    private static final String UQI = "Lio/github/privacystreamsevents/core/UQI;";
+    private static final String EVENT_TYPE = "Lio/github/privacystreamsevents/core/EventType;";
+    private static final String EVENT_CALLBACK = "Lio/github/privacystreamsevents/core/EventCallback;";
+    private static final String MAIN = "Lcom/example/Main;";
+
+    private DexFile dex;
+
+    @Override
+    protected void setUp() throws IOException {
+        dex = DexFixtures.wrap(DexFixtures.CLASSES_DEX);
+    }
+
+    public void testNotADexFile() {
+        try {
+            DexFile.wrap("PK\u0003\u0004".getBytes());
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    public void testIds() {
+        assertEquals(5, dex.getClassDefCount());
+        int main = dex.findType(MAIN);
+        assertTrue(main >= 0);
+        assertEquals(MAIN, dex.getTypeDescriptor(main));
+        assertEquals(-1, dex.findType("Lcom/example/Missing;"));
+
+        int name = dex.findString("addEventListener");
+        assertEquals("addEventListener", dex.getString(name));
+        assertEquals(-1, dex.findString("addEventListeners"));
+        assertTrue(dex.hasStringWithPrefix("Lio/github/privacystreamsevents/"));
+        assertFalse(dex.hasStringWithPrefix("Lio/github/privacystreams/"));
+
+        int method = dex.findMethod(UQI, "addEventListener", "V", Arrays.asList(EVENT_TYPE, EVENT_CALLBACK));
+        assertEquals(DexFixtures.ADD_EVENT_LISTENER, method);
+        assertEquals(name, dex.getMethodName(method));
+        assertEquals("(" + EVENT_TYPE + EVENT_CALLBACK + ")V", dex.getProtoDescriptor(dex.getMethodProto(method)));
+        assertEquals(-1, dex.findMethod(UQI, "addEventListener", "V", Collections.singletonList(EVENT_TYPE)));
+        assertEquals(-1, dex.findMethod(MAIN, "addEventListener", "V", Arrays.asList(EVENT_TYPE, EVENT_CALLBACK)));
+    }
+
+    private List<Integer> getInvokedMethods(String methodName, final List<Integer> opcodes) {
+        final List<Integer> methods = new ArrayList<>();
+        final int codeOff = DexFixtures.getCodeOff(dex, MAIN, methodName);
+        final int[] units = {0};
+        DexCode.walk(dex, codeOff, new DexCode.InstructionVisitor() {
+            @Override
+            public void visitInstruction(int opcode, int offset, int size, int indexKind, int index) {
+                assertEquals(codeOff + 16 + 2 * units[0], offset);
+                units[0] += size;
+                opcodes.add(opcode);
+                if (indexKind == DexCode.INDEX_METHOD)
+                    methods.add(index);
+            }
+        });
+        // the instructions, payloads included, cover the code exactly
+        assertEquals(DexCode.getInsnsSize(dex, codeOff), units[0]);
+        return methods;
+    }
+
+    public void testPayloadsAreSkipped() {
+        List<Integer> opcodes = new ArrayList<>();
+        // fill-array-data, its payload reads as a call of addEventListener if it is not skipped
+        assertEquals(Collections.emptyList(), getInvokedMethods("data", opcodes));
+        assertTrue(opcodes.contains(0x26));
+
+        opcodes.clear();
+        // packed-switch, the call comes after the switch and the payload is at the end
+        assertEquals(Collections.singletonList(DexFixtures.ADD_EVENT_LISTENER), getInvokedMethods("listen", opcodes));
+        assertTrue(opcodes.contains(0x2b));
+    }
+}
@@ -0,0 +1,104 @@
+package io.github.PrivacySecurerAnalyzer.frontends.dex;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+
+/**
+ * The dex files the dex parsers are tested on, built with javac -target 1.7 and dx.
+ *
+ * classes.dex has stubs of io.github.privacystreamsevents.core (EventType, EventCallback, and UQI with
+ * addEventListener(EventType, EventCallback), method id 10), com.example.Util with static int add(int, int), and:
+ * <pre>
+ * public class Main {
+ *     private UQI uqi;
+ *     public Main(UQI uqi) { this.uqi = uqi; }
+ *     static int twice(int x) { return Util.add(x, x); }
+ *     private void register(EventType eventType) { uqi.addEventListener(eventType, null); }
+ *     public void a() {}
+ *     // a fill-array-data payload which reads as invoke-virtual {v1, v2, v3}, addEventListener
+ *     public short[] data() { return new short[] {0x306e, 10, 0x0321}; }
+ *     // a packed-switch payload before the call
+ *     public int listen(EventType eventType, int mode) {
+ *         int result;
+ *         switch (mode) { case 0: result = 3; break; case 1: result = 5; break; case 2: result = 7; break; default: result = 11; }
+ *         uqi.addEventListener(eventType, null);
+ *         return result;
+ *     }
+ * }
+ * </pre>
+ * nonpse.dex has the same com.example.Util, and a Main with only {@code static int twice(int x) { return Util.add(x, x) + 1; }}.
+ * multidex-main.dex and multidex-util.dex have the Main and the Util of nonpse.dex, one each.
+ */
+class DexFixtures {
+    static final String CLASSES_DEX = "classes.dex";
+    static final String NON_PSE_DEX = "nonpse.dex";
+    static final String MULTIDEX_MAIN_DEX = "multidex-main.dex";
+    static final String MULTIDEX_UTIL_DEX = "multidex-util.dex";
+    static final int ADD_EVENT_LISTENER = 10;
+
+    static byte[] read(String name) throws IOException {
+        try (InputStream in = DexFixtures.class.getResourceAsStream(name)) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    static DexFile wrap(String name) throws IOException {
+        return DexFile.wrap(read(name));
+    }
+
+    static File copy(String name, File dir) throws IOException {
+        File file = new File(dir, name);
+        FileUtils.writeByteArrayToFile(file, read(name));
+        return file;
+    }
+
+    // an apk with the fixtures as its classes.dex, classes2.dex...
+    static File apk(String name, File dir, String... moreNames) throws IOException {
+        File apk = new File(dir, name.replace(".dex", ".apk"));
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(apk))) {
+            out.putNextEntry(new ZipEntry("classes.dex"));
+            out.write(read(name));
+            out.closeEntry();
+            for (int i = 0; i < moreNames.length; i++) {
+                out.putNextEntry(new ZipEntry("classes" + (i + 2) + ".dex"));
+                out.write(read(moreNames[i]));
+                out.closeEntry();
+            }
+        }
+        return apk;
+    }
+
+    // the code_item of a method of a class defined in the dex file, 0 if it has no code
+    static int getCodeOff(DexFile dex, String classDescriptor, String methodName) {
+        for (int i = 0; i < dex.getClassDefCount(); i++) {
+            if (!dex.getTypeDescriptor(dex.getClassDefType(i)).equals(classDescriptor))
+                continue;
+            int[] pos = {dex.getClassDefDataOff(i)};
+            int staticFields = dex.readUleb128(pos);
+            int instanceFields = dex.readUleb128(pos);
+            int directMethods = dex.readUleb128(pos);
+            int virtualMethods = dex.readUleb128(pos);
+            for (int j = 0; j < 2 * (staticFields + instanceFields); j++) {
+                dex.readUleb128(pos);
+            }
+            int methodIdx = 0;
+            for (int j = 0; j < directMethods + virtualMethods; j++) {
+                if (j == directMethods)
+                    methodIdx = 0;
+                methodIdx += dex.readUleb128(pos);
+                dex.readUleb128(pos);
+                int codeOff = dex.readUleb128(pos);
+                if (dex.getString(dex.getMethodName(methodIdx)).equals(methodName))
+                    return codeOff;
+            }
+        }
+        throw new IllegalArgumentException("no method " + methodName + " in " + classDescriptor);
+    }
+}
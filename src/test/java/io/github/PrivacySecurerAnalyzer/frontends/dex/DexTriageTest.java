@@ -0,0 +1,47 @@
+package io.github.PrivacySecurerAnalyzer.frontends.dex;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * Unit tests for the triage of apps by their dex id tables, on the fixtures of {@link DexFixtures}.
+ */
+public class DexTriageTest extends TestCase {
+    private File dir;
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = File.createTempFile("triage", "");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void testClassify() throws IOException {
+        assertEquals(DexTriage.Verdict.PSE, DexTriage.classify(DexFixtures.copy(DexFixtures.CLASSES_DEX, dir)));
+        assertEquals(DexTriage.Verdict.PSE, DexTriage.classify(DexFixtures.apk(DexFixtures.CLASSES_DEX, dir)));
+        assertEquals(DexTriage.Verdict.NON_PSE, DexTriage.classify(DexFixtures.copy(DexFixtures.NON_PSE_DEX, dir)));
+        assertEquals(DexTriage.Verdict.NON_PSE, DexTriage.classify(DexFixtures.apk(DexFixtures.NON_PSE_DEX, dir)));
+    }
+
+    public void testUnknown() throws IOException {
+        File notAnApk = new File(dir, "app.apk");
+        FileUtils.writeStringToFile(notAnApk, "not a zip file", "UTF-8");
+        assertEquals(DexTriage.Verdict.UNKNOWN, DexTriage.classify(notAnApk));
+        assertFalse(DexTriage.canClassify(new File(dir, "app.jar")));
+    }
+
+    public void testToDescriptor() {
+        assertEquals("V", DexTriage.toDescriptor("void"));
+        assertEquals("[[I", DexTriage.toDescriptor("int[][]"));
+        assertEquals("Ljava/lang/String;", DexTriage.toDescriptor("java.lang.String"));
+        assertEquals("Lio/github/privacystreamsevents/", DexTriage.toDescriptor("io.github.privacystreamsevents."));
+    }
+}
@@ -0,0 +1,26 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the keys of API nodes.
+ */
+public class APICallKeyTest extends TestCase {
+    private static final String ADD = "<java.util.List: boolean add(java.lang.Object)>";
+
+    public void testCallSitesWithDifferentConstants() {
+        APICallKey a = new APICallKey(ADD, new String[]{"\"a\""});
+        APICallKey a2 = new APICallKey(new String(ADD), new String[]{"\"a\""});
+        APICallKey b = new APICallKey(ADD, new String[]{"\"b\""});
+        assertEquals(a, a2);
+        assertEquals(a.hashCode(), a2.hashCode());
+        assertFalse(a.equals(b));
+        assertFalse(a.equals(new APICallKey(ADD, new String[0])));
+    }
+
+    public void testName() {
+        assertEquals(ADD + "-----\"a\"-----java.lang.String",
+                new APICallKey(ADD, new String[]{"\"a\"", "java.lang.String"}).getName());
+        assertEquals(ADD, new APICallKey(ADD, new String[0]).getName());
+    }
+}
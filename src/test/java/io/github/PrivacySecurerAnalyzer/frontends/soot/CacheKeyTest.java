@@ -0,0 +1,67 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The result cache key should change with everything the results depend on.
+ */
+public class CacheKeyTest extends TestCase {
+    private File dir;
+    private File app;
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = File.createTempFile("cachekey", "");
+        dir.delete();
+        dir.mkdirs();
+        app = new File(dir, "app.jar");
+        FileUtils.writeStringToFile(app, "app", "UTF-8");
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private File jar(String name, String entry) throws IOException {
+        File jar = new File(dir, name);
+        jar.getParentFile().mkdirs();
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry(entry));
+            out.closeEntry();
+        }
+        return jar;
+    }
+
+    private String getCacheKey(String... args) throws IOException, ParseException {
+        ApkAnalyzer analyzer = new ApkAnalyzer();
+        analyzer.parseArgs(args);
+        return analyzer.getCacheKey(app);
+    }
+
+    public void testAndroidJarAndLibraries() throws IOException, ParseException {
+        String plain = getCacheKey();
+        assertEquals(plain, getCacheKey());
+
+        File sdk23 = jar("sdk23/android.jar", "android/app/Activity.class");
+        File sdk28 = jar("sdk28/android.jar", "android/app/Fragment.class");
+        String withSdk23 = getCacheKey("-sdk", sdk23.getPath());
+        assertFalse(plain.equals(withSdk23));
+        assertFalse(withSdk23.equals(getCacheKey("-sdk", sdk28.getPath())));
+
+        File libs = new File(dir, "libs");
+        jar("libs/a.jar", "com/example/a/A.class");
+        String withLibs = getCacheKey("-sdk", sdk23.getPath(), "-l", libs.getPath());
+        assertFalse(withSdk23.equals(withLibs));
+        jar("libs/b.jar", "com/example/b/B.class");
+        assertFalse(withLibs.equals(getCacheKey("-sdk", sdk23.getPath(), "-l", libs.getPath())));
+    }
+}
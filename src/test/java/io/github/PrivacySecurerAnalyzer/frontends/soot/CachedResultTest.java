@@ -0,0 +1,107 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+
+import io.github.PrivacySecurerAnalyzer.Config;
+import io.github.PrivacySecurerAnalyzer.core.Edge;
+import io.github.PrivacySecurerAnalyzer.core.Graph;
+import io.github.PrivacySecurerAnalyzer.core.Node;
+import io.github.PrivacySecurerAnalyzer.utils.ResultCache;
+import junit.framework.TestCase;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * A cache hit should write the same outputs as analyzing the app.
+ */
+public class CachedResultTest extends TestCase {
+    private static final String[] ARGS = {"-nosnapshot", "-report", "json", "-apis"};
+
+    private File dir;
+    private String inputDirOrFile;
+    private String outputDir;
+    private String cacheDir;
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = File.createTempFile("cached", "");
+        dir.delete();
+        dir.mkdirs();
+        inputDirOrFile = Config.inputDirOrFile;
+        outputDir = Config.outputDir;
+        cacheDir = Config.cacheDir;
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        Config.inputDirOrFile = inputDirOrFile;
+        Config.outputDir = outputDir;
+        Config.cacheDir = cacheDir;
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private Graph makeGraph() {
+        Graph g = new Graph();
+        Node method = g.getNodeOrCreate("m", "onCreate", Node.TYPE_METHOD);
+        method.sig = "<com.example.app.MainActivity: void onCreate()>";
+        Node api = g.getNodeOrCreate("a", "<android.media.AudioRecord: int read(short[],int,int)>", Node.TYPE_API);
+        g.createEdge(method, api, Edge.TYPE_REFER);
+        return g;
+    }
+
+    public void testCacheHitWritesOutputs() throws IOException, ParseException {
+        File app = new File(dir, "app.jar");
+        FileUtils.writeStringToFile(app, "not analyzed, the result is cached", "UTF-8");
+        Config.inputDirOrFile = app.getPath();
+        Config.outputDir = new File(dir, "out").getPath();
+        Config.cacheDir = new File(dir, "cache").getPath();
+
+        Graph g = makeGraph();
+        ClassIndex classIndex = new ClassIndex("analysis", Collections.singletonMap("com.example.app.MainActivity", "1234"));
+        JSONObject apis = new JSONObject();
+        apis.put("androidApis", new JSONArray().put("<android.media.AudioRecord: int read(short[],int,int)>"));
+        apis.put("psMethodSigs", new JSONObject());
+        JSONObject entry = new JSONObject();
+        entry.put("console", "");
+        entry.put("events", new JSONArray());
+        entry.put("derg", g.toJson());
+        entry.put("classIndex", classIndex.toJson());
+        entry.put("apis", apis);
+        ApkAnalyzer analyzer = new ApkAnalyzer();
+        analyzer.parseArgs(ARGS);
+        new ResultCache(Config.cacheDir).put(analyzer.getCacheKey(app), entry.toString());
+
+        Graph cached = analyzer.build();
+        assertNotNull(cached);
+        assertEquals(g.toJson().toString(), cached.toJson().toString());
+        assertEquals("1234", ClassIndex.read(new File(Config.outputDir, ClassIndex.FILE_NAME))
+                .fingerprints.get("com.example.app.MainActivity"));
+        JSONObject writtenApis = new JSONObject(FileUtils.readFileToString(new File(Config.outputDir, "apis.json"), "UTF-8"));
+        assertEquals(1, writtenApis.getJSONArray("androidApis").length());
+    }
+
+    public void testEntryWithoutApisIsNotReplayedWithApis() throws IOException, ParseException {
+        File app = new File(dir, "app.jar");
+        FileUtils.writeStringToFile(app, "not analyzed, the result is cached", "UTF-8");
+        Config.cacheDir = new File(dir, "cache").getPath();
+        JSONObject entry = new JSONObject();
+        entry.put("console", "");
+        entry.put("events", new JSONArray());
+        entry.put("derg", makeGraph().toJson());
+        ApkAnalyzer analyzer = new ApkAnalyzer();
+        analyzer.parseArgs(ARGS);
+        String key = analyzer.getCacheKey(app);
+        new ResultCache(Config.cacheDir).put(key, entry.toString());
+        assertNull(analyzer.getCachedEntry(new ResultCache(Config.cacheDir).get(key)));
+
+        analyzer = new ApkAnalyzer();
+        analyzer.parseArgs(new String[]{"-nosnapshot", "-report", "json"});
+        assertNotNull(analyzer.getCachedEntry(new ResultCache(Config.cacheDir).get(key)));
+        // entries of older versions without the DERG
+        assertNull(analyzer.getCachedEntry("The app checks avgLoudness when it is gte 20.0dB.\n"));
+    }
+}
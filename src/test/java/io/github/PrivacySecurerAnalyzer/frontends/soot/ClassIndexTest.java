@@ -0,0 +1,64 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the class index of incremental analysis.
+ */
+public class ClassIndexTest extends TestCase {
+
+    private static Map<String, String> fingerprints(String... classesAndHashes) {
+        Map<String, String> fingerprints = new HashMap<>();
+        for (int i = 0; i < classesAndHashes.length; i += 2) {
+            fingerprints.put(classesAndHashes[i], classesAndHashes[i + 1]);
+        }
+        return fingerprints;
+    }
+
+    public void testChangedClasses() {
+        ClassIndex baseline = new ClassIndex("a", fingerprints("A", "1", "B", "2", "C", "3"));
+        ClassIndex index = new ClassIndex("a", fingerprints("A", "1", "B", "4", "D", "5"));
+        assertEquals(new HashSet<>(Arrays.asList("B", "C", "D")), index.getChangedClasses(baseline));
+    }
+
+    public void testAffectedResults() {
+        ClassIndex.MethodResult result = new ClassIndex.MethodResult("<A: void onCreate()>");
+        result.dependencies.add("Helper");
+        assertFalse(ClassIndex.isAffected(result, Collections.singleton("B")));
+        assertTrue(ClassIndex.isAffected(result, Collections.singleton("Helper")));
+
+        result.dependencies.add(ClassIndex.ANY_CLASS);
+        assertTrue(ClassIndex.isAffected(result, Collections.singleton("B")));
+        assertFalse(ClassIndex.isAffected(result, Collections.<String>emptySet()));
+    }
+
+    public void testJsonRoundTrip() {
+        ClassIndex index = new ClassIndex("a", fingerprints("A", "1"));
+        ClassIndex.MethodResult result = new ClassIndex.MethodResult("<A: void onCreate()>");
+        result.dependencies.add("Helper");
+        EventSpec event = new EventSpec("<A: void onCreate()>", "AudioEvent", "calcAvgLoudness");
+        event.comparator = "\"gte\"";
+        event.optimizationConstraints.add("1000L");
+        result.output.add("EventType: AudioEvent\n");
+        result.output.add(event);
+        index.addResult("A", result);
+
+        ClassIndex read = ClassIndex.fromJson(index.toJson());
+        assertEquals("a", read.analysis);
+        assertEquals(index.fingerprints, read.fingerprints);
+        ClassIndex.MethodResult readResult = read.getResults("A").get(0);
+        assertEquals(result.method, readResult.method);
+        assertEquals(result.dependencies, readResult.dependencies);
+        assertEquals("EventType: AudioEvent\n", readResult.output.get(0));
+        EventSpec readEvent = (EventSpec) readResult.output.get(1);
+        assertEquals(event.toMap(), readEvent.toMap());
+        assertTrue(read.getResults("B").isEmpty());
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the package include/exclude rules.
+ */
+public class PackageTrieTest extends TestCase {
+
+    public void testDefaultExcludes() {
+        PackageTrie rules = new PackageTrie();
+        rules.addDefaultExcludes();
+        assertFalse(rules.isIncluded("androidx.appcompat.app.AppCompatActivity"));
+        assertFalse(rules.isIncluded("com.google.android.gms.common.api.Api$Client"));
+        assertFalse(rules.isIncluded("kotlin.jvm.internal.Intrinsics"));
+        assertTrue(rules.isIncluded("com.google.android.apps.Main"));
+        assertTrue(rules.isIncluded("com.example.app.MainActivity"));
+        assertTrue(rules.isIncluded("MainActivity"));
+        // segments are matched as a whole
+        assertTrue(rules.isIncluded("kotlinx2.Foo"));
+        assertTrue(rules.isIncluded("androidxtra.Foo"));
+    }
+
+    public void testDeepestRuleApplies() {
+        PackageTrie rules = new PackageTrie();
+        rules.exclude("com.example");
+        rules.include("com.example.app");
+        rules.exclude("com.example.app.ads");
+        assertFalse(rules.isIncluded("com.example.Lib"));
+        assertTrue(rules.isIncluded("com.example.app.MainActivity"));
+        assertTrue(rules.isIncluded("com.example.app.ui.Screen"));
+        assertFalse(rules.isIncluded("com.example.app.ads.Banner"));
+        // include rules restrict the analysis to the included packages
+        assertFalse(rules.isIncluded("org.other.Main"));
+    }
+
+    public void testRulesString() {
+        PackageTrie rules = new PackageTrie();
+        assertTrue(rules.isEmpty());
+        rules.include("com.b");
+        rules.exclude("com.a");
+        assertEquals("+com.b,-com.a", rules.toString());
+    }
+}
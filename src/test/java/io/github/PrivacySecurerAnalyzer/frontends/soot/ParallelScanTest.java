@@ -0,0 +1,112 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+import org.apache.commons.cli.ParseException;
+import soot.G;
+import soot.IntType;
+import soot.Modifier;
+import soot.RefType;
+import soot.Scene;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.SootMethodRef;
+import soot.Type;
+import soot.Value;
+import soot.VoidType;
+import soot.jimple.IntConstant;
+import soot.jimple.Jimple;
+import soot.jimple.JimpleBody;
+import soot.jimple.StringConstant;
+import soot.options.Options;
+
+/**
+ * Scanning method bodies in parallel should find the same as scanning them in one thread.
+ */
+public class ParallelScanTest extends TestCase {
+    private static final int CLASSES = 64;
+    private static final int METHODS_PER_CLASS = 8;
+    private static final int APIS = 32;
+
+    @Override
+    protected void tearDown() {
+        G.reset();
+    }
+
+    // App classes calling addEventListener() and APIs of a phantom class, which are added to it when resolved
+    private static List<SootClass> makeClasses(ApkAnalyzer analyzer) {
+        SootClass uqi = new SootClass("com.example.lib.UQI", Modifier.PUBLIC);
+        Scene.v().addClass(uqi);
+        uqi.setLibraryClass();
+        SootMethod addEventListener = new SootMethod("addEventListener",
+                Collections.<Type>singletonList(RefType.v("java.lang.String")), VoidType.v(), Modifier.PUBLIC | Modifier.STATIC);
+        uqi.addMethod(addEventListener);
+        analyzer.getStreamAPI = addEventListener;
+
+        SootClass audio = new SootClass("android.media.AudioRecord", Modifier.PUBLIC);
+        Scene.v().addClass(audio);
+        audio.setPhantomClass();
+
+        List<SootClass> classes = new ArrayList<>();
+        for (int c = 0; c < CLASSES; c++) {
+            SootClass cls = new SootClass("com.example.app.Activity" + c, Modifier.PUBLIC);
+            Scene.v().addClass(cls);
+            cls.setApplicationClass();
+            for (int m = 0; m < METHODS_PER_CLASS; m++) {
+                SootMethod method = new SootMethod("method" + m, Collections.<Type>emptyList(), VoidType.v(),
+                        Modifier.PUBLIC | Modifier.STATIC);
+                cls.addMethod(method);
+                JimpleBody body = Jimple.v().newBody(method);
+                method.setActiveBody(body);
+                for (int a = 0; a < APIS; a++) {
+                    // every method calls the APIs in another order
+                    int api = (a + c * METHODS_PER_CLASS + m) % APIS;
+                    SootMethodRef ref = Scene.v().makeMethodRef(audio, "read" + api,
+                            Collections.<Type>singletonList(IntType.v()), IntType.v(), true);
+                    body.getUnits().add(Jimple.v().newInvokeStmt(
+                            Jimple.v().newStaticInvokeExpr(ref, Arrays.<Value>asList(IntConstant.v(api)))));
+                }
+                if (m % 3 == 0) {
+                    body.getUnits().add(Jimple.v().newInvokeStmt(Jimple.v().newStaticInvokeExpr(
+                            addEventListener.makeRef(), Arrays.<Value>asList(StringConstant.v("Activity" + c)))));
+                }
+                body.getUnits().add(Jimple.v().newReturnVoidStmt());
+            }
+            classes.add(cls);
+        }
+        return classes;
+    }
+
+    private static String scan(int threads) throws ParseException {
+        G.reset();
+        Options.v().set_allow_phantom_refs(true);
+        ApkAnalyzer analyzer = new ApkAnalyzer();
+        analyzer.parseArgs(new String[]{"-nosnapshot", "-t", String.valueOf(threads)});
+        List<SootClass> classes = makeClasses(analyzer);
+
+        List<String> pending = new ArrayList<>();
+        for (SootMethod method : analyzer.findPendingMethods(classes)) {
+            pending.add(method.getSignature());
+        }
+        List<SootMethod> methods = new ArrayList<>();
+        for (SootClass cls : classes) {
+            methods.addAll(cls.getMethods());
+        }
+        String graph = analyzer.buildGraph(methods).toJson().toString();
+        int phantomMethods = Scene.v().getSootClass("android.media.AudioRecord").getMethodCount();
+        return pending + "\n" + phantomMethods + "\n" + graph;
+    }
+
+    public void testParallelScanMatchesSerial() throws ParseException {
+        String serial = scan(1);
+        assertTrue(serial.startsWith("[<com.example.app.Activity0: void method0()>, <com.example.app.Activity0: void method3()>"));
+        assertTrue(serial.contains("\n" + APIS + "\n"));
+        for (int i = 0; i < 5; i++) {
+            assertEquals(serial, scan(8));
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.PrivacySecurerAnalyzer.frontends.soot;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import soot.BooleanType;
+import soot.G;
+import soot.Modifier;
+import soot.RefType;
+import soot.SootClass;
+import soot.SootMethod;
+import soot.Type;
+
+/**
+ * Unit tests for the snapshot of the platform classes.
+ */
+public class PlatformSnapshotTest extends TestCase {
+    private File dir;
+    private File jar;
+
+    @Override
+    protected void setUp() throws IOException {
+        G.reset();
+        dir = File.createTempFile("snapshot", "");
+        dir.delete();
+        dir.mkdirs();
+        // a stand-in for android.jar, with classes of this project
+        jar = new File(dir, "android.jar");
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            for (Class<?> cls : Arrays.asList(PackageTrie.class, PackageNode.class)) {
+                String name = cls.getName().replace('.', '/') + ".class";
+                out.putNextEntry(new ZipEntry(name));
+                try (InputStream in = cls.getClassLoader().getResourceAsStream(name)) {
+                    IOUtils.copy(in, out);
+                }
+                out.closeEntry();
+            }
+        }
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        G.reset();
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void testWriteAndOpen() throws IOException {
+        String key = PlatformSnapshot.getKey(jar);
+        assertEquals(key, PlatformSnapshot.getKey(jar));
+        File file = PlatformSnapshot.getFile(dir, key);
+        PlatformSnapshot.write(jar, file);
+
+        PlatformSnapshot snapshot = PlatformSnapshot.open(file);
+        assertEquals(2, snapshot.getClassCount());
+        assertTrue(snapshot.contains(PackageTrie.class.getName()));
+        assertTrue(snapshot.contains(PackageNode.class.getName()));
+        assertFalse(snapshot.contains("java.lang.Object"));
+        assertFalse(snapshot.contains("io.github.PrivacySecurerAnalyzer.frontends.soot.PackageTri"));
+    }
+
+    public void testResolve() throws IOException {
+        File file = PlatformSnapshot.getFile(dir, PlatformSnapshot.getKey(jar));
+        PlatformSnapshot.write(jar, file);
+        PlatformSnapshot.Provider provider = PlatformSnapshot.open(file).newClassProvider();
+        assertNull(provider.find("java.lang.Object"));
+
+        SootClass cls = new SootClass(PackageTrie.class.getName());
+        provider.find(cls.getName()).resolve(cls);
+        assertEquals(1, provider.getResolvedClasses());
+        assertTrue(Modifier.isPublic(cls.getModifiers()));
+        assertEquals("java.lang.Object", cls.getSuperclass().getName());
+        assertEquals(RefType.v("java.util.List"), cls.getFieldByName("rules").getType());
+        SootMethod isIncluded = cls.getMethod("isIncluded",
+                Arrays.<Type>asList(RefType.v("java.lang.String")), BooleanType.v());
+        assertTrue(isIncluded.isPublic());
+        assertFalse(isIncluded.hasActiveBody());
+    }
+}
@@ -0,0 +1,147 @@
+package io.github.PrivacySecurerAnalyzer.index;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+import junit.framework.TestCase;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONObject;
+
+/**
+ * Unit tests for the event index.
+ */
+public class EventIndexTest extends TestCase {
+    private File dir;
+    private int segmentRecords;
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = File.createTempFile("index", "");
+        dir.delete();
+        segmentRecords = EventIndex.SEGMENT_RECORDS;
+        EventIndex.SEGMENT_RECORDS = 4;
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        EventIndex.SEGMENT_RECORDS = segmentRecords;
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private static EventSpec audioEvent(String threshold) {
+        EventSpec spec = new EventSpec("<com.example.app.MainActivity: void onCreate()>", "AudioEvent", "calcAvgLoudness");
+        spec.fieldName = "\"avgLoudness\"";
+        spec.comparator = "\"gte\"";
+        spec.threshold = threshold;
+        spec.optimizationConstraints.add("\"battery\"");
+        return spec;
+    }
+
+    private static EventSpec geolocationEvent() {
+        EventSpec spec = new EventSpec("<com.example.app.MainActivity: void onCreate()>", "GeolocationEvent", "isAtLocation");
+        spec.latitude = "40.4432";
+        spec.longitude = "-79.9428";
+        spec.radius = "20.0";
+        return spec;
+    }
+
+    private static List<String> apps(List<JSONObject> records) {
+        List<String> apps = new ArrayList<>();
+        for (JSONObject record : records) {
+            apps.add(record.getString("app"));
+        }
+        return apps;
+    }
+
+    public void testQueryAcrossSegmentsAndTail() throws IOException, ParseException {
+        EventIndex index = new EventIndex(dir);
+        // 10 records: two segments of 4, and 2 in the tail
+        for (int i = 0; i < 5; i++) {
+            index.append("app" + i + ".apk", Arrays.asList(audioEvent(String.valueOf(i)), geolocationEvent()));
+        }
+        assertTrue(new File(dir, "segment-00000001.seg").isFile());
+        assertFalse(new File(dir, "segment-00000002.seg").isFile());
+
+        List<JSONObject> audio = index.query(IndexQuery.parseTerms("eventType=AudioEvent,comparator=gte"));
+        assertEquals(Arrays.asList("app0.apk", "app1.apk", "app2.apk", "app3.apk", "app4.apk"), apps(audio));
+        assertEquals("\"avgLoudness\"", audio.get(0).getString("fieldName"));
+
+        assertEquals(Collections.singletonList("app4.apk"), apps(index.query(IndexQuery.parseTerms("threshold=4"))));
+        assertEquals(Collections.singletonList("app2.apk"),
+                apps(index.query(IndexQuery.parseTerms("app=app2.apk, functionName=isAtLocation"))));
+        assertEquals(5, index.query(IndexQuery.parseTerms("optimizationConstraints=battery")).size());
+        assertEquals(0, index.query(IndexQuery.parseTerms("eventType=AudioEvent,radius=20.0")).size());
+    }
+
+    public void testAppendSameEventsOnce() throws IOException {
+        EventIndex index = new EventIndex(dir);
+        index.append("app.apk", Collections.singletonList(geolocationEvent()));
+        index.append("app.apk", Collections.singletonList(geolocationEvent()));
+        assertEquals(1, index.query(Collections.singletonList(EventIndex.term("app", "app.apk"))).size());
+    }
+
+    public void testAppendSupersedesEarlierEvents() throws IOException, ParseException {
+        EventIndex index = new EventIndex(dir);
+        index.append("app.apk", Arrays.asList(audioEvent("10.0"), geolocationEvent()));
+        // the first segment ends with the first record of other.apk
+        index.append("other.apk", Arrays.asList(audioEvent("30.0"), geolocationEvent(), geolocationEvent()));
+        index.append("app.apk", Collections.singletonList(audioEvent("20.0")));
+        assertTrue(new File(dir, "segment-00000000.seg").isFile());
+
+        List<JSONObject> audio = index.query(IndexQuery.parseTerms("eventType=AudioEvent"));
+        assertEquals(Arrays.asList("other.apk", "app.apk"), apps(audio));
+        assertEquals("20.0", audio.get(1).getString("threshold"));
+        assertFalse(audio.get(1).has("generation"));
+        assertEquals(1, index.query(IndexQuery.parseTerms("app=app.apk")).size());
+        assertEquals(Arrays.asList("other.apk", "other.apk"), apps(index.query(IndexQuery.parseTerms("radius=20.0"))));
+
+        // an app without events anymore has none in the index
+        index.append("app.apk", Collections.<EventSpec>emptyList());
+        assertEquals(0, index.query(IndexQuery.parseTerms("app=app.apk")).size());
+        assertEquals(Collections.singletonList("other.apk"), apps(index.query(IndexQuery.parseTerms("eventType=AudioEvent"))));
+        long length = new File(dir, EventIndex.LOG_FILE).length();
+        index.append("app.apk", Collections.<EventSpec>emptyList());
+        index.append("new.apk", Collections.<EventSpec>emptyList());
+        assertEquals(length, new File(dir, EventIndex.LOG_FILE).length());
+
+        index.append("app.apk", Collections.singletonList(audioEvent("10.0")));
+        assertEquals(Arrays.asList("other.apk", "app.apk"), apps(index.query(IndexQuery.parseTerms("eventType=AudioEvent"))));
+    }
+
+    public void testPartialLineIsDropped() throws IOException {
+        EventIndex index = new EventIndex(dir);
+        index.append("app0.apk", Collections.singletonList(geolocationEvent()));
+        try (RandomAccessFile log = new RandomAccessFile(new File(dir, EventIndex.LOG_FILE), "rw")) {
+            log.seek(log.length());
+            log.write("{\"app\":\"app1".getBytes("UTF-8"));
+        }
+        assertEquals(1, index.query(Collections.singletonList(EventIndex.term("eventType", "GeolocationEvent"))).size());
+        index.append("app2.apk", Collections.singletonList(geolocationEvent()));
+        assertEquals(Arrays.asList("app0.apk", "app2.apk"),
+                apps(index.query(Collections.singletonList(EventIndex.term("eventType", "GeolocationEvent")))));
+    }
+
+    public void testParseTerms() throws ParseException {
+        assertEquals(Arrays.asList("eventType=AudioEvent", "fieldName=avgLoudness"),
+                IndexQuery.parseTerms("eventType=AudioEvent,fieldName=\"avgLoudness\""));
+        try {
+            IndexQuery.parseTerms("hostMethod=onCreate");
+            fail();
+        } catch (ParseException e) {
+            // expected
+        }
+        try {
+            IndexQuery.parseTerms("AudioEvent");
+            fail();
+        } catch (ParseException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package io.github.PrivacySecurerAnalyzer.report;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Unit tests for the structured reports.
+ */
+public class ReportWriterTest extends TestCase {
+    private File dir;
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = File.createTempFile("report", "");
+        dir.delete();
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private static EventSpec audioEvent() {
+        EventSpec spec = new EventSpec("<com.example.app.MainActivity: void onCreate()>", "AudioEvent", "calcAvgLoudness");
+        spec.fieldName = "\"avgLoudness\"";
+        spec.comparator = "\"gte\"";
+        spec.threshold = "20.0";
+        return spec;
+    }
+
+    public void testJsonAndCsv() throws IOException {
+        ReportWriter report = new ReportWriter();
+        report.open("app.apk", dir, Arrays.asList(ReportWriter.JSON, ReportWriter.CSV));
+        report.onEventSpec(audioEvent());
+        report.close();
+
+        JSONObject json = new JSONObject(FileUtils.readFileToString(new File(dir, JsonSink.FILE_NAME), "UTF-8"));
+        assertEquals("app.apk", json.getString("input"));
+        JSONArray events = json.getJSONArray("events");
+        assertEquals(1, events.length());
+        assertEquals("AudioEvent", events.getJSONObject(0).getString("eventType"));
+        assertEquals("The app checks avgLoudness when it is gte 20.0dB.", events.getJSONObject(0).getString("description"));
+
+        List<String> rows = FileUtils.readLines(new File(dir, CsvSink.FILE_NAME), "UTF-8");
+        assertEquals(2, rows.size());
+        assertTrue(rows.get(0).startsWith("input,hostMethod,eventType,functionName,fieldName,comparator,threshold,"));
+        assertTrue(rows.get(1).startsWith("app.apk,<com.example.app.MainActivity: void onCreate()>,AudioEvent,"
+                + "calcAvgLoudness,\"\"\"avgLoudness\"\"\",\"\"\"gte\"\"\",20.0,"));
+        assertTrue(rows.get(1).endsWith(",The app checks avgLoudness when it is gte 20.0dB."));
+    }
+
+    public void testReplay() throws IOException {
+        ReportWriter report = new ReportWriter();
+        report.keep(false, true);
+        report.open("app.apk", dir, Collections.singletonList(ReportWriter.JSON));
+        report.replay("", Collections.singletonList(audioEvent()));
+        report.close();
+        assertEquals(1, report.getEvents().size());
+        JSONObject json = new JSONObject(FileUtils.readFileToString(new File(dir, JsonSink.FILE_NAME), "UTF-8"));
+        assertEquals(1, json.getJSONArray("events").length());
+    }
+
+    public void testConsoleAndRecordedText() throws IOException {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        ReportWriter report = new ReportWriter();
+        report.keep(true, false);
+        try {
+            System.setOut(new PrintStream(console, true, "UTF-8"));
+            report.open("app.apk", dir, Collections.singletonList(ReportWriter.CONSOLE));
+        } finally {
+            System.setOut(stdout);
+        }
+        report.println("before");
+        report.startRecording();
+        report.println("EventType: AudioEvent");
+        assertEquals("EventType: AudioEvent" + System.lineSeparator(), report.takeRecordedText());
+        report.onEventSpec(audioEvent());
+        report.println("after");
+        // the description is not recorded
+        assertEquals("after" + System.lineSeparator(), report.takeRecordedText());
+        report.stopRecording();
+        report.close();
+
+        String text = report.getText();
+        assertTrue(text.startsWith("before" + System.lineSeparator() + "EventType: AudioEvent"));
+        assertTrue(text.contains("The app checks avgLoudness when it is gte 20.0dB."));
+        assertEquals(text, console.toString("UTF-8"));
+    }
+
+    public void testNoConsole() throws IOException {
+        ByteArrayOutputStream console = new ByteArrayOutputStream();
+        PrintStream stdout = System.out;
+        ReportWriter report = new ReportWriter();
+        report.keep(true, false);
+        try {
+            System.setOut(new PrintStream(console, true, "UTF-8"));
+            report.open("app.apk", dir, Collections.singletonList(ReportWriter.JSON));
+            report.println("EventType: AudioEvent");
+            report.onEventSpec(audioEvent());
+            report.close();
+        } finally {
+            System.setOut(stdout);
+        }
+        assertEquals(0, console.size());
+        assertTrue(report.getText().contains("The app checks avgLoudness when it is gte 20.0dB."));
+    }
+
+    public void testNothingKept() throws IOException {
+        ReportWriter report = new ReportWriter();
+        report.open("app.apk", dir, Collections.singletonList(ReportWriter.JSON));
+        report.println("EventType: AudioEvent");
+        report.onEventSpec(audioEvent());
+        report.onEventSpec(audioEvent());
+        report.close();
+        try {
+            report.getEvents();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        try {
+            report.getText();
+            fail();
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        JSONArray events = new JSONObject(FileUtils.readFileToString(new File(dir, JsonSink.FILE_NAME), "UTF-8"))
+                .getJSONArray("events");
+        assertEquals(2, events.length());
+        assertEquals("calcAvgLoudness", events.getJSONObject(1).getString("functionName"));
+    }
+
+    public void testEmptyJson() throws IOException {
+        ReportWriter report = new ReportWriter();
+        report.open("C:\\apps\\\"app\".apk", dir, Collections.singletonList(ReportWriter.JSON));
+        report.close();
+        JSONObject json = new JSONObject(FileUtils.readFileToString(new File(dir, JsonSink.FILE_NAME), "UTF-8"));
+        assertEquals("C:\\apps\\\"app\".apk", json.getString("input"));
+        assertEquals(0, json.getJSONArray("events").length());
+    }
+
+    public void testQuote() {
+        assertEquals("20.0", CsvSink.quote("20.0"));
+        assertEquals("\"a,b\"", CsvSink.quote("a,b"));
+        assertEquals("\"\"\"CMU\"\"\"", CsvSink.quote("\"CMU\""));
+    }
+}
@@ -0,0 +1,69 @@
+package io.github.PrivacySecurerAnalyzer.server;
+
+import java.io.File;
+import java.io.IOException;
+
+import io.github.PrivacySecurerAnalyzer.Config;
+import io.github.PrivacySecurerAnalyzer.core.EventSpec;
+import io.github.PrivacySecurerAnalyzer.frontends.soot.ApkAnalyzer;
+import io.github.PrivacySecurerAnalyzer.utils.ResultCache;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+/**
+ * Unit tests for the jobs of the analysis server.
+ */
+public class AnalysisServerTest extends TestCase {
+    private static final String[] ARGS = {"-nosnapshot", "-report", "console"};
+
+    private File dir;
+    private String inputDirOrFile;
+    private String outputDir;
+    private String cacheDir;
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = File.createTempFile("server", "");
+        dir.delete();
+        dir.mkdirs();
+        inputDirOrFile = Config.inputDirOrFile;
+        outputDir = Config.outputDir;
+        cacheDir = Config.cacheDir;
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        Config.inputDirOrFile = inputDirOrFile;
+        Config.outputDir = outputDir;
+        Config.cacheDir = cacheDir;
+        FileUtils.deleteDirectory(dir);
+    }
+
+    public void testCachedResultHasEvents() throws Exception {
+        File app = new File(dir, "app.jar");
+        FileUtils.writeStringToFile(app, "not analyzed, the result is cached", "UTF-8");
+        Config.cacheDir = new File(dir, "cache").getPath();
+
+        EventSpec spec = new EventSpec("<com.example.app.MainActivity: void onCreate()>", "AudioEvent", "calcAvgLoudness");
+        spec.fieldName = "\"avgLoudness\"";
+        spec.comparator = "\"gte\"";
+        spec.threshold = "20.0";
+        JSONObject entry = new JSONObject();
+        entry.put("console", "The app checks avgLoudness when it is gte 20.0dB.\n");
+        entry.put("events", new JSONArray().put(spec.toJson()));
+        entry.put("derg", JSONObject.NULL);
+        ApkAnalyzer analyzer = new ApkAnalyzer();
+        analyzer.parseArgs(ARGS);
+        new ResultCache(Config.cacheDir).put(analyzer.getCacheKey(app), entry.toString());
+
+        AnalysisServer server = new AnalysisServer(0, dir.getPath(), ARGS);
+        JSONObject result = server.analyze(app.getPath(), new File(dir, "job"));
+        assertEquals("OK", result.getString("status"));
+        JSONArray events = result.getJSONArray("events");
+        assertEquals(1, events.length());
+        assertEquals("calcAvgLoudness", events.getJSONObject(0).getString("functionName"));
+        assertTrue(result.getString("descriptions").contains("The app checks avgLoudness when it is gte 20.0dB."));
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.PrivacySecurerAnalyzer.utils;
+
+import java.util.Map;
+
+import junit.framework.TestCase;
+
+/**
+ * Nested phases should not be counted twice.
+ */
+public class MetricsTest extends TestCase {
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> phase(Metrics metrics, String phase) {
+        return (Map<String, Object>) ((Map<String, Object>) metrics.toMap().get("phases")).get(phase);
+    }
+
+    private static double wallMillis(Metrics metrics, String phase) {
+        return (Double) phase(metrics, phase).get("wallMillis");
+    }
+
+    public void testNestedPhaseIsSubtracted() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        Metrics.Timer outer = metrics.start("outer");
+        Metrics.Timer inner = metrics.start("inner");
+        Thread.sleep(200);
+        inner.stop();
+        Metrics.Timer next = metrics.start("inner");
+        next.stop();
+        outer.stop();
+
+        assertEquals(2L, phase(metrics, "inner").get("calls"));
+        assertEquals(1L, phase(metrics, "outer").get("calls"));
+        assertTrue(wallMillis(metrics, "inner") >= 200);
+        assertTrue(wallMillis(metrics, "outer") < 100);
+    }
+
+    public void testWorkerKeepsWallTimeOfEnclosingPhase() throws InterruptedException {
+        Metrics metrics = new Metrics();
+        Metrics.Timer outer = metrics.start("outer");
+        Metrics.Timer worker = metrics.startWorker("worker");
+        Thread.sleep(200);
+        worker.stop();
+        outer.stop();
+
+        assertEquals(0L, phase(metrics, "worker").get("calls"));
+        assertEquals(0.0, wallMillis(metrics, "worker"));
+        assertTrue(wallMillis(metrics, "outer") >= 200);
+    }
+
+    public void testPhasesOfOtherThreadsAreNotNested() throws InterruptedException {
+        final Metrics metrics = new Metrics();
+        Metrics.Timer outer = metrics.start("outer");
+        Thread thread = new Thread() {
+            @Override
+            public void run() {
+                Metrics.Timer other = metrics.start("other");
+                other.stop();
+            }
+        };
+        thread.start();
+        thread.join();
+        Thread.sleep(100);
+        outer.stop();
+        assertTrue(wallMillis(metrics, "outer") >= 100);
+    }
+}
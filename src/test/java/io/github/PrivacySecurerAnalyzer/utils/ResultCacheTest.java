@@ -0,0 +1,66 @@
+package io.github.PrivacySecurerAnalyzer.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import io.github.PrivacySecurerAnalyzer.Config;
+import junit.framework.TestCase;
+import org.apache.commons.io.FileUtils;
+
+/**
+ * The analyzer version of the cache key should change with the build of the analyzer.
+ */
+public class ResultCacheTest extends TestCase {
+    private static final String PACKAGE_PATH = "io/github/PrivacySecurerAnalyzer/";
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws IOException {
+        dir = File.createTempFile("build", "");
+        dir.delete();
+    }
+
+    @Override
+    protected void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    private File writeJar(String name, String config) throws IOException {
+        File jar = new File(dir, name);
+        try (ZipOutputStream out = new ZipOutputStream(new FileOutputStream(jar))) {
+            out.putNextEntry(new ZipEntry(PACKAGE_PATH + "Config.class"));
+            out.write(config.getBytes("UTF-8"));
+            out.putNextEntry(new ZipEntry("soot/Main.class"));
+            out.write(name.getBytes("UTF-8"));
+        }
+        return jar;
+    }
+
+    public void testAnalyzerHashOfClassesDir() throws IOException {
+        File classes = new File(dir, "classes");
+        FileUtils.writeStringToFile(new File(classes, PACKAGE_PATH + "Config.class"), "v1", "UTF-8");
+        String hash = ResultCache.getAnalyzerHash(classes);
+        FileUtils.writeStringToFile(new File(classes, "soot/Main.class"), "other", "UTF-8");
+        assertEquals(hash, ResultCache.getAnalyzerHash(classes));
+        FileUtils.writeStringToFile(new File(classes, PACKAGE_PATH + "Config.class"), "v2", "UTF-8");
+        assertFalse(hash.equals(ResultCache.getAnalyzerHash(classes)));
+    }
+
+    public void testAnalyzerHashOfJar() throws IOException {
+        dir.mkdirs();
+        String hash = ResultCache.getAnalyzerHash(writeJar("a.jar", "v1"));
+        assertEquals(hash, ResultCache.getAnalyzerHash(writeJar("b.jar", "v1")));
+        assertFalse(hash.equals(ResultCache.getAnalyzerHash(writeJar("c.jar", "v2"))));
+    }
+
+    public void testAnalyzerVersion() {
+        String version = ResultCache.getAnalyzerVersion();
+        assertTrue(version.startsWith(Config.VERSION + "+"));
+        assertFalse(version.endsWith("+unknown"));
+        assertEquals(version, ResultCache.getAnalyzerVersion());
+    }
+}